@@ -0,0 +1,32 @@
+package org.curieo.benchmarks;
+
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+
+/** JDBC objects that accept everything and do nothing, to measure our side of the JDBC calls. */
+public final class JdbcStubs {
+  private static final int[] NO_UPDATES = new int[0];
+
+  private JdbcStubs() {}
+
+  /** A statement of which every setter and batch call is a no-op. */
+  public static PreparedStatement preparedStatement() {
+    return (PreparedStatement)
+        Proxy.newProxyInstance(
+            JdbcStubs.class.getClassLoader(),
+            new Class<?>[] {PreparedStatement.class},
+            (proxy, method, args) -> {
+              Class<?> type = method.getReturnType();
+              if (type == int[].class) {
+                return NO_UPDATES;
+              } else if (type == boolean.class) {
+                return false;
+              } else if (type == int.class) {
+                return 0;
+              } else if (type == long.class) {
+                return 0L;
+              }
+              return null;
+            });
+  }
+}
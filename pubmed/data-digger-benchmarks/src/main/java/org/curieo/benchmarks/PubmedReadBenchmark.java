@@ -0,0 +1,49 @@
+package org.curieo.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+import org.curieo.model.Record;
+import org.curieo.sources.SourceReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Parse the bundled PubMed sample (gunzip included), with each of the PubMed readers. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PubmedReadBenchmark {
+  @Param({SourceReader.PUBMED, SourceReader.PUBMED_CURSOR})
+  String reader;
+
+  byte[] sample;
+  SourceReader sourceReader;
+
+  @Setup
+  public void setup() {
+    sample = Samples.bytes(Samples.PUBMED_SAMPLE);
+    sourceReader = SourceReader.getReader(reader);
+  }
+
+  @Benchmark
+  public int read(Blackhole blackhole) throws Exception {
+    int count = 0;
+    for (Record r : sourceReader.read(new ByteArrayInputStream(sample), Samples.PUBMED_SAMPLE)) {
+      blackhole.consume(r);
+      count++;
+    }
+    return count;
+  }
+}
@@ -0,0 +1,77 @@
+package org.curieo.benchmarks;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.curieo.model.RecordCodec;
+import org.curieo.model.StandardRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Encoding (the write path) and decoding (the scan path) of full records, JSON TEXT against the
+ * binary codecs. The stored size per record is printed at setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecordCodecBenchmark {
+  /** "text" is the JSON of {@link StandardRecord#toJson()} in a TEXT column. */
+  @Param({"text", "json", "smile", "smile-deflate"})
+  String codec;
+
+  List<StandardRecord> records;
+  List<String> texts;
+  List<byte[]> encoded;
+  RecordCodec recordCodec;
+
+  @Setup
+  public void setup() {
+    records = Samples.pubmedRecords().stream().map(StandardRecord::copy).toList();
+    recordCodec = codec.equals("text") ? null : RecordCodec.fromStr(codec);
+    texts = records.stream().map(StandardRecord::toJson).toList();
+    if (recordCodec != null) {
+      encoded = records.stream().map(recordCodec::encode).toList();
+    }
+    // PostgreSQL stores TEXT as UTF-8; either is compressed further (pglz) if large enough
+    long bytes =
+        recordCodec == null
+            ? texts.stream().mapToLong(t -> t.getBytes(UTF_8).length).sum()
+            : encoded.stream().mapToLong(e -> e.length).sum();
+    System.out.printf("%s: %d bytes per record%n", codec, bytes / records.size());
+  }
+
+  @Benchmark
+  public void encode(Blackhole blackhole) {
+    for (StandardRecord r : records) {
+      blackhole.consume(recordCodec == null ? r.toJson() : recordCodec.encode(r));
+    }
+  }
+
+  @Benchmark
+  public void decode(Blackhole blackhole) {
+    if (recordCodec == null) {
+      for (String text : texts) {
+        blackhole.consume(RecordCodec.fromJson(text));
+      }
+    } else {
+      for (byte[] data : encoded) {
+        blackhole.consume(RecordCodec.decode(data));
+      }
+    }
+  }
+}
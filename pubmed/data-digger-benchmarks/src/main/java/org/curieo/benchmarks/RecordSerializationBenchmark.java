@@ -0,0 +1,73 @@
+package org.curieo.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.curieo.model.RecordJson;
+import org.curieo.model.StandardRecord;
+import org.curieo.sources.pubmed.PubmedRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * JSON of the records stored in full: Jackson data binding on a {@link StandardRecord#copy} (as it
+ * used to be done), against {@link RecordJson} writing straight from the parsed record. Run with
+ * {@code -prof gc} to see the allocation per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecordSerializationBenchmark {
+  private static final ObjectWriter JACKSON = new ObjectMapper().writerFor(StandardRecord.class);
+
+  List<PubmedRecord> records;
+  List<StandardRecord> standardRecords;
+
+  @Setup
+  public void setup() {
+    records = Samples.pubmedRecords();
+    standardRecords = records.stream().map(StandardRecord::copy).toList();
+  }
+
+  @Benchmark
+  public void copy(Blackhole blackhole) {
+    for (PubmedRecord r : records) {
+      blackhole.consume(StandardRecord.copy(r));
+    }
+  }
+
+  @Benchmark
+  public void toJson(Blackhole blackhole) {
+    for (StandardRecord r : standardRecords) {
+      blackhole.consume(r.toJson());
+    }
+  }
+
+  @Benchmark
+  public void copyAndJackson(Blackhole blackhole) throws JsonProcessingException {
+    for (PubmedRecord r : records) {
+      blackhole.consume(JACKSON.writeValueAsString(StandardRecord.copy(r)));
+    }
+  }
+
+  @Benchmark
+  public void recordJson(Blackhole blackhole) {
+    for (PubmedRecord r : records) {
+      blackhole.consume(RecordJson.toJson(r));
+    }
+  }
+}
@@ -0,0 +1,41 @@
+package org.curieo.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.stream.XMLStreamException;
+import org.curieo.sources.pubmed.Pubmed;
+import org.curieo.sources.pubmed.PubmedRecord;
+
+/** Test data bundled with the benchmarks. */
+public final class Samples {
+  /** The first 250 records of PubMed baseline file pubmed24n1307. */
+  public static final String PUBMED_SAMPLE = "pubmed-sample.xml.gz";
+
+  private Samples() {}
+
+  /** The raw (gzipped) bytes of a bundled resource. */
+  public static byte[] bytes(String resource) {
+    try (InputStream in = Samples.class.getClassLoader().getResourceAsStream(resource)) {
+      if (in == null) {
+        throw new IllegalStateException("Missing resource " + resource);
+      }
+      return in.readAllBytes();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** All records in the PubMed sample. */
+  public static List<PubmedRecord> pubmedRecords() {
+    List<PubmedRecord> records = new ArrayList<>();
+    try (InputStream in = Samples.class.getClassLoader().getResourceAsStream(PUBMED_SAMPLE)) {
+      Pubmed.read(in, PUBMED_SAMPLE).forEach(records::add);
+    } catch (IOException | XMLStreamException e) {
+      throw new RuntimeException(e);
+    }
+    return records;
+  }
+}
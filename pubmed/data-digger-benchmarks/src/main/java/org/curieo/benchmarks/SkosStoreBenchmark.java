@@ -0,0 +1,97 @@
+package org.curieo.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.curieo.rdf.Constants;
+import org.curieo.rdf.Literal;
+import org.curieo.rdf.SkosNamespaceService;
+import org.curieo.rdf.Store;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Multi-key queries on a SKOS concept scheme, shaped like MeSH: every concept has a type, a scheme,
+ * labels and a parent in a tree of fan-out 8. The verbs {@code rdf:type}, {@code skos:inScheme} and
+ * {@code skos:broader} each have as many triples as there are concepts, so a query on one of them
+ * plus a selective subject or object has a very small list to intersect with a very large one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SkosStoreBenchmark {
+  private static final String CONCEPT = "skos:Concept";
+  private static final String SCHEME = "mesh:scheme";
+  private static final int FAN_OUT = 8;
+  private static final int QUERIES = 1000;
+
+  @Param({"100000", "500000"})
+  int concepts;
+
+  Store store;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    store = SkosNamespaceService.createStore();
+    for (int i = 0; i < concepts; i++) {
+      String concept = concept(i);
+      store.assertTriple(null, concept, Constants.RDF_TYPE, CONCEPT);
+      store.assertTriple(null, concept, "skos:inScheme", SCHEME);
+      store.assertTriple(null, concept, "skos:prefLabel", new Literal("Concept " + i, "en", null));
+      store.assertTriple(null, concept, "skos:altLabel", new Literal("C" + i, "en", null));
+      if (i > 0) {
+        store.assertTriple(null, concept, "skos:broader", concept((i - 1) / FAN_OUT));
+      }
+    }
+  }
+
+  private static String concept(int i) {
+    return "mesh:D" + i;
+  }
+
+  private String sample(int i) {
+    return concept((int) ((long) i * concepts / QUERIES));
+  }
+
+  /** Is this a concept: one subject against all of {@code rdf:type} and {@code skos:Concept}. */
+  @Benchmark
+  public void isConcept(Blackhole blackhole) {
+    for (int i = 0; i < QUERIES; i++) {
+      blackhole.consume(store.contains(sample(i), Constants.RDF_TYPE, CONCEPT));
+    }
+  }
+
+  /** The parents of a concept: one subject against all of {@code skos:broader}. */
+  @Benchmark
+  public void broader(Blackhole blackhole) {
+    for (int i = 0; i < QUERIES; i++) {
+      store.getBySubjectAndVerb(sample(i), "skos:broader").forEach(blackhole::consume);
+    }
+  }
+
+  /** The children of a concept: a small object list against all of {@code skos:broader}. */
+  @Benchmark
+  public void narrower(Blackhole blackhole) {
+    for (int i = 0; i < QUERIES; i++) {
+      blackhole.consume(store.countByVerbAndObject("skos:broader", sample(i / FAN_OUT)));
+    }
+  }
+
+  /** All concepts in the scheme: two lists as long as the store has concepts. */
+  @Benchmark
+  public int inScheme() {
+    return store.countByVerbAndObject("skos:inScheme", SCHEME);
+  }
+}
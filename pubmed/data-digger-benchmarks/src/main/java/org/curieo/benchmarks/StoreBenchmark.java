@@ -0,0 +1,106 @@
+package org.curieo.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.curieo.rdf.Store;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Insert and query paths of the in-memory RDF {@link Store}, over a synthetic, MeSH-like graph:
+ * many subjects, a handful of verbs, and objects with a skewed (popular categories) distribution.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StoreBenchmark {
+  private static final String[] VERBS = {
+    "rdf:type",
+    "skos:broader",
+    "skos:related",
+    "meshv:treeNumber",
+    "meshv:concept",
+    "meshv:qualifier",
+    "rdfs:seeAlso",
+    "dcterms:source",
+  };
+  private static final int QUERIES = 1000;
+
+  @Param({"10000", "100000"})
+  int triples;
+
+  String[] subjects;
+  String[] verbs;
+  String[] objects;
+  Store store;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    subjects = new String[triples];
+    verbs = new String[triples];
+    objects = new String[triples];
+    int distinctSubjects = Math.max(1, triples / 5);
+    int distinctObjects = Math.max(1, triples / 20);
+    long seed = 42;
+    for (int i = 0; i < triples; i++) {
+      seed = seed * 6364136223846793005L + 1442695040888963407L;
+      int r = (int) (seed >>> 33);
+      subjects[i] = "mesh:D" + (i % distinctSubjects);
+      verbs[i] = VERBS[r % VERBS.length];
+      // square the uniform draw to make low object numbers popular
+      double u = (r & 0xffff) / 65536.0;
+      objects[i] = "mesh:C" + (int) (u * u * distinctObjects);
+    }
+    store = fill();
+  }
+
+  private Store fill() {
+    Store s = new Store();
+    for (int i = 0; i < triples; i++) {
+      s.assertTriple(null, subjects[i], verbs[i], objects[i]);
+    }
+    return s;
+  }
+
+  @Benchmark
+  public Store insert() {
+    return fill();
+  }
+
+  @Benchmark
+  public void bySubjectAndVerb(Blackhole blackhole) {
+    for (int i = 0; i < QUERIES; i++) {
+      int t = (int) ((long) i * triples / QUERIES);
+      store.getBySubjectAndVerb(subjects[t], verbs[t]).forEach(blackhole::consume);
+    }
+  }
+
+  @Benchmark
+  public void byVerbAndObject(Blackhole blackhole) {
+    for (int i = 0; i < QUERIES; i++) {
+      int t = (int) ((long) i * triples / QUERIES);
+      store.getByVerbAndObject(verbs[t], objects[t]).forEach(blackhole::consume);
+    }
+  }
+
+  @Benchmark
+  public void bySubjectVerbAndObject(Blackhole blackhole) {
+    for (int i = 0; i < QUERIES; i++) {
+      int t = (int) ((long) i * triples / QUERIES);
+      blackhole.consume(store.contains(subjects[t], verbs[t], objects[t]));
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package org.curieo.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import org.curieo.model.ReferenceGroup;
+import org.curieo.model.identifiers.DOI;
+import org.curieo.sources.pubmed.PubmedAuthor;
+import org.curieo.sources.pubmed.PubmedRecord;
+import org.curieo.utils.StringUtils;
+import org.curieo.utils.Trie;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Text scanning done per field while mapping records: e-mail extraction from affiliations, DOI
+ * detection in citations and longest-prefix lookup of URIs in a {@link Trie}. All inputs are taken
+ * from the bundled PubMed sample.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextBenchmark {
+  private static final String[] NAMESPACES = {
+    "http://id.nlm.nih.gov/mesh/",
+    "http://id.nlm.nih.gov/mesh/vocab#",
+    "http://www.w3.org/1999/02/22-rdf-syntax-ns#",
+    "http://www.w3.org/2000/01/rdf-schema#",
+    "http://www.w3.org/2004/02/skos/core#",
+    "http://purl.org/dc/terms/",
+    "https://doi.org/",
+    "https://pubmed.ncbi.nlm.nih.gov/",
+  };
+
+  List<String> affiliations;
+  List<String> citations;
+  List<String> uris;
+  Trie<String> trie;
+
+  @Setup
+  public void setup() {
+    List<PubmedRecord> records = Samples.pubmedRecords();
+    affiliations =
+        records.stream()
+            .filter(r -> r.getPubmedAuthors() != null)
+            .flatMap(r -> r.getPubmedAuthors().stream())
+            .flatMap(a -> a.getAffiliations().stream())
+            .toList();
+    citations =
+        records.stream()
+            .filter(r -> r.getReferences() != null)
+            .flatMap(r -> r.getReferences().stream())
+            .map(ReferenceGroup::getCitation)
+            .filter(Objects::nonNull)
+            .toList();
+
+    trie = new Trie<>();
+    for (int i = 0; i < NAMESPACES.length; i++) {
+      trie.put(NAMESPACES[i], "ns" + i);
+    }
+    uris = new ArrayList<>();
+    for (PubmedRecord r : records) {
+      String pmid = r.getIdentifier();
+      uris.add(NAMESPACES[7] + pmid);
+      uris.add(NAMESPACES[0] + "D" + pmid);
+      uris.add("http://example.org/unknown/" + pmid);
+      if (r.getIdentifier("doi") != null) {
+        uris.add(NAMESPACES[6] + r.getIdentifier("doi"));
+      }
+    }
+  }
+
+  /** Done for every author, see {@link PubmedAuthor#toAuthorship}. */
+  @Benchmark
+  public void extractEmails(Blackhole blackhole) {
+    for (String affiliation : affiliations) {
+      blackhole.consume(StringUtils.extractEmails(affiliation));
+    }
+  }
+
+  @Benchmark
+  public void findDoiInText(Blackhole blackhole) {
+    for (String citation : citations) {
+      blackhole.consume(DOI.findInText(citation));
+    }
+  }
+
+  @Benchmark
+  public void findLongestPrefix(Blackhole blackhole) {
+    for (String uri : uris) {
+      blackhole.consume(trie.findLongestUpTo(uri, 0, uri.length()));
+    }
+  }
+}
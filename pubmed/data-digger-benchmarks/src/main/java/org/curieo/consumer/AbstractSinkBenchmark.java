@@ -0,0 +1,163 @@
+package org.curieo.consumer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.curieo.benchmarks.JdbcStubs;
+import org.curieo.benchmarks.Samples;
+import org.curieo.model.Authorship;
+import org.curieo.model.LinkedField;
+import org.curieo.model.Reference;
+import org.curieo.model.ReferenceType;
+import org.curieo.sources.pubmed.PubmedRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Row binding in {@link AbstractSink#accept} against a statement that does nothing, so only our
+ * side is measured: extraction, trimming, List explosion and parameter binding through the compiled
+ * {@link RowBinder}.
+ *
+ * <p>This lives in the package of the sink, which is not public.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AbstractSinkBenchmark {
+  @Param({"100"})
+  int batchSize;
+
+  List<LinkedField<Authorship>> authorships;
+  List<LinkedField<Reference>> references;
+  List<PubmedRecord> records;
+  AbstractSink<LinkedField<Authorship>> authorshipSink;
+  AbstractSink<LinkedField<Reference>> referenceSink;
+  AbstractSink<PubmedRecord> explodingSink;
+
+  @Setup
+  public void setup() {
+    records = Samples.pubmedRecords();
+    authorships = records.stream().flatMap(r -> r.toAuthorships().stream()).toList();
+    references = syntheticReferences(records);
+
+    // same fields and extracts as SQLSinkFactory.createAuthorshipSink
+    List<FieldSpec> fieldSpecs =
+        Arrays.asList(
+            FieldSpec.unique("publicationId", ExtractType.BigInteger),
+            new FieldSpec("Ordinal", ExtractType.SmallInt),
+            new FieldSpec("foreName", ExtractType.String, 40),
+            new FieldSpec("lastName", ExtractType.String, 60),
+            new FieldSpec("initials", ExtractType.String, 10),
+            new FieldSpec("affiliation", ExtractType.List, 2000),
+            new FieldSpec("yearActive", ExtractType.SmallInt),
+            new FieldSpec("emailaddress", ExtractType.String, 60));
+    List<Extract<LinkedField<Authorship>>> extracts =
+        List.of(
+            fieldSpecs.get(0).extractLong(LinkedField::publicationId),
+            fieldSpecs.get(1).extractIntValue(LinkedField::ordinal),
+            fieldSpecs.get(2).extractString(l -> l.field().getForeName()),
+            fieldSpecs.get(3).extractString(l -> l.field().getLastName()),
+            fieldSpecs.get(4).extractString(l -> l.field().getInitials()),
+            fieldSpecs.get(5).extractList(l -> l.field().getAffiliations()),
+            fieldSpecs.get(6).extractInt(l -> l.field().getYearActive()),
+            fieldSpecs.get(7).extractString(l -> l.field().getEmailAddress()));
+    authorshipSink = new AbstractSink<>(extracts, JdbcStubs.preparedStatement(), batchSize);
+
+    // same fields and extracts as SQLSinkFactory.createReferenceSink: narrow rows, no List fields
+    FieldSpec articleId = FieldSpec.unique("articleid", ExtractType.BigInteger);
+    FieldSpec reference = new FieldSpec("reference", ExtractType.String, 30);
+    FieldSpec referenceType = new FieldSpec("reference_type", ExtractType.SmallInt);
+    FieldSpec ordinal = new FieldSpec("ordinal", ExtractType.Integer);
+    FieldSpec citation = new FieldSpec("citation", ExtractType.String, 500);
+    referenceSink =
+        new AbstractSink<>(
+            List.of(
+                articleId.extractLong(LinkedField::publicationId),
+                reference.extractString(l -> l.field().identifier()),
+                referenceType.extractIntValue(l -> l.field().type().ordinal()),
+                ordinal.extractIntValue(LinkedField::ordinal),
+                citation.extractString(l -> l.field().citation())),
+            JdbcStubs.preparedStatement(),
+            batchSize);
+
+    // two List fields: one row per author per MeSH descriptor (ListUtils.cartesian)
+    FieldSpec pmid = FieldSpec.unique("pmid", ExtractType.BigInteger);
+    FieldSpec author = new FieldSpec("author", ExtractType.List, 100);
+    FieldSpec descriptor = new FieldSpec("descriptor", ExtractType.List, 20);
+    explodingSink =
+        new AbstractSink<>(
+            List.of(
+                pmid.extractLong(PubmedRecord::getNumericIdentifier),
+                author.extractList(PubmedRecord::getAuthors),
+                descriptor.extractList(AbstractSinkBenchmark::descriptors)),
+            JdbcStubs.preparedStatement(),
+            batchSize);
+  }
+
+  /** The sample has hardly any references to PubMed: 25 made-up ones per record. */
+  private static List<LinkedField<Reference>> syntheticReferences(List<PubmedRecord> records) {
+    List<LinkedField<Reference>> references = new ArrayList<>();
+    for (PubmedRecord r : records) {
+      for (int i = 0; i < 25; i++) {
+        String citation =
+            String.format(
+                "Doe J, Roe R. A cited article number %d. J Example. %d;%d:%d-%d.",
+                i, 1990 + i, i + 1, 100 * i, 100 * i + 9);
+        references.add(
+            new LinkedField<>(
+                i,
+                r.getNumericIdentifier(),
+                new Reference(citation, ReferenceType.Pubmed, Integer.toString(10_000_000 + i))));
+      }
+    }
+    return references;
+  }
+
+  private static List<String> descriptors(PubmedRecord r) {
+    if (r.getMeshHeadings() == null) {
+      return List.of();
+    }
+    return r.getMeshHeadings().stream().map(m -> m.getDescriptorName().UI()).toList();
+  }
+
+  @Benchmark
+  public int authorships() {
+    authorships.forEach(authorshipSink);
+    return authorshipSink.getTotalCount();
+  }
+
+  @Benchmark
+  public int references() {
+    references.forEach(referenceSink);
+    return referenceSink.getTotalCount();
+  }
+
+  @Benchmark
+  public int cartesianExplosion() {
+    records.forEach(explodingSink);
+    return explodingSink.getTotalCount();
+  }
+
+  /** For reference: the explosion alone. */
+  @Benchmark
+  public int explodeOnly() {
+    int rows = 0;
+    for (PubmedRecord r : records) {
+      rows += AbstractSink.explode(explodingSink.getExtracts(), r).size();
+    }
+    return rows;
+  }
+}
@@ -1,7 +1,5 @@
 package org.curieo.consumer;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
-
 import org.curieo.model.FullTextRecord;
 import org.curieo.utils.Config;
 import software.amazon.awssdk.services.s3.S3Client;
@@ -21,7 +19,7 @@ public class AWSStorageSink implements Sink<FullTextRecord> {
   @Override
   public void accept(FullTextRecord t) {
     String location = t.computeLocation();
-    S3Helpers.putObject(client, t.getContent().getBytes(UTF_8), bucket, location);
+    S3Helpers.putObject(client, t.getData(), bucket, location);
     count++;
   }
 
@@ -30,6 +28,11 @@ public class AWSStorageSink implements Sink<FullTextRecord> {
     client.close();
   }
 
+  @Override
+  public String getName() {
+    return "s3://" + bucket;
+  }
+
   @Override
   public int getTotalCount() {
     return count;
@@ -6,25 +6,84 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import lombok.AllArgsConstructor;
 import lombok.Data;
+import org.curieo.metrics.Histogram;
+import org.curieo.metrics.Metrics;
 import org.curieo.utils.ListUtils;
 
 @Data
-@AllArgsConstructor
 class AbstractSink<T> implements Sink<T> {
+  final String name;
   final List<Extract<T>> extracts;
   final PreparedStatement statement;
+  // the extracts, compiled
+  final RowBinder<T> binder;
   int insertions;
   int updates;
   int batchSize;
+  // rows added since the batch was last executed, and the bytes they bind
+  int batched;
+  long batchedBytes;
+  // null for batches of a fixed size
+  BatchSizing.Controller sizing;
+  // only timed once metrics are registered
+  Histogram batchLatency;
 
   public AbstractSink(List<Extract<T>> extracts, PreparedStatement statement, int batchSize) {
-    this(extracts, statement, 0, 0, batchSize);
+    this(AbstractSink.class.getSimpleName(), extracts, statement, batchSize);
+  }
+
+  /**
+   * @param name name to report metrics under, typically the table name
+   */
+  public AbstractSink(
+      String name, List<Extract<T>> extracts, PreparedStatement statement, int batchSize) {
+    this.name = name;
+    this.extracts = extracts;
+    this.statement = statement;
+    this.binder = new RowBinder<>(extracts);
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * @param batchSize the size of the first batch, after which batches are sized by the latency of
+   *     executing them and the payload they bind
+   */
+  public AbstractSink(
+      String name,
+      List<Extract<T>> extracts,
+      PreparedStatement statement,
+      int batchSize,
+      BatchSizing sizing) {
+    this(name, extracts, statement, batchSize);
+    this.sizing = sizing.controller(batchSize);
+    this.batchSize = this.sizing.size();
   }
 
   @Override
   public void accept(T t) {
+    try {
+      int rows = binder.explode(t);
+      for (int r = 0; r < rows; r++) {
+        batchedBytes += binder.bindRow(statement, t);
+        statement.addBatch();
+        insertions++;
+        if (++batched >= batchSize || sizing != null && batchedBytes >= sizing.byteLimit()) {
+          executeAndClearBatch();
+        }
+      }
+    } catch (SQLException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Every List field multiplies the number of rows stored for a single item. This is what {@link
+   * RowBinder} binds, without building the lists.
+   *
+   * @return all combinations of values of the List fields, in order of the extracts.
+   */
+  static <T> List<List<String>> explode(List<Extract<T>> extracts, T t) {
     List<List<String>> exploded = new ArrayList<>();
     for (Extract<T> extract : extracts) {
       if (extract.spec().getType() == ExtractType.List) {
@@ -36,49 +95,30 @@ class AbstractSink<T> implements Sink<T> {
     if (exploded.isEmpty()) {
       exploded = Collections.singletonList(Collections.emptyList());
     }
+    return exploded;
+  }
+
+  /** Execute the rows batched so far, without closing the statement. */
+  void flush() {
+    if (batched > 0) {
+      executeAndClearBatch();
+    }
+  }
 
+  /** Drop the rows batched so far, e.g. after executing them failed. */
+  void discardBatch() {
     try {
-      for (List<String> values : exploded) {
-        int e = 0;
-        for (int i = 1; i <= extracts.size(); i++) {
-          Extract<T> extract = extracts.get(i - 1);
-          switch (extract.spec().getType()) {
-            case SmallInt, Integer:
-              statement.setInt(i, extract.getInteger(t));
-              break;
-            case BigInteger:
-              statement.setLong(i, extract.getLong(t));
-              break;
-            case List:
-              if (values.size() > e) {
-                statement.setString(i, values.get(e++));
-              } else {
-                statement.setString(i, null);
-              }
-              break;
-            case String, Text:
-              statement.setString(i, extract.getString(t));
-              break;
-            case Timestamp:
-              statement.setTimestamp(i, extract.getTimestamp(t));
-              break;
-          }
-        }
-        statement.addBatch();
-        insertions++;
-        if (insertions % batchSize == 0) {
-          executeAndClearBatch();
-        }
-      }
+      statement.clearBatch();
     } catch (SQLException e) {
       throw new RuntimeException(e);
     }
+    insertions -= batched;
+    batched = 0;
+    batchedBytes = 0;
   }
 
   public void finalCall() {
-    if (insertions > 0) {
-      executeAndClearBatch();
-    }
+    flush();
     try {
       if (!statement.isClosed()) {
         statement.close();
@@ -96,12 +136,40 @@ class AbstractSink<T> implements Sink<T> {
     return updates;
   }
 
+  /**
+   * Adds the latency of {@link PreparedStatement#executeBatch()} and the batch size to the record
+   * counts.
+   */
+  @Override
+  public void registerMetrics(Metrics metrics) {
+    Sink.super.registerMetrics(metrics);
+    batchLatency =
+        metrics.timer(
+            "datadigger_sql_batch_seconds", "Time to execute a batch of statements", "sink", name);
+    metrics.gauge(
+        "datadigger_sql_batch_size",
+        "Rows per batch of statements, which adaptive sinks change as they go",
+        () -> batchSize,
+        "sink",
+        name);
+  }
+
   private void executeAndClearBatch() {
     try {
+      long start = System.nanoTime();
       int[] updateCounts = statement.executeBatch();
+      if (batchLatency != null) {
+        batchLatency.observeSince(start);
+      }
+      if (sizing != null) {
+        sizing.observe(batched, batchedBytes, System.nanoTime() - start);
+        batchSize = sizing.size();
+      }
       int updateSum = Arrays.stream(updateCounts).filter(i -> i > 0).sum();
       updates += updateSum;
       statement.clearBatch();
+      batched = 0;
+      batchedBytes = 0;
     } catch (SQLException e) {
       throw new RuntimeException(e);
     }
@@ -3,11 +3,16 @@ package org.curieo.consumer;
 import java.util.Optional;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.curieo.metrics.Metrics;
 
 public class AsyncSink<T> implements Sink<T> {
   BlockingQueue<Optional<T>> queue = new ArrayBlockingQueue<>(1000);
   Sink<T> embedded;
   StorageThread storageThread;
+  // time the producer spent waiting for a full queue
+  final LongAdder blockedNanos = new LongAdder();
 
   public AsyncSink(Sink<T> sink) {
     this.embedded = sink;
@@ -17,8 +22,13 @@ public class AsyncSink<T> implements Sink<T> {
 
   @Override
   public void accept(T t) {
+    Optional<T> item = Optional.of(t);
     try {
-      queue.put(Optional.of(t));
+      if (!queue.offer(item)) {
+        long start = System.nanoTime();
+        queue.put(item);
+        blockedNanos.add(System.nanoTime() - start);
+      }
     } catch (InterruptedException e) {
       throw new RuntimeException(e);
     }
@@ -42,6 +52,34 @@ public class AsyncSink<T> implements Sink<T> {
     return embedded.getUpdatedCount();
   }
 
+  @Override
+  public int getCollapsedCount() {
+    return embedded.getCollapsedCount();
+  }
+
+  @Override
+  public String getName() {
+    return embedded.getName();
+  }
+
+  /** Registers the embedded sink, plus the queue depth and the time producers were blocked. */
+  @Override
+  public void registerMetrics(Metrics metrics) {
+    embedded.registerMetrics(metrics);
+    metrics.gauge(
+        "datadigger_async_queue_depth",
+        "Items waiting in the queue of an asynchronous sink",
+        queue::size,
+        "sink",
+        getName());
+    metrics.counter(
+        "datadigger_async_blocked_seconds_total",
+        "Time producers spent waiting for room in the queue of an asynchronous sink",
+        () -> (double) blockedNanos.sum() / TimeUnit.SECONDS.toNanos(1),
+        "sink",
+        getName());
+  }
+
   private class StorageThread extends Thread {
     @Override
     public void run() {
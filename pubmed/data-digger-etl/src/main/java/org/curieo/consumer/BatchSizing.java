@@ -0,0 +1,83 @@
+package org.curieo.consumer;
+
+import java.time.Duration;
+
+/**
+ * Targets for sinks that size their batches by what they measure, instead of by a fixed number of
+ * rows: a batch of wide rows (full records) and a batch of narrow rows (references) take very
+ * different times to execute.
+ *
+ * @param targetLatency the time a batch should take to execute
+ * @param targetBytes the payload a batch should bind at most
+ * @param minSize the smallest batch, in rows
+ * @param maxSize the largest batch, in rows
+ */
+public record BatchSizing(Duration targetLatency, long targetBytes, int minSize, int maxSize) {
+  public static final Duration DEFAULT_LATENCY = Duration.ofMillis(200);
+  public static final long DEFAULT_BYTES = 4L << 20;
+  public static final int MAX_SIZE = 100_000;
+
+  public BatchSizing {
+    if (targetLatency.isNegative() || targetLatency.isZero()) {
+      throw new IllegalArgumentException("The target latency must be positive");
+    }
+    if (targetBytes <= 0 || minSize <= 0 || maxSize < minSize) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Invalid batch sizing: %d bytes, %d-%d rows", targetBytes, minSize, maxSize));
+    }
+  }
+
+  public static BatchSizing of(Duration targetLatency, long targetBytes) {
+    return new BatchSizing(targetLatency, targetBytes, 1, MAX_SIZE);
+  }
+
+  Controller controller(int initialSize) {
+    return new Controller(initialSize);
+  }
+
+  /**
+   * Sets the size of the next batch from the latency and payload of the previous ones, per row and
+   * smoothed. A batch grows at most twofold at a time, as the time per row usually goes down with
+   * larger batches; it shrinks straight away.
+   */
+  final class Controller {
+    private static final double SMOOTHING = 0.3;
+    private double nanosPerRow = Double.NaN;
+    private double bytesPerRow = Double.NaN;
+    private int size;
+
+    private Controller(int initialSize) {
+      size = clamp(initialSize);
+    }
+
+    int size() {
+      return size;
+    }
+
+    long byteLimit() {
+      return targetBytes;
+    }
+
+    void observe(int rows, long bytes, long nanos) {
+      if (rows <= 0) {
+        return;
+      }
+      nanosPerRow = smooth(nanosPerRow, (double) nanos / rows);
+      bytesPerRow = smooth(bytesPerRow, (double) bytes / rows);
+      double target = targetLatency.toNanos() / Math.max(nanosPerRow, 1);
+      if (bytesPerRow > 0) {
+        target = Math.min(target, targetBytes / bytesPerRow);
+      }
+      size = clamp((int) Math.min(target, 2.0 * size));
+    }
+
+    private static double smooth(double average, double value) {
+      return Double.isNaN(average) ? value : average + SMOOTHING * (value - average);
+    }
+
+    private int clamp(int rows) {
+      return Math.max(minSize, Math.min(maxSize, rows));
+    }
+  }
+}
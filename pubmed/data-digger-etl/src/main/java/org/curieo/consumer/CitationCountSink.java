@@ -0,0 +1,233 @@
+package org.curieo.consumer;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import org.apache.commons.collections4.ListUtils;
+import org.curieo.metrics.Metrics;
+import org.curieo.model.Record;
+import org.curieo.model.ReferenceGroup;
+import org.curieo.model.ReferenceType;
+import org.curieo.utils.LongIntHashMap;
+
+/**
+ * Keeps the number of times every PubMed identifier is cited up to date while records stream in,
+ * instead of counting over the reference table afterwards. The PubMed identifiers a record cites
+ * are kept per record in a sources table; when a record comes in again, its previous citations are
+ * subtracted, so the counts follow the latest version of every record.
+ *
+ * <p>Per batch of records, the changes of the counts are summed in a {@link LongIntHashMap} and
+ * added to the counts table in one statement, in the same transaction as the sources, on a
+ * connection of its own. Counts rows are written in order of identifier, so that writers in
+ * parallel lock them in the same order. Records get a row of their own, with their year, whether
+ * they are cited or not; identifiers that are cited but not (yet) stored have no year.
+ *
+ * <p>A batch that fails is rolled back and stays pending, so a later {@link #flush()} or {@link
+ * #finalCall()} stores it after all. Not thread safe.
+ */
+class CitationCountSink implements Sink<Record> {
+  private final String countsTable;
+  private final Connection connection;
+  private final PreparedStatement previousStatement;
+  private final PreparedStatement sourcesUpsert;
+  private final PreparedStatement countsUpsert;
+  private final int batchSize;
+  // the cited identifiers of the records in this batch, sorted and distinct
+  private final Map<Long, long[]> pending = new LinkedHashMap<>();
+  private final LongIntHashMap years = new LongIntHashMap();
+  private final LongIntHashMap deltas = new LongIntHashMap();
+  private int records;
+  private int reingested;
+  private long citations;
+
+  /**
+   * @param connection a connection for this sink only: it commits per batch, and is closed by
+   *     {@link #finalCall()}
+   * @param countsTable table of (identifier, citationcount, year), with the identifier as key
+   * @param sourcesTable table of (articleid, cited), with the article id as key
+   */
+  CitationCountSink(Connection connection, String countsTable, String sourcesTable, int batchSize)
+      throws SQLException {
+    this.countsTable = countsTable;
+    this.connection = connection;
+    this.batchSize = batchSize;
+    connection.setAutoCommit(false);
+    previousStatement =
+        connection.prepareStatement(
+            String.format(
+                "SELECT articleid, unnest(cited) FROM %s WHERE articleid = ANY(?)", sourcesTable));
+    sourcesUpsert =
+        connection.prepareStatement(
+            String.format(
+                "INSERT INTO %s (articleid, cited) VALUES (?, ?)"
+                    + " ON CONFLICT (articleid) DO UPDATE SET cited = EXCLUDED.cited",
+                sourcesTable));
+    countsUpsert =
+        connection.prepareStatement(
+            String.format(
+                "INSERT INTO %1$s (identifier, citationcount, year)"
+                    + " SELECT * FROM unnest(?::bigint[], ?::int[], ?::int[])"
+                    + " ON CONFLICT (identifier) DO UPDATE SET"
+                    + " citationcount = %1$s.citationcount + EXCLUDED.citationcount,"
+                    + " year = COALESCE(EXCLUDED.year, %1$s.year)",
+                countsTable));
+  }
+
+  @Override
+  public void accept(Record record) {
+    Long id = record.getNumericIdentifier();
+    long[] cited =
+        ListUtils.emptyIfNull(record.getReferences()).stream()
+            .map(ReferenceGroup::getIdentifiers)
+            .flatMap(identifiers -> identifiers.entrySet().stream())
+            .filter(e -> ReferenceType.fromStr(e.getKey()) == ReferenceType.Pubmed)
+            .mapToLong(e -> parseIdentifier(e.getValue()))
+            .filter(pmid -> pmid > 0)
+            .sorted()
+            .distinct()
+            .toArray();
+    // a record that comes in twice in a batch replaces itself
+    pending.put(id, cited);
+    Integer year = record.getYear();
+    if (year != null) {
+      years.put(id, year);
+    }
+    if (pending.size() >= batchSize) {
+      flush();
+    }
+  }
+
+  private static long parseIdentifier(String identifier) {
+    try {
+      return Long.parseLong(identifier.trim());
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /** Store the pending records and the changes of the counts they make, in one transaction. */
+  void flush() {
+    if (pending.isEmpty()) {
+      return;
+    }
+    try {
+      previousStatement.setObject(
+          1, pending.keySet().stream().mapToLong(Long::longValue).toArray());
+      Set<Long> stored = new HashSet<>();
+      try (ResultSet previous = previousStatement.executeQuery()) {
+        while (previous.next()) {
+          stored.add(previous.getLong(1));
+          add(previous.getLong(2), -1);
+        }
+      }
+      long cited = 0;
+      for (Map.Entry<Long, long[]> entry : pending.entrySet()) {
+        for (long pmid : entry.getValue()) {
+          add(pmid, 1);
+        }
+        cited += entry.getValue().length;
+        // no change, but a row with the year of the record
+        add(entry.getKey(), 0);
+        if (entry.getValue().length > 0 || stored.contains(entry.getKey())) {
+          sourcesUpsert.setLong(1, entry.getKey());
+          sourcesUpsert.setObject(2, entry.getValue());
+          sourcesUpsert.addBatch();
+        }
+      }
+
+      // identifiers cited as often as before drop out, unless they are records of this batch
+      long[] identifiers = new long[deltas.size()];
+      int[] n = new int[1];
+      deltas.forEach(
+          (identifier, delta) -> {
+            if (delta != 0 || pending.containsKey(identifier)) {
+              identifiers[n[0]++] = identifier;
+            }
+          });
+      Arrays.sort(identifiers, 0, n[0]);
+      long[] changed = Arrays.copyOf(identifiers, n[0]);
+      int[] counts = new int[changed.length];
+      Integer[] yearColumn = new Integer[changed.length];
+      for (int i = 0; i < changed.length; i++) {
+        counts[i] = deltas.get(changed[i], 0);
+        int year = years.get(changed[i], Integer.MIN_VALUE);
+        yearColumn[i] = year == Integer.MIN_VALUE ? null : year;
+      }
+      countsUpsert.setObject(1, changed);
+      countsUpsert.setObject(2, counts);
+      countsUpsert.setObject(3, yearColumn);
+      countsUpsert.executeUpdate();
+      sourcesUpsert.executeBatch();
+      connection.commit();
+      records += pending.size();
+      reingested += stored.size();
+      citations += cited;
+      pending.clear();
+      years.clear();
+    } catch (SQLException e) {
+      // the records stay pending, for the next flush to try again
+      try {
+        connection.rollback();
+      } catch (SQLException suppressed) {
+        e.addSuppressed(suppressed);
+      }
+      throw new RuntimeException(e);
+    } finally {
+      // worked out again by every attempt
+      deltas.clear();
+    }
+  }
+
+  private void add(long identifier, int delta) {
+    deltas.put(identifier, deltas.get(identifier, 0) + delta);
+  }
+
+  @Override
+  public void finalCall() {
+    flush();
+    try {
+      connection.setAutoCommit(true);
+      connection.close();
+    } catch (SQLException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * @return the number of records whose citations are counted
+   */
+  @Override
+  public int getTotalCount() {
+    return records;
+  }
+
+  /**
+   * @return the number of records that came in again, and replaced their previous citations
+   */
+  @Override
+  public int getUpdatedCount() {
+    return reingested;
+  }
+
+  @Override
+  public String getName() {
+    return countsTable;
+  }
+
+  @Override
+  public void registerMetrics(Metrics metrics) {
+    Sink.super.registerMetrics(metrics);
+    metrics.counter(
+        "datadigger_citations_total",
+        "Citations counted, per sink; re-ingested records count again",
+        () -> citations,
+        "sink",
+        getName());
+  }
+}
@@ -0,0 +1,213 @@
+package org.curieo.consumer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Encodings for the PostgreSQL COPY protocol.
+ *
+ * <p>See https://www.postgresql.org/docs/current/sql-copy.html#id-1.9.3.55.9 for both formats.
+ */
+public enum CopyFormat {
+  Text("text"),
+  Binary("binary");
+
+  private static final byte[] BINARY_SIGNATURE = {
+    'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xff, '\r', '\n', 0
+  };
+  private static final LocalDateTime POSTGRES_EPOCH = LocalDateTime.of(2000, 1, 1, 0, 0);
+  private static final DateTimeFormatter TIMESTAMP_FORMAT =
+      DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSS");
+  private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(UTF_8);
+
+  final String formatName;
+
+  CopyFormat(String formatName) {
+    this.formatName = formatName;
+  }
+
+  /** Written once at the start of every COPY. */
+  void writeHeader(DataOutputStream out) throws IOException {
+    if (this == Binary) {
+      out.write(BINARY_SIGNATURE);
+      out.writeInt(0); // flags
+      out.writeInt(0); // header extension length
+    }
+  }
+
+  /** Written once at the end of every COPY. */
+  void writeTrailer(DataOutputStream out) throws IOException {
+    if (this == Binary) {
+      out.writeShort(-1);
+    }
+  }
+
+  void startRow(DataOutputStream out, int fields) throws IOException {
+    if (this == Binary) {
+      out.writeShort(fields);
+    }
+  }
+
+  void endRow(DataOutputStream out) throws IOException {
+    if (this == Text) {
+      out.write('\n');
+    }
+  }
+
+  /** Written between the fields of a row. */
+  void separate(DataOutputStream out) throws IOException {
+    if (this == Text) {
+      out.write('\t');
+    }
+  }
+
+  /**
+   * Write a single field value. {@link CopyRowWriter} writes with the typed methods below instead,
+   * resolved once per column.
+   *
+   * @param out row buffer
+   * @param type type of the column
+   * @param value boxed value (may be null), matching the type
+   * @param first whether this is the first field of the row
+   */
+  void writeField(DataOutputStream out, ExtractType type, Object value, boolean first)
+      throws IOException {
+    if (!first) {
+      separate(out);
+    }
+    if (value == null) {
+      writeNull(out);
+      return;
+    }
+    switch (type) {
+      case SmallInt -> writeSmallInt(out, ((Number) value).intValue());
+      case Integer -> writeInt(out, ((Number) value).intValue());
+      case BigInteger -> writeLong(out, ((Number) value).longValue());
+      case Timestamp -> writeTimestamp(out, (Timestamp) value);
+      case String, Text, List -> writeString(out, value.toString());
+      case Bytes -> writeBytes(out, (byte[]) value);
+    }
+  }
+
+  void writeNull(DataOutputStream out) throws IOException {
+    if (this == Text) {
+      out.write('\\');
+      out.write('N');
+    } else {
+      out.writeInt(-1);
+    }
+  }
+
+  void writeSmallInt(DataOutputStream out, int value) throws IOException {
+    if (this == Text) {
+      out.writeBytes(Integer.toString(value));
+    } else {
+      out.writeInt(2);
+      out.writeShort(value);
+    }
+  }
+
+  void writeInt(DataOutputStream out, int value) throws IOException {
+    if (this == Text) {
+      out.writeBytes(Integer.toString(value));
+    } else {
+      out.writeInt(4);
+      out.writeInt(value);
+    }
+  }
+
+  void writeLong(DataOutputStream out, long value) throws IOException {
+    if (this == Text) {
+      out.writeBytes(Long.toString(value));
+    } else {
+      out.writeInt(8);
+      out.writeLong(value);
+    }
+  }
+
+  /** timestamp without time zone, in local time, just like PreparedStatement.setTimestamp. */
+  void writeTimestamp(DataOutputStream out, Timestamp value) throws IOException {
+    if (value == null) {
+      writeNull(out);
+    } else if (this == Text) {
+      out.writeBytes(TIMESTAMP_FORMAT.format(value.toLocalDateTime()));
+    } else {
+      // microseconds since 2000-01-01
+      out.writeInt(8);
+      out.writeLong(ChronoUnit.MICROS.between(POSTGRES_EPOCH, value.toLocalDateTime()));
+    }
+  }
+
+  void writeString(DataOutputStream out, String value) throws IOException {
+    if (value == null) {
+      writeNull(out);
+    } else if (this == Text) {
+      escapeText(out, value);
+    } else {
+      byte[] bytes = value.getBytes(UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+    if (value == null) {
+      writeNull(out);
+    } else if (this == Text) {
+      writeHex(out, value);
+    } else {
+      out.writeInt(value.length);
+      out.write(value);
+    }
+  }
+
+  /** bytea in hex format, {@code \x0a1b...}; the backslash itself escaped for COPY. */
+  private static void writeHex(DataOutputStream out, byte[] bytes) throws IOException {
+    byte[] hex = new byte[3 + 2 * bytes.length];
+    hex[0] = '\\';
+    hex[1] = '\\';
+    hex[2] = 'x';
+    for (int i = 0; i < bytes.length; i++) {
+      hex[3 + 2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+      hex[4 + 2 * i] = HEX_DIGITS[bytes[i] & 0xf];
+    }
+    out.write(hex);
+  }
+
+  private static void escapeText(DataOutputStream out, String value) throws IOException {
+    int start = 0;
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      char escape =
+          switch (c) {
+            case '\\' -> '\\';
+            case '\t' -> 't';
+            case '\n' -> 'n';
+            case '\r' -> 'r';
+            default -> 0;
+          };
+      if (escape != 0) {
+        out.write(value.substring(start, i).getBytes(UTF_8));
+        out.write('\\');
+        out.write(escape);
+        start = i + 1;
+      }
+    }
+    out.write(value.substring(start).getBytes(UTF_8));
+  }
+
+  public static CopyFormat fromStr(String s) {
+    for (CopyFormat format : values()) {
+      if (format.formatName.equalsIgnoreCase(s)) {
+        return format;
+      }
+    }
+    throw new IllegalArgumentException("Unknown COPY format: " + s);
+  }
+}
@@ -0,0 +1,128 @@
+package org.curieo.consumer;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * The extracts of a sink, compiled once into a COPY writer per column, the way {@link RowBinder}
+ * compiles them for a statement, so that writing a row neither switches on the field type nor
+ * builds the combinations of List fields:
+ *
+ * <pre>
+ *   int rows = writer.explode(t);
+ *   for (int r = 0; r &lt; rows; r++) {
+ *     writer.writeRow(out, t);
+ *   }
+ * </pre>
+ *
+ * <p>Not thread safe.
+ */
+final class CopyRowWriter<T> {
+  @FunctionalInterface
+  private interface Column<T> {
+    void write(DataOutputStream out, T t) throws IOException;
+  }
+
+  private final CopyFormat format;
+  private final Column<T>[] columns;
+  private final ListFields<T> lists;
+
+  @SuppressWarnings("unchecked")
+  CopyRowWriter(CopyFormat format, List<Extract<T>> extracts) {
+    this.format = format;
+    columns = new Column[extracts.size()];
+    lists = new ListFields<>(extracts);
+    int list = 0;
+    for (int i = 0; i < columns.length; i++) {
+      Extract<T> extract = extracts.get(i);
+      columns[i] =
+          extract.spec().getType() == ExtractType.List
+              ? listColumn(list++)
+              : column(format, extract);
+    }
+  }
+
+  /**
+   * Get the List fields of an item, ready to write its first row.
+   *
+   * @return the number of rows of the item, see {@link ListFields#explode}
+   */
+  int explode(T t) {
+    return lists.explode(t);
+  }
+
+  /** Write the next row of the item passed to {@link #explode}. */
+  void writeRow(DataOutputStream out, T t) throws IOException {
+    format.startRow(out, columns.length);
+    for (int i = 0; i < columns.length; i++) {
+      if (i != 0) {
+        format.separate(out);
+      }
+      columns[i].write(out, t);
+    }
+    format.endRow(out);
+    lists.next();
+  }
+
+  private Column<T> listColumn(int list) {
+    return (out, t) -> format.writeString(out, lists.value(list));
+  }
+
+  private static <T> Column<T> column(CopyFormat format, Extract<T> extract) {
+    boolean small = extract.spec().getType() == ExtractType.SmallInt;
+    return switch (extract.spec().getType()) {
+      case SmallInt, Integer -> {
+        if (extract.intValue() != null) {
+          ToIntFunction<T> f = extract.intValue();
+          yield small
+              ? (out, t) -> format.writeSmallInt(out, f.applyAsInt(t))
+              : (out, t) -> format.writeInt(out, f.applyAsInt(t));
+        }
+        Function<T, Integer> f = extract.intExtract();
+        yield (out, t) -> {
+          Integer value = f.apply(t);
+          if (value == null) {
+            format.writeNull(out);
+          } else if (small) {
+            format.writeSmallInt(out, value);
+          } else {
+            format.writeInt(out, value);
+          }
+        };
+      }
+      case BigInteger -> {
+        if (extract.longValue() != null) {
+          ToLongFunction<T> f = extract.longValue();
+          yield (out, t) -> format.writeLong(out, f.applyAsLong(t));
+        }
+        Function<T, Long> f = extract.longExtract();
+        yield (out, t) -> {
+          Long value = f.apply(t);
+          if (value == null) {
+            format.writeNull(out);
+          } else {
+            format.writeLong(out, value);
+          }
+        };
+      }
+      case String, Text -> {
+        Function<T, String> f = extract.stringExtract();
+        yield (out, t) -> format.writeString(out, f.apply(t));
+      }
+      case Timestamp -> {
+        Function<T, Timestamp> f = extract.timestampExtract();
+        yield (out, t) -> format.writeTimestamp(out, f.apply(t));
+      }
+      case Bytes -> {
+        Function<T, byte[]> f = extract.bytesExtract();
+        yield (out, t) -> format.writeBytes(out, f.apply(t));
+      }
+      case List -> throw new IllegalArgumentException("List fields are written by position");
+    };
+  }
+}
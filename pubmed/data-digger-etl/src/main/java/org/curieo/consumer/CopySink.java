@@ -0,0 +1,204 @@
+package org.curieo.consumer;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.curieo.metrics.Histogram;
+import org.curieo.metrics.Metrics;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.copy.PGCopyOutputStream;
+
+/**
+ * A sink that streams rows through the PostgreSQL COPY protocol into a temporary staging table, and
+ * merges the staging table into the target table with a single set-based upsert every {@code
+ * batchSize} rows, and at the final call. Rows are defined by the very same extracts as the {@link
+ * AbstractSink}.
+ *
+ * <p>Every instance owns its own connection, and the staging table lives in the session of that
+ * connection, so several instances can write into the same target table concurrently, and a crash
+ * leaves no staging tables behind.
+ */
+class CopySink<T> implements Sink<T> {
+  private final String tableName;
+  private final Connection connection;
+  private final CopyManager copyManager;
+  private final CopyFormat format;
+  private final String stagingTable;
+  private final String copySql;
+  private final String mergeSql;
+  private final int batchSize;
+  private final CopyRowWriter<T> writer;
+  // the COPY in progress, written to straight from the extracts
+  private PGCopyOutputStream copyStream;
+  private DataOutputStream out;
+  private int pending;
+  private int insertions;
+  private int updates;
+  private Histogram mergeLatency;
+
+  /**
+   * @param connection connection owned by this sink from here on
+   * @param tableName target table
+   * @param extracts one extract per column to be written
+   * @param conflictColumns key columns for the upsert; if empty, rows are simply appended.
+   * @param format text or binary COPY encoding
+   * @param batchSize number of rows after which the staging table is merged into the target
+   */
+  CopySink(
+      Connection connection,
+      String tableName,
+      List<Extract<T>> extracts,
+      List<String> conflictColumns,
+      CopyFormat format,
+      int batchSize)
+      throws SQLException {
+    this.tableName = tableName;
+    this.connection = connection;
+    this.copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+    this.format = format;
+    this.batchSize = batchSize;
+    this.stagingTable = stagingTableName(tableName);
+    this.writer = new CopyRowWriter<>(format, extracts);
+
+    List<String> columns = extracts.stream().map(e -> e.spec().getField()).toList();
+    String columnList = String.join(", ", columns);
+    try (Statement statement = connection.createStatement()) {
+      statement.execute(String.format("DROP TABLE IF EXISTS %s", stagingTable));
+      statement.execute(
+          String.format(
+              "CREATE TEMPORARY TABLE %s AS SELECT %s FROM %s WITH NO DATA",
+              stagingTable, columnList, tableName));
+    }
+    this.copySql =
+        String.format(
+            "COPY %s (%s) FROM STDIN WITH (FORMAT %s)",
+            stagingTable, columnList, format.formatName);
+    this.mergeSql = mergeStatement(tableName, stagingTable, columns, conflictColumns);
+  }
+
+  /**
+   * Merge all of staging into the target. Within one merge, the same key may occur more than once;
+   * Postgres refuses to update a row twice in one statement, so we keep the last one streamed.
+   */
+  static String mergeStatement(
+      String tableName, String stagingTable, List<String> columns, List<String> conflictColumns) {
+    String columnList = String.join(", ", columns);
+    if (conflictColumns.isEmpty()) {
+      return String.format(
+          "INSERT INTO %s (%s) SELECT %s FROM %s", tableName, columnList, columnList, stagingTable);
+    }
+    String keys = String.join(", ", conflictColumns);
+    return String.format(
+        "INSERT INTO %s (%s) SELECT DISTINCT ON (%s) %s FROM %s ORDER BY %s, ctid DESC"
+            + " ON CONFLICT (%s) DO UPDATE SET %s",
+        tableName,
+        columnList,
+        keys,
+        columnList,
+        stagingTable,
+        keys,
+        keys,
+        columns.stream()
+            .filter(s -> conflictColumns.stream().noneMatch(c -> c.equalsIgnoreCase(s)))
+            .map(s -> String.format("%s = EXCLUDED.%s", s, s))
+            .collect(Collectors.joining(", ")));
+  }
+
+  static String stagingTableName(String tableName) {
+    // temporary tables cannot be created in a schema of their own
+    return tableName.substring(tableName.lastIndexOf('.') + 1) + "_staging";
+  }
+
+  @Override
+  public void accept(T t) {
+    try {
+      int rows = writer.explode(t);
+      for (int r = 0; r < rows; r++) {
+        if (copyStream == null) {
+          copyStream = new PGCopyOutputStream(copyManager.copyIn(copySql));
+          out = new DataOutputStream(copyStream);
+          format.writeHeader(out);
+        }
+        writer.writeRow(out, t);
+        insertions++;
+        if (++pending >= batchSize) {
+          merge();
+        }
+      }
+    } catch (SQLException | IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private void merge() throws SQLException, IOException {
+    if (copyStream != null) {
+      format.writeTrailer(out);
+      copyStream.endCopy();
+      copyStream = null;
+      out = null;
+    }
+    if (pending == 0) {
+      return;
+    }
+    long start = System.nanoTime();
+    try (Statement statement = connection.createStatement()) {
+      updates += statement.executeUpdate(mergeSql);
+      statement.execute(String.format("TRUNCATE %s", stagingTable));
+    }
+    if (mergeLatency != null) {
+      mergeLatency.observeSince(start);
+    }
+    pending = 0;
+  }
+
+  @Override
+  public void finalCall() {
+    try (connection) {
+      try {
+        merge();
+      } finally {
+        if (copyStream != null && copyStream.isActive()) {
+          copyStream.cancelCopy();
+        }
+        // a pooled connection outlives this sink, and so would its temporary table
+        try (Statement statement = connection.createStatement()) {
+          statement.execute(String.format("DROP TABLE IF EXISTS %s", stagingTable));
+        }
+      }
+    } catch (SQLException | IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public String getName() {
+    return tableName;
+  }
+
+  /** Adds the latency of merging the staging table into the target to the record counts. */
+  @Override
+  public void registerMetrics(Metrics metrics) {
+    Sink.super.registerMetrics(metrics);
+    mergeLatency =
+        metrics.timer(
+            "datadigger_sql_batch_seconds",
+            "Time to execute a batch of statements",
+            "sink",
+            tableName);
+  }
+
+  @Override
+  public int getTotalCount() {
+    return insertions;
+  }
+
+  @Override
+  public int getUpdatedCount() {
+    return updates;
+  }
+}
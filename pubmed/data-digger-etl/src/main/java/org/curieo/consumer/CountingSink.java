@@ -1,13 +1,16 @@
 package org.curieo.consumer;
 
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import lombok.AllArgsConstructor;
 import lombok.Generated;
 import lombok.Value;
+import org.curieo.metrics.Metrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -16,19 +19,41 @@ import org.slf4j.LoggerFactory;
 @AllArgsConstructor
 public class CountingSink<T, Y> implements Sink<T> {
   private static final Logger LOGGER = LoggerFactory.getLogger(CountingSink.class);
+  String name;
   int loggingInterval;
   Map<Y, Integer> track;
   AtomicInteger count;
   Function<T, Y> mapper;
   BiFunction<Y, Integer, String> formatter;
+  AtomicReference<Metrics> metrics;
+  Set<Y> reported;
 
   public CountingSink(int li, Function<T, Y> mapper, BiFunction<Y, Integer, String> formatter) {
-    this(li, new ConcurrentHashMap<>(), new AtomicInteger(), mapper, formatter);
+    this(CountingSink.class.getSimpleName(), li, mapper, formatter);
+  }
+
+  /**
+   * @param name name to report metrics under
+   */
+  public CountingSink(
+      String name, int li, Function<T, Y> mapper, BiFunction<Y, Integer, String> formatter) {
+    this(
+        name,
+        li,
+        new ConcurrentHashMap<>(),
+        new AtomicInteger(),
+        mapper,
+        formatter,
+        new AtomicReference<>(),
+        ConcurrentHashMap.newKeySet());
   }
 
   @Override
   public void accept(T t) {
-    track.merge(mapper.apply(t), 1, Integer::sum);
+    Y key = mapper.apply(t);
+    if (track.merge(key, 1, Integer::sum) == 1 && metrics.get() != null) {
+      registerKey(metrics.get(), key);
+    }
     if (count.incrementAndGet() % loggingInterval == 0) {
       logProgress();
     }
@@ -45,6 +70,29 @@ public class CountingSink<T, Y> implements Sink<T> {
     logProgress();
   }
 
+  /** Besides the total, reports the count of every key, as it appears. */
+  @Override
+  public void registerMetrics(Metrics metrics) {
+    Sink.super.registerMetrics(metrics);
+    this.metrics.set(metrics);
+    track.keySet().forEach(key -> registerKey(metrics, key));
+  }
+
+  private void registerKey(Metrics metrics, Y key) {
+    // registering twice would count twice
+    if (!reported.add(key)) {
+      return;
+    }
+    metrics.counter(
+        "datadigger_sink_records_by_key_total",
+        "Records counted, per sink and key",
+        () -> track.getOrDefault(key, 0),
+        "sink",
+        name,
+        "key",
+        String.valueOf(key));
+  }
+
   public int getTotalCount() {
     return count.get();
   }
@@ -0,0 +1,199 @@
+package org.curieo.consumer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import org.curieo.metrics.Metrics;
+import org.curieo.utils.LongIntHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collapses the items of a batch that have the same conflict key before they reach an upsert sink,
+ * keeping the last one. An upsert would overwrite the earlier ones anyway, but only after binding
+ * and sending them, and PostgreSQL refuses to update the same row twice in one (rewritten) batch.
+ * Items are collapsed, not rows: the rows a single item explodes into are all written.
+ *
+ * <p>A single integer key is looked up in a {@link LongIntHashMap}, other keys as lists of their
+ * values. Items with a null in their key are passed on as they are: NULLs never conflict.
+ *
+ * <p>Not thread safe, like the sink it feeds.
+ */
+class DedupSink<T> implements Sink<T> {
+  private static final Logger LOGGER = LoggerFactory.getLogger(DedupSink.class);
+
+  private final AbstractSink<T> embedded;
+  // exactly one of these is set
+  private final ToLongFunction<T> longKey;
+  private final Function<T, ? extends Number> boxedKey;
+  private final List<Extract<T>> keyExtracts;
+  private final LongIntHashMap longPositions;
+  private final Map<List<Object>, Integer> positions;
+  private final List<T> pending = new ArrayList<>();
+  private int collapsed;
+
+  private DedupSink(AbstractSink<T> embedded, List<Extract<T>> keyExtracts) {
+    this.embedded = embedded;
+    Extract<T> single = keyExtracts.size() == 1 ? keyExtracts.getFirst() : null;
+    if (single != null && single.intValue() != null) {
+      longKey = single.intValue()::applyAsInt;
+    } else if (single != null && single.longValue() != null) {
+      longKey = single.longValue();
+    } else {
+      longKey = null;
+    }
+    if (longKey == null && single != null && single.spec().getType() != ExtractType.String) {
+      boxedKey =
+          single.spec().getType() == ExtractType.BigInteger
+              ? single.longExtract()
+              : single.intExtract();
+    } else {
+      boxedKey = null;
+    }
+    boolean numeric = longKey != null || boxedKey != null;
+    this.keyExtracts = numeric ? null : keyExtracts;
+    this.longPositions = numeric ? new LongIntHashMap(embedded.getBatchSize()) : null;
+    this.positions = numeric ? null : new HashMap<>();
+  }
+
+  /**
+   * @param conflictColumns the columns the embedded sink upserts on
+   * @return the embedded sink, deduplicated on the conflict columns if it can be: they must all be
+   *     integer or string fields of the sink.
+   */
+  static <T> Sink<T> of(AbstractSink<T> embedded, List<String> conflictColumns) {
+    List<Extract<T>> keyExtracts = new ArrayList<>();
+    for (String column : conflictColumns) {
+      Extract<T> extract =
+          embedded.getExtracts().stream()
+              .filter(e -> e.spec().getField().equalsIgnoreCase(column))
+              .findFirst()
+              .orElse(null);
+      if (extract == null || !isKeyType(extract.spec().getType())) {
+        LOGGER.warn(
+            "Cannot deduplicate {} on {}, writing all rows", embedded.getName(), conflictColumns);
+        return embedded;
+      }
+      keyExtracts.add(extract);
+    }
+    return keyExtracts.isEmpty() ? embedded : new DedupSink<>(embedded, keyExtracts);
+  }
+
+  private static boolean isKeyType(ExtractType type) {
+    return switch (type) {
+      case String, Integer, SmallInt, BigInteger -> true;
+      default -> false;
+    };
+  }
+
+  @Override
+  public void accept(T t) {
+    int position = pending.size();
+    int previous;
+    if (longKey != null) {
+      previous = indexOf(longKey.applyAsLong(t), position);
+    } else if (boxedKey != null) {
+      Number key = boxedKey.apply(t);
+      previous = key == null ? -1 : indexOf(key.longValue(), position);
+    } else {
+      List<Object> key = key(t);
+      Integer earlier = key == null ? null : positions.putIfAbsent(key, position);
+      previous = earlier == null ? -1 : earlier;
+    }
+
+    if (previous >= 0) {
+      pending.set(previous, t);
+      collapsed++;
+      return;
+    }
+    pending.add(t);
+    if (pending.size() >= embedded.getBatchSize()) {
+      flush();
+    }
+  }
+
+  /**
+   * @return the position of the earlier item with this key, or -1 if there is none; then the item
+   *     is registered at {@code position}
+   */
+  private int indexOf(long key, int position) {
+    int previous = longPositions.get(key, -1);
+    if (previous < 0) {
+      longPositions.put(key, position);
+    }
+    return previous;
+  }
+
+  private List<Object> key(T t) {
+    Object[] values = new Object[keyExtracts.size()];
+    for (int i = 0; i < values.length; i++) {
+      Extract<T> extract = keyExtracts.get(i);
+      values[i] =
+          switch (extract.spec().getType()) {
+            case Integer, SmallInt -> extract.getInteger(t);
+            case BigInteger -> extract.getLong(t);
+            default -> extract.getString(t);
+          };
+      if (values[i] == null) {
+        return null;
+      }
+    }
+    return Arrays.asList(values);
+  }
+
+  /** Write the pending items, so that no batch of the embedded sink holds two of the same key. */
+  void flush() {
+    if (pending.isEmpty()) {
+      return;
+    }
+    pending.forEach(embedded);
+    embedded.flush();
+    pending.clear();
+    if (longPositions != null) {
+      longPositions.clear();
+    } else {
+      positions.clear();
+    }
+  }
+
+  @Override
+  public void finalCall() {
+    flush();
+    embedded.finalCall();
+  }
+
+  @Override
+  public int getTotalCount() {
+    return embedded.getTotalCount();
+  }
+
+  @Override
+  public int getUpdatedCount() {
+    return embedded.getUpdatedCount();
+  }
+
+  @Override
+  public int getCollapsedCount() {
+    return collapsed;
+  }
+
+  @Override
+  public String getName() {
+    return embedded.getName();
+  }
+
+  @Override
+  public void registerMetrics(Metrics metrics) {
+    embedded.registerMetrics(metrics);
+    metrics.counter(
+        "datadigger_sink_collapsed_total",
+        "Items replaced by a later item with the same key in the same batch, and not written",
+        this::getCollapsedCount,
+        "sink",
+        getName());
+  }
+}
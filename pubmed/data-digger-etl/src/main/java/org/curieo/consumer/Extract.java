@@ -3,19 +3,62 @@ package org.curieo.consumer;
 import java.sql.Timestamp;
 import java.util.List;
 import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 
+/**
+ * How to get the value of a field from an item. Integer fields have either a boxed extract, which
+ * may return null, or a primitive one ({@code intValue}, {@code longValue}), which saves boxing
+ * every value. Exactly one of the functions is set; create extracts with the factories below, or
+ * with those of {@link FieldSpec}.
+ */
 record Extract<T>(
     FieldSpec spec,
     Function<T, List<String>> explode,
     Function<T, String> stringExtract,
     Function<T, Integer> intExtract,
     Function<T, Long> longExtract,
-    Function<T, Timestamp> timestampExtract) {
+    Function<T, Timestamp> timestampExtract,
+    Function<T, byte[]> bytesExtract,
+    ToIntFunction<T> intValue,
+    ToLongFunction<T> longValue) {
+  static <T> Extract<T> ofList(FieldSpec spec, Function<T, List<String>> f) {
+    return new Extract<>(spec, f, null, null, null, null, null, null, null);
+  }
+
+  static <T> Extract<T> ofString(FieldSpec spec, Function<T, String> f) {
+    return new Extract<>(spec, null, f, null, null, null, null, null, null);
+  }
+
+  static <T> Extract<T> ofInt(FieldSpec spec, Function<T, Integer> f) {
+    return new Extract<>(spec, null, null, f, null, null, null, null, null);
+  }
+
+  static <T> Extract<T> ofLong(FieldSpec spec, Function<T, Long> f) {
+    return new Extract<>(spec, null, null, null, f, null, null, null, null);
+  }
+
+  static <T> Extract<T> ofTimestamp(FieldSpec spec, Function<T, Timestamp> f) {
+    return new Extract<>(spec, null, null, null, null, f, null, null, null);
+  }
+
+  static <T> Extract<T> ofBytes(FieldSpec spec, Function<T, byte[]> f) {
+    return new Extract<>(spec, null, null, null, null, null, f, null, null);
+  }
+
+  static <T> Extract<T> ofIntValue(FieldSpec spec, ToIntFunction<T> f) {
+    return new Extract<>(spec, null, null, null, null, null, null, f, null);
+  }
+
+  static <T> Extract<T> ofLongValue(FieldSpec spec, ToLongFunction<T> f) {
+    return new Extract<>(spec, null, null, null, null, null, null, null, f);
+  }
+
   String getAsString(T t) {
     return switch (spec.getType()) {
       case String -> stringExtract.apply(t);
-      case Integer, SmallInt -> Integer.toString(intExtract.apply(t));
-      case BigInteger -> Long.toString(longExtract.apply(t));
+      case Integer, SmallInt -> String.valueOf(getInteger(t));
+      case BigInteger -> String.valueOf(getLong(t));
       default ->
           throw new IllegalArgumentException(
               "KEY fields must have be either INT or STRING specified");
@@ -23,11 +66,11 @@ record Extract<T>(
   }
 
   public Integer getInteger(T t) {
-    return intExtract.apply(t);
+    return intValue != null ? intValue.applyAsInt(t) : intExtract.apply(t);
   }
 
   public Long getLong(T t) {
-    return longExtract.apply(t);
+    return longValue != null ? longValue.applyAsLong(t) : longExtract.apply(t);
   }
 
   public String getString(T t) {
@@ -37,4 +80,8 @@ record Extract<T>(
   public Timestamp getTimestamp(T t) {
     return timestampExtract.apply(t);
   }
+
+  public byte[] getBytes(T t) {
+    return bytesExtract.apply(t);
+  }
 }
@@ -7,6 +7,7 @@ enum ExtractType {
   SmallInt("SMALLINT"),
   BigInteger("BIGINT"),
   Text("TEXT"),
+  Bytes("BYTEA"),
   Timestamp("TIMESTAMP");
 
   final String sqlType;
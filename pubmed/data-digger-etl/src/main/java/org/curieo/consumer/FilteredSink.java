@@ -2,6 +2,7 @@ package org.curieo.consumer;
 
 import java.util.List;
 import java.util.function.Predicate;
+import org.curieo.metrics.Metrics;
 
 public record FilteredSink<T>(Predicate<T> predicate, Sink<T> embedded) implements Sink<List<T>> {
   @Override
@@ -23,4 +24,14 @@ public record FilteredSink<T>(Predicate<T> predicate, Sink<T> embedded) implemen
   public int getUpdatedCount() {
     return embedded.getUpdatedCount();
   }
+
+  @Override
+  public int getCollapsedCount() {
+    return embedded.getCollapsedCount();
+  }
+
+  @Override
+  public void registerMetrics(Metrics metrics) {
+    embedded.registerMetrics(metrics);
+  }
 }
@@ -0,0 +1,81 @@
+package org.curieo.consumer;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * The List fields of a sink, walked one combination of values at a time, in the order of {@link
+ * AbstractSink#explode} but without building the combinations:
+ *
+ * <pre>
+ *   int rows = fields.explode(t);
+ *   for (int r = 0; r &lt; rows; r++) {
+ *     ... fields.value(0) ... fields.value(1) ...
+ *     fields.next();
+ *   }
+ * </pre>
+ *
+ * <p>Not thread safe.
+ */
+final class ListFields<T> {
+  private final Function<T, List<String>>[] explodes;
+  // the values of the List fields of the current item, and the current combination
+  private final List<?>[] lists;
+  private final int[] positions;
+
+  @SuppressWarnings("unchecked")
+  ListFields(List<Extract<T>> extracts) {
+    explodes =
+        extracts.stream()
+            .filter(e -> e.spec().getType() == ExtractType.List)
+            .map(Extract::explode)
+            .toArray(Function[]::new);
+    lists = new List<?>[explodes.length];
+    positions = new int[explodes.length];
+  }
+
+  /**
+   * Get the List fields of an item, ready for its first row.
+   *
+   * @return the number of rows of the item: 1 if it has no List fields, or if one of them is empty
+   *     (that row has nulls for all List fields)
+   */
+  int explode(T t) {
+    if (explodes.length == 0) {
+      return 1;
+    }
+    int rows = 1;
+    for (int k = 0; k < explodes.length; k++) {
+      List<String> values = explodes[k].apply(t);
+      lists[k] = values;
+      positions[k] = 0;
+      rows *= values == null ? 0 : values.size();
+    }
+    if (rows == 0) {
+      for (int k = 0; k < lists.length; k++) {
+        lists[k] = null;
+      }
+      return 1;
+    }
+    return rows;
+  }
+
+  /**
+   * @param list index among the List fields
+   * @return the value of that List field in the current row, or null
+   */
+  String value(int list) {
+    return lists[list] == null ? null : (String) lists[list].get(positions[list]);
+  }
+
+  /** Move on to the next row of the item passed to {@link #explode}. */
+  void next() {
+    // the last List field varies fastest
+    for (int k = lists.length - 1; k >= 0; k--) {
+      if (lists[k] != null && ++positions[k] < lists[k].size()) {
+        break;
+      }
+      positions[k] = 0;
+    }
+  }
+}
@@ -1,8 +1,9 @@
 package org.curieo.consumer;
 
 import java.util.List;
+import org.curieo.metrics.Metrics;
 
-public record ListSink<T>(AbstractSink<T> sink) implements Sink<List<T>> {
+public record ListSink<T>(Sink<T> sink) implements Sink<List<T>> {
   @Override
   public void accept(List<T> t) {
     t.forEach(sink);
@@ -19,4 +20,14 @@ public record ListSink<T>(AbstractSink<T> sink) implements Sink<List<T>> {
   public int getUpdatedCount() {
     return sink.getUpdatedCount();
   }
+
+  @Override
+  public int getCollapsedCount() {
+    return sink.getCollapsedCount();
+  }
+
+  @Override
+  public void registerMetrics(Metrics metrics) {
+    sink.registerMetrics(metrics);
+  }
 }
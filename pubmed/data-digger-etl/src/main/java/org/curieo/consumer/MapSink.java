@@ -1,6 +1,7 @@
 package org.curieo.consumer;
 
 import java.util.function.Function;
+import org.curieo.metrics.Metrics;
 
 public record MapSink<T, Y>(Function<T, Y> mapper, Sink<Y> embedded) implements Sink<T> {
   @Override
@@ -22,4 +23,14 @@ public record MapSink<T, Y>(Function<T, Y> mapper, Sink<Y> embedded) implements
   public int getUpdatedCount() {
     return embedded.getUpdatedCount();
   }
+
+  @Override
+  public int getCollapsedCount() {
+    return embedded.getCollapsedCount();
+  }
+
+  @Override
+  public void registerMetrics(Metrics metrics) {
+    embedded.registerMetrics(metrics);
+  }
 }
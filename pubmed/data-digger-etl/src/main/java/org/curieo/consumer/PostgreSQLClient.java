@@ -7,6 +7,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import org.curieo.model.PubmedTask;
 import org.curieo.model.TS;
@@ -23,6 +24,8 @@ import org.slf4j.LoggerFactory;
 public class PostgreSQLClient implements AutoCloseable {
   private static final Logger LOGGER = LoggerFactory.getLogger(PostgreSQLClient.class);
   public static final String LOCALDB = "jdbc:postgresql://localhost:5432/postgres";
+  // connections left for short-lived use when reserving connections
+  private static final int SPARE_CONNECTIONS = 10;
   private final HikariDataSource dataSource;
   private final String connectionString;
 
@@ -61,6 +64,29 @@ public class PostgreSQLClient implements AutoCloseable {
     return dataSource.getConnection();
   }
 
+  /** The number of connections taken from the pool, e.g. by the statements of sinks. */
+  public int getActiveConnections() {
+    return dataSource.getHikariPoolMXBean() == null
+        ? 0
+        : dataSource.getHikariPoolMXBean().getActiveConnections();
+  }
+
+  /**
+   * Grow the pool, if need be, so that {@code connections} more can be held on to for good (e.g. by
+   * the statements of sinks) on top of the ones in use, and some are still left for short-lived
+   * use. Otherwise, the last to ask for a connection wait for one in vain.
+   */
+  public void reserveConnections(int connections) {
+    int needed = getActiveConnections() + connections + SPARE_CONNECTIONS;
+    if (needed > dataSource.getMaximumPoolSize()) {
+      LOGGER.info(
+          "Growing the connection pool from {} to {} connections",
+          dataSource.getMaximumPoolSize(),
+          needed);
+      dataSource.getHikariConfigMXBean().setMaximumPoolSize(needed);
+    }
+  }
+
   public PreparedStatement prepareStatement(String sql) throws SQLException {
     PreparedStatement prepStmt = getConnection().prepareStatement(sql);
     prepStmt.closeOnCompletion();
@@ -145,7 +171,24 @@ public class PostgreSQLClient implements AutoCloseable {
       throws SQLException {
 
     Map<String, T> items = new HashMap<>();
+    streamItems(connection, query, recordMapper, item -> items.put(keyMapper.apply(item), item));
+    return items;
+  }
 
+  /**
+   * Read the results of a query through a cursor, handing out every item as soon as it is read. The
+   * consumer runs while the cursor (and hence a transaction) is open, so it must not write through
+   * the same connection.
+   *
+   * @return the number of items read
+   */
+  public static <T> int streamItems(
+      Connection connection,
+      String query,
+      ThrowingFunction<ResultSet, T> recordMapper,
+      Consumer<T> consumer)
+      throws SQLException {
+    int count = 0;
     // https://jdbc.postgresql.org/documentation/query/#getting-results-based-on-a-cursor
     boolean autocommit = connection.getAutoCommit();
     connection.setAutoCommit(false);
@@ -155,12 +198,12 @@ public class PostgreSQLClient implements AutoCloseable {
     statement.setFetchSize(100);
     try (ResultSet resultSet = statement.executeQuery(query)) {
       while (resultSet.next()) {
-        T item = recordMapper.apply(resultSet);
-        items.put(keyMapper.apply(item), item);
+        consumer.accept(recordMapper.apply(resultSet));
+        count++;
       }
     }
     connection.setAutoCommit(autocommit); // back to original value
-    return items;
+    return count;
   }
 
   /**
@@ -0,0 +1,180 @@
+package org.curieo.consumer;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.curieo.metrics.Metrics;
+import org.curieo.model.Record;
+import org.curieo.model.RecordJson;
+import org.curieo.utils.IntLongHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Content digests of the stored records, by PubMed identifier. Update files carry many records that
+ * did not change since they were last stored; comparing digests lets us drop those before they
+ * reach any sink.
+ *
+ * <p>The digest of a record is computed once, by {@link #isUnchanged}, and kept until the record
+ * sink writes it to the Digest column (see {@link #digest}). Only once that sink took the record
+ * (see {@link #recording}) is its digest taken to be the stored one, so a record that failed to be
+ * written is not skipped later on.
+ *
+ * <p>Thread safe.
+ */
+public class RecordDigests {
+  private static final Logger LOGGER = LoggerFactory.getLogger(RecordDigests.class);
+
+  private final IntLongHashMap digests;
+  // digests of the records on their way to the record sink; few at a time
+  private final Map<Integer, Long> pending = new HashMap<>();
+  private final AtomicInteger unchanged = new AtomicInteger();
+
+  public RecordDigests() {
+    this(new IntLongHashMap(1 << 20));
+  }
+
+  public RecordDigests(IntLongHashMap digests) {
+    this.digests = digests;
+  }
+
+  /** Read the digests from the records table (see {@link SQLSinkFactory#createRecordSink}). */
+  public void load(PostgreSQLClient client) throws SQLException {
+    String query =
+        String.format(
+            "SELECT Identifier, %s FROM %s WHERE %s IS NOT NULL",
+            SQLSinkFactory.DIGEST_COLUMN,
+            SQLSinkFactory.RECORDS_TABLE,
+            SQLSinkFactory.DIGEST_COLUMN);
+    long start = System.currentTimeMillis();
+    try (Connection connection = client.getConnection()) {
+      PostgreSQLClient.streamItems(
+          connection,
+          query,
+          rs -> new Entry(rs.getLong(1), rs.getLong(2)),
+          e -> {
+            if (fits(e.identifier())) {
+              synchronized (this) {
+                digests.put((int) e.identifier(), e.digest());
+              }
+            }
+          });
+    }
+    LOGGER.info(
+        "Loaded {} record digests in {} seconds",
+        size(),
+        (System.currentTimeMillis() - start) / 1000);
+  }
+
+  /**
+   * Whether the record is stored already, with the same content. If not, its digest is kept for the
+   * record sink.
+   */
+  public boolean isUnchanged(Record record) {
+    Long identifier = record.getNumericIdentifier();
+    if (identifier == null || !fits(identifier)) {
+      return false;
+    }
+    if (isUnchanged(identifier.intValue(), RecordJson.digest(record))) {
+      unchanged.incrementAndGet();
+      return true;
+    }
+    return false;
+  }
+
+  synchronized boolean isUnchanged(int identifier, long digest) {
+    if (digests.containsKey(identifier) && digests.get(identifier, 0L) == digest) {
+      return true;
+    }
+    pending.put(identifier, digest);
+    return false;
+  }
+
+  /**
+   * The digest of a record, for the Digest column: the one computed by {@link #isUnchanged}, or
+   * else computed now.
+   */
+  public long digest(Record record) {
+    Long identifier = record.getNumericIdentifier();
+    if (identifier != null && fits(identifier)) {
+      synchronized (this) {
+        Long digest = pending.get(identifier.intValue());
+        if (digest != null) {
+          return digest;
+        }
+      }
+    }
+    return RecordJson.digest(record);
+  }
+
+  /** The record sink took the record: from now on, a copy with the same content is skipped. */
+  synchronized void stored(Record record) {
+    Long identifier = record.getNumericIdentifier();
+    if (identifier != null && fits(identifier)) {
+      Long digest = pending.remove(identifier.intValue());
+      if (digest != null) {
+        digests.put(identifier.intValue(), digest);
+      }
+    }
+  }
+
+  /** The record sink, telling these digests about every record it took. */
+  public Sink<Record> recording(Sink<Record> sink) {
+    return new Recording(sink, this);
+  }
+
+  /** The number of records found unchanged so far. */
+  public int getUnchangedCount() {
+    return unchanged.get();
+  }
+
+  public synchronized int size() {
+    return digests.size();
+  }
+
+  private static boolean fits(long identifier) {
+    return identifier > 0 && identifier <= Integer.MAX_VALUE;
+  }
+
+  private record Entry(long identifier, long digest) {}
+
+  private record Recording(Sink<Record> embedded, RecordDigests digests) implements Sink<Record> {
+    @Override
+    public void accept(Record record) {
+      embedded.accept(record);
+      digests.stored(record);
+    }
+
+    @Override
+    public void finalCall() {
+      embedded.finalCall();
+    }
+
+    @Override
+    public int getTotalCount() {
+      return embedded.getTotalCount();
+    }
+
+    @Override
+    public int getUpdatedCount() {
+      return embedded.getUpdatedCount();
+    }
+
+    @Override
+    public int getCollapsedCount() {
+      return embedded.getCollapsedCount();
+    }
+
+    @Override
+    public String getName() {
+      return embedded.getName();
+    }
+
+    @Override
+    public void registerMetrics(Metrics metrics) {
+      embedded.registerMetrics(metrics);
+    }
+  }
+}
@@ -0,0 +1,158 @@
+package org.curieo.consumer;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * The extracts of a sink, compiled once into a binder per column, so that binding a row neither
+ * switches on the field type nor allocates. Items with List fields make a row for every combination
+ * of their values (see {@link ListFields}), which are walked in place:
+ *
+ * <pre>
+ *   int rows = binder.explode(t);
+ *   for (int r = 0; r &lt; rows; r++) {
+ *     binder.bindRow(statement, t);
+ *     statement.addBatch();
+ *   }
+ * </pre>
+ *
+ * <p>Not thread safe, like the statement it binds.
+ */
+final class RowBinder<T> {
+  @FunctionalInterface
+  private interface Column<T> {
+    /**
+     * @return the approximate number of bytes bound
+     */
+    long bind(PreparedStatement statement, T t) throws SQLException;
+  }
+
+  private final Column<T>[] columns;
+  private final ListFields<T> lists;
+
+  @SuppressWarnings("unchecked")
+  RowBinder(List<Extract<T>> extracts) {
+    columns = new Column[extracts.size()];
+    lists = new ListFields<>(extracts);
+    int list = 0;
+    for (int i = 0; i < columns.length; i++) {
+      Extract<T> extract = extracts.get(i);
+      columns[i] =
+          extract.spec().getType() == ExtractType.List
+              ? listColumn(i + 1, list++)
+              : column(i + 1, extract);
+    }
+  }
+
+  /**
+   * Get the List fields of an item, ready to bind its first row.
+   *
+   * @return the number of rows of the item: 1 if it has no List fields, or if one of them is empty
+   *     (that row has nulls for all List fields)
+   */
+  int explode(T t) {
+    return lists.explode(t);
+  }
+
+  /**
+   * Bind the next row of the item passed to {@link #explode}.
+   *
+   * @return the approximate number of bytes bound
+   */
+  long bindRow(PreparedStatement statement, T t) throws SQLException {
+    long bytes = 0;
+    for (Column<T> column : columns) {
+      bytes += column.bind(statement, t);
+    }
+    lists.next();
+    return bytes;
+  }
+
+  private Column<T> listColumn(int index, int list) {
+    return (statement, t) -> {
+      String value = lists.value(list);
+      statement.setString(index, value);
+      return length(value);
+    };
+  }
+
+  private static <T> Column<T> column(int index, Extract<T> extract) {
+    return switch (extract.spec().getType()) {
+      case SmallInt, Integer -> {
+        if (extract.intValue() != null) {
+          ToIntFunction<T> f = extract.intValue();
+          yield (statement, t) -> {
+            statement.setInt(index, f.applyAsInt(t));
+            return 4;
+          };
+        }
+        Function<T, Integer> f = extract.intExtract();
+        int sqlType =
+            extract.spec().getType() == ExtractType.SmallInt ? Types.SMALLINT : Types.INTEGER;
+        yield (statement, t) -> {
+          Integer value = f.apply(t);
+          if (value == null) {
+            statement.setNull(index, sqlType);
+          } else {
+            statement.setInt(index, value);
+          }
+          return 4;
+        };
+      }
+      case BigInteger -> {
+        if (extract.longValue() != null) {
+          ToLongFunction<T> f = extract.longValue();
+          yield (statement, t) -> {
+            statement.setLong(index, f.applyAsLong(t));
+            return 8;
+          };
+        }
+        Function<T, Long> f = extract.longExtract();
+        yield (statement, t) -> {
+          Long value = f.apply(t);
+          if (value == null) {
+            statement.setNull(index, Types.BIGINT);
+          } else {
+            statement.setLong(index, value);
+          }
+          return 8;
+        };
+      }
+      case String, Text -> {
+        Function<T, String> f = extract.stringExtract();
+        yield (statement, t) -> {
+          String value = f.apply(t);
+          statement.setString(index, value);
+          return length(value);
+        };
+      }
+      case Timestamp -> {
+        Function<T, Timestamp> f = extract.timestampExtract();
+        yield (statement, t) -> {
+          statement.setTimestamp(index, f.apply(t));
+          return 8;
+        };
+      }
+      case Bytes -> {
+        Function<T, byte[]> f = extract.bytesExtract();
+        yield (statement, t) -> {
+          byte[] value = f.apply(t);
+          statement.setBytes(index, value);
+          return value == null ? 0 : value.length;
+        };
+      }
+      case List -> throw new IllegalArgumentException("List fields are bound by position");
+    };
+  }
+
+  // characters, which is close enough to bytes for sizing batches
+  private static int length(String value) {
+    return value == null ? 0 : value.length();
+  }
+}
@@ -14,6 +14,7 @@ import org.slf4j.LoggerFactory;
 import software.amazon.awssdk.auth.credentials.internal.SystemSettingsCredentialsProvider;
 import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
@@ -45,6 +46,16 @@ public class S3Helpers {
         .build();
   }
 
+  /** A client for concurrent use, with a connection for each of the threads using it. */
+  public static S3Client getS3Client(Config config, int maximumConnections) {
+    Region region = Region.of(config.aws_region);
+    return S3Client.builder()
+        .credentialsProvider(new ConfigCredentialsProvider(config))
+        .region(region)
+        .httpClientBuilder(ApacheHttpClient.builder().maxConnections(maximumConnections))
+        .build();
+  }
+
   /**
    * // Places a file into a S3 bucket
    *
@@ -0,0 +1,134 @@
+package org.curieo.consumer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import org.curieo.utils.Config;
+import org.curieo.utils.WindowedScheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.s3.S3Client;
+
+/**
+ * Uploads objects to S3 in the background, each on a virtual thread of its own. At most {@code
+ * concurrency} uploads run at a time, and the data waiting for upload is bounded by a memory
+ * budget; the caller blocks when either runs out. Failed uploads are retried with exponential
+ * backoff.
+ *
+ * <p>Submit from a single thread, then {@link #close()} to wait for all uploads.
+ */
+public class S3Uploader implements AutoCloseable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(S3Uploader.class);
+  private static final long INITIAL_BACKOFF_MILLIS = 200;
+  // the memory budget is counted in permits of this many bytes, so it can exceed 2 GB
+  private static final int PERMIT_BYTES = 1024;
+
+  private final S3Client s3;
+  private final String bucket;
+  private final int maximumAttempts;
+  private final long budget;
+  private final Semaphore memory;
+  private final WindowedScheduler scheduler;
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+  /**
+   * @param concurrency maximum number of uploads in flight
+   * @param budget maximum number of bytes held for uploads in flight
+   * @param maximumAttempts per upload, including the first
+   */
+  public record Settings(int concurrency, long budget, int maximumAttempts) {
+    public static Settings of(Config config) {
+      return new Settings(
+          config.s3_upload_concurrency,
+          (long) config.s3_upload_budget_mb << 20,
+          config.s3_upload_attempts);
+    }
+  }
+
+  /**
+   * @param s3 a client with at least {@code settings.concurrency()} connections
+   */
+  public S3Uploader(S3Client s3, String bucket, Settings settings) {
+    this.s3 = s3;
+    this.bucket = bucket;
+    this.maximumAttempts = settings.maximumAttempts();
+    this.budget = settings.budget();
+    this.memory = new Semaphore(permits(budget));
+    this.scheduler = new WindowedScheduler(settings.concurrency());
+  }
+
+  /** Upload in the background; blocks while the concurrency limit or the memory budget is hit. */
+  public void upload(String key, byte[] data) {
+    // an object larger than the budget takes all of it
+    int claim = permits(Math.min(data.length, budget));
+    memory.acquireUninterruptibly(claim);
+    submit(key, () -> S3Helpers.putObject(s3, data, bucket, key), claim);
+  }
+
+  /** Upload a file in the background; the file must stay in place until {@link #close()}. */
+  public void upload(String key, File file) {
+    submit(key, () -> S3Helpers.putFile(s3, file, bucket, key), 0);
+  }
+
+  private static int permits(long bytes) {
+    return (int) Math.min((bytes + PERMIT_BYTES - 1) / PERMIT_BYTES, Integer.MAX_VALUE);
+  }
+
+  private void submit(String key, Runnable put, int claim) {
+    scheduler.submit(
+        () ->
+            CompletableFuture.runAsync(() -> withRetries(key, put), executor)
+                .whenComplete((result, error) -> memory.release(claim)));
+  }
+
+  private void withRetries(String key, Runnable put) {
+    for (int attempt = 1; ; attempt++) {
+      try {
+        put.run();
+        return;
+      } catch (SdkException e) {
+        if (attempt >= maximumAttempts) {
+          throw new RuntimeException(String.format("Cannot upload %s to %s", key, bucket), e);
+        }
+        long backoff = INITIAL_BACKOFF_MILLIS << (attempt - 1);
+        LOGGER.warn("Upload of {} failed, attempt {}; retry in {} ms", key, attempt, backoff, e);
+        try {
+          Thread.sleep(backoff);
+        } catch (InterruptedException ie) {
+          Thread.currentThread().interrupt();
+          throw new RuntimeException(ie);
+        }
+      }
+    }
+  }
+
+  public int getUploaded() {
+    return scheduler.getCompleted() - scheduler.getFailed();
+  }
+
+  public int getFailed() {
+    return scheduler.getFailed();
+  }
+
+  /**
+   * Wait for all uploads to complete.
+   *
+   * @throws IOException if any upload failed
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      scheduler.join();
+    } catch (CompletionException e) {
+      throw new IOException(
+          String.format("%d uploads to %s failed", scheduler.getFailed(), bucket), e.getCause());
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
@@ -1,10 +1,13 @@
 package org.curieo.consumer;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import lombok.Generated;
 import org.curieo.model.Authorship;
@@ -14,16 +17,57 @@ import org.curieo.model.LinkedField;
 import org.curieo.model.Metadata;
 import org.curieo.model.PMCLocation;
 import org.curieo.model.PubmedTask;
+import org.curieo.model.Record;
+import org.curieo.model.RecordCodec;
+import org.curieo.model.RecordJson;
 import org.curieo.model.Reference;
 import org.curieo.model.ReferenceType;
-import org.curieo.model.StandardRecord;
 import org.curieo.model.TS;
-
-/** Class to create record consumers into an SQL database. */
+import org.curieo.model.TaskState;
+
+/**
+ * Class to create record consumers into an SQL database.
+ *
+ * @param copyFormat if not null, sinks stream their rows through COPY into a staging table instead
+ *     of binding them one by one into (up)sert statements.
+ * @param batchSizing if not null, (up)sert sinks start with batches of {@code batchSize} rows, and
+ *     size them to these targets from then on.
+ * @param deduplicate if true, upsert sinks collapse the items of a batch with the same conflict key
+ *     to the last one (see {@link DedupSink}).
+ */
 @Generated
-public record SQLSinkFactory(PostgreSQLClient psqlClient, int batchSize, boolean useKeys) {
+public record SQLSinkFactory(
+    PostgreSQLClient psqlClient,
+    int batchSize,
+    boolean useKeys,
+    CopyFormat copyFormat,
+    BatchSizing batchSizing,
+    boolean deduplicate) {
   public static final int DEFAULT_BATCH_SIZE = 100;
   public static final int IDENTIFIER_LENGTH = 100;
+  public static final String RECORDS_TABLE = "Records";
+  public static final String RECORD_COLUMN = "Record";
+  public static final String DIGEST_COLUMN = "Digest";
+  public static final String CITATION_COUNTS_TABLE = "citationcounts";
+  public static final String CITATION_SOURCES_TABLE = "citationsources";
+
+  public SQLSinkFactory(PostgreSQLClient psqlClient, int batchSize, boolean useKeys) {
+    this(psqlClient, batchSize, useKeys, null);
+  }
+
+  public SQLSinkFactory(
+      PostgreSQLClient psqlClient, int batchSize, boolean useKeys, CopyFormat copyFormat) {
+    this(psqlClient, batchSize, useKeys, copyFormat, null);
+  }
+
+  public SQLSinkFactory(
+      PostgreSQLClient psqlClient,
+      int batchSize,
+      boolean useKeys,
+      CopyFormat copyFormat,
+      BatchSizing batchSizing) {
+    this(psqlClient, batchSize, useKeys, copyFormat, batchSizing, false);
+  }
 
   public Sink<TS<PubmedTask>> createTasksSink(String tableName) throws SQLException {
 
@@ -47,11 +91,11 @@ public record SQLSinkFactory(PostgreSQLClient psqlClient, int batchSize, boolean
     List<FieldSpec> fieldSpecs = specification.fields();
     List<Extract<TS<PubmedTask>>> extracts = new ArrayList<>();
     extracts.add(fieldSpecs.get(1).extractString(ts -> ts.value().name()));
-    extracts.add(fieldSpecs.get(2).extractInt(ts -> ts.value().state().ordinal()));
+    extracts.add(fieldSpecs.get(2).extractIntValue(ts -> ts.value().state().ordinal()));
     extracts.add(fieldSpecs.get(3).extractString(ts -> ts.value().job()));
     extracts.add(fieldSpecs.get(4).extractTimestamp(TS::timestamp));
 
-    return createAbstractSink(extracts, upsert);
+    return createTaskJournal(tableName, extracts, upsert, task -> task.name() + '\t' + task.job());
   }
 
   public Sink<TS<FullTextTask>> createFullTextTasksSink(String tableName) throws SQLException {
@@ -73,10 +117,10 @@ public record SQLSinkFactory(PostgreSQLClient psqlClient, int batchSize, boolean
     extracts.add(fieldSpecs.get(1).extractString(ts -> ts.value().getIdentifier()));
     extracts.add(fieldSpecs.get(2).extractString(ts -> ts.value().getLocation()));
     extracts.add(fieldSpecs.get(3).extractInt(ts -> ts.value().getYear()));
-    extracts.add(fieldSpecs.get(4).extractInt(ts -> ts.value().getTaskState().ordinal()));
+    extracts.add(fieldSpecs.get(4).extractIntValue(ts -> ts.value().getTaskState().ordinal()));
     extracts.add(fieldSpecs.get(5).extractTimestamp(TS::timestamp));
 
-    return createAbstractSink(extracts, upsert);
+    return createTaskJournal(tableName, extracts, upsert, FullTextTask::getIdentifier);
   }
 
   /**
@@ -99,11 +143,10 @@ public record SQLSinkFactory(PostgreSQLClient psqlClient, int batchSize, boolean
             new FieldSpec("emailaddress", ExtractType.String, 60));
     String tableName = "Authorships";
     createTable(tableName, fieldSpecs);
-    PreparedStatement insert = upsertStatement(tableName, fieldSpecs, "publicationId");
 
     List<Extract<LinkedField<Authorship>>> extracts = new ArrayList<>();
     extracts.add(fieldSpecs.get(0).extractLong(LinkedField::publicationId));
-    extracts.add(fieldSpecs.get(1).extractInt(LinkedField::ordinal));
+    extracts.add(fieldSpecs.get(1).extractIntValue(LinkedField::ordinal));
     extracts.add(fieldSpecs.get(2).extractString(l -> l.field().getForeName()));
     extracts.add(fieldSpecs.get(3).extractString(l -> l.field().getLastName()));
     extracts.add(fieldSpecs.get(4).extractString(l -> l.field().getInitials()));
@@ -111,7 +154,7 @@ public record SQLSinkFactory(PostgreSQLClient psqlClient, int batchSize, boolean
     extracts.add(fieldSpecs.get(6).extractInt(l -> l.field().getYearActive()));
     extracts.add(fieldSpecs.get(7).extractString(l -> l.field().getEmailAddress()));
 
-    return new ListSink<>(createAbstractSink(extracts, insert, batchSize));
+    return new ListSink<>(createSink(tableName, fieldSpecs, List.of("publicationId"), extracts));
   }
 
   /**
@@ -148,11 +191,6 @@ public record SQLSinkFactory(PostgreSQLClient psqlClient, int batchSize, boolean
             CompositeUniqueKey.of(articleId, reference, referenceType));
 
     createTable(specification);
-    PreparedStatement upsert =
-        upsertStatement(
-            specification.name(),
-            specification.fields(),
-            List.of("articleid", "reference", "reference_type"));
 
     List<FieldSpec> fieldSpecs = specification.fields();
     List<Extract<LinkedField<Reference>>> extracts = new ArrayList<>();
@@ -161,13 +199,49 @@ public record SQLSinkFactory(PostgreSQLClient psqlClient, int batchSize, boolean
     // Extracting references
     extracts.add(fieldSpecs.get(2).extractString(l -> l.field().identifier()));
     // Store the type of reference as an integer
-    extracts.add(fieldSpecs.get(3).extractInt(l -> l.field().type().ordinal()));
-    extracts.add(fieldSpecs.get(4).extractInt(LinkedField::ordinal));
+    extracts.add(fieldSpecs.get(3).extractIntValue(l -> l.field().type().ordinal()));
+    extracts.add(fieldSpecs.get(4).extractIntValue(LinkedField::ordinal));
     extracts.add(fieldSpecs.get(5).extractString(l -> l.field().citation()));
 
     return new FilteredSink<>(
         l -> validTypes.contains(l.field().type()),
-        createAbstractSink(extracts, upsert, batchSize));
+        createSink(
+            specification.name(),
+            fieldSpecs,
+            List.of("articleid", "reference", "reference_type"),
+            extracts));
+  }
+
+  /**
+   * Create a sink that counts the citations of every PubMed identifier as records come in, next to
+   * or instead of storing the references themselves (see {@link CitationCountSink}). The counts
+   * carry on from the tables as they are: they start out empty, or as recomputed from the reference
+   * table by {@code ranking/sql/fill_new_tables.sql}.
+   *
+   * @return a consumer, with a connection of its own.
+   * @throws SQLException
+   * @throws IllegalStateException if the counts table has no unique key on the identifier, as the
+   *     ones computed by earlier versions of the SQL scripts
+   */
+  public Sink<Record> createCitationCountSink() throws SQLException {
+    psqlClient.execute(
+        String.format(
+            "CREATE TABLE IF NOT EXISTS %s (identifier BIGINT PRIMARY KEY,"
+                + " citationcount INTEGER NOT NULL, year INTEGER)",
+            CITATION_COUNTS_TABLE));
+    psqlClient.execute(
+        String.format(
+            "CREATE TABLE IF NOT EXISTS %s (articleid BIGINT PRIMARY KEY, cited BIGINT[] NOT NULL)",
+            CITATION_SOURCES_TABLE));
+    if (!hasUniqueKey(CITATION_COUNTS_TABLE, "identifier")) {
+      throw new IllegalStateException(
+          String.format(
+              "Table %s has no unique key on identifier, so counts cannot be added to it: drop it"
+                  + " and %s, and recompute both with ranking/sql/fill_new_tables.sql",
+              CITATION_COUNTS_TABLE, CITATION_SOURCES_TABLE));
+    }
+    return new CitationCountSink(
+        psqlClient.getConnection(), CITATION_COUNTS_TABLE, CITATION_SOURCES_TABLE, batchSize);
   }
 
   /**
@@ -186,13 +260,12 @@ public record SQLSinkFactory(PostgreSQLClient psqlClient, int batchSize, boolean
                 new FieldSpec(targetIdentifier, ExtractType.String, IDENTIFIER_LENGTH)));
 
     createTable(tableName, fieldSpecs);
-    PreparedStatement upsert = upsertStatement(tableName, fieldSpecs, sourceIdentifier);
 
     List<Extract<Metadata>> extracts = new ArrayList<>();
-    extracts.add(fieldSpecs.get(0).extractLong(s -> Long.parseLong(s.key())));
+    extracts.add(fieldSpecs.get(0).extractLongValue(s -> Long.parseLong(s.key())));
     extracts.add(fieldSpecs.get(1).extractString(Metadata::value));
 
-    return new ListSink<>(createAbstractSink(extracts, upsert, batchSize));
+    return new ListSink<>(createSink(tableName, fieldSpecs, List.of(sourceIdentifier), extracts));
   }
 
   /**
@@ -202,25 +275,76 @@ public record SQLSinkFactory(PostgreSQLClient psqlClient, int batchSize, boolean
    * @return a consumer.
    * @throws SQLException
    */
-  public Sink<StandardRecord> createRecordSink() throws SQLException {
-    List<FieldSpec> fieldSpecs =
-        Arrays.asList(
-            FieldSpec.unique("Identifier", ExtractType.BigInteger),
-            new FieldSpec("Year", ExtractType.SmallInt),
-            new FieldSpec("Record", ExtractType.Text),
-            new FieldSpec("Origin", ExtractType.String, 60));
-    String tableName = "Records";
-    createLargeTable(tableName, fieldSpecs);
+  public Sink<Record> createRecordSink() throws SQLException {
+    return createRecordSink(null);
+  }
 
-    PreparedStatement upsert = upsertStatement(tableName, fieldSpecs, "Identifier");
+  /**
+   * Create a sink of full records into a JDBC SQL table, with the records in a binary encoding. The
+   * type of the Record column follows the encoding, and is fixed when the table is created.
+   *
+   * @param codec if null, records are stored as JSON in a TEXT column, otherwise encoded in BYTEA.
+   * @return a consumer.
+   * @throws SQLException
+   */
+  public Sink<Record> createRecordSink(RecordCodec codec) throws SQLException {
+    return createRecordSink(codec, null);
+  }
 
-    List<Extract<StandardRecord>> extracts = new ArrayList<>();
-    extracts.add(fieldSpecs.get(0).extractLong(StandardRecord::getNumericIdentifier));
-    extracts.add(fieldSpecs.get(1).extractInt(StandardRecord::getYear));
-    extracts.add(fieldSpecs.get(2).extractString(StandardRecord::toJson));
-    extracts.add(fieldSpecs.get(3).extractString(StandardRecord::getOrigin));
+  /**
+   * Create a sink of full records, as above, that also stores their digests.
+   *
+   * @param digests if not null, the digest of every record goes into the Digest column (added to
+   *     the table if need be), and these digests learn about every record stored.
+   */
+  public Sink<Record> createRecordSink(RecordCodec codec, RecordDigests digests)
+      throws SQLException {
+    List<FieldSpec> fieldSpecs =
+        new ArrayList<>(
+            List.of(
+                FieldSpec.unique("Identifier", ExtractType.BigInteger),
+                new FieldSpec("Year", ExtractType.SmallInt),
+                new FieldSpec(RECORD_COLUMN, codec == null ? ExtractType.Text : ExtractType.Bytes),
+                new FieldSpec("Origin", ExtractType.String, 60)));
+    if (digests != null) {
+      fieldSpecs.add(new FieldSpec(DIGEST_COLUMN, ExtractType.BigInteger));
+    }
+    String tableName = RECORDS_TABLE;
+    createLargeTable(tableName, fieldSpecs);
+    // the type of the Record column is fixed when the table is created
+    String recordType = columnType(tableName, RECORD_COLUMN);
+    String expectedType = codec == null ? "text" : "bytea";
+    if (recordType != null && !recordType.equals(expectedType)) {
+      throw new IllegalStateException(
+          String.format(
+              "Table %s stores records as %s, but %s needs %s: use the record codec the table was"
+                  + " created with, or another table",
+              tableName,
+              recordType,
+              codec == null ? "JSON text (no --record-codec)" : "--record-codec " + codec,
+              expectedType));
+    }
+    if (digests != null) {
+      // tables created before the digest was introduced, or without it
+      psqlClient.execute(
+          String.format(
+              "ALTER TABLE %s ADD COLUMN IF NOT EXISTS %s", tableName, fieldSpecs.get(4).toSql()));
+    }
 
-    return createAbstractSink(extracts, upsert, batchSize);
+    List<Extract<Record>> extracts = new ArrayList<>();
+    extracts.add(fieldSpecs.get(0).extractLong(Record::getNumericIdentifier));
+    extracts.add(fieldSpecs.get(1).extractInt(Record::getYear));
+    if (codec == null) {
+      extracts.add(fieldSpecs.get(2).extractString(RecordJson::toJson));
+    } else {
+      extracts.add(fieldSpecs.get(2).extractBytes(codec::encode));
+    }
+    extracts.add(fieldSpecs.get(3).extractString(Record::getOrigin));
+    if (digests == null) {
+      return createSink(tableName, fieldSpecs, List.of("Identifier"), extracts);
+    }
+    extracts.add(fieldSpecs.get(4).extractLongValue(digests::digest));
+    return digests.recording(createSink(tableName, fieldSpecs, List.of("Identifier"), extracts));
   }
 
   public Sink<FullTextRecord> createPMCSink(String tableName) throws SQLException {
@@ -230,17 +354,13 @@ public record SQLSinkFactory(PostgreSQLClient psqlClient, int batchSize, boolean
             new FieldSpec("Year", ExtractType.SmallInt),
             new FieldSpec("Record", ExtractType.Text, 0));
     createTable(tableName, fieldSpecs);
-    PreparedStatement insert = insertStatement(tableName, fieldSpecs);
-    if (useKeys) {
-      insert = upsertStatement(tableName, fieldSpecs, "identifier");
-    }
 
     List<Extract<FullTextRecord>> extracts = new ArrayList<>();
     extracts.add(fieldSpecs.get(0).extractString(FullTextRecord::getIdentifier));
     extracts.add(fieldSpecs.get(1).extractInt(FullTextRecord::getYear));
     extracts.add(fieldSpecs.get(2).extractString(FullTextRecord::getContent));
 
-    return createAbstractSink(extracts, insert, batchSize);
+    return createSink(tableName, fieldSpecs, useKeys ? List.of("identifier") : List.of(), extracts);
   }
 
   public Sink<PMCLocation> createPMCRecordSink(String tableName) throws SQLException {
@@ -267,7 +387,6 @@ public record SQLSinkFactory(PostgreSQLClient psqlClient, int batchSize, boolean
             new FieldSpec("license", ExtractType.String, 30),
             new FieldSpec("retracted", ExtractType.String, 5));
     createTable(tableName, fieldSpecs);
-    PreparedStatement insert = insertStatement(tableName, fieldSpecs);
 
     List<Extract<PMCLocation>> extracts = new ArrayList<>();
     extracts.add(fieldSpecs.get(0).extractString(PMCLocation::getContainer));
@@ -279,7 +398,7 @@ public record SQLSinkFactory(PostgreSQLClient psqlClient, int batchSize, boolean
     extracts.add(fieldSpecs.get(6).extractString(PMCLocation::getLicense));
     extracts.add(fieldSpecs.get(7).extractString(PMCLocation::getRetracted));
 
-    return createAbstractSink(extracts, insert, batchSize);
+    return createSink(tableName, fieldSpecs, List.of(), extracts);
   }
 
   private void createTableHelper(String tableName, List<FieldSpec> fieldSpecs, ExtractType idType)
@@ -302,6 +421,42 @@ public record SQLSinkFactory(PostgreSQLClient psqlClient, int batchSize, boolean
     psqlClient.execute(create);
   }
 
+  /**
+   * @return the data type of a column of a table in the current schema, in lower case, or null if
+   *     there is no such column.
+   */
+  private String columnType(String tableName, String column) throws SQLException {
+    try (Connection connection = psqlClient.getConnection();
+        PreparedStatement query =
+            connection.prepareStatement(
+                "SELECT data_type FROM information_schema.columns"
+                    + " WHERE table_schema = current_schema()"
+                    + " AND table_name = lower(?) AND column_name = lower(?)")) {
+      query.setString(1, tableName);
+      query.setString(2, column);
+      try (ResultSet result = query.executeQuery()) {
+        return result.next() ? result.getString(1).toLowerCase() : null;
+      }
+    }
+  }
+
+  /** Whether the column on its own is the primary key, or has a unique index, of the table. */
+  private boolean hasUniqueKey(String tableName, String column) throws SQLException {
+    try (Connection connection = psqlClient.getConnection();
+        PreparedStatement query =
+            connection.prepareStatement(
+                "SELECT 1 FROM pg_index i"
+                    + " JOIN pg_attribute a ON a.attrelid = i.indrelid AND a.attnum = i.indkey[0]"
+                    + " WHERE i.indrelid = to_regclass(lower(?)) AND i.indisunique"
+                    + " AND i.indnatts = 1 AND a.attname = lower(?)")) {
+      query.setString(1, tableName);
+      query.setString(2, column);
+      try (ResultSet result = query.executeQuery()) {
+        return result.next();
+      }
+    }
+  }
+
   private void createTable(TableSpec specification) throws SQLException {
     psqlClient.execute(specification.toSql());
   }
@@ -361,13 +516,48 @@ public record SQLSinkFactory(PostgreSQLClient psqlClient, int batchSize, boolean
     return psqlClient.prepareStatement(upsert);
   }
 
-  private static <T> AbstractSink<T> createAbstractSink(
-      List<Extract<T>> extracts, PreparedStatement statement, int batchSize) {
-    return new AbstractSink<>(extracts, statement, batchSize);
+  /**
+   * Create either a COPY based sink or a statement based sink, depending on the settings of this
+   * factory.
+   *
+   * @param conflictColumns columns to upsert on; if empty, rows are inserted.
+   */
+  private <T> Sink<T> createSink(
+      String tableName,
+      List<FieldSpec> fieldSpecs,
+      List<String> conflictColumns,
+      List<Extract<T>> extracts)
+      throws SQLException {
+    if (copyFormat != null) {
+      return new CopySink<>(
+          psqlClient.getConnection(), tableName, extracts, conflictColumns, copyFormat, batchSize);
+    }
+    PreparedStatement statement =
+        conflictColumns.isEmpty()
+            ? insertStatement(tableName, fieldSpecs)
+            : upsertStatement(tableName, fieldSpecs, conflictColumns);
+    AbstractSink<T> sink =
+        batchSizing != null
+            ? new AbstractSink<>(tableName, extracts, statement, batchSize, batchSizing)
+            : createAbstractSink(tableName, extracts, statement, batchSize);
+    return deduplicate ? DedupSink.of(sink, conflictColumns) : sink;
   }
 
   private static <T> AbstractSink<T> createAbstractSink(
-      List<Extract<T>> extracts, PreparedStatement statement) {
-    return new AbstractSink<>(extracts, statement, 1);
+      String tableName, List<Extract<T>> extracts, PreparedStatement statement, int batchSize) {
+    return new AbstractSink<>(tableName, extracts, statement, batchSize);
+  }
+
+  /** Task states are upserted on the task key, so only the latest state of a task is written. */
+  private <T extends TaskState> TaskJournal<T> createTaskJournal(
+      String tableName,
+      List<Extract<TS<T>>> extracts,
+      PreparedStatement upsert,
+      Function<T, ?> key) {
+    return new TaskJournal<>(
+        createAbstractSink(tableName, extracts, upsert, batchSize),
+        key,
+        batchSize,
+        TaskJournal.DEFAULT_FLUSH_INTERVAL);
   }
 }
@@ -0,0 +1,83 @@
+package org.curieo.consumer;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import org.curieo.metrics.Metrics;
+
+/**
+ * An asynchronous sink that partitions incoming items over a number of independent writers. Every
+ * writer is an {@link AsyncSink} with its own storage thread, wrapping its own chain of sinks (and
+ * hence its own connections and prepared statements). Items with the same key always end up with
+ * the same writer, so updates to a single record are never applied out of order. Items without a
+ * key all go to the first writer.
+ *
+ * @param <T> type of item
+ */
+public class ShardedAsyncSink<T> implements Sink<T> {
+  private final List<AsyncSink<T>> shards;
+  private final Function<T, ? extends Number> key;
+
+  /**
+   * @param writers one sink chain per shard; these must not share statements or connections.
+   * @param key partitioning key (e.g. the PMID of a record), or null if the item has none.
+   */
+  public ShardedAsyncSink(List<Sink<T>> writers, Function<T, ? extends Number> key) {
+    Objects.requireNonNull(writers);
+    if (writers.isEmpty()) {
+      throw new IllegalArgumentException("Need at least one writer");
+    }
+    this.key = Objects.requireNonNull(key);
+    this.shards = writers.stream().map(AsyncSink::new).toList();
+  }
+
+  @Override
+  public void accept(T t) {
+    Number k = key.apply(t);
+    shards.get(k == null ? 0 : shard(k.longValue(), shards.size())).accept(t);
+  }
+
+  /**
+   * All storage threads keep draining their queues while we wait for the first, so joining them one
+   * by one does not serialize the remaining work.
+   */
+  @Override
+  public void finalCall() {
+    shards.forEach(AsyncSink::finalCall);
+  }
+
+  @Override
+  public int getTotalCount() {
+    return shards.stream().mapToInt(Sink::getTotalCount).sum();
+  }
+
+  @Override
+  public int getUpdatedCount() {
+    return shards.stream().mapToInt(Sink::getUpdatedCount).sum();
+  }
+
+  @Override
+  public int getCollapsedCount() {
+    return shards.stream().mapToInt(Sink::getCollapsedCount).sum();
+  }
+
+  @Override
+  public String getName() {
+    return shards.get(0).getName();
+  }
+
+  /** All shards report under the same labels, so their metrics add up. */
+  @Override
+  public void registerMetrics(Metrics metrics) {
+    shards.forEach(shard -> shard.registerMetrics(metrics));
+  }
+
+  public int getShardCount() {
+    return shards.size();
+  }
+
+  static int shard(long key, int shards) {
+    // PMIDs are dense and sequential, so a plain modulo spreads them evenly
+    return (int) Math.floorMod(key, (long) shards);
+  }
+}
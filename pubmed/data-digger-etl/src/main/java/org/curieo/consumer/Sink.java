@@ -1,6 +1,7 @@
 package org.curieo.consumer;
 
 import java.util.function.Consumer;
+import org.curieo.metrics.Metrics;
 
 public interface Sink<T> extends Consumer<T> {
   void accept(T t);
@@ -11,6 +12,38 @@ public interface Sink<T> extends Consumer<T> {
 
   int getUpdatedCount();
 
+  /**
+   * Items not written because a later item with the same key replaced them (see {@link DedupSink}).
+   */
+  default int getCollapsedCount() {
+    return 0;
+  }
+
+  /** Name under which this sink reports its metrics, e.g. the table it writes to. */
+  default String getName() {
+    return getClass().getSimpleName();
+  }
+
+  /**
+   * Report the record counts of this sink, labelled with {@link #getName()}. Sinks wrapping other
+   * sinks register those instead, so it suffices to call this on the outermost sink of a chain.
+   * Sinks with more to tell (batch latencies, queue depths) add their own metrics.
+   */
+  default void registerMetrics(Metrics metrics) {
+    metrics.counter(
+        "datadigger_sink_records_total",
+        "Records stored, per sink",
+        this::getTotalCount,
+        "sink",
+        getName());
+    metrics.counter(
+        "datadigger_sink_updates_total",
+        "Rows updated, per sink",
+        this::getUpdatedCount,
+        "sink",
+        getName());
+  }
+
   default Sink<T> concatenate(Sink<T> other) {
     if (other == null) return this;
     return new Concat<>(this, other);
@@ -38,6 +71,17 @@ public interface Sink<T> extends Consumer<T> {
     public int getUpdatedCount() {
       return s1.getUpdatedCount() + s2.getUpdatedCount();
     }
+
+    @Override
+    public int getCollapsedCount() {
+      return s1.getCollapsedCount() + s2.getCollapsedCount();
+    }
+
+    @Override
+    public void registerMetrics(Metrics metrics) {
+      s1.registerMetrics(metrics);
+      s2.registerMetrics(metrics);
+    }
   }
 
   /**
@@ -61,5 +105,8 @@ public interface Sink<T> extends Consumer<T> {
 
     @Override
     public void accept(T t) {}
+
+    @Override
+    public void registerMetrics(Metrics metrics) {}
   }
 }
@@ -6,6 +6,8 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import lombok.*;
@@ -192,9 +194,8 @@ class FieldSpec implements ToSql, SpecKey {
 
   <T> Extract<T> extractString(Function<T, String> f) {
     return switch (this.type) {
-      case ExtractType.String ->
-          new Extract<>(this, null, new TrimToSize<>(size, f, field), null, null, null);
-      case ExtractType.Text -> new Extract<>(this, null, f, null, null, null);
+      case ExtractType.String -> Extract.ofString(this, new TrimToSize<>(size, f, field));
+      case ExtractType.Text -> Extract.ofString(this, f);
       default ->
           throw new IllegalArgumentException(
               "No string extractor for specified type: " + this.type);
@@ -202,19 +203,33 @@ class FieldSpec implements ToSql, SpecKey {
   }
 
   <T> Extract<T> extractList(Function<T, List<String>> f) {
-    return new Extract<>(this, new TrimAllToSize<>(size, f, field), null, null, null, null);
+    return Extract.ofList(this, new TrimAllToSize<>(size, f, field));
   }
 
   <T> Extract<T> extractInt(Function<T, Integer> f) {
-    return new Extract<>(this, null, null, f, null, null);
+    return Extract.ofInt(this, f);
   }
 
   <T> Extract<T> extractLong(Function<T, Long> f) {
-    return new Extract<>(this, null, null, null, f, null);
+    return Extract.ofLong(this, f);
+  }
+
+  /** For values that are never null: saves boxing them. */
+  <T> Extract<T> extractIntValue(ToIntFunction<T> f) {
+    return Extract.ofIntValue(this, f);
+  }
+
+  /** For values that are never null: saves boxing them. */
+  <T> Extract<T> extractLongValue(ToLongFunction<T> f) {
+    return Extract.ofLongValue(this, f);
   }
 
   <T> Extract<T> extractTimestamp(Function<T, Timestamp> f) {
-    return new Extract<>(this, null, null, null, null, f);
+    return Extract.ofTimestamp(this, f);
+  }
+
+  <T> Extract<T> extractBytes(Function<T, byte[]> f) {
+    return Extract.ofBytes(this, f);
   }
 
   static String trimField(String field, String content, int maximum) {
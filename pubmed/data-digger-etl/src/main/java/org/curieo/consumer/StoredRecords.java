@@ -0,0 +1,42 @@
+package org.curieo.consumer;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.function.Consumer;
+import org.curieo.model.RecordCodec;
+import org.curieo.model.StandardRecord;
+
+/**
+ * Read back the full records stored by {@link SQLSinkFactory#createRecordSink(RecordCodec)}, in
+ * whichever encoding they were stored.
+ */
+public class StoredRecords {
+  private StoredRecords() {}
+
+  /**
+   * Scan the records table through a cursor, decoding every record as it comes in.
+   *
+   * @param where condition on the rows, e.g. {@code "Year >= 2020"}; null for all rows
+   * @return the number of records read
+   */
+  public static int scan(Connection connection, String where, Consumer<StandardRecord> consumer)
+      throws SQLException {
+    String query =
+        String.format(
+            "SELECT %s FROM %s%s",
+            SQLSinkFactory.RECORD_COLUMN,
+            SQLSinkFactory.RECORDS_TABLE,
+            where == null ? "" : " WHERE " + where);
+    return PostgreSQLClient.streamItems(connection, query, StoredRecords::decode, consumer);
+  }
+
+  static StandardRecord decode(ResultSet resultSet) throws SQLException {
+    return switch (resultSet.getMetaData().getColumnType(1)) {
+      case Types.BINARY, Types.VARBINARY, Types.LONGVARBINARY ->
+          RecordCodec.decode(resultSet.getBytes(1));
+      default -> RecordCodec.fromJson(resultSet.getString(1));
+    };
+  }
+}
@@ -0,0 +1,183 @@
+package org.curieo.consumer;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import org.curieo.metrics.Metrics;
+import org.curieo.model.TS;
+import org.curieo.model.TaskState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Task states, stored in batches. Only the latest state of every task is kept until it is written,
+ * so a task that goes from queued to in progress to completed between two flushes costs one row.
+ * Pending states are written when there are {@code maxPending} of them, and every {@code
+ * flushInterval}.
+ *
+ * <p>A final state ({@link TaskState.State#isFinal()}) is written before {@link #accept} returns,
+ * so a completed task is not done again after a crash. Threads that finish tasks at the same time
+ * share a batch: while one writes, the others queue up behind it, and the next writes them all.
+ * When writing a batch fails, its states are pending again, unless a newer state of the same task
+ * came in meanwhile, and the next flush retries them.
+ *
+ * <p>Thread safe.
+ */
+public class TaskJournal<T extends TaskState> implements Sink<TS<T>> {
+  private static final Logger LOGGER = LoggerFactory.getLogger(TaskJournal.class);
+  public static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofSeconds(5);
+
+  private final AbstractSink<TS<T>> embedded;
+  private final Function<T, ?> key;
+  private final int maxPending;
+  private final ScheduledExecutorService timer;
+  // guards the embedded sink and flushed
+  private final ReentrantLock flushLock = new ReentrantLock();
+  // guarded by this
+  private Map<Object, TS<T>> pending = new LinkedHashMap<>();
+  private long accepted;
+  private long flushed;
+  private final AtomicLong coalesced = new AtomicLong();
+
+  /**
+   * @param embedded sink to write to
+   * @param key identifies the task, e.g. its name
+   */
+  TaskJournal(
+      AbstractSink<TS<T>> embedded, Function<T, ?> key, int maxPending, Duration flushInterval) {
+    this.embedded = embedded;
+    this.key = key;
+    this.maxPending = maxPending;
+    this.timer =
+        Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().daemon().name("task-journal-" + embedded.getName()).factory());
+    timer.scheduleWithFixedDelay(
+        this::flushQuietly,
+        flushInterval.toMillis(),
+        flushInterval.toMillis(),
+        TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void accept(TS<T> ts) {
+    long sequence;
+    boolean full;
+    synchronized (this) {
+      if (pending.put(key.apply(ts.value()), ts) != null) {
+        coalesced.incrementAndGet();
+      }
+      sequence = ++accepted;
+      full = pending.size() >= maxPending;
+    }
+    if (full || ts.value().getTaskState().isFinal()) {
+      flush(sequence);
+    }
+  }
+
+  /** Write all pending states. */
+  public void flush() {
+    long sequence;
+    synchronized (this) {
+      sequence = accepted;
+    }
+    flush(sequence);
+  }
+
+  /** Write pending states, unless another flush wrote everything up to the sequence number. */
+  private void flush(long sequence) {
+    flushLock.lock();
+    try {
+      if (flushed >= sequence) {
+        return;
+      }
+      Map<Object, TS<T>> batch;
+      long upTo;
+      synchronized (this) {
+        batch = pending;
+        upTo = accepted;
+        pending = new LinkedHashMap<>();
+      }
+      if (!batch.isEmpty()) {
+        try {
+          batch.values().forEach(embedded::accept);
+          embedded.flush();
+        } catch (RuntimeException e) {
+          try {
+            embedded.discardBatch();
+          } catch (RuntimeException suppressed) {
+            e.addSuppressed(suppressed);
+          }
+          restore(batch);
+          throw e;
+        }
+      }
+      flushed = upTo;
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  /** Put back a batch that could not be written; states that came in since are newer. */
+  private synchronized void restore(Map<Object, TS<T>> batch) {
+    batch.putAll(pending);
+    pending = batch;
+  }
+
+  private void flushQuietly() {
+    try {
+      flush();
+    } catch (RuntimeException e) {
+      LOGGER.error("Cannot store task states", e);
+    }
+  }
+
+  @Override
+  public void finalCall() {
+    timer.shutdown();
+    flush();
+    embedded.finalCall();
+  }
+
+  @Override
+  public int getTotalCount() {
+    return embedded.getTotalCount();
+  }
+
+  @Override
+  public int getUpdatedCount() {
+    return embedded.getUpdatedCount();
+  }
+
+  @Override
+  public String getName() {
+    return embedded.getName();
+  }
+
+  /** Registers the embedded sink, plus the states waiting and the states never written. */
+  @Override
+  public void registerMetrics(Metrics metrics) {
+    embedded.registerMetrics(metrics);
+    metrics.gauge(
+        "datadigger_task_journal_pending",
+        "Task states waiting to be stored",
+        this::pendingCount,
+        "sink",
+        getName());
+    metrics.counter(
+        "datadigger_task_journal_coalesced_total",
+        "Task states replaced by a later state before they were stored",
+        coalesced::get,
+        "sink",
+        getName());
+  }
+
+  private synchronized int pendingCount() {
+    return pending.size();
+  }
+}
@@ -4,12 +4,15 @@ import static org.curieo.driver.OptionDefinitions.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
+import javax.xml.stream.XMLStreamException;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.DefaultParser;
@@ -17,10 +20,14 @@ import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import org.curieo.consumer.*;
+import org.curieo.metrics.Counter;
+import org.curieo.metrics.Histogram;
+import org.curieo.metrics.Metrics;
 import org.curieo.model.*;
 import org.curieo.model.Record;
 import org.curieo.retrieve.ftp.FTPProcessing;
 import org.curieo.retrieve.ftp.FTPProcessingFilter;
+import org.curieo.retrieve.ftp.FileProcessor;
 import org.curieo.sources.SourceReader;
 import org.curieo.utils.Config;
 import org.curieo.utils.StringUtils;
@@ -33,11 +40,28 @@ import org.slf4j.LoggerFactory;
  * search
  *
  * @param firstYear you can specify a year range that you want loaded.
+ * @param digests if not null, records that are stored with the same content already are skipped.
  */
 public record DataLoader(
-    Integer firstYear, Integer lastYear, String sourceType, Sink<Record> sink) {
+    Integer firstYear,
+    Integer lastYear,
+    String sourceType,
+    Sink<Record> sink,
+    RecordDigests digests) {
   public static final int LOGGING_INTERVAL = 1000;
   private static final Logger LOGGER = LoggerFactory.getLogger(DataLoader.class);
+  private static final Histogram PROCESSING_TIME =
+      Metrics.get().timer("datadigger_file_processing_seconds", "Time to parse and store a file");
+  private static final Counter RECORDS_SEEN =
+      Metrics.get().counter("datadigger_records_parsed_total", "Records parsed from files");
+  private static final Counter RECORDS_REJECTED =
+      Metrics.get().counter("datadigger_records_rejected_total", "Records rejected by year filter");
+  private static final Counter RECORDS_UNCHANGED =
+      Metrics.get().counter("datadigger_records_unchanged_total", "Records skipped as unchanged");
+
+  public DataLoader(Integer firstYear, Integer lastYear, String sourceType, Sink<Record> sink) {
+    this(firstYear, lastYear, sourceType, sink, null);
+  }
 
   public static void main(String[] args) throws ParseException, IOException, SQLException {
     Options options =
@@ -45,17 +69,30 @@ public record DataLoader(
             .addOption(firstYearOption)
             .addOption(lastYearOption)
             .addOption(batchSizeOption)
+            .addOption(batchLatencyOption)
+            .addOption(batchBytesOption)
             .addOption(
                 new Option(
-                    "y", "source type", true, "source type - can currently only be \"pubmed\""))
+                    "y",
+                    "source type",
+                    true,
+                    "source type - \"pubmed\" or \"pubmed-cursor\" (same records, faster parser)"))
             .addOption(dataSetOption)
             .addOption(previousJobOption)
             .addOption(maxFiles)
             .addOption(new Option("f", "full-records", false, "full records to sql database"))
             .addOption(new Option("a", "authors", false, "authors to sql database"))
             .addOption(references)
+            .addOption(citationCountsOption)
             .addOption(linkTable)
-            .addOption(useKeysOption);
+            .addOption(useKeysOption)
+            .addOption(deduplicateOption)
+            .addOption(copyOption)
+            .addOption(writersOption)
+            .addOption(streamOption)
+            .addOption(skipUnchangedOption)
+            .addOption(recordCodecOption)
+            .addOption(metricsPortOption);
     CommandLineParser parser = new DefaultParser();
     CommandLine parse = parser.parse(options, args);
     Config config = new Config();
@@ -66,6 +103,7 @@ public record DataLoader(
     int maximumNumberOfRecords = getIntOption(parse, maxFiles).orElse(Integer.MAX_VALUE);
     int batchSize = getIntOption(parse, batchSizeOption).orElse(SQLSinkFactory.DEFAULT_BATCH_SIZE);
     String tasksTable = "tasks";
+    startMetricsServer(parse);
 
     PostgreSQLClient postgreSQLClient = PostgreSQLClient.getPostgreSQLClient(config);
 
@@ -79,52 +117,55 @@ public record DataLoader(
       }
     }
 
+    if (parse.hasOption(skipUnchangedOption) && !parse.hasOption("full-records")) {
+      LOGGER.error("--skip-unchanged compares against the stored full records, use --full-records");
+      System.exit(1);
+    }
+
     SQLSinkFactory sqlSinkFactory =
-        new SQLSinkFactory(postgreSQLClient, batchSize, parse.hasOption(useKeysOption));
+        new SQLSinkFactory(
+            postgreSQLClient,
+            batchSize,
+            parse.hasOption(useKeysOption),
+            getCopyFormat(parse),
+            getBatchSizing(parse),
+            parse.hasOption(deduplicateOption));
 
     Sink<TS<PubmedTask>> tasksSink = sqlSinkFactory.createTasksSink(tasksTable);
-    Sink<Record> tsink = new Sink.Noop<>();
 
-    // store authorships
-    if (parse.hasOption('a')) {
-      Sink<Record> asink =
-          new MapSink<>(Record::toAuthorships, sqlSinkFactory.createAuthorshipSink());
-      tsink = tsink.concatenate(asink);
-    }
-    // store references
-    if (parse.hasOption(references)) {
-      List<ReferenceType> validTypes =
-          Arrays.stream(parse.getOptionValues(references)).map(ReferenceType::fromStr).toList();
-      Sink<Record> asink =
-          new MapSink<>(Record::toReferences, sqlSinkFactory.createReferenceSink(validTypes));
-      tsink = tsink.concatenate(asink);
-    }
-    // store full records
-    if (parse.hasOption("full-records")) {
-      Sink<Record> asink = new MapSink<>(StandardRecord::copy, sqlSinkFactory.createRecordSink());
-      tsink = tsink.concatenate(asink);
+    RecordDigests digests = parse.hasOption(skipUnchangedOption) ? new RecordDigests() : null;
+    int writers = getIntOption(parse, writersOption).orElse(1);
+    final Sink<Record> sink;
+    if (writers > 1) {
+      // every writer gets its own sink chain, and hence its own statements and connections
+      List<Sink<Record>> shards = new ArrayList<>();
+      int active = postgreSQLClient.getActiveConnections();
+      shards.add(createRecordSinks(parse, sqlSinkFactory, digests));
+      // which hold on to their connections for good, so the pool must have room for all of them
+      postgreSQLClient.reserveConnections(
+          (writers - 1) * (postgreSQLClient.getActiveConnections() - active));
+      for (int i = 1; i < writers; i++) {
+        shards.add(createRecordSinks(parse, sqlSinkFactory, digests));
+      }
+      sink = new ShardedAsyncSink<>(shards, DataLoader::shardKey);
+    } else {
+      sink = new AsyncSink<>(createRecordSinks(parse, sqlSinkFactory, digests));
     }
+    sink.registerMetrics(Metrics.get());
+    tasksSink.registerMetrics(Metrics.get());
 
-    // store link table
-    if (parse.hasOption(linkTable)) {
-      for (String ltopt : parse.getOptionValues(linkTable)) {
-        LinkTableOption lto = LinkTableOption.parse(ltopt);
-        Sink<Record> asink =
-            new MapSink<>(
-                r -> r.toLinks(lto.getSource(), lto.getTarget()),
-                sqlSinkFactory.createLinkoutTable(
-                    lto.getTable(), lto.getSource(), lto.getTarget()));
-        tsink = tsink.concatenate(asink);
-      }
+    // load after creating the sinks, which add the digest column to existing tables
+    if (digests != null) {
+      digests.load(postgreSQLClient);
     }
 
-    final Sink<Record> sink = new AsyncSink<>(tsink);
     DataLoader loader =
         new DataLoader(
             getIntOption(parse, firstYearOption).orElse(1500),
             getIntOption(parse, lastYearOption).orElse(3000),
             sourceType,
-            sink);
+            sink,
+            digests);
 
     String remotePath = null;
     switch (job) {
@@ -147,37 +188,130 @@ public record DataLoader(
           tasks,
           tasksSink,
           FTPProcessingFilter.ValidExtension(".xml.gz"),
-          loader::processFile,
+          parse.hasOption(streamOption)
+              ? FileProcessor.streaming(loader::processFile, loader::processStream)
+              : loader::processFile,
           maximumNumberOfRecords);
     }
     sink.finalCall();
+    tasksSink.finalCall();
     LOGGER.info(
-        "Stored {} records, updated {} records", sink.getTotalCount(), sink.getUpdatedCount());
+        "Stored {} records, updated {} records, collapsed {} duplicates, skipped {} unchanged"
+            + " records",
+        sink.getTotalCount(),
+        sink.getUpdatedCount(),
+        sink.getCollapsedCount(),
+        digests == null ? 0 : digests.getUnchangedCount());
 
     postgreSQLClient.close();
     System.exit(0);
   }
 
+  /**
+   * Compose the chain of sinks selected on the command line.
+   *
+   * @param digests if not null, full records are stored with their digests.
+   * @return a (possibly empty) concatenation of sinks.
+   */
+  private static Sink<Record> createRecordSinks(
+      CommandLine parse, SQLSinkFactory sqlSinkFactory, RecordDigests digests) throws SQLException {
+    Sink<Record> tsink = new Sink.Noop<>();
+
+    // store authorships
+    if (parse.hasOption('a')) {
+      Sink<Record> asink =
+          new MapSink<>(Record::toAuthorships, sqlSinkFactory.createAuthorshipSink());
+      tsink = tsink.concatenate(asink);
+    }
+    // store references
+    if (parse.hasOption(references)) {
+      List<ReferenceType> validTypes =
+          Arrays.stream(parse.getOptionValues(references)).map(ReferenceType::fromStr).toList();
+      Sink<Record> asink =
+          new MapSink<>(Record::toReferences, sqlSinkFactory.createReferenceSink(validTypes));
+      tsink = tsink.concatenate(asink);
+    }
+    // count citations
+    if (parse.hasOption(citationCountsOption)) {
+      tsink = tsink.concatenate(sqlSinkFactory.createCitationCountSink());
+    }
+    // store full records
+    if (parse.hasOption("full-records")) {
+      // written straight from the parsed record, without a copy into a StandardRecord
+      Sink<Record> asink = sqlSinkFactory.createRecordSink(getRecordCodec(parse), digests);
+      tsink = tsink.concatenate(asink);
+    }
+
+    // store link table
+    if (parse.hasOption(linkTable)) {
+      for (String ltopt : parse.getOptionValues(linkTable)) {
+        LinkTableOption lto = LinkTableOption.parse(ltopt);
+        Sink<Record> asink =
+            new MapSink<>(
+                r -> r.toLinks(lto.getSource(), lto.getTarget()),
+                sqlSinkFactory.createLinkoutTable(
+                    lto.getTable(), lto.getSource(), lto.getTarget()));
+        tsink = tsink.concatenate(asink);
+      }
+    }
+    return tsink;
+  }
+
+  /** The PMID of a record, or null if it has none: those all go to the same writer. */
+  private static Long shardKey(Record record) {
+    try {
+      return record.getIdentifier() == null ? null : record.getNumericIdentifier();
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
   public FTPProcessing.Status processFile(File file, String name) {
-    String path = file.getAbsolutePath();
+    return process(
+        file.getAbsolutePath(), () -> SourceReader.getReader(sourceType).read(file, name));
+  }
+
+  /** Process a file while it is being downloaded. */
+  public FTPProcessing.Status processStream(InputStream stream, String name) {
+    return process(name, () -> SourceReader.getReader(sourceType).read(stream, name));
+  }
+
+  @FunctionalInterface
+  private interface RecordSource {
+    Iterable<Record> open() throws IOException, XMLStreamException;
+  }
+
+  private FTPProcessing.Status process(String path, RecordSource source) {
     if (path.toLowerCase().endsWith(".xml.gz")) {
       AtomicInteger count = new AtomicInteger();
       AtomicInteger countRejected = new AtomicInteger();
+      AtomicInteger countUnchanged = new AtomicInteger();
       long startTimeInMillis = System.currentTimeMillis();
+      long start = System.nanoTime();
 
       try {
-        final Iterable<Record> reader = SourceReader.getReader(sourceType).read(file, name);
+        final Iterable<Record> reader = source.open();
         reader.forEach(
             r -> {
               count.getAndIncrement();
-              if (checkYear(r)) {
-                sink.accept(r);
-              } else {
+              if (!checkYear(r)) {
                 countRejected.getAndIncrement();
+              } else if (digests != null && digests.isUnchanged(r)) {
+                countUnchanged.getAndIncrement();
+              } else {
+                sink.accept(r);
               }
             });
 
-        LOGGER.info("Seen {} records - rejected {} by year filter", count, countRejected);
+        LOGGER.info(
+            "Seen {} records - rejected {} by year filter, skipped {} unchanged",
+            count,
+            countRejected,
+            countUnchanged);
+        PROCESSING_TIME.observeSince(start);
+        RECORDS_SEEN.add(count.get());
+        RECORDS_REJECTED.add(countRejected.get());
+        RECORDS_UNCHANGED.add(countUnchanged.get());
 
         long endTimeInMillis = System.currentTimeMillis();
         LOGGER.info(
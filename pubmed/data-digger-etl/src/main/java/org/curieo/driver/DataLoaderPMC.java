@@ -7,10 +7,12 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.nio.file.Files;
+import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.List;
+import java.time.Duration;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
@@ -28,15 +30,20 @@ import org.curieo.consumer.AWSStorageSink;
 import org.curieo.consumer.AsyncSink;
 import org.curieo.consumer.PostgreSQLClient;
 import org.curieo.consumer.S3Helpers;
+import org.curieo.consumer.S3Uploader;
 import org.curieo.consumer.SQLSinkFactory;
 import org.curieo.consumer.Sink;
+import org.curieo.metrics.Metrics;
 import org.curieo.model.*;
 import org.curieo.retrieve.ftp.FTPProcessing;
 import org.curieo.retrieve.ftp.FTPProcessingFilter;
 import org.curieo.sources.pubmedcentral.BulkFileHandler;
 import org.curieo.sources.pubmedcentral.FullText;
 import org.curieo.utils.Config;
+import org.curieo.utils.HashSet;
+import org.curieo.utils.HttpFetcher;
 import org.curieo.utils.TaskUtil;
+import org.curieo.utils.WindowedScheduler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -55,13 +62,15 @@ public class DataLoaderPMC {
   FullText fullTextHandler;
   AtomicInteger done;
   AtomicInteger filesSeen;
-  int threadPoolSize;
+  int concurrency;
 
   public static void main(String[] args)
       throws ParseException, IOException, SQLException, XMLStreamException, URISyntaxException {
     Options options =
         new Options()
             .addOption(batchSizeOption)
+            .addOption(batchLatencyOption)
+            .addOption(batchBytesOption)
             .addOption(oaiOption)
             .addOption(queryOption)
             .addOption(taskTableOption)
@@ -73,11 +82,18 @@ public class DataLoaderPMC {
             .addOption(executeQueryOption)
             .addOption(preprocessQueryOption)
             .addOption(postprocessQueryOption)
-            .addOption(useKeysOption);
+            .addOption(useKeysOption)
+            .addOption(deduplicateOption)
+            .addOption(copyOption)
+            .addOption(metricsPortOption);
     CommandLineParser parser = new DefaultParser();
     CommandLine parse = parser.parse(options, args);
     int batchSize = getIntOption(parse, batchSizeOption).orElse(SQLSinkFactory.DEFAULT_BATCH_SIZE);
     Config config = new Config();
+    startMetricsServer(parse);
+    HttpFetcher.configureShared(
+        Duration.ofSeconds(config.http_connect_timeout),
+        Duration.ofSeconds(config.http_request_timeout));
 
     try (PostgreSQLClient postgreSQLClient = PostgreSQLClient.getPostgreSQLClient(config)) {
       String previousJob = parse.getOptionValue(previousJobOption);
@@ -107,7 +123,13 @@ public class DataLoaderPMC {
         }
       }
       SQLSinkFactory sqlSinkFactory =
-          new SQLSinkFactory(postgreSQLClient, batchSize, parse.hasOption(useKeysOption));
+          new SQLSinkFactory(
+              postgreSQLClient,
+              batchSize,
+              parse.hasOption(useKeysOption),
+              getCopyFormat(parse),
+              getBatchSizing(parse),
+              parse.hasOption(deduplicateOption));
       String query = null;
       if (parse.hasOption(queryOption)) {
         // LOGGER.error(
@@ -151,12 +173,17 @@ public class DataLoaderPMC {
 
         String tasksTable = parse.getOptionValue(taskTableOption);
         Sink<TS<PubmedTask>> tasksSink = sqlSinkFactory.createTasksSink(tasksTable);
+        tasksSink.registerMetrics(Metrics.get());
         Map<String, TS<PubmedTask>> tasks =
             PostgreSQLClient.retrieveJobTasks(postgreSQLClient.getConnection(), tasksTable, job);
         Sink<PMCLocation> origin = sqlSinkFactory.createPMCRecordSink("pmc_location");
 
         BulkFileHandler fh =
-            new BulkFileHandler(S3Helpers.getS3Client(config), config.aws_storage_bucket, origin);
+            new BulkFileHandler(
+                S3Helpers.getS3Client(config, config.s3_upload_concurrency),
+                config.aws_storage_bucket,
+                origin,
+                S3Uploader.Settings.of(config));
 
         // copy TAR.GZ to S3 and track progress
         // populate pmc_origin table reading CSV from remote origin
@@ -170,6 +197,7 @@ public class DataLoaderPMC {
               fh::processBulkFile,
               Integer.MAX_VALUE);
         }
+        tasksSink.finalCall();
 
         // Calculate the location of the full-text files
         String[] queries = {
@@ -202,34 +230,34 @@ public class DataLoaderPMC {
           else sink = new AsyncSink<>(new AWSStorageSink(config));
         }
         if (sink != null) {
+          sink.registerMetrics(Metrics.get());
+          tasksSink.registerMetrics(Metrics.get());
           FullText ft = new FullText(parse.getOptionValue(oaiOption, FullText.OAI_SERVICE));
           if (query == null) {
             query =
                 String.format(FULL_TEXT_JOB_QUERY_TEMPLATE, parse.getOptionValue(taskTableOption));
           }
 
-          Map<String, TS<FullTextTask>> todo =
-              PostgreSQLClient.retrieveItems(
-                  postgreSQLClient.getConnection(),
-                  query,
-                  DataLoaderPMC::mapFullTextJob,
-                  j -> j.value().getIdentifier());
           LOGGER.info(query);
 
-          new DataLoaderPMC(
-                  tasksSink,
-                  sink,
-                  ft,
-                  new AtomicInteger(0),
-                  new AtomicInteger(0),
-                  config.thread_pool_size)
-              .processAllRecords(todo);
+          // the cursor keeps a transaction open, so it gets a connection of its own
+          try (Connection cursor = postgreSQLClient.getConnection()) {
+            new DataLoaderPMC(
+                    tasksSink,
+                    sink,
+                    ft,
+                    new AtomicInteger(0),
+                    new AtomicInteger(0),
+                    config.http_concurrency)
+                .processAllRecords(cursor, query);
+          }
 
           sink.finalCall();
           LOGGER.info(
-              "Stored {} records, updated {} records",
+              "Stored {} records, updated {} records, collapsed {} duplicates",
               sink.getTotalCount(),
-              sink.getUpdatedCount());
+              sink.getUpdatedCount(),
+              sink.getCollapsedCount());
         }
 
         // synchronize
@@ -248,6 +276,7 @@ public class DataLoaderPMC {
           throw new RuntimeException(
               "Either use --synchronize, or define at least 1 sink with --use-aws or --table-name ");
         }
+        tasksSink.finalCall();
       }
 
       if (parse.hasOption(postprocessQueryOption)) {
@@ -263,30 +292,47 @@ public class DataLoaderPMC {
     System.exit(0);
   }
 
-  private void processAllRecords(Map<String, TS<FullTextTask>> tasks) {
-    Predicate<Map.Entry<String, TS<FullTextTask>>> needsWork =
-        (entry) -> {
-          TaskState.State state = entry.getValue().value().getTaskState();
+  /**
+   * Retrieve and store the full text of all queued or failed tasks. Tasks are read from a cursor,
+   * and at most {@link #concurrency} are in flight at any time, each on a virtual thread of its
+   * own. An identifier that the query returns more than once is only retrieved the first time.
+   *
+   * @param connection to read the tasks with
+   * @param query selecting the tasks, see {@link #FULL_TEXT_JOB_QUERY_TEMPLATE}
+   */
+  private void processAllRecords(Connection connection, String query) throws SQLException {
+    Predicate<TS<FullTextTask>> needsWork =
+        ts -> {
+          TaskState.State state = ts.value().getTaskState();
           return (state == TaskState.State.Queued || state == TaskState.State.Failed);
         };
 
-    final int tasksSize = tasks.size();
-    Executor executor = Executors.newFixedThreadPool(threadPoolSize);
-    final List<CompletableFuture<Void>> futures =
-        tasks.entrySet().stream()
-            .filter(needsWork)
-            .map(
-                entry -> {
-                  return CompletableFuture.supplyAsync(() -> supplyJats(entry.getKey()), executor)
-                      .thenAcceptAsync(
-                          jats -> processJats(jats, entry.getKey(), entry.getValue(), tasksSize));
-                })
-            .toList();
+    Executor executor = Executors.newVirtualThreadPerTaskExecutor();
+    WindowedScheduler scheduler = new WindowedScheduler(concurrency);
+    scheduler.registerMetrics(Metrics.get(), "full-text");
+    Set<String> submitted = new HashSet<>();
+    int tasksSize =
+        PostgreSQLClient.streamItems(
+            connection,
+            query,
+            DataLoaderPMC::mapFullTextJob,
+            ts -> {
+              String key = ts.value().getIdentifier();
+              if (needsWork.test(ts) && submitted.add(key)) {
+                scheduler.submit(
+                    () ->
+                        CompletableFuture.supplyAsync(() -> supplyJats(key), executor)
+                            .thenAcceptAsync(
+                                jats -> processJats(jats, key, ts, scheduler), executor));
+              }
+            });
 
-    futures.forEach(CompletableFuture::join);
+    scheduler.join();
+    LOGGER.info("Processed {} out of {} tasks", scheduler.getCompleted(), tasksSize);
   }
 
-  private void processJats(Response<String> jats, String key, TS<FullTextTask> ts, int tasksSize) {
+  private void processJats(
+      Response<byte[]> jats, String key, TS<FullTextTask> ts, WindowedScheduler scheduler) {
     {
       if (!jats.ok()) {
         LOGGER.error("Cannot retrieve file {}", key);
@@ -304,12 +350,12 @@ public class DataLoaderPMC {
       int currentDone = done.incrementAndGet();
       LOGGER.info(
           String.format(
-              "Done %d/%d, at %.1f%%",
-              currentDone, tasksSize, (float) 100 * currentDone / tasksSize));
+              "Done %d/%d submitted, %d in flight",
+              currentDone, scheduler.getSubmitted(), scheduler.getInFlight()));
     }
   }
 
-  private Response<String> supplyJats(String key) {
+  private Response<byte[]> supplyJats(String key) {
     try {
       return fullTextHandler.getJats(key);
     } catch (Exception e) {
@@ -1,10 +1,16 @@
 package org.curieo.driver;
 
+import java.time.Duration;
 import java.util.Optional;
 import lombok.Generated;
 import lombok.Value;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.Option;
+import org.curieo.consumer.BatchSizing;
+import org.curieo.consumer.CopyFormat;
+import org.curieo.metrics.Metrics;
+import org.curieo.metrics.MetricsServer;
+import org.curieo.model.RecordCodec;
 import org.curieo.utils.ParseParameters;
 import org.curieo.utils.ParseParametersString;
 
@@ -28,6 +34,79 @@ public class OptionDefinitions {
           .type(Integer.class)
           .build();
 
+  static Option batchLatencyOption =
+      Option.builder()
+          .longOpt("batch-latency")
+          .hasArg()
+          .desc(
+              "size batches to take this many milliseconds to execute, starting from --batch-size"
+                  + " rows (default: batches of a fixed size)")
+          .type(Integer.class)
+          .build();
+
+  static Option batchBytesOption =
+      Option.builder()
+          .longOpt("batch-bytes")
+          .hasArg()
+          .desc("with --batch-latency, the most bytes to bind into a batch (default 4 MB)")
+          .type(Long.class)
+          .build();
+
+  static Option writersOption =
+      Option.builder()
+          .option("w")
+          .longOpt("writers")
+          .hasArg()
+          .desc("number of parallel writers, records are partitioned over writers by identifier")
+          .type(Integer.class)
+          .build();
+
+  static Option copyOption =
+      Option.builder()
+          .option("c")
+          .longOpt("copy")
+          .hasArg()
+          .optionalArg(true)
+          .desc(
+              "write through COPY into staging tables, merged every batch (\"text\" or \"binary\","
+                  + " default \"binary\"); use a larger --batch-size with this option")
+          .build();
+
+  static Option streamOption =
+      Option.builder()
+          .option("z")
+          .longOpt("stream")
+          .desc("parse remote files while downloading, instead of downloading to a temp file first")
+          .build();
+
+  static Option metricsPortOption =
+      Option.builder()
+          .option("g")
+          .longOpt("metrics-port")
+          .hasArg()
+          .desc("serve metrics for Prometheus on this port, under /metrics")
+          .type(Integer.class)
+          .build();
+
+  static Option skipUnchangedOption =
+      Option.builder()
+          .option("n")
+          .longOpt("skip-unchanged")
+          .desc(
+              "skip records whose content digest equals the one stored with the full record;"
+                  + " needs --full-records")
+          .build();
+
+  static Option recordCodecOption =
+      Option.builder()
+          .option("i")
+          .longOpt("record-codec")
+          .hasArg()
+          .desc(
+              "store full records in a BYTEA column, encoded as \"json\", \"smile\" or"
+                  + " \"smile-deflate\"; by default they are stored as JSON TEXT")
+          .build();
+
   static Option bulkProcessOption =
       Option.builder()
           .option("b")
@@ -64,6 +143,14 @@ public class OptionDefinitions {
   static Option useKeysOption =
       Option.builder().option("k").longOpt("use-keys").required(false).build();
 
+  static Option deduplicateOption =
+      Option.builder()
+          .longOpt("deduplicate")
+          .required(false)
+          .desc(
+              "collapse records with the same key within a batch to the last one before upserting")
+          .build();
+
   static Option synchronizeOption =
       Option.builder().option("s").longOpt("synchronize").hasArg().required(false).build();
 
@@ -106,6 +193,16 @@ public class OptionDefinitions {
           .hasArgs()
           .build();
 
+  static Option citationCountsOption =
+      Option.builder()
+          .longOpt("citation-counts")
+          .desc(
+              "keep the citation counts of PubMed identifiers up to date while loading; counts"
+                  + " start from the tables as they are, so load all records, or fill the tables"
+                  + " with ranking/sql/fill_new_tables.sql first")
+          .required(false)
+          .build();
+
   static final Option linkTable =
       Option.builder()
           .option("l")
@@ -151,6 +248,46 @@ public class OptionDefinitions {
           .desc("check previous job status")
           .build();
 
+  static CopyFormat getCopyFormat(CommandLine cmd) {
+    if (!cmd.hasOption(copyOption)) return null;
+    return CopyFormat.fromStr(cmd.getOptionValue(copyOption, CopyFormat.Binary.name()));
+  }
+
+  /**
+   * @return adaptive batch sizing, if a target latency is given
+   */
+  static BatchSizing getBatchSizing(CommandLine cmd) {
+    if (!cmd.hasOption(batchLatencyOption)) return null;
+    long bytes = BatchSizing.DEFAULT_BYTES;
+    if (cmd.hasOption(batchBytesOption)) {
+      try {
+        bytes = Long.parseLong(cmd.getOptionValue(batchBytesOption));
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException(
+            String.format("Option --%s must be a number", batchBytesOption.getLongOpt()), e);
+      }
+    }
+    int millis =
+        getIntOption(cmd, batchLatencyOption)
+            .orElseThrow(
+                () ->
+                    new IllegalArgumentException(
+                        String.format(
+                            "Option --%s must be a number", batchLatencyOption.getLongOpt())));
+    return BatchSizing.of(Duration.ofMillis(millis), bytes);
+  }
+
+  static RecordCodec getRecordCodec(CommandLine cmd) {
+    if (!cmd.hasOption(recordCodecOption)) return null;
+    return RecordCodec.fromStr(cmd.getOptionValue(recordCodecOption));
+  }
+
+  /** Start serving metrics, if a port is given. */
+  static void startMetricsServer(CommandLine cmd) {
+    getIntOption(cmd, metricsPortOption)
+        .ifPresent(port -> MetricsServer.start(Metrics.get(), port));
+  }
+
   static Optional<Integer> getIntOption(CommandLine cmd, Option option) {
     if (!cmd.hasOption(option)) return Optional.empty();
     try {
@@ -0,0 +1,44 @@
+package org.curieo.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/** Monotonically increasing count. */
+public class Counter implements Metric {
+  private final LongAdder value = new LongAdder();
+
+  public interface MBean {
+    long getValue();
+  }
+
+  public void inc() {
+    value.increment();
+  }
+
+  public void add(long amount) {
+    value.add(amount);
+  }
+
+  public long get() {
+    return value.sum();
+  }
+
+  @Override
+  public String type() {
+    return "counter";
+  }
+
+  @Override
+  public void write(StringBuilder out, String name, String labels) {
+    Metrics.line(out, name, labels, get());
+  }
+
+  @Override
+  public Object mbean() {
+    return (MBean) this::get;
+  }
+
+  @Override
+  public Class<?> mbeanInterface() {
+    return MBean.class;
+  }
+}
@@ -0,0 +1,57 @@
+package org.curieo.metrics;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.DoubleSupplier;
+
+/**
+ * A value sampled at scrape time. Registering the same gauge more than once adds up the suppliers,
+ * so that for instance parallel writers into one table report a single total.
+ */
+public class Gauge implements Metric {
+  private final String type;
+  private final List<DoubleSupplier> suppliers = new CopyOnWriteArrayList<>();
+
+  public interface MBean {
+    double getValue();
+  }
+
+  /**
+   * @param type "gauge", or "counter" for suppliers that only ever go up.
+   */
+  Gauge(String type) {
+    this.type = type;
+  }
+
+  void add(DoubleSupplier supplier) {
+    suppliers.add(supplier);
+  }
+
+  public double get() {
+    double sum = 0;
+    for (DoubleSupplier supplier : suppliers) {
+      sum += supplier.getAsDouble();
+    }
+    return sum;
+  }
+
+  @Override
+  public String type() {
+    return type;
+  }
+
+  @Override
+  public void write(StringBuilder out, String name, String labels) {
+    Metrics.line(out, name, labels, get());
+  }
+
+  @Override
+  public Object mbean() {
+    return (MBean) this::get;
+  }
+
+  @Override
+  public Class<?> mbeanInterface() {
+    return MBean.class;
+  }
+}
@@ -0,0 +1,120 @@
+package org.curieo.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Distribution of observations (typically durations in seconds) over fixed buckets. */
+public class Histogram implements Metric {
+  /** Default buckets for durations, from 1 ms to 5 minutes. */
+  public static final double[] DURATION_BUCKETS = {
+    0.001, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 120, 300
+  };
+
+  private final double[] bounds;
+  // one more than bounds, the last is +Inf
+  private final LongAdder[] counts;
+  private final DoubleAdder sum = new DoubleAdder();
+
+  public interface MBean {
+    long getCount();
+
+    double getSum();
+
+    double getMean();
+
+    /** Cumulative count per upper bound. */
+    Map<String, Long> getBuckets();
+  }
+
+  Histogram(double[] bounds) {
+    this.bounds = bounds.clone();
+    this.counts = new LongAdder[bounds.length + 1];
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = new LongAdder();
+    }
+  }
+
+  public void observe(double value) {
+    int i = 0;
+    while (i < bounds.length && value > bounds[i]) {
+      i++;
+    }
+    counts[i].increment();
+    sum.add(value);
+  }
+
+  /** Observe the seconds passed since {@code startNanos} (from {@link System#nanoTime()}). */
+  public void observeSince(long startNanos) {
+    observe((double) (System.nanoTime() - startNanos) / TimeUnit.SECONDS.toNanos(1));
+  }
+
+  public long getCount() {
+    long count = 0;
+    for (LongAdder c : counts) {
+      count += c.sum();
+    }
+    return count;
+  }
+
+  public double getSum() {
+    return sum.sum();
+  }
+
+  @Override
+  public String type() {
+    return "histogram";
+  }
+
+  @Override
+  public void write(StringBuilder out, String name, String labels) {
+    String prefix = labels.isEmpty() ? "" : labels + ",";
+    long cumulative = 0;
+    for (int i = 0; i < counts.length; i++) {
+      cumulative += counts[i].sum();
+      String le = i < bounds.length ? Metrics.format(bounds[i]) : "+Inf";
+      Metrics.line(out, name + "_bucket", prefix + "le=\"" + le + "\"", cumulative);
+    }
+    Metrics.line(out, name + "_sum", labels, getSum());
+    Metrics.line(out, name + "_count", labels, cumulative);
+  }
+
+  @Override
+  public Object mbean() {
+    return new MBean() {
+      @Override
+      public long getCount() {
+        return Histogram.this.getCount();
+      }
+
+      @Override
+      public double getSum() {
+        return Histogram.this.getSum();
+      }
+
+      @Override
+      public double getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : getSum() / count;
+      }
+
+      @Override
+      public Map<String, Long> getBuckets() {
+        Map<String, Long> buckets = new LinkedHashMap<>();
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+          cumulative += counts[i].sum();
+          buckets.put(i < bounds.length ? Metrics.format(bounds[i]) : "+Inf", cumulative);
+        }
+        return buckets;
+      }
+    };
+  }
+
+  @Override
+  public Class<?> mbeanInterface() {
+    return MBean.class;
+  }
+}
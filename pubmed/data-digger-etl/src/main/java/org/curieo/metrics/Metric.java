@@ -0,0 +1,22 @@
+package org.curieo.metrics;
+
+/** A single time series (or, for histograms, a set of series) in a {@link Metrics} registry. */
+public interface Metric {
+  /** Prometheus metric type. */
+  String type();
+
+  /**
+   * Append the Prometheus text exposition of this metric.
+   *
+   * @param out to append to
+   * @param name metric name
+   * @param labels label pairs, already formatted (without braces); may be empty.
+   */
+  void write(StringBuilder out, String name, String labels);
+
+  /** The object to register with JMX. */
+  Object mbean();
+
+  /** The management interface of {@link #mbean()}. */
+  Class<?> mbeanInterface();
+}
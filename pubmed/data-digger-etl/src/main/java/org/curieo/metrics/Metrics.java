@@ -0,0 +1,172 @@
+package org.curieo.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registry of pipeline metrics. Every series is exposed in the Prometheus text format by {@link
+ * #scrape()} (served by {@link MetricsServer}), and registered as an MBean in the domain {@value
+ * #JMX_DOMAIN}.
+ *
+ * <p>Series are identified by name plus labels, and registering the same one twice returns the
+ * existing metric.
+ */
+public class Metrics {
+  private static final Logger LOGGER = LoggerFactory.getLogger(Metrics.class);
+  public static final String JMX_DOMAIN = "org.curieo.datadigger";
+  private static final Metrics DEFAULT = new Metrics(ManagementFactory.getPlatformMBeanServer());
+
+  private final MBeanServer mbeanServer;
+  // sorted, for a stable scrape
+  private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+  private record Family(String help, String type, Map<String, Metric> series) {}
+
+  /**
+   * @param mbeanServer to register the metrics with, or null not to use JMX.
+   */
+  public Metrics(MBeanServer mbeanServer) {
+    this.mbeanServer = mbeanServer;
+  }
+
+  /** The registry the pipeline reports to. */
+  public static Metrics get() {
+    return DEFAULT;
+  }
+
+  /**
+   * @param labels alternating label names and values
+   */
+  public Counter counter(String name, String help, String... labels) {
+    return register(name, help, labels, Counter::new);
+  }
+
+  /**
+   * A gauge computed at scrape time. Suppliers registered under the same name and labels are
+   * summed.
+   */
+  public Gauge gauge(String name, String help, DoubleSupplier value, String... labels) {
+    Gauge gauge = register(name, help, labels, () -> new Gauge("gauge"));
+    gauge.add(value);
+    return gauge;
+  }
+
+  /** Like {@link #gauge}, for a value that only goes up, such as a record count. */
+  public Gauge counter(String name, String help, DoubleSupplier value, String... labels) {
+    Gauge gauge = register(name, help, labels, () -> new Gauge("counter"));
+    gauge.add(value);
+    return gauge;
+  }
+
+  public Histogram histogram(String name, String help, double[] buckets, String... labels) {
+    return register(name, help, labels, () -> new Histogram(buckets));
+  }
+
+  /** Histogram over {@link Histogram#DURATION_BUCKETS}. */
+  public Histogram timer(String name, String help, String... labels) {
+    return histogram(name, help, Histogram.DURATION_BUCKETS, labels);
+  }
+
+  @SuppressWarnings("unchecked")
+  private <M extends Metric> M register(
+      String name, String help, String[] labels, Supplier<M> factory) {
+    if (labels.length % 2 != 0) {
+      throw new IllegalArgumentException("Labels must come in name/value pairs");
+    }
+    String key = formatLabels(labels);
+    Family family =
+        families.computeIfAbsent(
+            name, n -> new Family(help, factory.get().type(), new ConcurrentHashMap<>()));
+    Metric metric =
+        family.series.computeIfAbsent(
+            key,
+            k -> {
+              M created = factory.get();
+              registerMBean(name, labels, created);
+              return created;
+            });
+    if (!metric.type().equals(family.type)) {
+      throw new IllegalArgumentException(
+          String.format("Metric %s is a %s, not a %s", name, family.type, metric.type()));
+    }
+    return (M) metric;
+  }
+
+  private void registerMBean(String name, String[] labels, Metric metric) {
+    if (mbeanServer == null) {
+      return;
+    }
+    StringBuilder objectName = new StringBuilder(JMX_DOMAIN).append(":name=").append(name);
+    for (int i = 0; i < labels.length; i += 2) {
+      objectName.append(',').append(labels[i]).append('=').append(ObjectName.quote(labels[i + 1]));
+    }
+    try {
+      @SuppressWarnings("unchecked")
+      Class<Object> type = (Class<Object>) metric.mbeanInterface();
+      ObjectName id = new ObjectName(objectName.toString());
+      if (!mbeanServer.isRegistered(id)) {
+        mbeanServer.registerMBean(new StandardMBean(metric.mbean(), type), id);
+      }
+    } catch (JMException e) {
+      LOGGER.warn("Cannot register {} with JMX", objectName, e);
+    }
+  }
+
+  /** All metrics in the Prometheus text exposition format (version 0.0.4). */
+  public String scrape() {
+    StringBuilder out = new StringBuilder();
+    for (Map.Entry<String, Family> entry : families.entrySet()) {
+      String name = entry.getKey();
+      Family family = entry.getValue();
+      out.append("# HELP ").append(name).append(' ').append(escapeHelp(family.help)).append('\n');
+      out.append("# TYPE ").append(name).append(' ').append(family.type).append('\n');
+      new ConcurrentSkipListMap<>(family.series)
+          .forEach((labels, metric) -> metric.write(out, name, labels));
+    }
+    return out.toString();
+  }
+
+  static String formatLabels(String[] labels) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < labels.length; i += 2) {
+      if (i > 0) {
+        sb.append(',');
+      }
+      sb.append(labels[i]).append("=\"").append(escapeLabel(labels[i + 1])).append('"');
+    }
+    return sb.toString();
+  }
+
+  static void line(StringBuilder out, String name, String labels, double value) {
+    out.append(name);
+    if (!labels.isEmpty()) {
+      out.append('{').append(labels).append('}');
+    }
+    out.append(' ').append(format(value)).append('\n');
+  }
+
+  static String format(double value) {
+    if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+      return Long.toString((long) value);
+    }
+    return Double.toString(value);
+  }
+
+  private static String escapeLabel(String value) {
+    return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+
+  private static String escapeHelp(String help) {
+    return help.replace("\\", "\\\\").replace("\n", "\\n");
+  }
+}
@@ -0,0 +1,71 @@
+package org.curieo.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Serves a {@link Metrics} registry on {@code /metrics} for Prometheus to scrape. */
+public class MetricsServer implements AutoCloseable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(MetricsServer.class);
+  public static final String PATH = "/metrics";
+  static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  private final HttpServer server;
+
+  private MetricsServer(HttpServer server) {
+    this.server = server;
+  }
+
+  /**
+   * Start serving on a daemon thread, so the server does not keep the process alive.
+   *
+   * @param port to listen on; 0 picks a free port
+   */
+  public static MetricsServer start(Metrics metrics, int port) {
+    try {
+      HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+      server.createContext(PATH, exchange -> serve(metrics, exchange));
+      // the dispatcher thread inherits its daemon status from the thread that starts it
+      Thread thread = new Thread(server::start, "metrics-server");
+      thread.setDaemon(true);
+      thread.start();
+      thread.join();
+      LOGGER.info("Serving metrics on port {}", server.getAddress().getPort());
+      return new MetricsServer(server);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+  }
+
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  private static void serve(Metrics metrics, HttpExchange exchange) throws IOException {
+    try (exchange) {
+      if (!exchange.getRequestMethod().equals("GET")) {
+        exchange.sendResponseHeaders(405, -1);
+        return;
+      }
+      byte[] body = metrics.scrape().getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+  }
+}
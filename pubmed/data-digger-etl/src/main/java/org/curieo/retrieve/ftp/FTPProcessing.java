@@ -4,32 +4,51 @@ import static org.curieo.utils.StringUtils.joinPath;
 
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.sql.Timestamp;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.function.BiFunction;
 import java.util.function.Predicate;
 import org.apache.commons.net.ftp.FTPClient;
 import org.apache.commons.net.ftp.FTPFile;
 import org.apache.commons.net.ftp.FTPReply;
 import org.curieo.consumer.Sink;
+import org.curieo.metrics.Counter;
+import org.curieo.metrics.Histogram;
+import org.curieo.metrics.Metrics;
 import org.curieo.model.PubmedTask;
 import org.curieo.model.TS;
 import org.curieo.utils.Config;
 import org.curieo.utils.Pair;
+import org.curieo.utils.WindowedScheduler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class FTPProcessing implements AutoCloseable {
   private static final Logger LOGGER = LoggerFactory.getLogger(FTPProcessing.class);
 
+  // how far the download may run ahead of the processor when streaming
+  static final int PIPE_SIZE = 1 << 22;
+  private static final int COPY_BUFFER_SIZE = 1 << 16;
+  // downloads queued per thread, so a thread can pick up the next one right away
+  private static final int WINDOW_PER_THREAD = 2;
+
+  private static final Counter DOWNLOADED_BYTES =
+      Metrics.get().counter("datadigger_ftp_bytes_total", "Bytes downloaded over FTP");
+  private static final Histogram DOWNLOAD_TIME =
+      Metrics.get().timer("datadigger_ftp_download_seconds", "Time to download a single file");
+
   Config config;
   String key;
   FTPClient ftp;
@@ -86,7 +105,7 @@ public class FTPProcessing implements AutoCloseable {
    * Synchronize a remote directory and a local directory.
    *
    * @param remoteDirectory
-   * @param processor
+   * @param processor processes local copies, or the downloads themselves if it is streaming
    * @param maximumNumberOfFiles maximum number of files to put through the processor
    * @throws IOException
    */
@@ -96,7 +115,7 @@ public class FTPProcessing implements AutoCloseable {
       Map<String, TS<PubmedTask>> tasks,
       Sink<TS<PubmedTask>> updateTaskSink,
       FTPProcessingFilter filter,
-      BiFunction<File, String, Status> processor,
+      FileProcessor processor,
       int maximumNumberOfFiles)
       throws IOException {
 
@@ -147,95 +166,188 @@ public class FTPProcessing implements AutoCloseable {
         };
 
     Executor executor = Executors.newFixedThreadPool(config.thread_pool_size);
-    final List<CompletableFuture<Void>> futures =
-        tasks.entrySet().stream()
-            .filter(needsWork)
-            .map(
-                entry -> {
-                  String key = entry.getKey();
-                  TS<PubmedTask> ts = entry.getValue();
-                  Timestamp timestamp = ts.timestamp();
-
-                  return CompletableFuture.supplyAsync(
-                          () -> {
-                            try {
-                              return createClient();
-                            } catch (IOException e) {
-                              throw new RuntimeException(e);
-                            }
-                          },
-                          executor)
-                      .thenApply(
-                          ftpClient -> {
-                            try {
-                              return Pair.of(
-                                  ftpClient, File.createTempFile(prefix(key), suffix(key)));
-                            } catch (IOException e) {
-                              throw new RuntimeException(e);
-                            }
-                          })
-                      .thenApply(
-                          state -> {
-                            FTPClient ftpClient = state.l();
-                            File tempFile = state.r();
-
-                            // retrieve the remote file, and submit.
-                            String remoteFile = joinPath(remoteDirectory, key, "/");
-                            try {
-                              boolean fileRetrieved = retrieveFile(ftpClient, remoteFile, tempFile);
-                              return Pair.of(fileRetrieved, state);
-                            } catch (IOException e) {
-                              if (!tempFile.delete()) {
-                                LOGGER.error(
-                                    "Could not delete temp file {}", tempFile.getAbsolutePath());
-                              }
-                              updateTaskSink.accept(TS.of(PubmedTask.failed(key, job), timestamp));
-                              throw new RuntimeException(e);
-                            }
-                          })
-                      .thenAccept(
-                          state -> {
-                            boolean fileRetrieved = state.l();
-                            FTPClient ftpClient = state.r().l();
-                            File tempFile = state.r().r();
-
-                            if (!fileRetrieved) {
-                              LOGGER.error("Cannot retrieve file {}", key);
-                              updateTaskSink.accept(TS.of(PubmedTask.failed(key, job), timestamp));
-                            } else {
-                              updateTaskSink.accept(
-                                  TS.of(PubmedTask.inProgress(key, job), timestamp));
-                              updateTaskSink.accept(
-                                  TS.of(
-                                      new PubmedTask(
-                                          key, processor.apply(tempFile, key).intotaskState(), job),
-                                      timestamp));
-                              LOGGER.info("Processed {}: state = {}", key, ts);
-                              filesSeen.getAndIncrement();
-                            }
-
-                            if (!tempFile.delete()) {
-                              LOGGER.error(
-                                  "Could not delete temp file {}", tempFile.getAbsolutePath());
-                            }
-                            int currentDone = done.incrementAndGet();
-                            LOGGER.info(
-                                String.format(
-                                    "Done %d/%d, at %.1f%%",
-                                    currentDone,
-                                    tasks.size(),
-                                    (float) 100 * currentDone / tasks.size()));
-
-                            try {
-                              ftpClient.disconnect();
-                            } catch (IOException e) {
-                              throw new RuntimeException(e);
-                            }
-                          });
-                })
-            .toList();
-
-    futures.forEach(CompletableFuture::join);
+    // tasks are only started as others complete, so the file limit is checked as we go
+    WindowedScheduler scheduler =
+        new WindowedScheduler(config.thread_pool_size * WINDOW_PER_THREAD);
+    scheduler.registerMetrics(Metrics.get(), job);
+    for (Map.Entry<String, TS<PubmedTask>> entry : tasks.entrySet()) {
+      if (!needsWork.test(entry)) {
+        continue;
+      }
+      scheduler.submit(
+          () -> {
+            String key = entry.getKey();
+            TS<PubmedTask> ts = entry.getValue();
+            Timestamp timestamp = ts.timestamp();
+
+            CompletableFuture<FTPClient> client =
+                CompletableFuture.supplyAsync(
+                    () -> {
+                      try {
+                        return createClient();
+                      } catch (IOException e) {
+                        throw new RuntimeException(e);
+                      }
+                    },
+                    executor);
+
+            if (processor instanceof FileProcessor.Streaming streaming) {
+              return client.thenAccept(
+                  ftpClient -> {
+                    // download and process concurrently, without touching local disk
+                    String remoteFile = joinPath(remoteDirectory, key, "/");
+                    updateTaskSink.accept(TS.of(PubmedTask.inProgress(key, job), timestamp));
+                    Status status;
+                    try {
+                      status = streamRemoteFile(ftpClient, remoteFile, key, streaming);
+                      filesSeen.getAndIncrement();
+                    } catch (IOException e) {
+                      LOGGER.error(String.format("Cannot retrieve file %s", key), e);
+                      status = Status.Error;
+                    }
+                    updateTaskSink.accept(
+                        TS.of(new PubmedTask(key, status.intotaskState(), job), timestamp));
+                    LOGGER.info("Processed {}: state = {}", key, status);
+                    finish(ftpClient, done.incrementAndGet(), tasks.size());
+                  });
+            }
+
+            return client
+                .thenApply(
+                    ftpClient -> {
+                      try {
+                        return Pair.of(ftpClient, File.createTempFile(prefix(key), suffix(key)));
+                      } catch (IOException e) {
+                        throw new RuntimeException(e);
+                      }
+                    })
+                .thenApply(
+                    state -> {
+                      FTPClient ftpClient = state.l();
+                      File tempFile = state.r();
+
+                      // retrieve the remote file, and submit.
+                      String remoteFile = joinPath(remoteDirectory, key, "/");
+                      try {
+                        long start = System.nanoTime();
+                        boolean fileRetrieved = retrieveFile(ftpClient, remoteFile, tempFile);
+                        DOWNLOAD_TIME.observeSince(start);
+                        DOWNLOADED_BYTES.add(tempFile.length());
+                        return Pair.of(fileRetrieved, state);
+                      } catch (IOException e) {
+                        if (!tempFile.delete()) {
+                          LOGGER.error("Could not delete temp file {}", tempFile.getAbsolutePath());
+                        }
+                        updateTaskSink.accept(TS.of(PubmedTask.failed(key, job), timestamp));
+                        throw new RuntimeException(e);
+                      }
+                    })
+                .thenAccept(
+                    state -> {
+                      boolean fileRetrieved = state.l();
+                      FTPClient ftpClient = state.r().l();
+                      File tempFile = state.r().r();
+
+                      if (!fileRetrieved) {
+                        LOGGER.error("Cannot retrieve file {}", key);
+                        updateTaskSink.accept(TS.of(PubmedTask.failed(key, job), timestamp));
+                      } else {
+                        updateTaskSink.accept(TS.of(PubmedTask.inProgress(key, job), timestamp));
+                        updateTaskSink.accept(
+                            TS.of(
+                                new PubmedTask(
+                                    key, processor.process(tempFile, key).intotaskState(), job),
+                                timestamp));
+                        LOGGER.info("Processed {}: state = {}", key, ts);
+                        filesSeen.getAndIncrement();
+                      }
+
+                      if (!tempFile.delete()) {
+                        LOGGER.error("Could not delete temp file {}", tempFile.getAbsolutePath());
+                      }
+                      finish(ftpClient, done.incrementAndGet(), tasks.size());
+                    });
+          });
+    }
+    scheduler.join();
+  }
+
+  private static void finish(FTPClient ftpClient, int currentDone, int total) {
+    LOGGER.info(
+        String.format(
+            "Done %d/%d, at %.1f%%", currentDone, total, (float) 100 * currentDone / total));
+
+    try {
+      ftpClient.disconnect();
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Feed a remote file into the processor while it is being downloaded. A separate thread copies
+   * the data connection into a bounded pipe, so the network keeps going while the processor is
+   * busy, up to {@link #PIPE_SIZE} bytes ahead. The bytes are counted as they come in.
+   *
+   * @return the status of the processor; a successful run only counts if the download completed.
+   * @throws IOException if the remote file cannot be retrieved
+   */
+  Status streamRemoteFile(
+      FTPClient client, String remoteFile, String key, FileProcessor.Streaming processor)
+      throws IOException {
+    InputStream remote = client.retrieveFileStream(remoteFile);
+    if (remote == null) {
+      throw new IOException(
+          String.format("Cannot retrieve %s: %s", remoteFile, client.getReplyString()));
+    }
+
+    PipedInputStream pipe = new PipedInputStream(PIPE_SIZE);
+    PipedOutputStream pipeIn = new PipedOutputStream(pipe);
+    CompletableFuture<Long> download = new CompletableFuture<>();
+    Thread.ofPlatform()
+        .daemon()
+        .name("download-" + key)
+        .start(
+            () -> {
+              long start = System.nanoTime();
+              long bytes = 0;
+              byte[] buffer = new byte[COPY_BUFFER_SIZE];
+              try (remote;
+                  pipeIn) {
+                int read;
+                while ((read = remote.read(buffer)) >= 0) {
+                  pipeIn.write(buffer, 0, read);
+                  bytes += read;
+                  DOWNLOADED_BYTES.add(read);
+                }
+              } catch (IOException e) {
+                // also raised when the processor closes the pipe without reading it to the end
+                download.completeExceptionally(e);
+                return;
+              }
+              DOWNLOAD_TIME.observeSince(start);
+              download.complete(bytes);
+            });
+
+    Status status;
+    try (pipe) {
+      status = processor.process(pipe, key);
+    }
+
+    try {
+      long bytes = download.join();
+      LOGGER.info("Downloaded {} bytes for {}", bytes, key);
+    } catch (CompletionException e) {
+      if (status == Status.Success) {
+        throw new IOException(String.format("Download of %s failed", remoteFile), e.getCause());
+      }
+      return status;
+    }
+    if (!client.completePendingCommand() && status == Status.Success) {
+      throw new IOException(
+          String.format("Download of %s incomplete: %s", remoteFile, client.getReplyString()));
+    }
+    return status;
   }
 
   private boolean retrieveFile(String remoteFile, File localFile) throws IOException {
@@ -301,14 +413,42 @@ public class FTPProcessing implements AutoCloseable {
 
   public static boolean retrieve(String href, File file) throws IOException, URISyntaxException {
     URL url = URI.create(href).parseServerAuthority().toURL();
-    String path = url.getFile();
-    String server = url.getHost();
+    try (FTPProcessing ftp = new FTPProcessing(anonymous(url))) {
+      return ftp.retrieveFile(url.getFile(), file);
+    }
+  }
+
+  /**
+   * Open a remote file for reading, without a local copy. Closing the stream ends the transfer
+   * (also halfway) and the connection.
+   */
+  public static InputStream openStream(String href) throws IOException, URISyntaxException {
+    URL url = URI.create(href).parseServerAuthority().toURL();
+    FTPProcessing ftp = new FTPProcessing(anonymous(url));
+    InputStream remote = ftp.ftp.retrieveFileStream(url.getFile());
+    if (remote == null) {
+      String reply = ftp.ftp.getReplyString();
+      ftp.close();
+      throw new IOException(String.format("Cannot retrieve %s: %s", href, reply));
+    }
+    return new FilterInputStream(remote) {
+      @Override
+      public void close() throws IOException {
+        try {
+          super.close();
+          ftp.ftp.completePendingCommand();
+        } finally {
+          ftp.close();
+        }
+      }
+    };
+  }
+
+  private static Config anonymous(URL url) {
     Config config = new Config();
-    config.pubmed_ftp_server = server;
+    config.pubmed_ftp_server = url.getHost();
     config.pubmed_ftp_user = "anonymous";
     config.pubmed_ftp_password = "anonymous";
-    try (FTPProcessing ftp = new FTPProcessing(config)) {
-      return ftp.retrieveFile(path, file);
-    }
+    return config;
   }
 }
@@ -0,0 +1,46 @@
+package org.curieo.retrieve.ftp;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.Objects;
+import java.util.function.BiFunction;
+
+/**
+ * Processes a single remote file, either after it has been downloaded to a local file, or while it
+ * is being downloaded.
+ */
+@FunctionalInterface
+public interface FileProcessor {
+  /**
+   * @param file local copy of the remote file
+   * @param name name of the remote file
+   */
+  FTPProcessing.Status process(File file, String name);
+
+  /** A processor that can also take a remote file while it is being downloaded. */
+  interface Streaming extends FileProcessor {
+    /**
+     * @param stream contents of the remote file, as it comes in; the stream is not decompressed.
+     * @param name name of the remote file
+     */
+    FTPProcessing.Status process(InputStream stream, String name);
+  }
+
+  /** Combine a file processor and a stream processor, preferring the stream. */
+  static Streaming streaming(
+      FileProcessor files, BiFunction<InputStream, String, FTPProcessing.Status> streams) {
+    Objects.requireNonNull(files);
+    Objects.requireNonNull(streams);
+    return new Streaming() {
+      @Override
+      public FTPProcessing.Status process(File file, String name) {
+        return files.process(file, name);
+      }
+
+      @Override
+      public FTPProcessing.Status process(InputStream stream, String name) {
+        return streams.apply(stream, name);
+      }
+    };
+  }
+}
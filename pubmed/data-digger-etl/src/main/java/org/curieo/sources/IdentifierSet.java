@@ -1,148 +1,231 @@
 package org.curieo.sources;
 
-import java.util.Collection;
-import java.util.HashMap;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractSet;
 import java.util.Iterator;
-import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
 import java.util.Set;
 import org.curieo.utils.HashSet;
+import org.curieo.utils.IntBitmap;
+
+/**
+ * Set of record identifiers. Numeric identifiers (PubMed ids) are kept in a compressed {@link
+ * IntBitmap}, so that sets like "already ingested" fit in a few MB for all of PubMed; any other
+ * identifier is kept as a string.
+ *
+ * <p>Not thread safe.
+ */
+public class IdentifierSet extends AbstractSet<String> {
+  private static final int MAGIC = 0x49445331; // "IDS1"
+
+  private final IntBitmap numbers;
+  private final Set<String> others;
+  private boolean hasNull = false;
+
+  public IdentifierSet() {
+    this(new IntBitmap(), new HashSet<>());
+  }
 
-public class IdentifierSet implements Set<String> {
-  private final Map<String, BinArray> data = new HashMap<>();
-  private final Set<String> others = new HashSet<>();
-  boolean hasNull = false;
+  private IdentifierSet(IntBitmap numbers, Set<String> others) {
+    this.numbers = numbers;
+    this.others = others;
+  }
 
   @Override
   public int size() {
-    throw new UnsupportedOperationException();
+    return numbers.size() + others.size() + (hasNull ? 1 : 0);
   }
 
   @Override
   public boolean isEmpty() {
-    throw new UnsupportedOperationException();
+    return numbers.isEmpty() && others.isEmpty() && !hasNull;
   }
 
   @Override
   public boolean contains(Object o) {
-    if (o == null) return hasNull;
+    if (o == null) {
+      return hasNull;
+    }
     if (o instanceof String e) {
-
-      if (e.length() < 3) {
-        return others.contains(e);
-      }
-      if (e.substring(0, e.length() - 2).chars().allMatch(Character::isDigit) && e.length() <= 11) {
-        String substring = e.substring(e.length() - 2);
-        BinArray b = data.get(substring);
-        if (b == null) {
-          return false;
-        }
-        return b.contains(Integer.parseInt(substring));
-      }
-      return others.contains(e);
+      int number = toNumber(e);
+      return number >= 0 ? numbers.contains(number) : others.contains(e);
     }
     return false;
   }
 
-  @Override
-  public Iterator<String> iterator() {
-    throw new UnsupportedOperationException();
-  }
-
-  @Override
-  public Object[] toArray() {
-    throw new UnsupportedOperationException();
-  }
-
-  @Override
-  public <T> T[] toArray(T[] a) {
-    throw new UnsupportedOperationException();
+  /** Whether the set holds the numeric identifier, without formatting it. */
+  public boolean contains(int number) {
+    return numbers.contains(number);
   }
 
   @Override
   public boolean add(String e) {
     if (e == null) {
+      boolean added = !hasNull;
       hasNull = true;
-      return true;
-    }
-    if (e.length() < 3) {
-      return others.add(e);
-    }
-    if (e.substring(0, e.length() - 2).chars().allMatch(Character::isDigit) && e.length() <= 11) {
-      String substring = e.substring(e.length() - 2);
-      BinArray b = data.computeIfAbsent(substring, c -> new BinArray(1000000000));
-      return b.add(Integer.parseInt(substring));
+      return added;
     }
+    int number = toNumber(e);
+    return number >= 0 ? numbers.add(number) : others.add(e);
+  }
 
-    return others.add(e);
+  public boolean add(int number) {
+    return numbers.add(number);
   }
 
   @Override
   public boolean remove(Object o) {
-    throw new UnsupportedOperationException();
+    if (o == null) {
+      boolean removed = hasNull;
+      hasNull = false;
+      return removed;
+    }
+    if (o instanceof String e) {
+      int number = toNumber(e);
+      return number >= 0 ? numbers.remove(number) : others.remove(e);
+    }
+    return false;
   }
 
   @Override
-  public boolean containsAll(Collection<?> c) {
-    throw new UnsupportedOperationException();
+  public void clear() {
+    numbers.clear();
+    others.clear();
+    hasNull = false;
   }
 
+  /** Numeric identifiers in ascending order, then the others. */
   @Override
-  public boolean addAll(Collection<? extends String> c) {
-    c.forEach(this::add);
-    return !c.isEmpty();
-  }
+  public Iterator<String> iterator() {
+    return new Iterator<>() {
+      final PrimitiveIterator.OfInt numberIterator = numbers.iterator();
+      final Iterator<String> otherIterator = others.iterator();
+      boolean nullPending = hasNull;
+
+      @Override
+      public boolean hasNext() {
+        return numberIterator.hasNext() || otherIterator.hasNext() || nullPending;
+      }
 
-  @Override
-  public boolean retainAll(Collection<?> c) {
-    throw new UnsupportedOperationException();
+      @Override
+      public String next() {
+        if (numberIterator.hasNext()) {
+          return Integer.toString(numberIterator.nextInt());
+        }
+        if (otherIterator.hasNext()) {
+          return otherIterator.next();
+        }
+        if (nullPending) {
+          nullPending = false;
+          return null;
+        }
+        throw new NoSuchElementException();
+      }
+    };
   }
 
-  @Override
-  public boolean removeAll(Collection<?> c) {
-    throw new UnsupportedOperationException();
+  /** The numeric identifiers. Changes to the set show in the bitmap. */
+  public IntBitmap getNumbers() {
+    return numbers;
   }
 
-  @Override
-  public void clear() {
-    data.clear();
+  public static IdentifierSet intersection(IdentifierSet a, IdentifierSet b) {
+    IdentifierSet result = new IdentifierSet(IntBitmap.and(a.numbers, b.numbers), new HashSet<>());
+    for (String e : a.others) {
+      if (b.others.contains(e)) {
+        result.others.add(e);
+      }
+    }
+    result.hasNull = a.hasNull && b.hasNull;
+    return result;
   }
 
-  private static class BinArray {
-    private static final byte[] MASK =
-        new byte[] {0x01, 0x02, 0x04, 0x08, 0x10, 0x20, 0x40, (byte) 0x80};
-    final byte[] core;
-    final Set<Integer> beyondBound = new HashSet<>();
-    int upperbound;
+  public static IdentifierSet union(IdentifierSet a, IdentifierSet b) {
+    IdentifierSet result =
+        new IdentifierSet(IntBitmap.or(a.numbers, b.numbers), new HashSet<>(a.others));
+    result.others.addAll(b.others);
+    result.hasNull = a.hasNull || b.hasNull;
+    return result;
+  }
 
-    BinArray(int upperbound) {
-      this.upperbound = upperbound;
-      int bytecount = upperbound / 8;
-      if (upperbound % 8 != 0) bytecount += 1;
-      core = new byte[bytecount];
+  /** Identifiers in {@code a} and not in {@code b}. */
+  public static IdentifierSet difference(IdentifierSet a, IdentifierSet b) {
+    IdentifierSet result =
+        new IdentifierSet(IntBitmap.andNot(a.numbers, b.numbers), new HashSet<>());
+    for (String e : a.others) {
+      if (!b.others.contains(e)) {
+        result.others.add(e);
+      }
     }
+    result.hasNull = a.hasNull && !b.hasNull;
+    return result;
+  }
 
-    public boolean contains(Object o) {
-      if (o instanceof Integer i) {
-        if (i < 0 || i > upperbound) {
-          return beyondBound.contains(o);
-        }
-        return (core[i >> 3] & MASK[i & 0x07]) != 0;
+  /**
+   * Store the set in two files: the bitmap at {@code path}, which {@link #read} maps into memory,
+   * and the other identifiers next to it, with suffix {@code .others}.
+   */
+  public void write(Path path) throws IOException {
+    numbers.write(path);
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(othersPath(path))))) {
+      out.writeInt(MAGIC);
+      out.writeBoolean(hasNull);
+      out.writeInt(others.size());
+      for (String e : others) {
+        out.writeUTF(e);
       }
-      return false;
     }
+  }
 
-    public boolean add(Integer i) {
-      if (i < 0 || i >= upperbound) beyondBound.add(i);
-      else core[i >> 3] |= MASK[i & 0x07];
-      return true;
+  public static IdentifierSet read(Path path) throws IOException {
+    IdentifierSet set = new IdentifierSet(IntBitmap.deserialize(path), new HashSet<>());
+    Path othersPath = othersPath(path);
+    if (!Files.exists(othersPath)) {
+      return set;
+    }
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(othersPath)))) {
+      if (in.readInt() != MAGIC) {
+        throw new IOException("Not an identifier set file: " + othersPath);
+      }
+      set.hasNull = in.readBoolean();
+      int count = in.readInt();
+      for (int i = 0; i < count; i++) {
+        set.others.add(in.readUTF());
+      }
     }
+    return set;
+  }
 
-    public boolean remove(Object o) {
-      if (o instanceof Integer i) {
-        if (i < 0 || i >= upperbound) beyondBound.add(i);
-        else core[i >> 3] &= (byte) ~MASK[i & 0x07];
+  private static Path othersPath(Path path) {
+    return path.resolveSibling(path.getFileName() + ".others");
+  }
+
+  /**
+   * The identifier as a number, if it is the canonical decimal form of one (so that it prints back
+   * the same); -1 otherwise.
+   */
+  static int toNumber(String e) {
+    int length = e.length();
+    if (length == 0 || length > 10 || (length > 1 && e.charAt(0) == '0')) {
+      return -1;
+    }
+    long value = 0;
+    for (int i = 0; i < length; i++) {
+      char c = e.charAt(i);
+      if (c < '0' || c > '9') {
+        return -1;
       }
-      return true;
+      value = 10 * value + (c - '0');
     }
+    return value > Integer.MAX_VALUE ? -1 : (int) value;
   }
 }
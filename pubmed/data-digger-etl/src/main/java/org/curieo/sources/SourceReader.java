@@ -2,20 +2,60 @@ package org.curieo.sources;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Iterator;
 import javax.xml.stream.XMLStreamException;
 import org.curieo.model.Record;
 import org.curieo.sources.pubmed.Pubmed;
+import org.curieo.sources.pubmed.PubmedCursorReader;
 
 /** Standard source reader */
 public interface SourceReader {
   String PUBMED = "pubmed";
 
+  /** Same records as {@link #PUBMED}, parsed with the (cheaper) StAX cursor API. */
+  String PUBMED_CURSOR = "pubmed-cursor";
+
   Iterable<Record> read(File path, String jobName) throws IOException, XMLStreamException;
 
+  /**
+   * Read from a stream, for instance a download in progress.
+   *
+   * @param stream file contents, compressed if the name says so
+   * @param jobName name of the file
+   */
+  Iterable<Record> read(InputStream stream, String jobName) throws IOException, XMLStreamException;
+
   static SourceReader getReader(String type) {
     if (type.equals(PUBMED)) {
-      return (path, jobName) -> new Mapper<>(Pubmed.read(path, jobName));
+      return new SourceReader() {
+        @Override
+        public Iterable<Record> read(File path, String jobName)
+            throws IOException, XMLStreamException {
+          return new Mapper<>(Pubmed.read(path, jobName));
+        }
+
+        @Override
+        public Iterable<Record> read(InputStream stream, String jobName)
+            throws IOException, XMLStreamException {
+          return new Mapper<>(Pubmed.read(stream, jobName));
+        }
+      };
+    }
+    if (type.equals(PUBMED_CURSOR)) {
+      return new SourceReader() {
+        @Override
+        public Iterable<Record> read(File path, String jobName)
+            throws IOException, XMLStreamException {
+          return new Mapper<>(PubmedCursorReader.read(path, jobName));
+        }
+
+        @Override
+        public Iterable<Record> read(InputStream stream, String jobName)
+            throws IOException, XMLStreamException {
+          return new Mapper<>(PubmedCursorReader.read(stream, jobName));
+        }
+      };
     }
     throw new IllegalArgumentException(String.format("Do not know input type %s", type));
   }
@@ -7,6 +7,7 @@ import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
@@ -19,8 +20,7 @@ import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
 import org.apache.commons.compress.utils.IOUtils;
 import org.apache.commons.io.FileUtils;
-import org.curieo.consumer.S3Helpers;
-import software.amazon.awssdk.services.s3.S3Client;
+import org.curieo.consumer.S3Uploader;
 
 // https://www.baeldung.com/java-extract-tar-file
 public class TarExtractor {
@@ -53,6 +53,40 @@ public class TarExtractor {
     return returnFile;
   }
 
+  /**
+   * Scan a tar stream for the first entry whose name matches, and read just that entry into memory.
+   * The entries before it are skipped without being written anywhere, and the rest of the stream is
+   * not read at all.
+   *
+   * @param stream tar contents; not closed
+   * @param gzip whether the stream is gzipped
+   * @param filter on entry names
+   * @param maximumSize refuse entries larger than this many bytes
+   * @return the contents of the entry, or null if no entry matches
+   * @throws IOException also if the matching entry is larger than {@code maximumSize}
+   */
+  public static byte[] readFirstMatchingEntry(
+      InputStream stream, boolean gzip, Predicate<String> filter, int maximumSize)
+      throws IOException {
+    InputStream inputStream = new BufferedInputStream(stream);
+    TarArchiveInputStream tar =
+        new TarArchiveInputStream(gzip ? new GzipCompressorInputStream(inputStream) : inputStream);
+    TarArchiveEntry entry;
+    while ((entry = (TarArchiveEntry) tar.getNextEntry()) != null) {
+      if (entry.isDirectory() || !filter.test(entry.getName())) {
+        continue;
+      }
+      if (entry.getSize() > maximumSize) {
+        throw new IOException(
+            String.format(
+                "Entry %s is %d bytes, more than %d",
+                entry.getName(), entry.getSize(), maximumSize));
+      }
+      return IOUtils.toByteArray(tar);
+    }
+    return null;
+  }
+
   public static List<File> untarAndDelete(File file, boolean gzip) throws IOException {
     Path destination = Files.createTempDirectory("tmpdir");
     List<File> files = untar(file, destination, gzip);
@@ -82,7 +116,11 @@ public class TarExtractor {
     return files;
   }
 
-  public static void untarToS3(File file, S3Client s3, String bucket, String basePath, boolean gzip)
+  /**
+   * Upload every file in a tar archive to S3, under {@code basePath}. Entries are read one by one,
+   * and uploaded concurrently while the next ones are read.
+   */
+  public static void untarToS3(File file, S3Uploader uploader, String basePath, boolean gzip)
       throws IOException {
     try (FileInputStream fis = new FileInputStream(file);
         BufferedInputStream inputStream = new BufferedInputStream(fis);
@@ -91,9 +129,11 @@ public class TarExtractor {
                 gzip ? new GzipCompressorInputStream(inputStream) : inputStream)) {
       TarArchiveEntry entry;
       while ((entry = (TarArchiveEntry) tar.getNextEntry()) != null) {
+        if (entry.isDirectory()) {
+          continue;
+        }
         String remotePath = joinPath(basePath, entry.getName());
-        byte[] content = IOUtils.toByteArray(tar);
-        S3Helpers.putObject(s3, content, bucket, remotePath);
+        uploader.upload(remotePath, IOUtils.toByteArray(tar));
       }
     }
   }
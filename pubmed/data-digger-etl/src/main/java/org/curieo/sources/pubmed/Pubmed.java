@@ -13,10 +13,32 @@ import javax.xml.stream.events.StartElement;
 import javax.xml.stream.events.XMLEvent;
 
 public class Pubmed {
+  private static final int GZIP_BUFFER_SIZE = 1 << 16;
 
   public static Iterable<PubmedRecord> read(File file, String jobName)
       throws IOException, XMLStreamException {
-    return new PubmedReader(file, jobName);
+    return new PubmedReader(openStream(file), jobName);
+  }
+
+  /**
+   * @param stream contents of a PubMed file
+   * @param jobName name of the file; the contents are gunzipped if it ends in {@code .gz}.
+   */
+  public static Iterable<PubmedRecord> read(InputStream stream, String jobName)
+      throws IOException, XMLStreamException {
+    return new PubmedReader(openStream(stream, jobName), jobName);
+  }
+
+  /** Open a (possibly gzipped) PubMed XML file. */
+  static InputStream openStream(File file) throws IOException {
+    return openStream(new FileInputStream(file), file.getAbsolutePath());
+  }
+
+  static InputStream openStream(InputStream stream, String name) throws IOException {
+    if (name.toLowerCase().endsWith(".gz")) {
+      return new GZIPInputStream(stream, GZIP_BUFFER_SIZE);
+    }
+    return stream;
   }
 
   private static class PubmedReader implements Iterable<PubmedRecord> {
@@ -24,14 +46,7 @@ public class Pubmed {
     XMLEventReader reader;
     String filename;
 
-    public PubmedReader(File file, String jobName) throws IOException, XMLStreamException {
-      FileInputStream bais = new FileInputStream(file);
-      InputStream stream;
-      if (file.getAbsolutePath().toLowerCase().endsWith(".gz")) {
-        stream = new GZIPInputStream(bais);
-      } else {
-        stream = bais;
-      }
+    public PubmedReader(InputStream stream, String jobName) throws XMLStreamException {
       filename = jobName;
       reader = xmlInputFactory.createXMLEventReader(stream);
     }
@@ -34,15 +34,15 @@ public class PubmedAuthor {
       if (initials == null) {
         return lastName;
       }
-      return String.format("%s %s", initials, lastName);
+      return initials + " " + lastName;
     }
     if (initials == null) {
-      return String.format("%s %s", foreName, lastName);
+      return foreName + " " + lastName;
     }
     if (foreName.replace(" ", "").equals(initials)) {
-      return String.format("%s %s", initials, lastName);
+      return initials + " " + lastName;
     }
-    return String.format("%s %s", foreName, lastName);
+    return foreName + " " + lastName;
   }
 
   public static List<PubmedAuthor> readAuthorList(XMLEventReader reader) throws XMLStreamException {
@@ -0,0 +1,342 @@
+package org.curieo.sources.pubmed;
+
+import static javax.xml.stream.XMLStreamConstants.CDATA;
+import static javax.xml.stream.XMLStreamConstants.CHARACTERS;
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+import static javax.xml.stream.XMLStreamConstants.SPACE;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.curieo.model.Metadata;
+import org.curieo.model.ReferenceGroup;
+import org.curieo.model.Text;
+import org.curieo.utils.Months;
+
+/**
+ * PubMed parser on the StAX cursor API. It produces the very same {@link PubmedRecord}s as {@link
+ * Pubmed#read}, but does not allocate an event object (and a {@link javax.xml.namespace.QName}) for
+ * every tag and text node, and collects all text into a single reusable buffer.
+ *
+ * <p>Tag dispatch is a string switch on {@link XMLStreamReader#getLocalName()}.
+ *
+ * <p>Not thread safe: every instance holds its own reader and buffers.
+ */
+public class PubmedCursorReader implements Iterable<PubmedRecord> {
+  private static final String INTERN_NAMES = "org.codehaus.stax2.internNames";
+  private static final XMLInputFactory XML_INPUT_FACTORY = createFactory();
+
+  private final XMLStreamReader reader;
+  private final InputStream stream;
+  private final String filename;
+  private final StringBuilder text = new StringBuilder(1024);
+  private final Calendar calendar = Calendar.getInstance();
+
+  public PubmedCursorReader(InputStream stream, String jobName) throws XMLStreamException {
+    this.stream = stream;
+    this.filename = jobName;
+    this.reader = XML_INPUT_FACTORY.createXMLStreamReader(stream);
+  }
+
+  public static Iterable<PubmedRecord> read(File file, String jobName)
+      throws IOException, XMLStreamException {
+    return new PubmedCursorReader(Pubmed.openStream(file), jobName);
+  }
+
+  /**
+   * @param stream contents of a PubMed file
+   * @param jobName name of the file; the contents are gunzipped if it ends in {@code .gz}.
+   */
+  public static Iterable<PubmedRecord> read(InputStream stream, String jobName)
+      throws IOException, XMLStreamException {
+    return new PubmedCursorReader(Pubmed.openStream(stream, jobName), jobName);
+  }
+
+  private static XMLInputFactory createFactory() {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    if (factory.isPropertySupported(INTERN_NAMES)) {
+      factory.setProperty(INTERN_NAMES, Boolean.TRUE);
+    }
+    return factory;
+  }
+
+  @Override
+  public Iterator<PubmedRecord> iterator() {
+    return new Iterator<>() {
+      PubmedRecord next = null;
+
+      @Override
+      public boolean hasNext() {
+        try {
+          if (next == null) {
+            next = nextRecord();
+          }
+          return next != null;
+        } catch (Exception e) {
+          throw new RuntimeException(e);
+        }
+      }
+
+      @Override
+      public PubmedRecord next() {
+        if (hasNext()) {
+          PubmedRecord retval = next;
+          next = null;
+          return retval;
+        }
+        return null;
+      }
+    };
+  }
+
+  private PubmedRecord nextRecord() throws XMLStreamException, IOException {
+    while (reader.hasNext()) {
+      if (reader.next() == START_ELEMENT && reader.getLocalName().equals(PubmedRecord.RECORD_TAG)) {
+        return readRecord();
+      }
+    }
+    reader.close();
+    stream.close();
+    return null;
+  }
+
+  private PubmedRecord readRecord() throws XMLStreamException {
+    PubmedRecord.PubmedRecordBuilder builder = PubmedRecord.builder().origin(filename);
+    while (reader.hasNext()) {
+      int event = reader.next();
+      if (event == START_ELEMENT) {
+        switch (reader.getLocalName()) {
+          case PubmedRecord.TITLE_TAG ->
+              builder.title(new Text(readText(PubmedRecord.TITLE_TAG), null));
+          case PubmedRecord.AUTHORLIST_TAG -> builder.pubmedAuthors(readAuthorList());
+          case PubmedRecord.ABSTRACT_TAG ->
+              builder.abstractTex(new Text(readText(PubmedRecord.ABSTRACT_TAG), null));
+          case PubmedRecord.ARTICLEDATE_TAG ->
+              builder.articleDate(readPublicationDate(PubmedRecord.ARTICLEDATE_TAG));
+          case PubmedRecord.DATECOMPLETED_TAG ->
+              builder.dateCompleted(readPublicationDate(PubmedRecord.DATECOMPLETED_TAG));
+          case Journal.JOURNAL_TAG -> {
+            Journal journal = readJournal();
+            builder.journal(journal).source(journal.toSource());
+          }
+          case PubmedRecord.REFERENCELIST_TAG -> builder.references(readReferenceList());
+          case PubmedRecord.ARTICLEID_TAG -> builder.identifier(readArticleId());
+          case PubmedRecord.MESHHEADINGLIST_TAG -> builder.meshHeadings(readHeadings());
+          default -> {}
+        }
+      } else if (event == END_ELEMENT && reader.getLocalName().equals(PubmedRecord.RECORD_TAG)) {
+        return builder.build();
+      }
+    }
+    return builder.build();
+  }
+
+  /** Collect all text up to the end of {@code tag}, including the text of nested elements. */
+  private String readText(String tag) throws XMLStreamException {
+    fillText(tag);
+    return text.toString();
+  }
+
+  private void fillText(String tag) throws XMLStreamException {
+    text.setLength(0);
+    while (reader.hasNext()) {
+      switch (reader.next()) {
+        case CHARACTERS, CDATA, SPACE ->
+            text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+        case END_ELEMENT -> {
+          if (reader.getLocalName().equals(tag)) {
+            return;
+          }
+        }
+        default -> {}
+      }
+    }
+  }
+
+  private Metadata readArticleId() throws XMLStreamException {
+    String type = reader.getAttributeValue(null, "IdType");
+    return new Metadata(type, readText(PubmedRecord.ARTICLEID_TAG));
+  }
+
+  private Date readPublicationDate(String endTag) throws XMLStreamException {
+    // same semantics as Calendar.getInstance(): fields that are absent default to now
+    calendar.setTimeInMillis(System.currentTimeMillis());
+    int dateData = 0;
+    while (reader.hasNext()) {
+      int event = reader.next();
+      if (event == START_ELEMENT) {
+        String tag = reader.getLocalName();
+        switch (tag) {
+          case PubmedRecord.DAY_TAG -> {
+            fillText(tag);
+            if (text.length() <= 2 && isDigits(text)) {
+              calendar.set(Calendar.DAY_OF_MONTH, parseInt(text));
+              dateData++;
+            }
+          }
+          case PubmedRecord.MONTH_TAG -> {
+            Integer month = Months.get(readText(tag).toLowerCase());
+            if (month != null) {
+              calendar.set(Calendar.MONTH, month);
+              dateData++;
+            }
+          }
+          case PubmedRecord.YEAR_TAG -> {
+            fillText(tag);
+            if (text.length() <= 5 && isDigits(text)) {
+              calendar.set(Calendar.YEAR, parseInt(text));
+              dateData++;
+            }
+          }
+          default -> {}
+        }
+      } else if (event == END_ELEMENT && reader.getLocalName().equals(endTag)) {
+        return dateData != 0 ? calendar.getTime() : null;
+      }
+    }
+    return null;
+  }
+
+  private List<PubmedAuthor> readAuthorList() throws XMLStreamException {
+    List<PubmedAuthor> authors = new ArrayList<>();
+    PubmedAuthor.PubmedAuthorBuilder builder = PubmedAuthor.builder();
+    while (reader.hasNext()) {
+      int event = reader.next();
+      if (event == START_ELEMENT) {
+        String field = reader.getLocalName();
+        switch (field) {
+          case "LastName" -> builder.lastName(readText(field));
+          case "ForeName" -> builder.foreName(readText(field));
+          case "Initials" -> builder.initials(readText(field));
+          case "Affiliation" -> builder.affiliation(readText(field));
+          default -> {}
+        }
+      } else if (event == END_ELEMENT) {
+        switch (reader.getLocalName()) {
+          case PubmedAuthor.AUTHOR_TAG -> {
+            authors.add(builder.build());
+            builder = PubmedAuthor.builder();
+          }
+          case PubmedRecord.AUTHORLIST_TAG -> {
+            return authors;
+          }
+          default -> {}
+        }
+      }
+    }
+    return authors;
+  }
+
+  private List<MeshHeading> readHeadings() throws XMLStreamException {
+    List<MeshHeading> headings = new ArrayList<>();
+    MeshHeading.MeshHeadingBuilder builder = MeshHeading.builder();
+    while (reader.hasNext()) {
+      int event = reader.next();
+      if (event == START_ELEMENT) {
+        switch (reader.getLocalName()) {
+          case "DescriptorName" -> builder.descriptorName(readHeading());
+          case "QualifierName" -> builder.qualifierName(readHeading());
+          default -> {}
+        }
+      } else if (event == END_ELEMENT) {
+        switch (reader.getLocalName()) {
+          case "MeshHeading" -> {
+            headings.add(builder.build());
+            builder = MeshHeading.builder();
+          }
+          case PubmedRecord.MESHHEADINGLIST_TAG -> {
+            return headings;
+          }
+          default -> {}
+        }
+      }
+    }
+    return headings;
+  }
+
+  private MeshHeading.Heading readHeading() {
+    String ui = reader.getAttributeValue(null, "UI");
+    String major = reader.getAttributeValue(null, "MajorTopicYN");
+    return new MeshHeading.Heading(ui, major.equals("Y"));
+  }
+
+  private Journal readJournal() throws XMLStreamException {
+    Journal.JournalBuilder builder = Journal.builder();
+    while (reader.hasNext()) {
+      int event = reader.next();
+      if (event == START_ELEMENT) {
+        switch (reader.getLocalName()) {
+          case Journal.TITLE_TAG -> builder.title(readText(Journal.TITLE_TAG));
+          case Journal.PUBDATE_TAG ->
+              builder.publicationDate(readPublicationDate(Journal.PUBDATE_TAG));
+          case Journal.ISO_TAG ->
+              builder.identifier(new Metadata(Journal.ISOABBREVIATION, readText(Journal.ISO_TAG)));
+          case Journal.ISSN_TAG ->
+              builder.identifier(new Metadata(Journal.ISSN, readText(Journal.ISSN_TAG)));
+          case Journal.ISSUE_TAG -> builder.issue(readText(Journal.ISSUE_TAG));
+          case Journal.VOLUME_TAG -> builder.volume(readText(Journal.VOLUME_TAG));
+          default -> {}
+        }
+      } else if (event == END_ELEMENT && reader.getLocalName().equals(Journal.JOURNAL_TAG)) {
+        return builder.build();
+      }
+    }
+    return builder.build();
+  }
+
+  private List<ReferenceGroup> readReferenceList() throws XMLStreamException {
+    List<ReferenceGroup> references = new ArrayList<>();
+    String citation = null;
+    Map<String, String> identifiers = new HashMap<>();
+    while (reader.hasNext()) {
+      int event = reader.next();
+      if (event == START_ELEMENT) {
+        switch (reader.getLocalName()) {
+          case "Citation" -> citation = readText("Citation");
+          case PubmedRecord.ARTICLEID_TAG -> {
+            Metadata articleId = readArticleId();
+            identifiers.put(articleId.key(), articleId.value());
+          }
+          default -> {}
+        }
+      } else if (event == END_ELEMENT) {
+        switch (reader.getLocalName()) {
+          case PubmedRecord.REFERENCE_TAG -> {
+            references.add(new ReferenceGroup(citation, new HashMap<>(identifiers)));
+            citation = null;
+            identifiers.clear();
+          }
+          case PubmedRecord.REFERENCELIST_TAG -> {
+            return references;
+          }
+          default -> {}
+        }
+      }
+    }
+    return references;
+  }
+
+  private static boolean isDigits(CharSequence s) {
+    for (int i = 0; i < s.length(); i++) {
+      if (!Character.isDigit(s.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int parseInt(CharSequence s) {
+    return Integer.parseInt(s, 0, s.length(), 10);
+  }
+}
@@ -11,7 +11,6 @@ import lombok.Builder;
 import lombok.Generated;
 import lombok.Singular;
 import lombok.Value;
-import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.ListUtils;
 import org.curieo.model.Authorship;
 import org.curieo.model.LinkedField;
@@ -79,9 +78,14 @@ public class PubmedRecord implements Record {
 
   @Override
   public List<String> getAuthors() {
-    return CollectionUtils.emptyIfNull(getPubmedAuthors()).stream()
-        .map(PubmedAuthor::toString)
-        .toList();
+    if (pubmedAuthors == null) {
+      return List.of();
+    }
+    List<String> authors = new ArrayList<>(pubmedAuthors.size());
+    for (PubmedAuthor author : pubmedAuthors) {
+      authors.add(author.toString());
+    }
+    return authors;
   }
 
   @Override
@@ -9,7 +9,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
-import org.curieo.consumer.S3Helpers;
+import org.curieo.consumer.S3Uploader;
 import org.curieo.consumer.Sink;
 import org.curieo.model.PMCLocation;
 import org.curieo.retrieve.ftp.FTPProcessing;
@@ -18,7 +18,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import software.amazon.awssdk.services.s3.S3Client;
 
-public record BulkFileHandler(S3Client s3, String bucket, Sink<PMCLocation> pmcSink) {
+/**
+ * @param uploads settings for the concurrent uploads of archives and their contents
+ */
+public record BulkFileHandler(
+    S3Client s3, String bucket, Sink<PMCLocation> pmcSink, S3Uploader.Settings uploads) {
   private static final Logger LOGGER = LoggerFactory.getLogger(BulkFileHandler.class);
   private static final CSVParser parser =
       new CSVParserBuilder().withSeparator('\t').withQuoteChar('"').build();
@@ -30,9 +34,13 @@ public record BulkFileHandler(S3Client s3, String bucket, Sink<PMCLocation> pmcS
       // if it's a data file, move to S3
       if (name.toLowerCase().endsWith(".tar.gz")) {
         LOGGER.info(String.format("Upload to S3 %s", file.getAbsolutePath()));
-        S3Helpers.putFile(s3, file, bucket, "bulk/" + name);
-        String tarName = name.substring(0, name.length() - ".tar.gz".length());
-        TarExtractor.untarToS3(file, s3, bucket, "bulk/" + tarName, true);
+        // the archive goes up while its entries are extracted and uploaded
+        try (S3Uploader uploader = new S3Uploader(s3, bucket, uploads)) {
+          uploader.upload("bulk/" + name, file);
+          String tarName = name.substring(0, name.length() - ".tar.gz".length());
+          TarExtractor.untarToS3(file, uploader, "bulk/" + tarName, true);
+          LOGGER.info("Uploaded {} files from {}", uploader.getUploaded(), name);
+        }
       } else if (name.toLowerCase().endsWith(FILELIST_CSV)) {
         // If it's a file list, read into table CSV
         LOGGER.info(String.format("Upload to database %s", file.getAbsolutePath()));
@@ -1,17 +1,12 @@
 package org.curieo.sources.pubmedcentral;
 
-import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.net.HttpURLConnection;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.net.URL;
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
+import java.net.http.HttpResponse;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import javax.xml.namespace.QName;
@@ -26,6 +21,7 @@ import lombok.Value;
 import org.curieo.model.Response;
 import org.curieo.retrieve.ftp.FTPProcessing;
 import org.curieo.sources.TarExtractor;
+import org.curieo.utils.HttpFetcher;
 import org.curieo.utils.URIHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,6 +31,8 @@ public record FullText(String oaiService) {
   public static final String XML_EXTENSION = "xml";
   public static final String OAI_SERVICE = "https://www.ncbi.nlm.nih.gov/pmc/utils/oa/oa.fcgi";
   public static final String ID_NOT_OPEN_ACCESS = "idIsNotOpenAccess";
+  // JATS files run to a few MB at most
+  public static final int MAXIMUM_JATS_SIZE = 1 << 27;
 
   private static final Logger LOGGER = LoggerFactory.getLogger(FullText.class);
   private static XMLInputFactory XMLINPUTFACTORY = XMLInputFactory.newInstance();
@@ -49,28 +47,63 @@ public record FullText(String oaiService) {
 
   /**
    * Retrieve the contents of the first file with an extension ending in "xml" in a package
-   * corresponding to a pubmed central identifier
+   * corresponding to a pubmed central identifier. The package is read while it is downloaded, up to
+   * and including that file only; nothing is written to disk.
    *
    * @param pmcId
-   * @return full file contents read into a UTF_8 string
+   * @return the UTF-8 encoded contents of the file
    * @throws IOException
    * @throws XMLStreamException
    */
-  public Response<String> getJats(String pmcId)
+  public Response<byte[]> getJats(String pmcId)
       throws IOException, XMLStreamException, URISyntaxException {
-    Response<File> file = getFullText(pmcId, GZIPPED_TAR_FORMAT);
-    if (!file.ok()) {
-      LOGGER.warn("Cannot retrieve {}", pmcId);
-      return file.map(null);
+    Response<Record> record = getRecord(pmcId);
+    if (!record.ok()) {
+      return record.map(null);
+    }
+    Link link =
+        record.value().links.stream()
+            .filter(l -> l.getFormat().equals(GZIPPED_TAR_FORMAT))
+            .findFirst()
+            .orElse(null);
+    if (link == null) {
+      return new Response<>(null, Response.Status.Unavailable);
+    }
+    byte[] jats;
+    try (InputStream stream = openLink(link)) {
+      jats =
+          TarExtractor.readFirstMatchingEntry(
+              stream, true, name -> name.toLowerCase().endsWith(XML_EXTENSION), MAXIMUM_JATS_SIZE);
+    } catch (IOException e) {
+      LOGGER.warn("Could not download {} for PMC {}", link.getHref(), pmcId, e);
+      return Response.fail(null);
+    }
+    if (jats == null) {
+      LOGGER.warn("No {} file in {} for PMC {}", XML_EXTENSION, link.getHref(), pmcId);
+      return Response.fail(null);
+    }
+    return Response.ok(jats);
+  }
+
+  /**
+   * @return the contents behind the link
+   * @throws IOException if the server refuses the link or has nothing there
+   */
+  private static InputStream openLink(Link link) throws IOException, URISyntaxException {
+    if (link.getHref().startsWith("ftp://")) {
+      return FTPProcessing.openStream(link.getHref());
     }
-    File target =
-        TarExtractor.getSingleFileOutOfTar(
-            file.value(), true, a -> a.getAbsolutePath().toLowerCase().endsWith(XML_EXTENSION));
-    file.value().delete();
-    assert target != null;
-    String content = Files.readString(target.toPath());
-    target.delete();
-    return Response.ok(content);
+    HttpFetcher fetcher = HttpFetcher.shared();
+    HttpResponse<InputStream> response =
+        fetcher.send(
+            fetcher.request(URI.create(link.getHref())).GET().build(),
+            HttpResponse.BodyHandlers.ofInputStream());
+    if (response.statusCode() != 200) {
+      response.body().close();
+      throw new IOException(
+          String.format("Cannot retrieve %s: HTTP %d", link.getHref(), response.statusCode()));
+    }
+    return response.body();
   }
 
   /**
@@ -128,25 +161,19 @@ public record FullText(String oaiService) {
    * @throws XMLStreamException
    */
   public Response<Record> getRecord(String pmcId) throws IOException, XMLStreamException {
-    URL url = URI.create(oaiService).toURL(); // + "?id=" + pmcId);
-
-    HttpURLConnection con = (HttpURLConnection) url.openConnection();
-    con.setRequestMethod("GET");
-    Map<String, String> parameters = new HashMap<>();
-    parameters.put("id", pmcId);
-
-    con.setDoOutput(true);
-    try (DataOutputStream out = new DataOutputStream(con.getOutputStream())) {
-      out.writeBytes(getParamsString(parameters));
+    HttpResponse<InputStream> response =
+        HttpFetcher.shared().postForm(URI.create(oaiService), Map.of("id", pmcId));
+    try (InputStream body = response.body()) {
+      if (response.statusCode() != 200) {
+        LOGGER.warn("No response for PMC {}", pmcId);
+        return Response.fail(null);
+      }
+      return readRecord(pmcId, XMLINPUTFACTORY.createXMLEventReader(body));
     }
+  }
 
-    // con.setRequestProperty("Content-Type", "application/json");
-    int status = con.getResponseCode();
-    if (status != 200) {
-      LOGGER.warn("No response for PMC {}", pmcId);
-      return Response.fail(null);
-    }
-    XMLEventReader reader = XMLINPUTFACTORY.createXMLEventReader(con.getInputStream());
+  private static Response<Record> readRecord(String pmcId, XMLEventReader reader)
+      throws XMLStreamException {
     Record record = null;
     while (reader.hasNext()) {
       XMLEvent event = reader.nextEvent();
@@ -186,26 +213,9 @@ public record FullText(String oaiService) {
         }
       }
     }
-    con.disconnect();
     return Response.ok(record);
   }
 
-  public static String getParamsString(Map<String, String> params) {
-    StringBuilder result = new StringBuilder();
-
-    for (Map.Entry<String, String> entry : params.entrySet()) {
-      result.append(URLEncoder.encode(entry.getKey(), StandardCharsets.UTF_8));
-      result.append("=");
-      result.append(URLEncoder.encode(entry.getValue(), StandardCharsets.UTF_8));
-      result.append("&");
-    }
-
-    String resultString = result.toString();
-    return !resultString.isEmpty()
-        ? resultString.substring(0, resultString.length() - 1)
-        : resultString;
-  }
-
   private static String getAttribute(StartElement startElement, QName attribute) {
     Attribute attr = startElement.getAttributeByName(attribute);
     return attr == null ? null : attr.getValue();
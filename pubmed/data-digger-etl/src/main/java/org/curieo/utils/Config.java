@@ -22,6 +22,12 @@ public class Config {
   public String aws_storage_bucket;
   public String aws_region;
   public int thread_pool_size;
+  public int http_concurrency;
+  public int http_connect_timeout;
+  public int http_request_timeout;
+  public int s3_upload_concurrency;
+  public int s3_upload_budget_mb;
+  public int s3_upload_attempts;
 
   private String environment = System.getenv("ENVIRONMENT");
   private Dotenv dotenv;
@@ -46,6 +52,14 @@ public class Config {
         getEnv("PMC_OTHER_FOLDER_PATH", false, "/pub/pmc/oa_bulk/oa_other/xml/");
 
     thread_pool_size = Integer.parseInt(getEnv("THREAD_POOL_SIZE", false, "10"));
+    // requests in flight on virtual threads, and timeouts in seconds
+    http_concurrency = Integer.parseInt(getEnv("HTTP_CONCURRENCY", false, "200"));
+    http_connect_timeout = Integer.parseInt(getEnv("HTTP_CONNECT_TIMEOUT", false, "10"));
+    http_request_timeout = Integer.parseInt(getEnv("HTTP_REQUEST_TIMEOUT", false, "120"));
+    // uploads in flight, and the memory they may hold
+    s3_upload_concurrency = Integer.parseInt(getEnv("S3_UPLOAD_CONCURRENCY", false, "64"));
+    s3_upload_budget_mb = Integer.parseInt(getEnv("S3_UPLOAD_BUDGET_MB", false, "256"));
+    s3_upload_attempts = Integer.parseInt(getEnv("S3_UPLOAD_ATTEMPTS", false, "5"));
 
     postgres_database = getEnv("POSTGRES_DATABASE", true, null);
     postgres_user = getEnv("POSTGRES_USER", true, null);
@@ -6,11 +6,8 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.net.URL;
-import java.net.URLConnection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.function.Function;
@@ -47,23 +44,10 @@ public class URIHandler {
   }
 
   public static boolean writeHTTPURL(String uri, File file) throws IOException {
-    URL url = URI.create(uri).toURL(); // + "?id=" + pmcId);
-    URLConnection urlcon = url.openConnection();
-    HttpURLConnection con = (HttpURLConnection) urlcon;
-    con.setRequestMethod("GET");
-    int status = con.getResponseCode();
-    if (status != 200) {
+    if (!HttpFetcher.shared().download(URI.create(uri), file.toPath())) {
       LOGGER.warn("No response for URL {}", uri);
       return false;
     }
-    try (FileOutputStream fos = new FileOutputStream(file)) {
-      try (InputStream s = con.getInputStream()) {
-        IOUtils.copy(s, fos);
-        fos.flush();
-      }
-      con.disconnect();
-    }
-
     return true;
   }
 
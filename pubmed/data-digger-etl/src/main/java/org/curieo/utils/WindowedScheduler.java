@@ -0,0 +1,129 @@
+package org.curieo.utils;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import org.curieo.metrics.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps at most a fixed number of asynchronous tasks in flight. {@link #submit} blocks the producer
+ * until a slot frees up, so tasks can be fed from a cursor or a stream without materializing them
+ * (or their futures) up front, and whatever a task holds in memory is bounded by the window.
+ *
+ * <p>Usage: {@link #submit} from a single producer thread, then {@link #join()}.
+ */
+public class WindowedScheduler {
+  private static final Logger LOGGER = LoggerFactory.getLogger(WindowedScheduler.class);
+
+  private final int window;
+  private final Semaphore slots;
+  private final AtomicInteger submitted = new AtomicInteger();
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger completed = new AtomicInteger();
+  private final AtomicInteger failed = new AtomicInteger();
+  private final AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+
+  /**
+   * @param window maximum number of tasks in flight
+   */
+  public WindowedScheduler(int window) {
+    if (window < 1) {
+      throw new IllegalArgumentException("Window must be at least 1");
+    }
+    this.window = window;
+    this.slots = new Semaphore(window);
+  }
+
+  /**
+   * Wait for a free slot, then start a task.
+   *
+   * @param task starts the work, and returns its completion
+   */
+  public void submit(Supplier<? extends CompletionStage<?>> task) {
+    try {
+      slots.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+    submitted.incrementAndGet();
+    inFlight.incrementAndGet();
+    CompletionStage<?> stage;
+    try {
+      stage = task.get();
+    } catch (RuntimeException e) {
+      complete(e);
+      return;
+    }
+    stage.whenComplete((result, error) -> complete(error));
+  }
+
+  private void complete(Throwable error) {
+    if (error != null) {
+      failed.incrementAndGet();
+      if (!firstFailure.compareAndSet(null, error)) {
+        LOGGER.error("Task failed", error);
+      }
+    }
+    inFlight.decrementAndGet();
+    completed.incrementAndGet();
+    slots.release();
+  }
+
+  /**
+   * Wait for all submitted tasks to complete.
+   *
+   * @throws CompletionException with the first failure, if any task failed
+   */
+  public void join() {
+    try {
+      slots.acquire(window);
+      slots.release(window);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+    Throwable failure = firstFailure.get();
+    if (failure != null) {
+      throw failure instanceof CompletionException ce ? ce : new CompletionException(failure);
+    }
+  }
+
+  public int getSubmitted() {
+    return submitted.get();
+  }
+
+  public int getInFlight() {
+    return inFlight.get();
+  }
+
+  /** Number of tasks completed, including those that failed. */
+  public int getCompleted() {
+    return completed.get();
+  }
+
+  public int getFailed() {
+    return failed.get();
+  }
+
+  public void registerMetrics(Metrics metrics, String name) {
+    metrics.gauge(
+        "datadigger_tasks_in_flight",
+        "Tasks started and not completed",
+        inFlight::get,
+        "job",
+        name);
+    metrics.counter(
+        "datadigger_tasks_completed_total",
+        "Tasks completed, including failures",
+        completed::get,
+        "job",
+        name);
+    metrics.counter("datadigger_tasks_failed_total", "Tasks failed", failed::get, "job", name);
+  }
+}
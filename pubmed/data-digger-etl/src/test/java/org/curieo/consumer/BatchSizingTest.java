@@ -0,0 +1,40 @@
+package org.curieo.consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class BatchSizingTest {
+  private static final long MILLI = 1_000_000;
+
+  @Test
+  void testController() {
+    BatchSizing sizing = BatchSizing.of(Duration.ofMillis(100), 1 << 20);
+
+    // narrow rows, 10 µs each: grows twofold per batch, up to the latency target
+    BatchSizing.Controller narrow = sizing.controller(100);
+    narrow.observe(100, 100 * 16, MILLI);
+    assertEquals(200, narrow.size());
+    for (int i = 0; i < 20; i++) {
+      narrow.observe(narrow.size(), narrow.size() * 16L, narrow.size() * MILLI / 100);
+    }
+    assertEquals(10_000, narrow.size());
+
+    // wide rows, fast to execute: held by the byte budget
+    BatchSizing.Controller wide = sizing.controller(100);
+    for (int i = 0; i < 20; i++) {
+      wide.observe(wide.size(), wide.size() * 100_000L, MILLI);
+    }
+    assertEquals(10, wide.size());
+
+    // slow rows: shrinks straight away
+    BatchSizing.Controller slow = sizing.controller(1000);
+    slow.observe(1000, 1000, 1000 * MILLI);
+    assertEquals(100, slow.size());
+    slow.observe(100, 100, 10_000 * MILLI);
+    assertTrue(slow.size() < 100);
+    assertTrue(slow.size() >= 1);
+  }
+}
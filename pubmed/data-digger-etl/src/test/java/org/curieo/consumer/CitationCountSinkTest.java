@@ -0,0 +1,137 @@
+package org.curieo.consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.curieo.model.ReferenceGroup;
+import org.curieo.model.StandardRecord;
+import org.junit.jupiter.api.Test;
+
+class CitationCountSinkTest {
+  // the tables, as far as the sink gets to see them
+  private final Map<Long, long[]> sources = new HashMap<>();
+  private final Map<Long, Integer> counts = new HashMap<>();
+  private final Map<Long, Integer> years = new HashMap<>();
+  // changes to the tables, applied on commit
+  private final List<Runnable> transaction = new ArrayList<>();
+  private int commits;
+  private int failures;
+
+  @Test
+  void testCounts() throws SQLException {
+    CitationCountSink sink =
+        new CitationCountSink(connection(), "citationcounts", "citationsources", 2);
+    sink.accept(record("1", "2000", "10", "11", "11", "abc"));
+    assertEquals(0, commits);
+    sink.accept(record("2", "2001", "10", "1"));
+    assertEquals(1, commits);
+    assertEquals(Map.of(10L, 2, 11L, 1, 1L, 1, 2L, 0), counts);
+    assertEquals(2000, years.get(1L));
+    assertEquals(2001, years.get(2L));
+    assertNull(years.get(10L));
+
+    // a record that comes in again replaces its citations
+    sink.accept(record("1", "2000", "12"));
+    sink.finalCall();
+    assertEquals(2, commits);
+    assertEquals(Map.of(10L, 1, 11L, 0, 12L, 1, 1L, 1, 2L, 0), counts);
+    assertEquals(3, sink.getTotalCount());
+    assertEquals(1, sink.getUpdatedCount());
+  }
+
+  @Test
+  void testFailedBatch() throws SQLException {
+    // the first batch of sources fails, after the counts went out in the same transaction
+    failures = 1;
+    CitationCountSink sink =
+        new CitationCountSink(connection(), "citationcounts", "citationsources", 2);
+    sink.accept(record("1", "2000", "10", "11"));
+    assertThrows(RuntimeException.class, () -> sink.accept(record("2", "2001", "10", "1")));
+    assertEquals(0, commits);
+    assertEquals(Map.of(), counts);
+    assertEquals(0, sink.getTotalCount());
+
+    // the failed batch is still pending, and the retry stores it as if nothing happened
+    sink.flush();
+    assertEquals(1, commits);
+    assertEquals(Map.of(10L, 2, 11L, 1, 1L, 1, 2L, 0), counts);
+    assertEquals(2000, years.get(1L));
+    assertEquals(2, sink.getTotalCount());
+    assertEquals(0, sink.getUpdatedCount());
+
+    // after the retry, nothing is added twice
+    sink.accept(record("1", "2000", "10", "11"));
+    sink.finalCall();
+    assertEquals(Map.of(10L, 2, 11L, 1, 1L, 1, 2L, 0), counts);
+    assertEquals(1, sink.getUpdatedCount());
+  }
+
+  private static StandardRecord record(String identifier, String year, String... cited) {
+    List<ReferenceGroup> references = new ArrayList<>();
+    for (String pmid : cited) {
+      references.add(new ReferenceGroup("citation", Map.of("pubmed", pmid)));
+    }
+    return StandardRecord.builder()
+        .identifier(identifier)
+        .publicationDate(year + "-01-01")
+        .references(references)
+        .build();
+  }
+
+  private Connection connection() {
+    return RecordingStatement.connection(
+        sql ->
+            new RecordingStatement()
+                .onQuery(parameters -> previous((long[]) parameters.get(0)))
+                .onUpdate(
+                    parameters -> {
+                      transaction.add(() -> addCounts(parameters));
+                      return ((long[]) parameters.get(0)).length;
+                    })
+                .onBatch(rows -> transaction.add(() -> addSources(rows)))
+                .failBatches(sql.contains("citationsources") ? failures : 0)
+                .statement(),
+        () -> {
+          transaction.forEach(Runnable::run);
+          transaction.clear();
+          commits++;
+        },
+        transaction::clear);
+  }
+
+  private void addSources(List<List<Object>> rows) {
+    rows.forEach(row -> sources.put((Long) row.get(0), (long[]) row.get(1)));
+  }
+
+  /** INSERT INTO counts SELECT * FROM unnest(identifiers, deltas, years) ON CONFLICT add */
+  private void addCounts(List<Object> parameters) {
+    long[] identifiers = (long[]) parameters.get(0);
+    int[] deltas = (int[]) parameters.get(1);
+    Integer[] yearColumn = (Integer[]) parameters.get(2);
+    for (int i = 0; i < identifiers.length; i++) {
+      counts.merge(identifiers[i], deltas[i], Integer::sum);
+      if (yearColumn[i] != null) {
+        years.put(identifiers[i], yearColumn[i]);
+      }
+    }
+  }
+
+  /** SELECT articleid, unnest(cited) FROM sources WHERE articleid = ANY(ids) */
+  private ResultSet previous(long[] ids) {
+    List<List<Long>> rows = new ArrayList<>();
+    for (long id : ids) {
+      for (long pmid : sources.getOrDefault(id, new long[0])) {
+        rows.add(List.of(id, pmid));
+      }
+    }
+    return RecordingStatement.resultSet(rows);
+  }
+}
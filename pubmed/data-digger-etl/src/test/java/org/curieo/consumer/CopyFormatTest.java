@@ -0,0 +1,126 @@
+package org.curieo.consumer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class CopyFormatTest {
+  private static final ExtractType[] TYPES = {
+    ExtractType.BigInteger, ExtractType.SmallInt, ExtractType.String, ExtractType.Timestamp
+  };
+
+  @Test
+  void testTextEncoding() throws IOException {
+    byte[] row =
+        encode(
+            CopyFormat.Text,
+            new Object[] {
+              12345L, null, "tab\there\\ and\nnewline", Timestamp.valueOf("2024-02-07 23:35:31")
+            });
+    assertEquals(
+        "12345\t\\N\ttab\\there\\\\ and\\nnewline\t2024-02-07 23:35:31.000000\n",
+        new String(row, UTF_8));
+  }
+
+  @Test
+  void testBinaryEncoding() throws IOException {
+    byte[] row =
+        encode(
+            CopyFormat.Binary,
+            new Object[] {12345L, null, "é", Timestamp.valueOf("2000-01-01 00:00:01")});
+    ByteBuffer expected = ByteBuffer.allocate(2 + 12 + 4 + 6 + 12);
+    expected.putShort((short) 4);
+    expected.putInt(8).putLong(12345L);
+    expected.putInt(-1);
+    expected.putInt(2).put("é".getBytes(UTF_8));
+    expected.putInt(8).putLong(1000000L);
+    assertArrayEquals(expected.array(), row);
+  }
+
+  @Test
+  void testBytesEncoding() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    CopyFormat.Text.writeField(out, ExtractType.Bytes, new byte[] {0x0a, (byte) 0xff}, true);
+    out.flush();
+    assertEquals("\\\\x0aff", bytes.toString(UTF_8));
+
+    bytes.reset();
+    CopyFormat.Binary.writeField(out, ExtractType.Bytes, new byte[] {0x0a, (byte) 0xff}, true);
+    out.flush();
+    assertArrayEquals(new byte[] {0, 0, 0, 2, 0x0a, (byte) 0xff}, bytes.toByteArray());
+  }
+
+  @Test
+  void testRowWriter() throws IOException {
+    record Item(long id, Integer year, List<String> authors, String title) {}
+    List<Extract<Item>> extracts =
+        List.of(
+            FieldSpec.unique("id", ExtractType.BigInteger).extractLongValue(Item::id),
+            new FieldSpec("author", ExtractType.List, 10).extractList(Item::authors),
+            new FieldSpec("year", ExtractType.SmallInt).extractInt(Item::year),
+            new FieldSpec("title", ExtractType.Text).extractString(Item::title));
+    List<Item> items =
+        List.of(
+            new Item(1, 2001, List.of("a", "b\tc"), "title"),
+            new Item(2, null, List.of(), null),
+            new Item(3, 2003, List.of("d"), "x\ny"));
+
+    for (CopyFormat format : CopyFormat.values()) {
+      ByteArrayOutputStream expected = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(expected);
+      for (Item item : items) {
+        for (List<String> values : AbstractSink.explode(extracts, item)) {
+          format.startRow(out, 4);
+          format.writeField(out, ExtractType.BigInteger, item.id(), true);
+          format.writeField(out, ExtractType.List, values.isEmpty() ? null : values.get(0), false);
+          format.writeField(out, ExtractType.SmallInt, item.year(), false);
+          format.writeField(out, ExtractType.Text, item.title(), false);
+          format.endRow(out);
+        }
+      }
+
+      ByteArrayOutputStream written = new ByteArrayOutputStream();
+      out = new DataOutputStream(written);
+      CopyRowWriter<Item> writer = new CopyRowWriter<>(format, extracts);
+      for (Item item : items) {
+        int rows = writer.explode(item);
+        for (int r = 0; r < rows; r++) {
+          writer.writeRow(out, item);
+        }
+      }
+      assertArrayEquals(expected.toByteArray(), written.toByteArray(), format.name());
+    }
+  }
+
+  @Test
+  void testMergeStatement() {
+    assertEquals(
+        "INSERT INTO t (a, b, c) SELECT DISTINCT ON (a, b) a, b, c FROM s ORDER BY a, b, ctid DESC"
+            + " ON CONFLICT (a, b) DO UPDATE SET c = EXCLUDED.c",
+        CopySink.mergeStatement("t", "s", List.of("a", "b", "c"), List.of("a", "b")));
+    assertEquals(
+        "INSERT INTO t (a, b) SELECT a, b FROM s",
+        CopySink.mergeStatement("t", "s", List.of("a", "b"), List.of()));
+  }
+
+  private static byte[] encode(CopyFormat format, Object[] values) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    format.startRow(out, values.length);
+    for (int i = 0; i < values.length; i++) {
+      format.writeField(out, TYPES[i], values[i], i == 0);
+    }
+    format.endRow(out);
+    out.flush();
+    return bytes.toByteArray();
+  }
+}
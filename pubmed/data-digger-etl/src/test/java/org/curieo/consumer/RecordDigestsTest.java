@@ -0,0 +1,38 @@
+package org.curieo.consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.curieo.model.Record;
+import org.curieo.model.RecordJson;
+import org.curieo.model.StandardRecord;
+import org.junit.jupiter.api.Test;
+
+class RecordDigestsTest {
+  @Test
+  void testStoredOnlyOnceWritten() {
+    RecordDigests digests = new RecordDigests();
+    Record record = StandardRecord.builder().identifier("12").publicationDate("2001").build();
+    assertFalse(digests.isUnchanged(record));
+    assertEquals(RecordJson.digest(record), digests.digest(record));
+
+    // the record sink fails: the record is still to be stored
+    Sink<Record> failing =
+        digests.recording(
+            new MapSink<Record, Record>(
+                r -> {
+                  throw new RuntimeException("connection lost");
+                },
+                new Sink.Noop<>()));
+    assertThrows(RuntimeException.class, () -> failing.accept(record));
+    assertFalse(digests.isUnchanged(record));
+
+    Sink<Record> sink = digests.recording(new MapSink<>(r -> r, new Sink.Noop<>()));
+    sink.accept(record);
+    assertTrue(digests.isUnchanged(record));
+    assertEquals(1, digests.getUnchangedCount());
+    assertEquals(1, digests.size());
+  }
+}
@@ -0,0 +1,173 @@
+package org.curieo.consumer;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * A {@link PreparedStatement} that records what is bound to it, to test sinks without a database.
+ * Every setter puts its value in the current row, {@code addBatch} adds a copy of the row to the
+ * batch, and {@code executeBatch} moves the batch to {@link #executed()}. Queries and updates are
+ * answered by handlers of the current row; all other calls do nothing.
+ */
+final class RecordingStatement {
+  private final List<Object> row = new ArrayList<>();
+  private final List<List<Object>> batch = new ArrayList<>();
+  private final List<List<List<Object>>> executed = new ArrayList<>();
+  private final PreparedStatement statement =
+      (PreparedStatement)
+          Proxy.newProxyInstance(
+              RecordingStatement.class.getClassLoader(),
+              new Class<?>[] {PreparedStatement.class},
+              (proxy, method, args) -> invoke(method, args));
+  private Function<List<Object>, ResultSet> query = row -> resultSet(List.of());
+  private ToIntFunction<List<Object>> update = row -> 0;
+  private Consumer<List<List<Object>>> onBatch = rows -> {};
+  private int failures;
+
+  PreparedStatement statement() {
+    return statement;
+  }
+
+  /** The rows added since the batch was last executed or cleared. */
+  List<List<Object>> batch() {
+    return batch;
+  }
+
+  /** The rows of every batch executed, in order. */
+  List<List<List<Object>>> executed() {
+    return executed;
+  }
+
+  /** Answer {@code executeQuery} with the result of the handler for the parameters bound. */
+  RecordingStatement onQuery(Function<List<Object>, ResultSet> query) {
+    this.query = query;
+    return this;
+  }
+
+  /** Answer {@code executeUpdate} with the row count of the handler for the parameters bound. */
+  RecordingStatement onUpdate(ToIntFunction<List<Object>> update) {
+    this.update = update;
+    return this;
+  }
+
+  /** Also hand every batch executed to the consumer, e.g. to keep a table up to date. */
+  RecordingStatement onBatch(Consumer<List<List<Object>>> onBatch) {
+    this.onBatch = onBatch;
+    return this;
+  }
+
+  /** Let the next {@code count} batches fail, as if the connection were lost. */
+  RecordingStatement failBatches(int count) {
+    this.failures = count;
+    return this;
+  }
+
+  private Object invoke(Method method, Object[] args) throws SQLException {
+    String name = method.getName();
+    if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+      int index = (Integer) args[0];
+      while (row.size() < index) {
+        row.add(null);
+      }
+      row.set(index - 1, name.equals("setNull") ? null : args[1]);
+      return null;
+    }
+    switch (name) {
+      case "addBatch" -> batch.add(new ArrayList<>(row));
+      case "clearBatch" -> batch.clear();
+      case "executeBatch" -> {
+        List<List<Object>> rows = new ArrayList<>(batch);
+        // as the PostgreSQL driver does, the batch is empty after executing, failed or not
+        batch.clear();
+        if (failures > 0) {
+          failures--;
+          throw new SQLException("connection lost");
+        }
+        executed.add(rows);
+        onBatch.accept(rows);
+        return new int[rows.size()];
+      }
+      case "executeQuery" -> {
+        return query.apply(row);
+      }
+      case "executeUpdate" -> {
+        return update.applyAsInt(row);
+      }
+      default -> {}
+    }
+    return defaultValue(method.getReturnType());
+  }
+
+  /** A result set over the rows, of which only {@code next} and the getters by index work. */
+  static ResultSet resultSet(List<? extends List<?>> rows) {
+    Iterator<? extends List<?>> iterator = rows.iterator();
+    List<?>[] current = new List<?>[1];
+    return (ResultSet)
+        Proxy.newProxyInstance(
+            RecordingStatement.class.getClassLoader(),
+            new Class<?>[] {ResultSet.class},
+            (proxy, method, args) ->
+                switch (method.getName()) {
+                  case "next" -> {
+                    current[0] = iterator.hasNext() ? iterator.next() : null;
+                    yield current[0] != null;
+                  }
+                  case "getLong" -> ((Number) current[0].get((int) args[0] - 1)).longValue();
+                  case "getInt" -> ((Number) current[0].get((int) args[0] - 1)).intValue();
+                  case "getString", "getObject" -> current[0].get((int) args[0] - 1);
+                  default -> defaultValue(method.getReturnType());
+                });
+  }
+
+  /** A connection that prepares its statements with the function, and calls back on commit. */
+  static Connection connection(Function<String, PreparedStatement> prepare, Runnable onCommit) {
+    return connection(prepare, onCommit, () -> {});
+  }
+
+  /**
+   * A connection that prepares its statements with the function, and calls back per transaction.
+   */
+  static Connection connection(
+      Function<String, PreparedStatement> prepare, Runnable onCommit, Runnable onRollback) {
+    return (Connection)
+        Proxy.newProxyInstance(
+            RecordingStatement.class.getClassLoader(),
+            new Class<?>[] {Connection.class},
+            (proxy, method, args) ->
+                switch (method.getName()) {
+                  case "prepareStatement" -> prepare.apply((String) args[0]);
+                  case "commit" -> {
+                    onCommit.run();
+                    yield null;
+                  }
+                  case "rollback" -> {
+                    onRollback.run();
+                    yield null;
+                  }
+                  default -> defaultValue(method.getReturnType());
+                });
+  }
+
+  private static Object defaultValue(Class<?> type) {
+    if (type == boolean.class) {
+      return false;
+    } else if (type == int.class) {
+      return 0;
+    } else if (type == long.class) {
+      return 0L;
+    } else if (type == int[].class) {
+      return new int[0];
+    }
+    return null;
+  }
+}
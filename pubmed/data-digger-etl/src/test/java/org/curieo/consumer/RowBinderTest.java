@@ -0,0 +1,60 @@
+package org.curieo.consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class RowBinderTest {
+  record Item(long id, Integer year, List<String> authors, List<String> terms) {}
+
+  @Test
+  void testSameRowsAsExplode() throws SQLException {
+    FieldSpec id = FieldSpec.unique("id", ExtractType.BigInteger);
+    FieldSpec year = new FieldSpec("year", ExtractType.SmallInt);
+    FieldSpec author = new FieldSpec("author", ExtractType.List, 10);
+    FieldSpec term = new FieldSpec("term", ExtractType.List, 10);
+    List<Extract<Item>> extracts =
+        List.of(
+            id.extractLongValue(Item::id),
+            author.extractList(Item::authors),
+            year.extractInt(Item::year),
+            term.extractList(Item::terms));
+    List<Item> items =
+        List.of(
+            new Item(1, 2001, List.of("a", "b"), List.of("x", "y", "z")),
+            new Item(2, null, List.of("c"), List.of("x")),
+            new Item(3, 2003, List.of("d"), List.of()),
+            new Item(4, 2004, List.of(), List.of("w")));
+
+    RecordingStatement recording = new RecordingStatement();
+    PreparedStatement statement = recording.statement();
+
+    RowBinder<Item> binder = new RowBinder<>(extracts);
+    for (Item item : items) {
+      int n = binder.explode(item);
+      for (int r = 0; r < n; r++) {
+        binder.bindRow(statement, item);
+        statement.addBatch();
+      }
+    }
+
+    List<List<Object>> expected = new ArrayList<>();
+    for (Item item : items) {
+      for (List<String> values : AbstractSink.explode(extracts, item)) {
+        expected.add(
+            Arrays.asList(
+                item.id(),
+                values.isEmpty() ? null : values.get(0),
+                item.year(),
+                values.isEmpty() ? null : values.get(1)));
+      }
+    }
+    assertEquals(expected, recording.batch());
+    assertEquals(6 + 1 + 1 + 1, recording.batch().size());
+  }
+}
@@ -0,0 +1,80 @@
+package org.curieo.consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+
+class S3UploaderTest {
+  private HttpServer server;
+  private S3Client s3;
+  // attempts per object key
+  private final Map<String, Integer> attempts = new ConcurrentHashMap<>();
+
+  @BeforeEach
+  void start() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext(
+        "/",
+        exchange -> {
+          exchange.getRequestBody().readAllBytes();
+          String key = exchange.getRequestURI().getPath();
+          int attempt = attempts.merge(key, 1, Integer::sum);
+          // refused the first time, with a status the client does not retry by itself
+          boolean refuse = key.contains("flaky") && attempt == 1 || key.contains("broken");
+          exchange.sendResponseHeaders(refuse ? 403 : 200, -1);
+          exchange.close();
+        });
+    server.start();
+    s3 =
+        S3Client.builder()
+            .endpointOverride(URI.create("http://localhost:" + server.getAddress().getPort()))
+            .forcePathStyle(true)
+            .region(Region.EU_CENTRAL_1)
+            .credentialsProvider(
+                StaticCredentialsProvider.create(AwsBasicCredentials.create("key", "secret")))
+            .build();
+  }
+
+  @AfterEach
+  void stop() {
+    s3.close();
+    server.stop(0);
+  }
+
+  @Test
+  void testUploadWithRetries() throws IOException {
+    // a budget smaller than a single object must not block forever
+    S3Uploader.Settings settings = new S3Uploader.Settings(4, 10, 3);
+    try (S3Uploader uploader = new S3Uploader(s3, "bucket", settings)) {
+      for (int i = 0; i < 20; i++) {
+        uploader.upload("bulk/" + i, new byte[100]);
+      }
+      uploader.upload("bulk/flaky", new byte[5]);
+    }
+    assertThat(attempts).hasSize(21).containsEntry("/bucket/bulk/flaky", 2);
+  }
+
+  @Test
+  void testFailureSurfacesOnClose() {
+    S3Uploader uploader = new S3Uploader(s3, "bucket", new S3Uploader.Settings(2, 1000, 2));
+    uploader.upload("bulk/broken", new byte[5]);
+    uploader.upload("bulk/fine", new byte[5]);
+    assertThatThrownBy(uploader::close).isInstanceOf(IOException.class);
+    assertThat(uploader.getFailed()).isEqualTo(1);
+    assertThat(uploader.getUploaded()).isEqualTo(1);
+    assertThat(attempts).containsEntry("/bucket/bulk/broken", 2);
+  }
+}
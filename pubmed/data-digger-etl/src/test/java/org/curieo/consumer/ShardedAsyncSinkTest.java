@@ -0,0 +1,50 @@
+package org.curieo.consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.jupiter.api.Test;
+
+class ShardedAsyncSinkTest {
+
+  @Test
+  void testPartitioningAndCounts() {
+    Set<Thread> threads = ConcurrentHashMap.newKeySet();
+    List<Sink<Long>> writers = new ArrayList<>();
+    List<List<Long>> received = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      List<Long> items = new ArrayList<>();
+      received.add(items);
+      writers.add(
+          new CountingSink<Long, Long>(1000, l -> l % 4, (k, c) -> "")
+              .concatenate(
+                  new MapSink<Long, Long>(
+                      l -> {
+                        threads.add(Thread.currentThread());
+                        items.add(l);
+                        return l;
+                      },
+                      new Sink.Noop<>())));
+    }
+
+    // items without a key go to the first writer
+    ShardedAsyncSink<Long> sink = new ShardedAsyncSink<>(writers, l -> l < 0 ? null : l);
+    for (long i = 0; i < 10000; i++) {
+      sink.accept(i);
+    }
+    sink.accept(-4L);
+    sink.finalCall();
+
+    assertEquals(10001, sink.getTotalCount());
+    assertEquals(4, threads.size());
+    for (int shard = 0; shard < 4; shard++) {
+      final int s = shard;
+      assertEquals(shard == 0 ? 2501 : 2500, received.get(shard).size());
+      assertTrue(received.get(shard).stream().allMatch(l -> l % 4 == s));
+    }
+  }
+}
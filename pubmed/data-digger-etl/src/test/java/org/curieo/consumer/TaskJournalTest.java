@@ -0,0 +1,71 @@
+package org.curieo.consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.List;
+import org.curieo.model.PubmedTask;
+import org.curieo.model.TS;
+import org.junit.jupiter.api.Test;
+
+class TaskJournalTest {
+
+  private final RecordingStatement recording = new RecordingStatement();
+  // the task names of every executed batch
+  private final List<List<List<Object>>> executed = recording.executed();
+
+  private TaskJournal<PubmedTask> journal() {
+    FieldSpec name = FieldSpec.builder().field("name").type(ExtractType.String).size(60).build();
+    AbstractSink<TS<PubmedTask>> sink =
+        new AbstractSink<>(
+            "tasks",
+            List.of(name.extractString(ts -> ts.value().name())),
+            recording.statement(),
+            100);
+    return new TaskJournal<>(sink, PubmedTask::name, 100, Duration.ofHours(1));
+  }
+
+  @Test
+  void testCoalescing() {
+    TaskJournal<PubmedTask> journal = journal();
+
+    for (int i = 0; i < 10; i++) {
+      journal.accept(TS.now(PubmedTask.queue("f" + i, "job")));
+      journal.accept(TS.now(PubmedTask.inProgress("f" + i, "job")));
+    }
+    assertEquals(0, executed.size());
+    // a final state is stored right away, along with all that is pending
+    journal.accept(TS.now(PubmedTask.completed("f3", "job")));
+    assertEquals(1, executed.size());
+    assertEquals(10, executed.get(0).size());
+
+    // the batch size is a limit too
+    for (int i = 0; i < 250; i++) {
+      journal.accept(TS.now(PubmedTask.queue("g" + i, "job")));
+    }
+    assertEquals(3, executed.size());
+    journal.finalCall();
+    assertEquals(4, executed.size());
+    assertEquals(50, executed.get(3).size());
+    assertEquals(260, journal.getTotalCount());
+  }
+
+  @Test
+  void testFailedFlush() {
+    TaskJournal<PubmedTask> journal = journal();
+    journal.accept(TS.now(PubmedTask.queue("f1", "job")));
+    journal.accept(TS.now(PubmedTask.queue("f2", "job")));
+    recording.failBatches(1);
+    assertThrows(
+        RuntimeException.class, () -> journal.accept(TS.now(PubmedTask.completed("f1", "job"))));
+    assertEquals(0, executed.size());
+
+    // the states are pending again; a newer state wins
+    journal.accept(TS.now(PubmedTask.inProgress("f2", "job")));
+    journal.accept(TS.now(PubmedTask.queue("f3", "job")));
+    journal.flush();
+    assertEquals(List.of(List.of(List.of("f1"), List.of("f2"), List.of("f3"))), executed);
+    assertEquals(3, journal.getTotalCount());
+  }
+}
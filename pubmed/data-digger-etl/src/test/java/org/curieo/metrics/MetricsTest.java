@@ -0,0 +1,83 @@
+package org.curieo.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.curieo.consumer.CountingSink;
+import org.curieo.consumer.Sink;
+import org.junit.jupiter.api.Test;
+
+class MetricsTest {
+  @Test
+  void testScrape() {
+    Metrics metrics = new Metrics(null);
+    metrics.counter("test_things_total", "Things", "kind", "a \"quoted\" kind").add(3);
+    AtomicInteger depth = new AtomicInteger(5);
+    metrics.gauge("test_depth", "Depth", depth::get, "queue", "q");
+    metrics.gauge("test_depth", "Depth", depth::get, "queue", "q");
+    Histogram histogram = metrics.histogram("test_seconds", "Seconds", new double[] {0.1, 1});
+    histogram.observe(0.05);
+    histogram.observe(0.5);
+    histogram.observe(5);
+
+    String scrape = metrics.scrape();
+    assertThat(scrape)
+        .contains("# TYPE test_things_total counter\n")
+        .contains("test_things_total{kind=\"a \\\"quoted\\\" kind\"} 3\n")
+        // gauges under the same labels add up
+        .contains("test_depth{queue=\"q\"} 10\n")
+        .contains("# TYPE test_seconds histogram\n")
+        .contains("test_seconds_bucket{le=\"0.1\"} 1\n")
+        .contains("test_seconds_bucket{le=\"1\"} 2\n")
+        .contains("test_seconds_bucket{le=\"+Inf\"} 3\n")
+        .contains("test_seconds_sum 5.55\n")
+        .contains("test_seconds_count 3\n");
+    assertThat(metrics.counter("test_things_total", "Things", "kind", "a \"quoted\" kind").get())
+        .isEqualTo(3);
+  }
+
+  @Test
+  void testSinkHooks() throws Exception {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    Metrics metrics = new Metrics(server);
+    Sink<String> sink = new CountingSink<String, String>("words", 1000, s -> s, (k, c) -> "");
+    sink.accept("a");
+    sink.registerMetrics(metrics);
+    sink.accept("b");
+    sink.accept("b");
+
+    assertThat(metrics.scrape())
+        .contains("datadigger_sink_records_total{sink=\"words\"} 3\n")
+        .contains("datadigger_sink_records_by_key_total{sink=\"words\",key=\"a\"} 1\n")
+        .contains("datadigger_sink_records_by_key_total{sink=\"words\",key=\"b\"} 2\n");
+    ObjectName name =
+        new ObjectName(Metrics.JMX_DOMAIN + ":name=datadigger_sink_records_total,sink=\"words\"");
+    assertThat(server.getAttribute(name, "Value")).isEqualTo(3.0);
+  }
+
+  @Test
+  void testServer() throws Exception {
+    Metrics metrics = new Metrics(null);
+    metrics.counter("test_served_total", "Served").inc();
+    try (MetricsServer server = MetricsServer.start(metrics, 0);
+        HttpClient client = HttpClient.newHttpClient()) {
+      HttpResponse<String> response =
+          client.send(
+              HttpRequest.newBuilder(
+                      URI.create("http://localhost:" + server.getPort() + MetricsServer.PATH))
+                  .build(),
+              HttpResponse.BodyHandlers.ofString());
+      assertThat(response.statusCode()).isEqualTo(200);
+      assertThat(response.headers().firstValue("Content-Type"))
+          .hasValue(MetricsServer.CONTENT_TYPE);
+      assertThat(response.body()).contains("test_served_total 1\n");
+    }
+  }
+}
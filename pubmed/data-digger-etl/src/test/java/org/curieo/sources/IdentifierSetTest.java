@@ -0,0 +1,63 @@
+package org.curieo.sources;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class IdentifierSetTest {
+
+  @Test
+  void testNumbersAndOthers(@TempDir Path dir) throws IOException {
+    IdentifierSet set = new IdentifierSet();
+    assertTrue(set.add("12345"));
+    assertFalse(set.add("12345"));
+    set.add("0123"); // not canonical, kept as a string
+    set.add("PMC123");
+    set.add("99999999999");
+    set.add(null);
+
+    assertTrue(set.contains("12345"));
+    assertFalse(set.contains("99945")); // same suffix
+    assertFalse(set.contains("123"));
+    assertTrue(set.contains("0123"));
+    assertTrue(set.contains(12345));
+    assertEquals(5, set.size());
+    assertEquals(Set.of(12345), toSet(set.getNumbers()));
+
+    Path path = dir.resolve("ingested");
+    set.write(path);
+    IdentifierSet read = IdentifierSet.read(path);
+    assertEquals(set, read);
+    assertTrue(read.contains(null));
+
+    assertTrue(read.remove("PMC123"));
+    assertTrue(read.remove("12345"));
+    assertEquals(3, read.size());
+  }
+
+  @Test
+  void testSetAlgebra() {
+    IdentifierSet a = new IdentifierSet(), b = new IdentifierSet();
+    a.addAll(List.of("1", "2", "3", "x", "y"));
+    b.addAll(List.of("2", "3", "4", "y", "z"));
+    assertEquals(Set.of("2", "3", "y"), IdentifierSet.intersection(a, b));
+    assertEquals(Set.of("1", "2", "3", "4", "x", "y", "z"), IdentifierSet.union(a, b));
+    assertEquals(Set.of("1", "x"), IdentifierSet.difference(a, b));
+    List<String> ordered = new ArrayList<>(IdentifierSet.difference(a, b));
+    assertEquals(List.of("1", "x"), ordered);
+  }
+
+  private static Set<Integer> toSet(Iterable<Integer> numbers) {
+    Set<Integer> set = new java.util.HashSet<>();
+    numbers.forEach(set::add);
+    return set;
+  }
+}
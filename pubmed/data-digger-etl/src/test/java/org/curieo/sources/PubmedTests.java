@@ -1,11 +1,28 @@
 package org.curieo.sources;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
 import javax.xml.stream.XMLStreamException;
+import org.curieo.model.Record;
+import org.curieo.model.RecordJson;
+import org.curieo.model.StandardRecord;
 import org.curieo.sources.pubmed.Pubmed;
+import org.curieo.sources.pubmed.PubmedCursorReader;
 import org.curieo.sources.pubmed.PubmedRecord;
 import org.junit.jupiter.api.Test;
 
@@ -64,4 +81,83 @@ class PubmedTests {
       System.out.printf("Found %d records from year %d\n", year.getValue(), year.getKey());
     }
   }
+
+  @Test
+  void testCursorReaderIsEquivalent() throws IOException, XMLStreamException {
+    File file = new File("src/test/resources/pubmed-sample.xml");
+    List<PubmedRecord> events = new ArrayList<>();
+    Pubmed.read(file, "sample").forEach(events::add);
+    List<PubmedRecord> cursor = new ArrayList<>();
+    PubmedCursorReader.read(file, "sample").forEach(cursor::add);
+
+    assertEquals(2, events.size());
+    assertEquals(events.size(), cursor.size());
+    for (int i = 0; i < events.size(); i++) {
+      PubmedRecord e = events.get(i), c = cursor.get(i);
+      assertEquals(StandardRecord.copy(e).toJson(), StandardRecord.copy(c).toJson());
+      assertEquals(e.getPubmedAuthors(), c.getPubmedAuthors());
+      assertEquals(e.getMeshHeadings(), c.getMeshHeadings());
+      assertEquals(e.getReferences(), c.getReferences());
+      assertEquals(e.getSources(), c.getSources());
+      // absent date fields default to the time of parsing, so compare on the day
+      assertEquals(day(e.getArticleDate()), day(c.getArticleDate()));
+      assertEquals(day(e.getDateCompleted()), day(c.getDateCompleted()));
+      assertEquals(e.getJournal().getTitle(), c.getJournal().getTitle());
+      assertEquals(e.getJournal().getIdentifiers(), c.getJournal().getIdentifiers());
+      assertEquals(e.getJournal().getVolume(), c.getJournal().getVolume());
+      assertEquals(e.getJournal().getIssue(), c.getJournal().getIssue());
+      assertEquals(
+          day(e.getJournal().getPublicationDate()), day(c.getJournal().getPublicationDate()));
+    }
+
+    // written straight from the parsed record, as for the records table
+    ObjectMapper jackson = new ObjectMapper();
+    for (PubmedRecord r : cursor) {
+      assertEquals(jackson.writeValueAsString(StandardRecord.copy(r)), RecordJson.toJson(r));
+    }
+
+    Function<PubmedRecord, String> title = r -> r.getTitles().get(0).getString();
+    assertEquals("Effects of E. coli on tests & samples.", title.apply(cursor.get(0)));
+    assertEquals("Line one2 and raw <text>.", cursor.get(0).getAbstractText().get(0).getString());
+  }
+
+  private static String day(Date date) {
+    return date == null ? null : Record.formatDate(date);
+  }
+
+  @Test
+  void testStreamingReader() throws Exception {
+    File file = new File("src/test/resources/pubmed-sample.xml");
+    ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+    try (OutputStream out = new GZIPOutputStream(gzipped)) {
+      Files.copy(file.toPath(), out);
+    }
+
+    // mimic a download in progress: a writer thread feeding a small pipe
+    PipedInputStream pipe = new PipedInputStream(64);
+    PipedOutputStream pipeIn = new PipedOutputStream(pipe);
+    Thread writer =
+        Thread.ofPlatform()
+            .start(
+                () -> {
+                  try (pipeIn) {
+                    pipeIn.write(gzipped.toByteArray());
+                  } catch (IOException e) {
+                    throw new RuntimeException(e);
+                  }
+                });
+
+    List<String> streamed = new ArrayList<>();
+    for (Record r :
+        SourceReader.getReader(SourceReader.PUBMED_CURSOR).read(pipe, "sample.xml.gz")) {
+      streamed.add(StandardRecord.copy(r).toJson());
+    }
+    writer.join();
+
+    List<String> expected = new ArrayList<>();
+    for (Record r : SourceReader.getReader(SourceReader.PUBMED).read(file, "sample.xml.gz")) {
+      expected.add(StandardRecord.copy(r).toJson());
+    }
+    assertEquals(expected, streamed);
+  }
 }
@@ -0,0 +1,60 @@
+package org.curieo.sources;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.junit.jupiter.api.Test;
+
+class TarExtractorTest {
+  private static byte[] tar(boolean gzip, String... namesAndContents) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (OutputStream out = gzip ? new GzipCompressorOutputStream(bytes) : bytes;
+        TarArchiveOutputStream tar = new TarArchiveOutputStream(out)) {
+      for (int i = 0; i < namesAndContents.length; i += 2) {
+        byte[] content = namesAndContents[i + 1].getBytes(UTF_8);
+        TarArchiveEntry entry = new TarArchiveEntry(namesAndContents[i]);
+        entry.setSize(content.length);
+        tar.putArchiveEntry(entry);
+        tar.write(content);
+        tar.closeArchiveEntry();
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  @Test
+  void testFirstMatchingEntry() throws IOException {
+    byte[] tgz =
+        tar(true, "PMC1/figure.jpg", "not xml", "PMC1/article.nxml", "<article/>", "b.xml", "b");
+    byte[] jats =
+        TarExtractor.readFirstMatchingEntry(
+            new ByteArrayInputStream(tgz), true, n -> n.endsWith("xml"), 1000);
+    assertThat(new String(jats, UTF_8)).isEqualTo("<article/>");
+
+    assertThat(
+            TarExtractor.readFirstMatchingEntry(
+                new ByteArrayInputStream(tgz), true, n -> n.endsWith(".pdf"), 1000))
+        .isNull();
+    assertThatThrownBy(
+            () ->
+                TarExtractor.readFirstMatchingEntry(
+                    new ByteArrayInputStream(tgz), true, n -> n.endsWith("xml"), 5))
+        .isInstanceOf(IOException.class);
+  }
+
+  @Test
+  void testRemainderIsNotRead() throws IOException {
+    byte[] tar = tar(false, "a.xml", "first", "big.pdf", "x".repeat(1 << 20));
+    ByteArrayInputStream stream = new ByteArrayInputStream(tar);
+    TarExtractor.readFirstMatchingEntry(stream, false, n -> n.endsWith("xml"), 1000);
+    assertThat(stream.available()).isGreaterThan(1 << 19);
+  }
+}
@@ -0,0 +1,61 @@
+package org.curieo.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class WindowedSchedulerTest {
+  @Test
+  void testWindowIsRespected() {
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    WindowedScheduler scheduler = new WindowedScheduler(3);
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maximum = new AtomicInteger();
+    for (int i = 0; i < 100; i++) {
+      scheduler.submit(
+          () ->
+              CompletableFuture.runAsync(
+                  () -> {
+                    maximum.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                      Thread.sleep(1);
+                    } catch (InterruptedException e) {
+                      Thread.currentThread().interrupt();
+                    }
+                    running.decrementAndGet();
+                  },
+                  executor));
+      assertThat(scheduler.getInFlight()).isLessThanOrEqualTo(3);
+    }
+    scheduler.join();
+    executor.shutdown();
+
+    assertThat(maximum.get()).isBetween(1, 3);
+    assertThat(scheduler.getSubmitted()).isEqualTo(100);
+    assertThat(scheduler.getCompleted()).isEqualTo(100);
+    assertThat(scheduler.getInFlight()).isZero();
+  }
+
+  @Test
+  void testFailuresSurfaceOnJoin() {
+    WindowedScheduler scheduler = new WindowedScheduler(2);
+    scheduler.submit(() -> CompletableFuture.completedFuture(null));
+    scheduler.submit(() -> CompletableFuture.failedFuture(new IllegalStateException("boom")));
+    scheduler.submit(
+        () -> {
+          throw new IllegalArgumentException("not even started");
+        });
+
+    assertThatThrownBy(scheduler::join)
+        .isInstanceOf(CompletionException.class)
+        .hasCauseInstanceOf(IllegalStateException.class);
+    assertThat(scheduler.getFailed()).isEqualTo(2);
+    assertThat(scheduler.getCompleted()).isEqualTo(3);
+  }
+}
@@ -1,14 +1,32 @@
 package org.curieo.model;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 import lombok.Generated;
 import lombok.Value;
 
+/** A full text, kept as the UTF-8 bytes it was downloaded as. */
 @Generated
 @Value
 public class FullTextRecord {
   String identifier;
   Integer year;
-  String content;
+  byte[] data;
+
+  public FullTextRecord(String identifier, Integer year, byte[] data) {
+    this.identifier = identifier;
+    this.year = year;
+    this.data = data;
+  }
+
+  public FullTextRecord(String identifier, Integer year, String content) {
+    this(identifier, year, content.getBytes(UTF_8));
+  }
+
+  /** The text, decoded on every call. */
+  public String getContent() {
+    return new String(data, UTF_8);
+  }
 
   public String computeLocation() {
     String location = "data/" + Integer.toString(year);
@@ -93,10 +93,18 @@ public interface Record {
   static String formatDate(Date date) {
     Calendar calendar = GregorianCalendar.getInstance();
     calendar.setTime(date);
-    return String.format(
-        "%04d-%02d-%02d",
-        calendar.get(Calendar.YEAR),
-        calendar.get(Calendar.MONTH) + 1,
-        calendar.get(Calendar.DAY_OF_MONTH));
+    // same as String.format("%04d-%02d-%02d", ...), which costs more than the calendar
+    StringBuilder formatted = new StringBuilder(10);
+    pad(formatted, calendar.get(Calendar.YEAR), 4).append('-');
+    pad(formatted, calendar.get(Calendar.MONTH) + 1, 2).append('-');
+    return pad(formatted, calendar.get(Calendar.DAY_OF_MONTH), 2).toString();
+  }
+
+  private static StringBuilder pad(StringBuilder builder, int value, int width) {
+    String digits = Integer.toString(value);
+    for (int i = digits.length(); i < width; i++) {
+      builder.append('0');
+    }
+    return builder.append(digits);
   }
 }
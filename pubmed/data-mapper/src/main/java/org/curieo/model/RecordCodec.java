@@ -0,0 +1,197 @@
+package org.curieo.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonPOJOBuilder;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Binary encodings of a {@link StandardRecord}, for storage in a BYTEA column. Every encoding
+ * starts with a tag byte, so {@link #decode(byte[])} reads any of them.
+ *
+ * <ul>
+ *   <li>{@link #Json}: the JSON of {@link StandardRecord#toJson()}, as UTF-8.
+ *   <li>{@link #Smile}: the same tree in Jackson's binary Smile format, which shares repeated
+ *       property names and short strings.
+ *   <li>{@link #SmileDeflate}: Smile, deflated.
+ * </ul>
+ */
+public enum RecordCodec {
+  Json("json", 'J'),
+  Smile("smile", 'S'),
+  SmileDeflate("smile-deflate", 'Z');
+
+  private static final int INITIAL_BUFFER_SIZE = 4096;
+  // setting up zlib costs more than compressing a record; keep one (de)compressor per thread
+  private static final ThreadLocal<Deflater> DEFLATER =
+      ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED));
+  private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(Inflater::new);
+  private static final ObjectMapper JSON_MAPPER = configure(new ObjectMapper());
+  private static final ObjectMapper SMILE_MAPPER = configure(new ObjectMapper(new SmileFactory()));
+  private static final ObjectReader JSON_READER = JSON_MAPPER.readerFor(StandardRecord.class);
+  private static final ObjectReader SMILE_READER = SMILE_MAPPER.readerFor(StandardRecord.class);
+
+  final String codecName;
+  final byte tag;
+
+  RecordCodec(String codecName, char tag) {
+    this.codecName = codecName;
+    this.tag = (byte) tag;
+  }
+
+  /** Encode any record as if it were {@link StandardRecord#copy copied} first. */
+  public byte[] encode(Record record) {
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+    buffer.write(tag);
+    try {
+      switch (this) {
+        case Json -> write(JSON_MAPPER.getFactory(), record, buffer);
+        case Smile -> write(SMILE_MAPPER.getFactory(), record, buffer);
+        case SmileDeflate -> {
+          ByteArrayOutputStream smile = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+          write(SMILE_MAPPER.getFactory(), record, smile);
+          deflate(smile.toByteArray(), buffer);
+        }
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    return buffer.toByteArray();
+  }
+
+  private static void write(JsonFactory factory, Record record, OutputStream out)
+      throws IOException {
+    try (JsonGenerator generator = factory.createGenerator(out)) {
+      RecordJson.write(record, generator, true);
+    }
+  }
+
+  /** Decode the output of {@link #encode} of any of the codecs. */
+  public static StandardRecord decode(byte[] data) {
+    if (data == null || data.length == 0) {
+      return null;
+    }
+    RecordCodec codec = fromTag(data[0]);
+    InputStream in = new ByteArrayInputStream(data, 1, data.length - 1);
+    try {
+      return switch (codec) {
+        case Json -> JSON_READER.readValue(in);
+        case Smile -> SMILE_READER.readValue(in);
+        case SmileDeflate -> SMILE_READER.readValue(inflate(data, 1));
+      };
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /** Read the output of {@link StandardRecord#toJson()}, as stored in a TEXT column. */
+  public static StandardRecord fromJson(String json) {
+    if (json == null) {
+      return null;
+    }
+    try {
+      return JSON_READER.readValue(json);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static void deflate(byte[] data, ByteArrayOutputStream out) {
+    Deflater deflater = DEFLATER.get();
+    deflater.reset();
+    deflater.setInput(data);
+    deflater.finish();
+    byte[] chunk = new byte[Math.max(64, data.length / 2)];
+    while (!deflater.finished()) {
+      int n = deflater.deflate(chunk);
+      out.write(chunk, 0, n);
+    }
+  }
+
+  private static byte[] inflate(byte[] data, int offset) throws IOException {
+    Inflater inflater = INFLATER.get();
+    inflater.reset();
+    inflater.setInput(data, offset, data.length - offset);
+    ByteArrayOutputStream out = new ByteArrayOutputStream(4 * data.length);
+    byte[] chunk = new byte[4 * data.length];
+    try {
+      while (!inflater.finished()) {
+        int n = inflater.inflate(chunk);
+        if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          throw new IOException("Truncated record");
+        }
+        out.write(chunk, 0, n);
+      }
+    } catch (DataFormatException e) {
+      throw new IOException(e);
+    }
+    return out.toByteArray();
+  }
+
+  public static RecordCodec fromStr(String s) {
+    for (RecordCodec codec : values()) {
+      if (codec.codecName.equalsIgnoreCase(s)) {
+        return codec;
+      }
+    }
+    throw new IllegalArgumentException("Unknown record codec: " + s);
+  }
+
+  private static RecordCodec fromTag(byte tag) {
+    for (RecordCodec codec : values()) {
+      if (codec.tag == tag) {
+        return codec;
+      }
+    }
+    throw new IllegalArgumentException(String.format("Unknown record codec tag 0x%02x", tag));
+  }
+
+  /**
+   * The model classes are immutable and have no creators of their own; tell Jackson how to build
+   * them, and to skip the derived properties of {@link Record} (year, numeric identifier).
+   */
+  private static ObjectMapper configure(ObjectMapper mapper) {
+    return mapper
+        .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+        .addMixIn(StandardRecord.class, StandardRecordMixin.class)
+        .addMixIn(StandardRecord.StandardRecordBuilder.class, BuilderMixin.class)
+        .addMixIn(Text.class, TextMixin.class)
+        .addMixIn(ReferenceGroup.class, ReferenceGroupMixin.class);
+  }
+
+  @JsonDeserialize(builder = StandardRecord.StandardRecordBuilder.class)
+  @JsonIgnoreProperties(ignoreUnknown = true)
+  private abstract static class StandardRecordMixin {}
+
+  @JsonPOJOBuilder(withPrefix = "")
+  @JsonIgnoreProperties(ignoreUnknown = true)
+  private abstract static class BuilderMixin {}
+
+  private abstract static class TextMixin {
+    @JsonCreator
+    TextMixin(@JsonProperty("string") String string, @JsonProperty("language") String language) {}
+  }
+
+  private abstract static class ReferenceGroupMixin {
+    @JsonCreator
+    ReferenceGroupMixin(
+        @JsonProperty("citation") String citation,
+        @JsonProperty("identifiers") Map<String, String> identifiers) {}
+  }
+}
@@ -0,0 +1,206 @@
+package org.curieo.model;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.io.output.StringBuilderWriter;
+
+/**
+ * Writes the JSON of a {@link StandardRecord} straight from any {@link Record}, through the Jackson
+ * streaming API. The output is byte for byte that of {@link StandardRecord#toJson()} on {@link
+ * StandardRecord#copy}, without the copy and without reflection on the record classes.
+ *
+ * <p>Keep the properties in the order in which Jackson serializes {@link StandardRecord}: its
+ * fields in declaration order, then the derived properties of {@link Record}.
+ */
+public final class RecordJson {
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+  private static final int INITIAL_BUFFER_SIZE = 4096;
+  // larger buffers are dropped rather than kept around for every thread
+  private static final int MAXIMUM_RETAINED_BUFFER_SIZE = 1 << 20;
+  private static final ThreadLocal<StringBuilderWriter> BUFFER =
+      ThreadLocal.withInitial(() -> new StringBuilderWriter(INITIAL_BUFFER_SIZE));
+  private static final ThreadLocal<DigestStream> DIGEST =
+      ThreadLocal.withInitial(DigestStream::new);
+
+  private RecordJson() {}
+
+  public static String toJson(Record record) {
+    StringBuilderWriter buffer = BUFFER.get();
+    StringBuilder builder = buffer.getBuilder();
+    builder.setLength(0);
+    try (JsonGenerator generator = JSON_FACTORY.createGenerator(buffer)) {
+      write(record, generator, true);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    String json = builder.toString();
+    if (builder.capacity() > MAXIMUM_RETAINED_BUFFER_SIZE) {
+      BUFFER.remove();
+    }
+    return json;
+  }
+
+  /**
+   * 64-bit digest (FNV-1a) of the UTF-8 JSON of the record, leaving out the origin. The JSON is
+   * hashed as it is written, and never materialized.
+   */
+  public static long digest(Record record) {
+    DigestStream digest = DIGEST.get();
+    digest.reset();
+    try (JsonGenerator generator = JSON_FACTORY.createGenerator(digest)) {
+      write(record, generator, false);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    return digest.hash;
+  }
+
+  /**
+   * Write the record as a single JSON object.
+   *
+   * @param withOrigin whether to include the origin (the file the record was read from)
+   */
+  public static void write(Record record, JsonGenerator generator, boolean withOrigin)
+      throws IOException {
+    generator.writeStartObject();
+    if (withOrigin) {
+      generator.writeStringField("origin", record.getOrigin());
+    }
+    generator.writeFieldName("abstractText");
+    writeTexts(generator, record.getAbstractText());
+    generator.writeFieldName("titles");
+    writeTexts(generator, record.getTitles());
+    generator.writeFieldName("authors");
+    writeStrings(generator, record.getAuthors());
+    generator.writeFieldName("references");
+    writeReferences(generator, record.getReferences());
+    generator.writeFieldName("metadata");
+    writeMetadata(generator, record.getMetadata());
+    generator.writeFieldName("identifiers");
+    writeMetadata(generator, record.getIdentifiers());
+    generator.writeStringField("identifier", record.getIdentifier());
+    // the publication date may be formatted on every call; derive the year as Record#getYear does
+    String publicationDate = record.getPublicationDate();
+    generator.writeStringField("publicationDate", publicationDate);
+    generator.writeFieldName("year");
+    if (publicationDate == null) {
+      generator.writeNull();
+    } else {
+      generator.writeNumber(Integer.parseInt(publicationDate, 0, 4, 10));
+    }
+    generator.writeFieldName("numericIdentifier");
+    generator.writeNumber(record.getNumericIdentifier().longValue());
+    generator.writeEndObject();
+  }
+
+  private static void writeTexts(JsonGenerator generator, List<Text> texts) throws IOException {
+    if (texts == null) {
+      generator.writeNull();
+      return;
+    }
+    generator.writeStartArray();
+    for (Text text : texts) {
+      if (text == null) {
+        generator.writeNull();
+      } else {
+        generator.writeStartObject();
+        generator.writeStringField("string", text.getString());
+        generator.writeStringField("language", text.getLanguage());
+        generator.writeEndObject();
+      }
+    }
+    generator.writeEndArray();
+  }
+
+  private static void writeStrings(JsonGenerator generator, List<String> strings)
+      throws IOException {
+    if (strings == null) {
+      generator.writeNull();
+      return;
+    }
+    generator.writeStartArray();
+    for (String string : strings) {
+      generator.writeString(string);
+    }
+    generator.writeEndArray();
+  }
+
+  private static void writeReferences(JsonGenerator generator, List<ReferenceGroup> references)
+      throws IOException {
+    if (references == null) {
+      generator.writeNull();
+      return;
+    }
+    generator.writeStartArray();
+    for (ReferenceGroup reference : references) {
+      if (reference == null) {
+        generator.writeNull();
+        continue;
+      }
+      generator.writeStartObject();
+      generator.writeStringField("citation", reference.getCitation());
+      generator.writeFieldName("identifiers");
+      Map<String, String> identifiers = reference.getIdentifiers();
+      if (identifiers == null) {
+        generator.writeNull();
+      } else {
+        generator.writeStartObject();
+        for (Map.Entry<String, String> entry : identifiers.entrySet()) {
+          generator.writeStringField(entry.getKey(), entry.getValue());
+        }
+        generator.writeEndObject();
+      }
+      generator.writeEndObject();
+    }
+    generator.writeEndArray();
+  }
+
+  private static void writeMetadata(JsonGenerator generator, List<Metadata> metadata)
+      throws IOException {
+    if (metadata == null) {
+      generator.writeNull();
+      return;
+    }
+    generator.writeStartArray();
+    for (Metadata m : metadata) {
+      if (m == null) {
+        generator.writeNull();
+      } else {
+        generator.writeStartObject();
+        generator.writeStringField("key", m.key());
+        generator.writeStringField("value", m.value());
+        generator.writeEndObject();
+      }
+    }
+    generator.writeEndArray();
+  }
+
+  private static final class DigestStream extends OutputStream {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    long hash;
+
+    void reset() {
+      hash = FNV_OFFSET_BASIS;
+    }
+
+    @Override
+    public void write(int b) {
+      hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      long h = hash;
+      for (int i = off; i < off + len; i++) {
+        h = (h ^ (b[i] & 0xff)) * FNV_PRIME;
+      }
+      hash = h;
+    }
+  }
+}
@@ -1,8 +1,5 @@
 package org.curieo.model;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectWriter;
 import java.util.List;
 import lombok.Builder;
 import lombok.Data;
@@ -17,7 +14,6 @@ import lombok.Generated;
 @Data
 @Builder
 public class StandardRecord implements Record {
-  static final ObjectWriter OBJECT_WRITER = new ObjectMapper().writerFor(StandardRecord.class);
   String origin;
   List<Text> abstractText;
   List<Text> titles;
@@ -42,12 +38,17 @@ public class StandardRecord implements Record {
         .build();
   }
 
+  /** See {@link RecordJson#toJson(Record)}. */
   public String toJson() {
-    try {
-      return OBJECT_WRITER.writeValueAsString(this);
-    } catch (JsonProcessingException e) {
-      throw new RuntimeException(e);
-    }
+    return RecordJson.toJson(this);
+  }
+
+  /**
+   * 64-bit digest of the JSON of this record, leaving out the origin. Two versions of a record with
+   * the same digest have the same content.
+   */
+  public long digest() {
+    return RecordJson.digest(this);
   }
 
   @Override
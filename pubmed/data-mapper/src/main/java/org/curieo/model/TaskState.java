@@ -12,6 +12,13 @@ public interface TaskState {
     Failed,
     Unavailable;
 
+    /**
+     * @return whether the task is done with, successfully or not
+     */
+    public boolean isFinal() {
+      return this == Completed || this == Failed || this == Unavailable;
+    }
+
     public static State fromInt(int i) {
       return EnumUtils.get(State.class, i);
     }
@@ -1,9 +1,13 @@
 package org.curieo.model.identifiers;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
@@ -11,9 +15,8 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import org.jsoup.Connection;
+import org.curieo.utils.HttpFetcher;
 import org.jsoup.Jsoup;
-import org.jsoup.UnsupportedMimeTypeException;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
@@ -209,43 +212,55 @@ public class DOI implements Identifier {
     // follow all redirects and scan for a single pdf link
     if (!sciLink.isEmpty()) {
       try {
-        Connection connection = Jsoup.connect(sciLink);
-        // pretend to be a browser (agent & referrer)
-        connection.userAgent(USER_AGENT);
-        connection.referrer("http://www.google.com");
-        connection.followRedirects(true);
-        connection.ignoreHttpErrors(true);
-        // some publishers are quite slow (default is 3s)
-        connection.timeout(10000);
+        HttpRequest request =
+            HttpFetcher.shared()
+                .request(URI.create(sciLink))
+                // pretend to be a browser (agent & referrer)
+                .header("User-Agent", USER_AGENT)
+                .header("Referer", "http://www.google.com")
+                // some publishers are quite slow
+                .timeout(Duration.ofSeconds(10))
+                .GET()
+                .build();
+        HttpResponse<InputStream> response =
+            HttpFetcher.shared().send(request, HttpResponse.BodyHandlers.ofInputStream());
+        String location = response.uri().toString();
+        String mimeType = response.headers().firstValue("Content-Type").orElse("");
 
-        Document html = connection.get();
+        try (InputStream body = response.body()) {
+          // this might be the PDF already as we follow redirects
+          if (mimeType.startsWith("application/pdf")) {
+            return Optional.of(response.uri().toURL());
+          }
+          if (!mimeType.startsWith("text/") && !mimeType.contains("xml")) {
+            LOGGER.warn(
+                "DoiResolution fetcher failed: unsupported type {} at {}", mimeType, location);
+            return pdfLink;
+          }
+          // error pages are scanned as well
+          Document html = Jsoup.parse(body, null, location);
 
-        // scan for PDF
-        Elements elements = html.body().select("a[href]");
-        List<Optional<URL>> links = new ArrayList<>();
+          // scan for PDF
+          Elements elements = html.body().select("a[href]");
+          List<Optional<URL>> links = new ArrayList<>();
 
-        for (Element element : elements) {
-          String href = element.attr("abs:href").toLowerCase(Locale.ENGLISH);
-          String hrefText = element.text().toLowerCase(Locale.ENGLISH);
-          // Only check if pdf is included in the link or inside the text
-          // ACM uses tokens without PDF inside the link
-          // See https://github.com/lehner/LocalCopy for more scrape ideas
-          if ((href.contains("pdf")
-              || hrefText.contains("pdf"))) { // && new URLDownload(href).isPdf()) {
-            links.add(Optional.of(URI.create(href).toURL()));
+          for (Element element : elements) {
+            String href = element.attr("abs:href").toLowerCase(Locale.ENGLISH);
+            String hrefText = element.text().toLowerCase(Locale.ENGLISH);
+            // Only check if pdf is included in the link or inside the text
+            // ACM uses tokens without PDF inside the link
+            // See https://github.com/lehner/LocalCopy for more scrape ideas
+            if ((href.contains("pdf")
+                || hrefText.contains("pdf"))) { // && new URLDownload(href).isPdf()) {
+              links.add(Optional.of(URI.create(href).toURL()));
+            }
+          }
+          // return if only one link was found (high accuracy)
+          if (links.size() == 1) {
+            LOGGER.info("Fulltext PDF found @ " + sciLink);
+            pdfLink = links.get(0);
           }
         }
-        // return if only one link was found (high accuracy)
-        if (links.size() == 1) {
-          LOGGER.info("Fulltext PDF found @ " + sciLink);
-          pdfLink = links.get(0);
-        }
-      } catch (UnsupportedMimeTypeException type) {
-        // this might be the PDF already as we follow redirects
-        if (type.getMimeType().startsWith("application/pdf")) {
-          return Optional.of(URI.create(type.getUrl()).toURL());
-        }
-        LOGGER.warn("DoiResolution fetcher failed: ", type);
       } catch (IOException e) {
         LOGGER.warn("DoiResolution fetcher failed: ", e);
       }
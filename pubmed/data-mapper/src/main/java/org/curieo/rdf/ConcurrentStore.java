@@ -0,0 +1,515 @@
+package org.curieo.rdf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * A triple store that several threads can load and query at the same time. The triples are
+ * partitioned on their subject over a number of stripes, each with a lock of its own for writers,
+ * so writers on different subjects do not wait for each other. Lookups by subject go to one stripe;
+ * other lookups visit all of them.
+ *
+ * <p>Readers never take a lock, so they do not block writers, nor wait for them. Every stripe
+ * publishes an immutable snapshot: a few sealed {@link Store}s, which are never changed again, and
+ * an append-only tail of the most recent triples, which readers scan. When the tail is full, the
+ * writer seals the store it keeps for it and starts a new one; sealed stores are merged when they
+ * grow alike in size, so there are only logarithmically many. Triples that {@link
+ * #assertAndNameTriple} replaces are left out of the snapshot, not removed from its stores. Every
+ * query returns a copy of the matching triples, so iterating the result never sees a later write.
+ */
+public class ConcurrentStore implements TripleStore {
+  public static final int DEFAULT_STRIPES = 16;
+  // number of triples scanned, rather than looked up, by readers
+  static final int TAIL_SIZE = 1024;
+
+  private final Supplier<Store> storeSupplier;
+  private final Stripe[] stripes;
+  private final NamespaceService namespaceService;
+
+  /**
+   * @param storeSupplier creates the stores of every stripe, e.g. {@link
+   *     SkosNamespaceService#createStore()}
+   * @param stripes the number of stripes, rounded up to a power of two
+   */
+  public ConcurrentStore(Supplier<Store> storeSupplier, int stripes) {
+    this.storeSupplier = storeSupplier;
+    int n = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+    this.stripes = new Stripe[stripes <= 1 ? 1 : n];
+    for (int i = 0; i < this.stripes.length; i++) {
+      this.stripes[i] = new Stripe();
+    }
+    this.namespaceService = storeSupplier.get().getNamespaceService();
+  }
+
+  public ConcurrentStore(Supplier<Store> storeSupplier) {
+    this(storeSupplier, DEFAULT_STRIPES);
+  }
+
+  public ConcurrentStore() {
+    this(Store::new);
+  }
+
+  public NamespaceService getNamespaceService() {
+    return namespaceService;
+  }
+
+  @Override
+  public RdfTriple assertTriple(String uri, String subject, String verb, String object) {
+    return stripe(subject).write(s -> s.add(s.active.createTriple(uri, subject, verb, object)));
+  }
+
+  @Override
+  public RdfTriple assertTriple(String uri, String subject, String verb, Literal object) {
+    return stripe(subject)
+        .write(
+            s ->
+                s.add(
+                    uri == null
+                        ? s.active.createTriple(subject, verb, object)
+                        : new RdfLiteralTriple(uri, subject, verb, object)));
+  }
+
+  @Override
+  public RdfTriple accept(RdfTriple triple) {
+    return stripe(triple.getSubject()).write(s -> s.add(triple));
+  }
+
+  @Override
+  public RdfTriple assertAndNameTriple(String uri, String subject, String verb, String object) {
+    if (uri == null) {
+      throw new IllegalArgumentException("URI cannot be null");
+    }
+    return stripe(subject).write(s -> s.name(uri, subject, verb, object));
+  }
+
+  /**
+   * Add a batch of triples, taking the lock of every stripe once.
+   *
+   * @return the number of triples added (duplicate anonymous triples are not)
+   */
+  public int acceptAll(Collection<? extends RdfTriple> triples) {
+    List<List<RdfTriple>> batches = new ArrayList<>(stripes.length);
+    for (int i = 0; i < stripes.length; i++) {
+      batches.add(new ArrayList<>());
+    }
+    for (RdfTriple triple : triples) {
+      batches.get(index(triple.getSubject())).add(triple);
+    }
+    int added = 0;
+    for (int i = 0; i < stripes.length; i++) {
+      List<RdfTriple> batch = batches.get(i);
+      if (!batch.isEmpty()) {
+        added +=
+            stripes[i].write(
+                s -> {
+                  int n = 0;
+                  for (RdfTriple triple : batch) {
+                    if (s.add(triple) == triple) {
+                      n++;
+                    }
+                  }
+                  return n;
+                });
+      }
+    }
+    return added;
+  }
+
+  public TripleIterable getBySubject(String subject) {
+    return stripe(subject).query(s -> s.getBySubject(subject), t -> hasSubject(t, subject));
+  }
+
+  public TripleIterable getBySubjectAndVerb(String subject, String verb) {
+    return stripe(subject)
+        .query(
+            s -> s.getBySubjectAndVerb(subject, verb),
+            t -> hasSubject(t, subject) && hasVerb(t, verb));
+  }
+
+  public TripleIterable getTriples(String subject, String verb, String object) {
+    return stripe(subject)
+        .query(
+            s -> s.getTriples(subject, verb, object),
+            t -> hasSubject(t, subject) && hasVerb(t, verb) && hasObject(t, object));
+  }
+
+  public Optional<RdfTriple> findFirst(String subject, String verb) {
+    return getBySubjectAndVerb(subject, verb).findFirst();
+  }
+
+  public boolean contains(String subject, String verb, String object) {
+    return getTriples(subject, verb, object).iterator().hasNext();
+  }
+
+  public int countBySubjectAndVerb(String subject, String verb) {
+    return stripe(subject)
+        .count(
+            s -> s.countBySubjectAndVerb(subject, verb),
+            t -> hasSubject(t, subject) && hasVerb(t, verb));
+  }
+
+  public TripleIterable getByVerb(String verb) {
+    return queryAll(s -> s.getByVerb(verb), t -> hasVerb(t, verb));
+  }
+
+  public TripleIterable getByObject(String object) {
+    return queryAll(s -> s.getByObject(object), t -> hasObject(t, object));
+  }
+
+  public TripleIterable getByVerbAndObject(String verb, String object) {
+    return queryAll(
+        s -> s.getByVerbAndObject(verb, object), t -> hasVerb(t, verb) && hasObject(t, object));
+  }
+
+  public int countByVerb(String verb) {
+    return countAll(s -> s.countByVerb(verb), t -> hasVerb(t, verb));
+  }
+
+  public int countByVerbAndObject(String verb, String object) {
+    return countAll(
+        s -> s.countByVerbAndObject(verb, object), t -> hasVerb(t, verb) && hasObject(t, object));
+  }
+
+  public RdfTriple getByUri(String uri) {
+    for (Stripe stripe : stripes) {
+      Optional<RdfTriple> first =
+          stripe
+              .query(
+                  s -> {
+                    RdfTriple triple = s.getByUri(uri);
+                    return triple == null ? List.of() : List.of(triple);
+                  },
+                  t -> uri.equals(t.getUri()))
+              .findFirst();
+      if (first.isPresent()) {
+        return first.get();
+      }
+    }
+    return null;
+  }
+
+  public int size() {
+    int total = 0;
+    for (Stripe stripe : stripes) {
+      total += stripe.snapshot.size();
+    }
+    return total;
+  }
+
+  private TripleIterable queryAll(
+      Function<Store, ? extends Iterable<RdfTriple>> query, Predicate<RdfTriple> match) {
+    List<RdfTriple> result = new ArrayList<>();
+    for (Stripe stripe : stripes) {
+      stripe.query(query, match).forEach(result::add);
+    }
+    return result::iterator;
+  }
+
+  private int countAll(ToIntFunction<Store> count, Predicate<RdfTriple> match) {
+    int total = 0;
+    for (Stripe stripe : stripes) {
+      total += stripe.count(count, match);
+    }
+    return total;
+  }
+
+  private static boolean hasSubject(RdfTriple triple, String subject) {
+    return triple.getSubject().equals(subject);
+  }
+
+  private static boolean hasVerb(RdfTriple triple, String verb) {
+    return triple.getVerb().equals(verb);
+  }
+
+  // as in Store, literal objects are not found by object
+  private static boolean hasObject(RdfTriple triple, String object) {
+    return triple.isSimple() && triple.getObject().equals(object);
+  }
+
+  private Stripe stripe(String subject) {
+    return stripes[index(subject)];
+  }
+
+  private int index(String subject) {
+    int h = subject == null ? 0 : subject.hashCode();
+    return (h ^ (h >>> 16)) & (stripes.length - 1);
+  }
+
+  /** The most recent triples of a stripe; only the writer appends, readers scan up to the size. */
+  private static class Tail {
+    final RdfTriple[] triples = new RdfTriple[TAIL_SIZE];
+    // written after the slot it covers, so readers see every triple below it
+    volatile int size;
+  }
+
+  /**
+   * An immutable set of triples, by identity. Adding one returns a new set that shares all but the
+   * smallest levels with this one: like the sealed stores, the levels are merged when they grow
+   * alike in size, so a run of additions copies every triple only logarithmically many times.
+   */
+  @SuppressWarnings("unchecked")
+  private static final class Removed implements Iterable<RdfTriple> {
+    static final Removed EMPTY = new Removed(new Set[0], 0);
+
+    private final Set<RdfTriple>[] levels;
+    private final int size;
+
+    private Removed(Set<RdfTriple>[] levels, int size) {
+      this.levels = levels;
+      this.size = size;
+    }
+
+    static Removed of(Set<RdfTriple> triples) {
+      return triples.isEmpty() ? EMPTY : new Removed(new Set[] {triples}, triples.size());
+    }
+
+    boolean contains(RdfTriple triple) {
+      for (Set<RdfTriple> level : levels) {
+        if (level.contains(triple)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    int size() {
+      return size;
+    }
+
+    Removed with(RdfTriple triple) {
+      List<Set<RdfTriple>> next = new ArrayList<>(Arrays.asList(levels));
+      Set<RdfTriple> last = identitySet();
+      last.add(triple);
+      next.add(last);
+      int n = next.size();
+      while (n >= 2 && next.get(n - 1).size() * 2 >= next.get(n - 2).size()) {
+        Set<RdfTriple> merged = identitySet();
+        merged.addAll(next.get(n - 2));
+        merged.addAll(next.get(n - 1));
+        next.subList(n - 2, n).clear();
+        next.add(merged);
+        n--;
+      }
+      return new Removed(next.toArray(new Set[0]), size + 1);
+    }
+
+    @Override
+    public Iterator<RdfTriple> iterator() {
+      return Arrays.stream(levels).flatMap(Set::stream).iterator();
+    }
+  }
+
+  private static Set<RdfTriple> identitySet() {
+    return Collections.newSetFromMap(new IdentityHashMap<>());
+  }
+
+  /**
+   * What readers of a stripe see. The sealed stores and the sets of left-out triples are never
+   * changed after publication; the tail only grows.
+   *
+   * @param sealed stores that are not written to anymore
+   * @param removed triples of the sealed stores that are left out
+   * @param removedFromTail triples of the tail that are left out
+   */
+  private record Snapshot(Store[] sealed, Tail tail, Removed removed, Removed removedFromTail) {
+    boolean isRemoved(RdfTriple triple) {
+      return removed.contains(triple) || removedFromTail.contains(triple);
+    }
+
+    int size() {
+      int size = tail.size - removedFromTail.size() - removed.size();
+      for (Store store : sealed) {
+        size += store.size();
+      }
+      return size;
+    }
+  }
+
+  private class Stripe {
+    final ReentrantLock lock = new ReentrantLock();
+    volatile Snapshot snapshot =
+        new Snapshot(new Store[0], new Tail(), Removed.EMPTY, Removed.EMPTY);
+    // the triples of the tail, indexed; only seen by the writer
+    Store active = storeSupplier.get();
+
+    <T> T write(Function<Stripe, T> write) {
+      lock.lock();
+      try {
+        return write.apply(this);
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    /** As {@link Store#accept(RdfTriple)}: anonymous triples that are there already are not. */
+    RdfTriple add(RdfTriple triple) {
+      if (triple.getUri() == null) {
+        RdfTriple existing = find(triple);
+        if (existing != null) {
+          return existing;
+        }
+      }
+      active.accept(triple);
+      Snapshot current = snapshot;
+      Tail tail = current.tail;
+      tail.triples[tail.size] = triple;
+      tail.size = tail.size + 1;
+      if (tail.size == TAIL_SIZE) {
+        seal(current);
+      }
+      return triple;
+    }
+
+    /** As {@link Store#assertAndNameTriple}: an anonymous triple that is there gets replaced. */
+    RdfTriple name(String uri, String subject, String verb, String object) {
+      Snapshot current = snapshot;
+      for (Store store : stores(current)) {
+        for (RdfTriple triple : store.getTriples(subject, verb, object)) {
+          if (current.isRemoved(triple)) {
+            continue;
+          }
+          if (triple.getUri() == null) {
+            remove(current, store, triple);
+            return add(new RdfSimpleTriple(uri, subject, verb, object));
+          }
+          if (triple.getUri().equals(uri)) {
+            return triple;
+          }
+        }
+      }
+      return add(active.createTriple(uri, subject, verb, object));
+    }
+
+    private RdfTriple find(RdfTriple triple) {
+      Snapshot current = snapshot;
+      for (Store store : stores(current)) {
+        if (triple.isSimple()) {
+          for (RdfTriple c :
+              store.getTriples(triple.getSubject(), triple.getVerb(), triple.getObject())) {
+            if (!current.isRemoved(c)) {
+              return c;
+            }
+          }
+        } else {
+          for (RdfTriple c : store.getBySubjectAndVerb(triple.getSubject(), triple.getVerb())) {
+            if (!c.isSimple()
+                && c.getLiteralObject().equals(triple.getLiteralObject())
+                && !current.isRemoved(c)) {
+              return c;
+            }
+          }
+        }
+      }
+      return null;
+    }
+
+    private List<Store> stores(Snapshot current) {
+      List<Store> stores = new ArrayList<>(Arrays.asList(current.sealed));
+      stores.add(active);
+      return stores;
+    }
+
+    private void remove(Snapshot current, Store store, RdfTriple triple) {
+      if (store == active) {
+        active.remove(triple);
+        snapshot =
+            new Snapshot(
+                current.sealed,
+                current.tail,
+                current.removed,
+                current.removedFromTail.with(triple));
+      } else {
+        snapshot =
+            new Snapshot(
+                current.sealed,
+                current.tail,
+                current.removed.with(triple),
+                current.removedFromTail);
+      }
+    }
+
+    /**
+     * Seal the store of the full tail, and merge the last sealed stores for as long as the last is
+     * at least half the size of the one before, so sizes drop off geometrically.
+     */
+    private void seal(Snapshot current) {
+      List<Store> sealed = new ArrayList<>(Arrays.asList(current.sealed));
+      sealed.add(active);
+      Set<RdfTriple> removed = identitySet();
+      current.removed.forEach(removed::add);
+      int n = sealed.size();
+      while (n >= 2 && sealed.get(n - 1).size() * 2 >= sealed.get(n - 2).size()) {
+        Store merged = storeSupplier.get();
+        for (Store store : sealed.subList(n - 2, n)) {
+          for (RdfTriple triple : store) {
+            if (!removed.remove(triple)) {
+              merged.accept(triple);
+            }
+          }
+        }
+        sealed.subList(n - 2, n).clear();
+        sealed.add(merged);
+        n--;
+      }
+      active = storeSupplier.get();
+      snapshot =
+          new Snapshot(
+              sealed.toArray(new Store[0]), new Tail(), Removed.of(removed), Removed.EMPTY);
+    }
+
+    /** Run the query on the sealed stores, scan the tail, and copy out the result. */
+    TripleIterable query(
+        Function<Store, ? extends Iterable<RdfTriple>> query, Predicate<RdfTriple> match) {
+      Snapshot current = snapshot;
+      int size = current.tail.size;
+      List<RdfTriple> result = new ArrayList<>();
+      for (Store store : current.sealed) {
+        for (RdfTriple triple : query.apply(store)) {
+          if (!current.removed.contains(triple)) {
+            result.add(triple);
+          }
+        }
+      }
+      for (int i = 0; i < size; i++) {
+        RdfTriple triple = current.tail.triples[i];
+        if (match.test(triple) && !current.removedFromTail.contains(triple)) {
+          result.add(triple);
+        }
+      }
+      return result::iterator;
+    }
+
+    int count(ToIntFunction<Store> count, Predicate<RdfTriple> match) {
+      Snapshot current = snapshot;
+      int size = current.tail.size;
+      int total = 0;
+      for (Store store : current.sealed) {
+        total += count.applyAsInt(store);
+      }
+      for (RdfTriple triple : current.removed) {
+        if (match.test(triple)) {
+          total--;
+        }
+      }
+      for (int i = 0; i < size; i++) {
+        RdfTriple triple = current.tail.triples[i];
+        if (match.test(triple) && !current.removedFromTail.contains(triple)) {
+          total++;
+        }
+      }
+      return total;
+    }
+  }
+}
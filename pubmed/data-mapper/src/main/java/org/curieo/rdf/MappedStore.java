@@ -0,0 +1,587 @@
+package org.curieo.rdf;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.function.IntPredicate;
+
+/**
+ * Read-only triple store on a memory-mapped file, written once by {@link #write(Store, Path)}.
+ * Opening it reads no more than the header and the prefixes; queries read the mapped term
+ * dictionary, triple columns and posting lists in place. Processes that open the same file share it
+ * in the page cache.
+ *
+ * <p>Triples are materialized as {@link RdfTriple}s when they are iterated. Thread safe.
+ *
+ * <p>Every section of the file must stay under 2 GB.
+ */
+public class MappedStore implements TripleIterable, Closeable {
+  private static final int MAGIC = 0x43525331; // "CRS1"
+  private static final int HEADER_SIZE = 64 + 16 * Section.values().length;
+
+  /** Sections of the file, in order. */
+  private enum Section {
+    PREFIXES,
+    TERM_OFFSETS, // int[terms + 1], into TERM_BYTES
+    TERM_BYTES, // UTF-8
+    TERM_SLOTS, // open addressing table of term id + 1, by hash
+    LITERALS, // int[3 * literals]: term ids of value, language and data type; -1 for null
+    SUBJECTS, // int[triples], term ids
+    VERBS,
+    OBJECTS, // term id, or -(literal + 1)
+    URIS, // term id, or -1
+    SUBJECT_STARTS, // int[terms + 1], into SUBJECT_POSTINGS
+    VERB_STARTS,
+    OBJECT_STARTS,
+    URI_STARTS,
+    SUBJECT_POSTINGS, // ascending triple numbers, by term
+    VERB_POSTINGS,
+    OBJECT_POSTINGS,
+    URI_POSTINGS
+  }
+
+  private static final int BY_SUBJECT = 0, BY_VERB = 1, BY_OBJECT = 2, BY_URI = 3;
+
+  private final FileChannel channel;
+  private final int terms;
+  private final int triples;
+  private final NamespaceService namespaceService;
+  private final IntBuffer termOffsets;
+  private final ByteBuffer termBytes;
+  private final IntBuffer termSlots;
+  private final IntBuffer literals;
+  private final IntBuffer subjects;
+  private final IntBuffer verbs;
+  private final IntBuffer objects;
+  private final IntBuffer uris;
+  private final IntBuffer[] starts = new IntBuffer[4];
+  private final IntBuffer[] postings = new IntBuffer[4];
+
+  private MappedStore(FileChannel channel) throws IOException {
+    this.channel = channel;
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    channel.read(header, 0);
+    header.flip();
+    if (header.getInt() != MAGIC) {
+      throw new IOException("Not a mapped store");
+    }
+    terms = header.getInt();
+    triples = header.getInt();
+    header.position(64);
+    ByteBuffer[] sections = new ByteBuffer[Section.values().length];
+    for (int i = 0; i < sections.length; i++) {
+      long offset = header.getLong();
+      long length = header.getLong();
+      sections[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+    }
+    namespaceService = readPrefixes(sections[Section.PREFIXES.ordinal()]);
+    termOffsets = ints(sections, Section.TERM_OFFSETS);
+    termBytes = sections[Section.TERM_BYTES.ordinal()];
+    termSlots = ints(sections, Section.TERM_SLOTS);
+    literals = ints(sections, Section.LITERALS);
+    subjects = ints(sections, Section.SUBJECTS);
+    verbs = ints(sections, Section.VERBS);
+    objects = ints(sections, Section.OBJECTS);
+    uris = ints(sections, Section.URIS);
+    for (int i = 0; i < 4; i++) {
+      starts[i] = ints(sections, Section.values()[Section.SUBJECT_STARTS.ordinal() + i]);
+      postings[i] = ints(sections, Section.values()[Section.SUBJECT_POSTINGS.ordinal() + i]);
+    }
+  }
+
+  public static MappedStore open(Path path) throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      return new MappedStore(channel);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  public NamespaceService getNamespaceService() {
+    return namespaceService;
+  }
+
+  public int size() {
+    return triples;
+  }
+
+  @Override
+  public Iterator<RdfTriple> iterator() {
+    return new TripleIterator(null, 0, triples, t -> true);
+  }
+
+  public TripleIterable getBySubject(String subject) {
+    return select(BY_SUBJECT, id(subject), t -> true);
+  }
+
+  public TripleIterable getByVerb(String verb) {
+    return select(BY_VERB, id(verb), t -> true);
+  }
+
+  public TripleIterable getByObject(String object) {
+    return select(BY_OBJECT, id(object), t -> true);
+  }
+
+  public TripleIterable getBySubjectAndVerb(String subject, String verb) {
+    return select(new int[] {BY_SUBJECT, BY_VERB}, new int[] {id(subject), id(verb)});
+  }
+
+  public TripleIterable getBySubjectAndObject(String subject, String object) {
+    return select(new int[] {BY_SUBJECT, BY_OBJECT}, new int[] {id(subject), id(object)});
+  }
+
+  public TripleIterable getByVerbAndObject(String verb, String object) {
+    return select(new int[] {BY_VERB, BY_OBJECT}, new int[] {id(verb), id(object)});
+  }
+
+  public TripleIterable getTriples(String subject, String verb, String object) {
+    return select(
+        new int[] {BY_SUBJECT, BY_VERB, BY_OBJECT}, new int[] {id(subject), id(verb), id(object)});
+  }
+
+  public Optional<RdfTriple> findFirst(String subject, String verb) {
+    return getBySubjectAndVerb(subject, verb).findFirst();
+  }
+
+  public boolean contains(String subject, String verb, String object) {
+    return getTriples(subject, verb, object).iterator().hasNext();
+  }
+
+  public int countByVerb(String verb) {
+    return count(BY_VERB, id(verb));
+  }
+
+  public int countBySubjectAndVerb(String subject, String verb) {
+    return count(getBySubjectAndVerb(subject, verb));
+  }
+
+  public int countByVerbAndObject(String verb, String object) {
+    return count(getByVerbAndObject(verb, object));
+  }
+
+  public RdfTriple getByUri(String uri) {
+    return select(BY_URI, id(uri), t -> true).findFirst().orElse(null);
+  }
+
+  public List<String> getVerbs() {
+    List<String> result = new ArrayList<>();
+    for (int term = 0; term < terms; term++) {
+      if (count(BY_VERB, term) != 0) {
+        result.add(term(term));
+      }
+    }
+    return result;
+  }
+
+  /** Triples in the posting list of the term that pass the filter. */
+  private TripleIterable select(int index, int term, IntPredicate filter) {
+    if (term < 0) {
+      return List.<RdfTriple>of()::iterator;
+    }
+    int from = starts[index].get(term), to = starts[index].get(term + 1);
+    return () -> new TripleIterator(postings[index], from, to, filter);
+  }
+
+  /**
+   * Triples with all the terms. Walks the shortest posting list, and checks the other terms in the
+   * triple columns.
+   */
+  private TripleIterable select(int[] indexes, int[] ids) {
+    int shortest = 0;
+    for (int i = 0; i < indexes.length; i++) {
+      if (ids[i] < 0) {
+        return List.<RdfTriple>of()::iterator;
+      }
+      if (count(indexes[i], ids[i]) < count(indexes[shortest], ids[shortest])) {
+        shortest = i;
+      }
+    }
+    IntPredicate filter = t -> true;
+    for (int i = 0; i < indexes.length; i++) {
+      if (i != shortest) {
+        IntBuffer column = column(indexes[i]);
+        int id = ids[i];
+        filter = filter.and(t -> column.get(t) == id);
+      }
+    }
+    return select(indexes[shortest], ids[shortest], filter);
+  }
+
+  private IntBuffer column(int index) {
+    return switch (index) {
+      case BY_SUBJECT -> subjects;
+      case BY_VERB -> verbs;
+      case BY_OBJECT -> objects;
+      default -> uris;
+    };
+  }
+
+  private int count(int index, int term) {
+    return term < 0 ? 0 : starts[index].get(term + 1) - starts[index].get(term);
+  }
+
+  private static int count(TripleIterable triples) {
+    int count = 0;
+    for (Iterator<RdfTriple> it = triples.iterator(); it.hasNext(); it.next()) {
+      count++;
+    }
+    return count;
+  }
+
+  /**
+   * @return the id of the term, or -1 if no triple has it
+   */
+  int id(String term) {
+    if (term == null) {
+      return -1;
+    }
+    ByteBuffer key = ByteBuffer.wrap(term.getBytes(UTF_8));
+    int mask = termSlots.limit() - 1;
+    for (int slot = hash(term) & mask; ; slot = (slot + 1) & mask) {
+      int entry = termSlots.get(slot);
+      if (entry == 0) {
+        return -1;
+      }
+      int id = entry - 1;
+      int start = termOffsets.get(id), length = termOffsets.get(id + 1) - start;
+      if (length == key.limit() && termBytes.slice(start, length).mismatch(key) == -1) {
+        return id;
+      }
+    }
+  }
+
+  String term(int id) {
+    int start = termOffsets.get(id);
+    byte[] bytes = new byte[termOffsets.get(id + 1) - start];
+    termBytes.get(start, bytes);
+    return new String(bytes, UTF_8);
+  }
+
+  private RdfTriple triple(int t) {
+    String uri = uris.get(t) < 0 ? null : term(uris.get(t));
+    String subject = term(subjects.get(t));
+    String verb = term(verbs.get(t));
+    int object = objects.get(t);
+    if (object >= 0) {
+      return uri == null
+          ? new RdfAnonymousTriple(subject, verb, term(object))
+          : new RdfSimpleTriple(uri, subject, verb, term(object));
+    }
+    int literal = 3 * (-object - 1);
+    Literal value =
+        new Literal(
+            term(literals.get(literal)),
+            optionalTerm(literals.get(literal + 1)),
+            optionalTerm(literals.get(literal + 2)));
+    return uri == null
+        ? new RdfAnonymousLiteralTriple(subject, verb, value)
+        : new RdfLiteralTriple(uri, subject, verb, value);
+  }
+
+  private String optionalTerm(int id) {
+    return id < 0 ? null : term(id);
+  }
+
+  private class TripleIterator implements Iterator<RdfTriple> {
+    private final IntBuffer postingList; // null for all triples
+    private final int to;
+    private final IntPredicate filter;
+    private int position;
+    private int next = -1;
+
+    TripleIterator(IntBuffer postingList, int from, int to, IntPredicate filter) {
+      this.postingList = postingList;
+      this.position = from;
+      this.to = to;
+      this.filter = filter;
+      advance();
+    }
+
+    private void advance() {
+      next = -1;
+      while (position < to) {
+        int t = postingList == null ? position : postingList.get(position);
+        position++;
+        if (filter.test(t)) {
+          next = t;
+          return;
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next >= 0;
+    }
+
+    @Override
+    public RdfTriple next() {
+      if (next < 0) {
+        throw new NoSuchElementException();
+      }
+      RdfTriple triple = triple(next);
+      advance();
+      return triple;
+    }
+  }
+
+  /** Write the triples of a store, with its prefixes. */
+  public static void write(Store store, Path path) throws IOException {
+    write(store, store.getNamespaceService(), path);
+  }
+
+  public static void write(Iterable<RdfTriple> source, ImmutableNamespaceService ns, Path path)
+      throws IOException {
+    TermDictionary dictionary = new TermDictionary();
+    Map<Literal, Integer> literalIds = new HashMap<>();
+    IntList literals = new IntList();
+    IntList subjects = new IntList(), verbs = new IntList(), objects = new IntList();
+    IntList uris = new IntList();
+    for (RdfTriple triple : source) {
+      subjects.add(dictionary.add(triple.getSubject()));
+      verbs.add(dictionary.add(triple.getVerb()));
+      uris.add(dictionary.add(triple.getUri()));
+      if (triple.isSimple()) {
+        objects.add(dictionary.add(triple.getObject()));
+      } else {
+        Literal literal = triple.getLiteralObject();
+        Integer id = literalIds.get(literal);
+        if (id == null) {
+          id = literalIds.size();
+          literalIds.put(literal, id);
+          literals.add(dictionary.add(literal.getValue()));
+          literals.add(dictionary.add(literal.getLanguage()));
+          literals.add(dictionary.add(literal.getDataType()));
+        }
+        objects.add(-id - 1);
+      }
+    }
+    int terms = dictionary.size();
+    int triples = subjects.size;
+
+    try (FileChannel channel =
+        FileChannel.open(
+            path,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.WRITE)) {
+      long[][] sections = new long[Section.values().length][];
+      channel.position(HEADER_SIZE);
+      DataOutputStream out =
+          new DataOutputStream(
+              new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+      SectionWriter writer = new SectionWriter(channel, out, sections);
+
+      writer.start(Section.PREFIXES);
+      out.write(prefixes(ns));
+
+      writer.start(Section.TERM_OFFSETS);
+      int[] hashes = new int[terms];
+      int offset = 0;
+      List<byte[]> encoded = new ArrayList<>(terms);
+      for (int id = 0; id < terms; id++) {
+        String term = dictionary.term(id);
+        byte[] bytes = term.getBytes(UTF_8);
+        encoded.add(bytes);
+        hashes[id] = hash(term);
+        out.writeInt(offset);
+        offset += bytes.length;
+      }
+      out.writeInt(offset);
+
+      writer.start(Section.TERM_BYTES);
+      for (byte[] bytes : encoded) {
+        out.write(bytes);
+      }
+      encoded = null;
+
+      writer.start(Section.TERM_SLOTS);
+      int[] slots = new int[Math.max(2, Integer.highestOneBit(Math.max(1, terms)) << 2)];
+      int mask = slots.length - 1;
+      for (int id = 0; id < terms; id++) {
+        int slot = hashes[id] & mask;
+        while (slots[slot] != 0) {
+          slot = (slot + 1) & mask;
+        }
+        slots[slot] = id + 1;
+      }
+      writeInts(out, slots, slots.length);
+
+      writer.start(Section.LITERALS);
+      writeInts(out, literals.values, literals.size);
+      writer.start(Section.SUBJECTS);
+      writeInts(out, subjects.values, triples);
+      writer.start(Section.VERBS);
+      writeInts(out, verbs.values, triples);
+      writer.start(Section.OBJECTS);
+      writeInts(out, objects.values, triples);
+      writer.start(Section.URIS);
+      writeInts(out, uris.values, triples);
+
+      IntList[] columns = {subjects, verbs, objects, uris};
+      int[][] startArrays = new int[4][];
+      for (int i = 0; i < 4; i++) {
+        writer.start(Section.values()[Section.SUBJECT_STARTS.ordinal() + i]);
+        startArrays[i] = starts(columns[i], terms);
+        writeInts(out, startArrays[i], terms + 1);
+      }
+      for (int i = 0; i < 4; i++) {
+        writer.start(Section.values()[Section.SUBJECT_POSTINGS.ordinal() + i]);
+        int[] posting = postings(columns[i], startArrays[i]);
+        writeInts(out, posting, posting.length);
+      }
+      writer.end();
+
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      header.putInt(MAGIC).putInt(terms).putInt(triples);
+      header.position(64);
+      for (long[] section : sections) {
+        header.putLong(section[0]).putLong(section[1]);
+      }
+      header.flip();
+      channel.write(header, 0);
+    }
+  }
+
+  /** Offsets of the posting list of every term: a count per term, summed up. */
+  private static int[] starts(IntList column, int terms) {
+    int[] starts = new int[terms + 1];
+    for (int i = 0; i < column.size; i++) {
+      if (column.values[i] >= 0) {
+        starts[column.values[i] + 1]++;
+      }
+    }
+    for (int id = 0; id < terms; id++) {
+      starts[id + 1] += starts[id];
+    }
+    return starts;
+  }
+
+  /** Triple numbers by term; ascending within every term, as the triples are visited in order. */
+  private static int[] postings(IntList column, int[] starts) {
+    int[] next = Arrays.copyOf(starts, starts.length - 1);
+    int[] postings = new int[starts[starts.length - 1]];
+    for (int t = 0; t < column.size; t++) {
+      int id = column.values[t];
+      if (id >= 0) {
+        postings[next[id]++] = t;
+      }
+    }
+    return postings;
+  }
+
+  private static byte[] prefixes(ImmutableNamespaceService ns) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeInt(ns.knownPrefixes().size());
+      for (String prefix : ns.knownPrefixes()) {
+        out.writeUTF(prefix);
+        out.writeUTF(ns.getFullForm(prefix));
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  private static NamespaceService readPrefixes(ByteBuffer buffer) throws IOException {
+    byte[] bytes = new byte[buffer.limit()];
+    buffer.get(0, bytes);
+    NamespaceService ns = new NamespaceServiceImpl();
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+      int count = in.readInt();
+      for (int i = 0; i < count; i++) {
+        ns.put(in.readUTF(), in.readUTF());
+      }
+    }
+    return ns;
+  }
+
+  private static IntBuffer ints(ByteBuffer[] sections, Section section) {
+    return sections[section.ordinal()].asIntBuffer();
+  }
+
+  private static void writeInts(DataOutputStream out, int[] values, int length) throws IOException {
+    for (int i = 0; i < length; i++) {
+      out.writeInt(values[i]);
+    }
+  }
+
+  /** Same as {@link TermDictionary}, so that the table can be probed with a string's hash. */
+  private static int hash(String term) {
+    int h = term.hashCode();
+    return h ^ (h >>> 16);
+  }
+
+  /** Records the offset and length of every section, 8-byte aligned. */
+  private static class SectionWriter {
+    private final FileChannel channel;
+    private final DataOutputStream out;
+    private final long[][] sections;
+    private long[] current;
+
+    SectionWriter(FileChannel channel, DataOutputStream out, long[][] sections) {
+      this.channel = channel;
+      this.out = out;
+      this.sections = sections;
+    }
+
+    void start(Section section) throws IOException {
+      end();
+      long position = position();
+      for (; position % 8 != 0; position++) {
+        out.write(0);
+      }
+      current = sections[section.ordinal()] = new long[] {position, 0};
+    }
+
+    void end() throws IOException {
+      if (current != null) {
+        current[1] = position() - current[0];
+        current = null;
+      }
+    }
+
+    private long position() throws IOException {
+      out.flush();
+      return channel.position();
+    }
+  }
+
+  private static class IntList {
+    int[] values = new int[1024];
+    int size;
+
+    void add(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, 2 * size);
+      }
+      values[size++] = value;
+    }
+  }
+}
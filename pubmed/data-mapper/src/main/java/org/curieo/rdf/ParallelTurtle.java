@@ -0,0 +1,410 @@
+package org.curieo.rdf;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.curieo.utils.ParseParameters;
+import org.curieo.utils.ParseParametersFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads large Turtle, Trig and N-Triples files on all cores. The file is memory-mapped and cut into
+ * chunks at top-level statement terminators (a {@code .} outside any IRI, string, comment or trig
+ * graph); every chunk is parsed by the {@link Turtle} parser on a thread of its own.
+ *
+ * <p>A first, cheap pass over the bytes finds the cuts and collects the {@code @prefix}
+ * declarations, which every chunk then starts out with. If a prefix is declared twice with
+ * different expansions, or the file is compressed, the file is read sequentially instead.
+ *
+ * <p>Reification ids are unique over all chunks, but not numbered in file order.
+ */
+public class ParallelTurtle {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ParallelTurtle.class);
+  private static final long MINIMUM_CHUNK_SIZE = 1 << 20;
+  private static final long MAXIMUM_CHUNK_SIZE = 64 << 20;
+  private static final int SCAN_WINDOW = 64 << 20;
+  private static final Pattern PREFIX =
+      Pattern.compile("@prefix\\s+([^:\\s]*)\\s*:\\s*<([^>]*)>\\s*\\.", Pattern.DOTALL);
+
+  private final Supplier<Store> storeSupplier;
+  private final int threads;
+  private long chunkSize = 0;
+
+  /**
+   * @param storeSupplier as for {@link Turtle#Turtle(Supplier)}
+   * @param threads the number of parser threads
+   */
+  public ParallelTurtle(Supplier<Store> storeSupplier, int threads) {
+    this.storeSupplier = storeSupplier;
+    this.threads = threads;
+  }
+
+  public ParallelTurtle(Supplier<Store> storeSupplier) {
+    this(storeSupplier, Runtime.getRuntime().availableProcessors());
+  }
+
+  /** Chunk size to aim for; by default a fraction of the file, between 1 and 64 MB. */
+  public ParallelTurtle withChunkSize(long chunkSize) {
+    this.chunkSize = chunkSize;
+    return this;
+  }
+
+  /**
+   * Read into a {@link ConcurrentStore} per graph. The chunks assert their triples straight into
+   * these, so the load is parallel from start to end.
+   */
+  public Map<String, ConcurrentStore> readConcurrent(Path path) throws IOException {
+    Plan plan = plan(path);
+    ConcurrentStore main = new ConcurrentStore(storeSupplier);
+    NamespaceService ns = main.getNamespaceService();
+    if (plan != null) {
+      plan.prefixes.forEach(ns::put);
+    }
+    Map<String, ConcurrentStore> graphs = new ConcurrentHashMap<>();
+    graphs.put(Turtle.DEFAULT, main);
+    // other graphs start out with the prefixes of the default graph: those of the plan, or, when
+    // parsing sequentially, those declared so far, as Turtle does
+    Function<String, ConcurrentStore> sink =
+        g ->
+            graphs.computeIfAbsent(
+                g,
+                k -> {
+                  ConcurrentStore store = new ConcurrentStore(storeSupplier);
+                  ns.knownPrefixes()
+                      .forEach(p -> store.getNamespaceService().put(p, ns.getFullForm(p)));
+                  return store;
+                });
+    if (plan == null) {
+      try (InputStream is = Turtle.open(path.toFile());
+          ParseParametersFile pf = new ParseParametersFile(is, path.toString())) {
+        Turtle.parse(configure(pf), ns, sink);
+      }
+    } else {
+      run(path, plan, chunk -> sink);
+    }
+    return graphs;
+  }
+
+  /**
+   * Read into a {@link Store} per graph, as {@link Turtle#read(File)} does. The chunks are parsed
+   * into stores of their own in parallel; these are merged into the result in file order.
+   */
+  public Map<String, Store> read(Path path) throws IOException {
+    Plan plan = plan(path);
+    if (plan == null) {
+      return new Turtle(storeSupplier).read(path.toFile());
+    }
+    List<Map<String, Store>> chunkGraphs = new ArrayList<>();
+    for (int i = 0; i < plan.chunks.size(); i++) {
+      chunkGraphs.add(new HashMap<>());
+    }
+    run(
+        path,
+        plan,
+        chunk -> {
+          Map<String, Store> graphs = chunkGraphs.get(chunk);
+          return g -> graphs.computeIfAbsent(g, k -> storeSupplier.get());
+        });
+
+    Map<String, Store> result = new LinkedHashMap<>();
+    Function<String, Store> target =
+        g ->
+            result.computeIfAbsent(
+                g,
+                k -> {
+                  Store store = storeSupplier.get();
+                  plan.prefixes.forEach(store.getNamespaceService()::put);
+                  return store;
+                });
+    target.apply(Turtle.DEFAULT);
+    for (Map<String, Store> graphs : chunkGraphs) {
+      graphs.forEach((g, store) -> merge(store, target.apply(g)));
+    }
+    return result;
+  }
+
+  /** Re-assert, so that terms are interned in the target and reified triples are named. */
+  private static void merge(Store from, Store to) {
+    for (RdfTriple t : from) {
+      if (!t.isSimple()) {
+        to.assertTriple(t.getUri(), t.getSubject(), t.getVerb(), t.getLiteralObject());
+      } else if (t.getUri() != null) {
+        to.assertAndNameTriple(t.getUri(), t.getSubject(), t.getVerb(), t.getObject());
+      } else {
+        to.assertTriple(null, t.getSubject(), t.getVerb(), t.getObject());
+      }
+    }
+  }
+
+  private void run(
+      Path path, Plan plan, Function<Integer, Function<String, ? extends TripleStore>> sinks)
+      throws IOException {
+    long start = System.currentTimeMillis();
+    // prefixes the store supplier starts out with, e.g. those of Skos
+    NamespaceService defaults = storeSupplier.get().getNamespaceService();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < plan.chunks.size(); i++) {
+        long[] chunk = plan.chunks.get(i);
+        Function<String, ? extends TripleStore> sink = sinks.apply(i);
+        MappedByteBuffer buffer =
+            channel.map(FileChannel.MapMode.READ_ONLY, chunk[0], chunk[1] - chunk[0]);
+        String source = String.format("%s@%d", path, chunk[0]);
+        NamespaceService ns = new NamespaceServiceImpl();
+        defaults.knownPrefixes().forEach(p -> ns.put(p, defaults.getFullForm(p)));
+        plan.prefixes.forEach(ns::put);
+        futures.add(
+            executor.submit(
+                () -> {
+                  ParseParametersFile pf =
+                      new ParseParametersFile(new ByteBufferInputStream(buffer), source);
+                  Turtle.parse(configure(pf), ns, sink);
+                }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException re) {
+        throw re;
+      }
+      throw new IOException(e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+    LOGGER.info(
+        "Parsed {} in {} chunks in {} seconds",
+        path,
+        plan.chunks.size(),
+        (System.currentTimeMillis() - start) / 1000);
+  }
+
+  private static ParseParameters configure(ParseParameters pf) {
+    return pf.withSingleCommentChar('#').withLineSeparator('\n');
+  }
+
+  /** Where to cut the file, and its prefixes; null if it must be read sequentially. */
+  Plan plan(Path path) throws IOException {
+    String name = path.getFileName().toString().toLowerCase();
+    if (name.endsWith(".gz") || name.endsWith(".zip")) {
+      return null;
+    }
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      long target =
+          chunkSize > 0
+              ? chunkSize
+              : Math.min(MAXIMUM_CHUNK_SIZE, Math.max(MINIMUM_CHUNK_SIZE, size / (4L * threads)));
+      Scanner scanner = new Scanner(target);
+      for (long position = 0; position < size; position += SCAN_WINDOW) {
+        long length = Math.min(SCAN_WINDOW, size - position);
+        scanner.scan(channel.map(FileChannel.MapMode.READ_ONLY, position, length), position);
+      }
+      scanner.end(size);
+
+      Map<String, String> prefixes = new LinkedHashMap<>();
+      for (long[] statement : scanner.directives) {
+        ByteBuffer text = ByteBuffer.allocate((int) (statement[1] - statement[0]));
+        channel.read(text, statement[0]);
+        Matcher m = PREFIX.matcher(new String(text.array(), StandardCharsets.UTF_8));
+        if (m.matches()) {
+          String previous = prefixes.put(m.group(1), m.group(2));
+          if (previous != null && !previous.equals(m.group(2))) {
+            LOGGER.info("Prefix {} is redefined in {}; reading sequentially", m.group(1), path);
+            return null;
+          }
+        }
+      }
+      return new Plan(scanner.chunks, prefixes);
+    }
+  }
+
+  record Plan(List<long[]> chunks, Map<String, String> prefixes) {}
+
+  /**
+   * Finds top-level statement terminators, tracking just enough of the Turtle syntax to know when a
+   * {@code .} is one: IRIs, short and long strings, comments and trig graph braces.
+   */
+  private static class Scanner {
+    private static final int CODE = 0, IRI = 1, STRING = 2, LONG_STRING = 3, COMMENT = 4;
+
+    final long target;
+    final List<long[]> chunks = new ArrayList<>();
+    // [start, end) of statements starting with '@' (prefix declarations)
+    final List<long[]> directives = new ArrayList<>();
+
+    int state = CODE;
+    int quotes; // consecutive '"' seen: opening a string in CODE, closing one in LONG_STRING
+    boolean escape;
+    int depth;
+    byte previous = '\n';
+    boolean terminator; // previous byte was a '.' that may end a statement
+    long chunkStart = 0;
+    long statementStart = -1;
+    boolean directive;
+
+    Scanner(long target) {
+      this.target = target;
+    }
+
+    void scan(ByteBuffer buffer, long offset) {
+      for (int i = 0, n = buffer.limit(); i < n; i++) {
+        byte b = buffer.get(i);
+        long position = offset + i;
+        if (terminator) {
+          terminator = false;
+          if (isWhite(b)) {
+            endStatement(position);
+          }
+        }
+        switch (state) {
+          case COMMENT -> {
+            if (b == '\n') {
+              state = CODE;
+            }
+          }
+          case IRI -> {
+            if (b == '>') {
+              state = CODE;
+            }
+          }
+          case STRING -> {
+            if (escape) {
+              escape = false;
+            } else if (b == '\\') {
+              escape = true;
+            } else if (b == '"') {
+              state = CODE;
+            }
+          }
+          case LONG_STRING -> {
+            quotes = b == '"' ? quotes + 1 : 0;
+            if (quotes == 3) {
+              quotes = 0;
+              state = CODE;
+            }
+          }
+          default -> code(b, position);
+        }
+        previous = b;
+      }
+    }
+
+    private void code(byte b, long position) {
+      if (quotes > 0) {
+        if (b == '"') {
+          if (++quotes == 3) {
+            quotes = 0;
+            state = LONG_STRING;
+          }
+          return;
+        }
+        if (quotes == 1) {
+          // one quote opened a string, and this is in it
+          quotes = 0;
+          state = STRING;
+          if (b == '\\') {
+            escape = true;
+          }
+          return;
+        }
+        quotes = 0; // "" was an empty string
+      }
+      if (statementStart < 0 && !isWhite(b) && b != '#') {
+        statementStart = position;
+        directive = b == '@';
+      }
+      switch (b) {
+        case '#' -> {
+          if (isWhite(previous)) {
+            state = COMMENT;
+          }
+        }
+        case '<' -> state = IRI;
+        case '"' -> quotes = 1;
+        case '{' -> depth++;
+        case '}' -> {
+          depth--;
+          if (depth == 0) {
+            endStatement(position + 1);
+          }
+        }
+        case '.' ->
+            terminator = depth == 0 && (isWhite(previous) || previous == '>' || previous == '"');
+        default -> {}
+      }
+    }
+
+    private void endStatement(long end) {
+      if (statementStart >= 0 && directive) {
+        directives.add(new long[] {statementStart, end});
+      }
+      statementStart = -1;
+      if (end - chunkStart >= target) {
+        chunks.add(new long[] {chunkStart, end});
+        chunkStart = end;
+      }
+    }
+
+    void end(long size) {
+      if (terminator) {
+        endStatement(size);
+      }
+      if (size > chunkStart) {
+        chunks.add(new long[] {chunkStart, size});
+      }
+    }
+
+    private static boolean isWhite(byte b) {
+      return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+  }
+
+  private static class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+
+    ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int n = Math.min(len, buffer.remaining());
+      buffer.get(b, off, n);
+      return n;
+    }
+  }
+}
@@ -0,0 +1,130 @@
+package org.curieo.rdf;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Sorted set of triple offsets in a growable {@code int[]}: 4 bytes per offset, where a hash set
+ * takes a boxed {@code Integer} and a node per offset. Offsets mostly come in ascending order, so
+ * adding is usually an append.
+ */
+final class PostingList {
+  /** Shared and empty; never add to it. */
+  static final PostingList EMPTY = new PostingList(0);
+
+  private static final int INITIAL_CAPACITY = 2;
+  // object header and fields, plus the array header
+  private static final int OVERHEAD = 32;
+
+  private int[] values;
+  private int size;
+
+  PostingList() {
+    this(INITIAL_CAPACITY);
+  }
+
+  private PostingList(int capacity) {
+    values = new int[capacity];
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  int get(int index) {
+    return values[index];
+  }
+
+  boolean contains(int value) {
+    return Arrays.binarySearch(values, 0, size, value) >= 0;
+  }
+
+  /**
+   * Galloping search, for intersecting lists: steps of 1, 2, 4, ... from {@code from}, then a
+   * binary search in the last step. Cheap when the value is near, as it is when walking a list.
+   *
+   * @return the index of the first value not less than {@code value}, at or after {@code from};
+   *     {@link #size()} if there is none
+   */
+  int advance(int from, int value) {
+    if (from >= size || values[from] >= value) {
+      return from;
+    }
+    int low = from, step = 1;
+    while (low + step < size && values[low + step] < value) {
+      low += step;
+      step <<= 1;
+    }
+    int index = Arrays.binarySearch(values, low + 1, Math.min(low + step, size), value);
+    return index >= 0 ? index : -index - 1;
+  }
+
+  /**
+   * @return false if the value was in the list already
+   */
+  boolean add(int value) {
+    int index;
+    if (size == 0 || values[size - 1] < value) {
+      index = size;
+    } else {
+      index = Arrays.binarySearch(values, 0, size, value);
+      if (index >= 0) {
+        return false;
+      }
+      index = -index - 1;
+    }
+    if (size == values.length) {
+      values = Arrays.copyOf(values, Math.max(INITIAL_CAPACITY, size + (size >> 1) + 1));
+    }
+    System.arraycopy(values, index, values, index + 1, size - index);
+    values[index] = value;
+    size++;
+    return true;
+  }
+
+  /**
+   * @return whether the value was in the list
+   */
+  boolean remove(int value) {
+    int index = Arrays.binarySearch(values, 0, size, value);
+    if (index < 0) {
+      return false;
+    }
+    System.arraycopy(values, index + 1, values, index, size - index - 1);
+    size--;
+    return true;
+  }
+
+  int[] toArray() {
+    return Arrays.copyOf(values, size);
+  }
+
+  PrimitiveIterator.OfInt iterator() {
+    return new PrimitiveIterator.OfInt() {
+      int index = 0;
+
+      @Override
+      public boolean hasNext() {
+        return index < size;
+      }
+
+      @Override
+      public int nextInt() {
+        if (index >= size) {
+          throw new NoSuchElementException();
+        }
+        return values[index++];
+      }
+    };
+  }
+
+  /** Approximate heap footprint. */
+  long sizeInBytes() {
+    return OVERHEAD + 4L * values.length;
+  }
+}
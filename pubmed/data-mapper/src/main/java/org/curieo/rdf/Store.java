@@ -8,18 +8,17 @@ import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.PrimitiveIterator;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
-import org.apache.commons.collections4.IterableUtils;
 import org.apache.commons.collections4.SetUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.curieo.utils.HashSet;
@@ -37,12 +36,23 @@ public class Store implements Collection<RdfTriple>, TripleStore, TripleIterable
    * Indexed to the URI - that must always be unique. You *can* insert triples without URI -- those
    * are anonymous are silently de-duplicated if inserted multiple times.
    */
-  private final Map<String, Set<Integer>> bySubject = new HashMap<>();
+  private final TermIndex bySubject = new TermIndex();
 
-  private final Map<String, Set<Integer>> byVerb = new HashMap<>();
-  private final Map<String, Set<Integer>> byObject = new HashMap<>();
+  private final TermIndex byVerb = new TermIndex();
+  private final TermIndex byObject = new TermIndex();
   private final Map<String, Integer> byUri = new HashMap<>();
+
+  /**
+   * Every subject, verb and (non-literal) object has an id; queries look the strings up once and
+   * then only compare ids.
+   */
+  private final TermDictionary terms = new TermDictionary();
+
   private RdfTriple[] triples = new RdfTriple[100];
+  // term ids of the triples, in columns parallel to the triples; -1 for a literal object
+  private int[] subjectIds = new int[100];
+  private int[] verbIds = new int[100];
+  private int[] objectIds = new int[100];
   private int size = 0;
   private int[] abandoned = new int[100];
   private int asize = 0;
@@ -64,10 +74,20 @@ public class Store implements Collection<RdfTriple>, TripleStore, TripleIterable
    */
   public String[] statistics() {
     return new String[] {
-      String.format("RDF store contains %d subjects", bySubject.size()),
-      String.format("RDF store contains %d objects", byObject.size()),
-      String.format("RDF store contains %d verbs", byVerb.size()),
-      String.format("RDF store contains %d triples", size())
+      String.format("RDF store contains %d subjects", bySubject.keys()),
+      String.format("RDF store contains %d objects", byObject.keys()),
+      String.format("RDF store contains %d verbs", byVerb.keys()),
+      String.format("RDF store contains %d triples", size()),
+      String.format(
+          "RDF store indexes hold %d triple offsets in %d KB",
+          bySubject.postings() + byVerb.postings() + byObject.postings(),
+          (bySubject.sizeInBytes()
+                  + byVerb.sizeInBytes()
+                  + byObject.sizeInBytes()
+                  + 12L * triples.length)
+              / 1024),
+      String.format(
+          "RDF store dictionary holds %d terms in %d KB", terms.size(), terms.sizeInBytes() / 1024)
     };
   }
 
@@ -113,18 +133,22 @@ public class Store implements Collection<RdfTriple>, TripleStore, TripleIterable
       r = size;
       if (size == triples.length) {
         triples = Arrays.copyOf(triples, size * 2);
+        subjectIds = Arrays.copyOf(subjectIds, size * 2);
+        verbIds = Arrays.copyOf(verbIds, size * 2);
+        objectIds = Arrays.copyOf(objectIds, size * 2);
       }
       size++;
     }
 
-    add(bySubject, triple.getSubject(), r);
+    subjectIds[r] = terms.add(triple.getSubject());
+    bySubject.add(subjectIds[r], r);
 
     // only index by object for non-literals
-    if (triple.isSimple()) {
-      add(byObject, triple.getObject(), r);
-    }
+    objectIds[r] = triple.isSimple() ? terms.add(triple.getObject()) : -1;
+    byObject.add(objectIds[r], r);
 
-    add(byVerb, triple.getVerb(), r);
+    verbIds[r] = terms.add(triple.getVerb());
+    byVerb.add(verbIds[r], r);
     if (uri != null) {
       byUri.put(uri, r);
     }
@@ -209,19 +233,7 @@ public class Store implements Collection<RdfTriple>, TripleStore, TripleIterable
    * @return
    */
   private String intern(String id) {
-    Set<Integer> existing = bySubject.get(id);
-    if (existing != null && !existing.isEmpty()) {
-      return triples[existing.iterator().next()].getSubject();
-    }
-    existing = byVerb.get(id);
-    if (existing != null && !existing.isEmpty()) {
-      return triples[existing.iterator().next()].getVerb();
-    }
-    existing = byObject.get(id);
-    if (existing != null && !existing.isEmpty()) {
-      return triples[existing.iterator().next()].getObject();
-    }
-    return id;
+    return terms.canonical(id);
   }
 
   /**
@@ -231,7 +243,7 @@ public class Store implements Collection<RdfTriple>, TripleStore, TripleIterable
    * @return
    */
   public TripleIterable getBySubject(String s) {
-    return new RdfTripleIterable(bySubject.getOrDefault(s, emptySet()));
+    return new RdfTripleIterable(offsets(bySubject.get(terms.id(s))));
   }
 
   /**
@@ -244,7 +256,10 @@ public class Store implements Collection<RdfTriple>, TripleStore, TripleIterable
    */
   public TripleIterable getTriples(String subject, String verb, String object) {
     return new RdfTripleIterable(
-        safeIntersection(bySubject.get(subject), byVerb.get(verb), byObject.get(object)));
+        safeIntersection(
+            bySubject.get(terms.id(subject)),
+            byVerb.get(terms.id(verb)),
+            byObject.get(terms.id(object))));
   }
 
   /**
@@ -276,7 +291,9 @@ public class Store implements Collection<RdfTriple>, TripleStore, TripleIterable
    * @return verbs
    */
   public Collection<String> getVerbs() {
-    return byVerb.keySet();
+    List<String> verbs = new ArrayList<>(byVerb.keys());
+    byVerb.terms().forEachRemaining((int v) -> verbs.add(terms.term(v)));
+    return verbs;
   }
 
   /**
@@ -287,7 +304,8 @@ public class Store implements Collection<RdfTriple>, TripleStore, TripleIterable
    * @return
    */
   public TripleIterable getBySubjectAndVerb(String s, String v) {
-    return new RdfTripleIterable(safeIntersection(bySubject.get(s), byVerb.get(v)));
+    return new RdfTripleIterable(
+        safeIntersection(bySubject.get(terms.id(s)), byVerb.get(terms.id(v))));
   }
 
   /**
@@ -300,7 +318,8 @@ public class Store implements Collection<RdfTriple>, TripleStore, TripleIterable
   public List<String> getContainer(String s, String v) {
     List<String[]> values = new ArrayList<>();
     for (String object :
-        new RdfTripleIterable(safeIntersection(bySubject.get(s), byVerb.get(v))).objects()) {
+        new RdfTripleIterable(safeIntersection(bySubject.get(terms.id(s)), byVerb.get(terms.id(v))))
+            .objects()) {
       int size = values.size();
       getBySubject(object)
           .filter(Store::isMember)
@@ -328,7 +347,7 @@ public class Store implements Collection<RdfTriple>, TripleStore, TripleIterable
    * @return
    */
   public int countBySubjectAndVerb(String s, String verb) {
-    return IterableUtils.size(safeIntersection(bySubject.get(s), byVerb.get(verb)));
+    return count(safeIntersection(bySubject.get(terms.id(s)), byVerb.get(terms.id(verb))));
   }
 
   /**
@@ -339,7 +358,7 @@ public class Store implements Collection<RdfTriple>, TripleStore, TripleIterable
    * @return count
    */
   public int countByVerbAndObject(String v, String o) {
-    return IterableUtils.size(safeIntersection(byVerb.get(v), byObject.get(o)));
+    return count(safeIntersection(byVerb.get(terms.id(v)), byObject.get(terms.id(o))));
   }
 
   /**
@@ -350,12 +369,12 @@ public class Store implements Collection<RdfTriple>, TripleStore, TripleIterable
    */
   public TripleIterable getByVerb(String... verbs) {
     if (verbs.length == 0) {
-      return new RdfTripleIterable(Collections.emptyList());
+      return new RdfTripleIterable(offsets(null));
     } else if (verbs.length == 1) {
-      return new RdfTripleIterable(byVerb.getOrDefault(verbs[0], emptySet()));
+      return new RdfTripleIterable(offsets(byVerb.get(terms.id(verbs[0]))));
     } else {
       return Stream.of(verbs)
-              .flatMap(v -> new RdfTripleIterable(byVerb.getOrDefault(v, emptySet())).stream())
+              .flatMap(v -> new RdfTripleIterable(offsets(byVerb.get(terms.id(v)))).stream())
           ::iterator;
     }
   }
@@ -367,22 +386,25 @@ public class Store implements Collection<RdfTriple>, TripleStore, TripleIterable
    * @return the number of triples
    */
   public int countByVerb(String verb) {
-    return byVerb.getOrDefault(verb, emptySet()).size();
+    PostingList list = byVerb.get(terms.id(verb));
+    return list == null ? 0 : list.size();
   }
 
   /**
    * @return all triples by object
    */
   public TripleIterable getByObject(String o) {
-    return new RdfTripleIterable(byObject.getOrDefault(o, emptySet()));
+    return new RdfTripleIterable(offsets(byObject.get(terms.id(o))));
   }
 
   public TripleIterable getBySubjectAndObject(String subject, String object) {
-    return new RdfTripleIterable(safeIntersection(bySubject.get(subject), byObject.get(object)));
+    return new RdfTripleIterable(
+        safeIntersection(bySubject.get(terms.id(subject)), byObject.get(terms.id(object))));
   }
 
   public TripleIterable getByVerbAndObject(String verb, String object) {
-    return new RdfTripleIterable(safeIntersection(byVerb.get(verb), byObject.get(object)));
+    return new RdfTripleIterable(
+        safeIntersection(byVerb.get(terms.id(verb)), byObject.get(terms.id(object))));
   }
 
   /**
@@ -513,7 +535,8 @@ public class Store implements Collection<RdfTriple>, TripleStore, TripleIterable
    */
   public int replaceUri(final String olduri, final String newuri) {
     int repl = 0;
-    Set<Integer> set = bySubject.remove(olduri);
+    int oldId = terms.id(olduri);
+    PostingList set = bySubject.removeAll(oldId);
     if (set != null) {
       List<RdfTriple> removed = remove(set);
       for (RdfTriple rt : removed) {
@@ -523,7 +546,7 @@ public class Store implements Collection<RdfTriple>, TripleStore, TripleIterable
       repl += removed.size();
     }
 
-    set = byObject.remove(olduri);
+    set = byObject.removeAll(oldId);
     if (set != null) {
       List<RdfTriple> removed = remove(set);
       for (RdfTriple rt : removed) {
@@ -532,7 +555,7 @@ public class Store implements Collection<RdfTriple>, TripleStore, TripleIterable
       repl += removed.size();
     }
 
-    set = byVerb.remove(olduri);
+    set = byVerb.removeAll(oldId);
     if (set != null) {
       List<RdfTriple> removed = remove(set);
       for (RdfTriple rt : removed) {
@@ -552,130 +575,103 @@ public class Store implements Collection<RdfTriple>, TripleStore, TripleIterable
     return repl;
   }
 
-  private List<RdfTriple> remove(Set<Integer> set) {
-    return set.stream().map(this::removeTriple).collect(Collectors.toList());
+  private List<RdfTriple> remove(PostingList set) {
+    List<RdfTriple> removed = new ArrayList<>(set.size());
+    for (int t : set.toArray()) {
+      removed.add(removeTriple(t));
+    }
+    return removed;
   }
 
-  /**
-   * Add a key-value pair to a 1-many map.
-   *
-   * @param to map to add to
-   * @param key
-   * @param value
-   */
-  private static void add(Map<String, Set<Integer>> to, String key, Integer value) {
-    to.computeIfAbsent(key, k -> new HashSet<>()).add(value);
+  /** The triple offsets of a posting list, or none if there is no list. */
+  private static Offsets offsets(PostingList list) {
+    return list == null ? PostingList.EMPTY::iterator : list::iterator;
   }
 
-  /**
-   * Intersection that does not crash on nulls
-   *
-   * @param a
-   * @param b
-   * @return
-   */
-  private static Iterable<Integer> safeIntersection(Set<Integer> a, Set<Integer> b) {
-    if (a == null || b == null) return emptySet();
-    // smallest first
-    if (a.size() > b.size()) {
-      return new IntersectIterable(b, a);
-    } else {
-      return new IntersectIterable(a, b);
+  private static int count(Offsets offsets) {
+    int count = 0;
+    for (PrimitiveIterator.OfInt it = offsets.iterator(); it.hasNext(); it.nextInt()) {
+      count++;
     }
+    return count;
   }
 
-  private static Iterable<Integer> safeIntersection(
-      Set<Integer> a, Set<Integer> b, Set<Integer> c) {
-    if (a == null || b == null || c == null) return emptySet();
+  /** Offsets of triples, in ascending order. */
+  @FunctionalInterface
+  private interface Offsets {
+    PrimitiveIterator.OfInt iterator();
+  }
 
-    // abc, acb, bac, bca, cab, cba
-    // order by size
-    if (a.size() > b.size()) {
-      // b <= a
-      if (c.size() > b.size()) {
-        // b < c, b <= a
-        if (c.size() > a.size()) {
-          // b < a <= c
-          return new IntersectIterable(b, a, c);
-        }
-        // b < c <= a
-        return new IntersectIterable(b, c, a);
-      } else if (c.size() > a.size()) {
-        // c <= a, c <= b, b < a
-        return new IntersectIterable(c, b, a);
-      } else {
-        // a <= c, c <= b, b < a
-        return new IntersectIterable(b, c, a);
-      }
-    } else {
-      // a <= b
-      if (c.size() > b.size()) {
-        // a <= b, b < c
-        return new IntersectIterable(a, b, c);
-      } else {
-        // a <= b, c <= b
-        if (a.size() > c.size()) {
-          // c < a, a <= b
-          return new IntersectIterable(c, a, b);
-        } else {
-          // a <= c, a <= b, c <= b
-          return new IntersectIterable(a, c, b);
-        }
+  /**
+   * Intersection that does not crash on nulls. The lists are intersected smallest first, so the
+   * cost follows the most selective key rather than a high fan-out one like {@code rdf:type}.
+   *
+   * @param lists posting lists, null for a term without triples
+   * @return offsets in all the lists
+   */
+  private static Offsets safeIntersection(PostingList... lists) {
+    for (PostingList list : lists) {
+      if (list == null) {
+        return offsets(null);
       }
     }
+    PostingList[] bySize = lists.clone();
+    Arrays.sort(bySize, Comparator.comparingInt(PostingList::size));
+    return () -> new IntersectIterator(bySize);
   }
 
-  private static class IntersectIterable implements Iterable<Integer> {
-    private final Iterable<Integer> a;
-    private final Set<Integer> b;
-
-    IntersectIterable(Iterable<Integer> a, Set<Integer> b) {
-      this.a = a;
-      this.b = b;
-    }
-
-    IntersectIterable(Iterable<Integer> a, Set<Integer> b, Set<Integer> c) {
-      this(new IntersectIterable(a, b), c);
-    }
-
-    @Override
-    public Iterator<Integer> iterator() {
-      return new IntersectIterator();
+  /**
+   * Leapfrog intersection of sorted lists: every list gallops to the candidate offset, and a list
+   * that overshoots it moves the candidate up.
+   */
+  private static class IntersectIterator implements PrimitiveIterator.OfInt {
+    private final PostingList[] lists;
+    private final int[] cursors;
+    private int current;
+
+    IntersectIterator(PostingList[] lists) {
+      this.lists = lists;
+      this.cursors = new int[lists.length];
+      moveNext();
     }
 
-    class IntersectIterator implements Iterator<Integer> {
-      private final Iterator<Integer> ait;
-      private Integer current;
-
-      IntersectIterator() {
-        ait = a.iterator();
-        moveNext();
-      }
-
-      private void moveNext() {
-        while (ait.hasNext()) {
-          current = ait.next();
-          if (b.contains(current)) {
-            return;
+    private void moveNext() {
+      PostingList first = lists[0];
+      int candidate;
+      search:
+      while (cursors[0] < first.size()) {
+        candidate = first.get(cursors[0]);
+        for (int i = 1; i < lists.length; i++) {
+          int cursor = cursors[i] = lists[i].advance(cursors[i], candidate);
+          if (cursor == lists[i].size()) {
+            break search;
+          }
+          int value = lists[i].get(cursor);
+          if (value > candidate) {
+            cursors[0] = first.advance(cursors[0] + 1, value);
+            continue search;
           }
         }
-        current = null;
+        cursors[0]++;
+        current = candidate;
+        return;
       }
+      current = -1;
+    }
 
-      @Override
-      public boolean hasNext() {
-        return current != null;
-      }
+    @Override
+    public boolean hasNext() {
+      return current >= 0;
+    }
 
-      @Override
-      public Integer next() {
-        if (current == null) {
-          throw new NoSuchElementException();
-        }
-        Integer n = current;
-        moveNext();
-        return n;
+    @Override
+    public int nextInt() {
+      if (current < 0) {
+        throw new NoSuchElementException();
       }
+      int n = current;
+      moveNext();
+      return n;
     }
   }
 
@@ -711,7 +707,10 @@ public class Store implements Collection<RdfTriple>, TripleStore, TripleIterable
   }
 
   public boolean contains(String subject, String verb, String object) {
-    return safeIntersection(bySubject.get(subject), byVerb.get(verb), byObject.get(object))
+    return safeIntersection(
+            bySubject.get(terms.id(subject)),
+            byVerb.get(terms.id(verb)),
+            byObject.get(terms.id(object)))
         .iterator()
         .hasNext();
   }
@@ -760,25 +759,12 @@ public class Store implements Collection<RdfTriple>, TripleStore, TripleIterable
     return old == e;
   }
 
-  private RdfTriple removeTriple(Integer t) {
+  private RdfTriple removeTriple(int t) {
     RdfTriple rt = triples[t];
     triples[t] = null; // remove
-    Set<Integer> set;
-    set = bySubject.get(rt.getSubject());
-    if (set != null && set.remove(t) && set.isEmpty()) {
-      bySubject.remove(rt.getSubject());
-    }
-    set = byVerb.get(rt.getVerb());
-    if (set != null && set.remove(t) && set.isEmpty()) {
-      byVerb.remove(rt.getVerb());
-    }
-
-    if (rt.isSimple()) {
-      set = byObject.get(rt.getObject());
-      if (set != null && set.remove(t) && set.isEmpty()) {
-        byObject.remove(rt.getObject());
-      }
-    }
+    bySubject.remove(subjectIds[t], t);
+    byVerb.remove(verbIds[t], t);
+    byObject.remove(objectIds[t], t);
 
     if (rt.getUri() != null) {
       byUri.remove(rt.getUri());
@@ -810,7 +796,12 @@ public class Store implements Collection<RdfTriple>, TripleStore, TripleIterable
       return i != null;
     }
     List<Integer> remove = new ArrayList<>();
-    for (Integer i : safeIntersection(bySubject.get(o.getSubject()), byVerb.get(o.getVerb()))) {
+    for (PrimitiveIterator.OfInt it =
+            safeIntersection(
+                    bySubject.get(terms.id(o.getSubject())), byVerb.get(terms.id(o.getVerb())))
+                .iterator();
+        it.hasNext(); ) {
+      int i = it.nextInt();
       if (triples[i].equals(o)) {
         remove.add(i);
       }
@@ -821,9 +812,10 @@ public class Store implements Collection<RdfTriple>, TripleStore, TripleIterable
 
   public boolean removeByUri(String uri) {
     Set<Integer> triplesToRemove = new HashSet<>();
-    triplesToRemove.addAll(SetUtils.emptyIfNull(bySubject.get(uri)));
-    triplesToRemove.addAll(SetUtils.emptyIfNull(byObject.get(uri)));
-    triplesToRemove.addAll(SetUtils.emptyIfNull(byVerb.get(uri)));
+    int id = terms.id(uri);
+    offsets(bySubject.get(id)).iterator().forEachRemaining((int t) -> triplesToRemove.add(t));
+    offsets(byObject.get(id)).iterator().forEachRemaining((int t) -> triplesToRemove.add(t));
+    offsets(byVerb.get(id)).iterator().forEachRemaining((int t) -> triplesToRemove.add(t));
     Integer i = byUri.get(uri);
     if (i != null) {
       triplesToRemove.add(i);
@@ -872,6 +864,7 @@ public class Store implements Collection<RdfTriple>, TripleStore, TripleIterable
     bySubject.clear();
     byVerb.clear();
     byObject.clear();
+    terms.clear();
     byUri.clear();
     size = 0;
     asize = 0;
@@ -899,9 +892,9 @@ public class Store implements Collection<RdfTriple>, TripleStore, TripleIterable
   }
 
   private class RdfTripleIterable implements TripleIterable {
-    private final Iterable<Integer> offsets;
+    private final Offsets offsets;
 
-    private RdfTripleIterable(Iterable<Integer> offsets) {
+    private RdfTripleIterable(Offsets offsets) {
       this.offsets = offsets;
     }
 
@@ -911,7 +904,7 @@ public class Store implements Collection<RdfTriple>, TripleStore, TripleIterable
     }
 
     private class RdfTripleIterator implements Iterator<RdfTriple> {
-      private final Iterator<Integer> iterator;
+      private final PrimitiveIterator.OfInt iterator;
 
       RdfTripleIterator() {
         this.iterator = offsets.iterator();
@@ -924,7 +917,7 @@ public class Store implements Collection<RdfTriple>, TripleStore, TripleIterable
 
       @Override
       public RdfTriple next() {
-        return triples[iterator.next()];
+        return triples[iterator.nextInt()];
       }
     }
   }
@@ -1014,10 +1007,12 @@ public class Store implements Collection<RdfTriple>, TripleStore, TripleIterable
       pr.println(INDENT + "<!-- " + comment + "-->");
     }
 
-    for (Entry<String, Set<Integer>> bs : bySubject.entrySet()) {
-      pr.println(INDENT + "<rdf:Description rdf:about=\"" + bs.getKey() + "\">");
-      for (Integer i : bs.getValue()) {
-        pr.println(INDENT + INDENT + this.triples[i].asRdfXml(namespaceService));
+    for (PrimitiveIterator.OfInt it = bySubject.terms(); it.hasNext(); ) {
+      int subject = it.nextInt();
+      pr.println(INDENT + "<rdf:Description rdf:about=\"" + terms.term(subject) + "\">");
+      PostingList offsets = bySubject.get(subject);
+      for (int i = 0; i < offsets.size(); i++) {
+        pr.println(INDENT + INDENT + this.triples[offsets.get(i)].asRdfXml(namespaceService));
       }
       pr.println(INDENT + "</rdf:Description>");
     }
@@ -0,0 +1,105 @@
+package org.curieo.rdf;
+
+import java.util.Arrays;
+
+/**
+ * Numbers the distinct terms (URIs) of a store 0, 1, 2, ... Ids are never reused, so they stay
+ * valid after the triples with a term are removed. Keeps one canonical instance of every term.
+ *
+ * <p>An open addressing table of ids into an array of terms: no entry objects, no boxed ids.
+ */
+final class TermDictionary {
+  private static final int INITIAL_CAPACITY = 16;
+
+  private String[] terms = new String[INITIAL_CAPACITY];
+  private int size;
+  // id + 1 of the term hashed to a slot; 0 for an empty slot
+  private int[] slots = new int[2 * INITIAL_CAPACITY];
+
+  /**
+   * @return the id of the term, or -1 if it is not in the dictionary
+   */
+  int id(String term) {
+    if (term == null) {
+      return -1;
+    }
+    int mask = slots.length - 1;
+    for (int slot = hash(term) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+      int id = slots[slot] - 1;
+      if (terms[id].equals(term)) {
+        return id;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return the id of the term, added if it is new; -1 for null
+   */
+  int add(String term) {
+    if (term == null) {
+      return -1;
+    }
+    int mask = slots.length - 1;
+    int slot = hash(term) & mask;
+    for (; slots[slot] != 0; slot = (slot + 1) & mask) {
+      int id = slots[slot] - 1;
+      if (terms[id].equals(term)) {
+        return id;
+      }
+    }
+    if (size == terms.length) {
+      terms = Arrays.copyOf(terms, 2 * size);
+    }
+    int id = size++;
+    terms[id] = term;
+    slots[slot] = id + 1;
+    if (4 * size > 3 * slots.length) {
+      rehash();
+    }
+    return id;
+  }
+
+  String term(int id) {
+    return terms[id];
+  }
+
+  /** The instance of the term in the dictionary, or the term itself if it is not there. */
+  String canonical(String term) {
+    int id = id(term);
+    return id < 0 ? term : terms[id];
+  }
+
+  int size() {
+    return size;
+  }
+
+  void clear() {
+    Arrays.fill(terms, 0, size, null);
+    Arrays.fill(slots, 0);
+    size = 0;
+  }
+
+  /** Heap taken by the tables; the strings themselves are shared with the triples. */
+  long sizeInBytes() {
+    return 4L * (terms.length + slots.length);
+  }
+
+  private void rehash() {
+    int[] rehashed = new int[2 * slots.length];
+    int mask = rehashed.length - 1;
+    for (int id = 0; id < size; id++) {
+      int slot = hash(terms[id]) & mask;
+      while (rehashed[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      rehashed[slot] = id + 1;
+    }
+    slots = rehashed;
+  }
+
+  private static int hash(String term) {
+    int h = term.hashCode();
+    return h ^ (h >>> 16);
+  }
+}
@@ -0,0 +1,116 @@
+package org.curieo.rdf;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/** Posting lists of triple offsets by term id (see {@link TermDictionary}). */
+final class TermIndex {
+  private PostingList[] lists = new PostingList[16];
+  private int keys;
+
+  /**
+   * @return the posting list of the term, or null if no triple has it
+   */
+  PostingList get(int term) {
+    return term < 0 || term >= lists.length ? null : lists[term];
+  }
+
+  void add(int term, int offset) {
+    if (term < 0) {
+      return;
+    }
+    if (term >= lists.length) {
+      lists = Arrays.copyOf(lists, Math.max(term + 1, 2 * lists.length));
+    }
+    PostingList list = lists[term];
+    if (list == null) {
+      list = lists[term] = new PostingList();
+      keys++;
+    }
+    list.add(offset);
+  }
+
+  /** Remove an offset; the list of the term is dropped when it runs empty. */
+  void remove(int term, int offset) {
+    PostingList list = get(term);
+    if (list != null && list.remove(offset) && list.isEmpty()) {
+      lists[term] = null;
+      keys--;
+    }
+  }
+
+  /**
+   * Drop the posting list of a term.
+   *
+   * @return the list, or null if there was none
+   */
+  PostingList removeAll(int term) {
+    PostingList list = get(term);
+    if (list != null) {
+      lists[term] = null;
+      keys--;
+    }
+    return list;
+  }
+
+  /** The number of terms with a posting list. */
+  int keys() {
+    return keys;
+  }
+
+  /** Ids of the terms with a posting list, ascending. */
+  PrimitiveIterator.OfInt terms() {
+    return new PrimitiveIterator.OfInt() {
+      int next = advance(0);
+
+      private int advance(int from) {
+        while (from < lists.length && lists[from] == null) {
+          from++;
+        }
+        return from;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return next < lists.length;
+      }
+
+      @Override
+      public int nextInt() {
+        if (next >= lists.length) {
+          throw new NoSuchElementException();
+        }
+        int term = next;
+        next = advance(next + 1);
+        return term;
+      }
+    };
+  }
+
+  long postings() {
+    long postings = 0;
+    for (PostingList list : lists) {
+      if (list != null) {
+        postings += list.size();
+      }
+    }
+    return postings;
+  }
+
+  /** Approximate heap footprint. */
+  long sizeInBytes() {
+    long bytes = 4L * lists.length;
+    for (PostingList list : lists) {
+      if (list != null) {
+        bytes += list.sizeInBytes();
+      }
+    }
+    return bytes;
+  }
+
+  void clear() {
+    Arrays.fill(lists, null);
+    keys = 0;
+  }
+}
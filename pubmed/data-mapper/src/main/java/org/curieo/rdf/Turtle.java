@@ -4,6 +4,7 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URLDecoder;
@@ -11,6 +12,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -46,23 +48,31 @@ public class Turtle {
   }
 
   public Map<String, Store> read(File file) throws IOException {
-    if (file.getName().toLowerCase().endsWith(".zip")) {
-      try (ZipFile zipFile = new ZipFile(file)) {
-        ZipEntry entry = zipFile.entries().nextElement();
-        try (InputStream is = zipFile.getInputStream(entry)) {
-          return read(is, file.getName());
+    try (InputStream is = open(file)) {
+      return read(is, file.getName());
+    }
+  }
+
+  /**
+   * Open a file, decompressed if it is gzipped ({@code .gz}), or the first entry of a {@code .zip}.
+   */
+  static InputStream open(File file) throws IOException {
+    String name = file.getName().toLowerCase();
+    if (name.endsWith(".zip")) {
+      ZipFile zipFile = new ZipFile(file);
+      ZipEntry entry = zipFile.entries().nextElement();
+      return new FilterInputStream(zipFile.getInputStream(entry)) {
+        @Override
+        public void close() throws IOException {
+          try (zipFile) {
+            super.close();
+          }
         }
-      }
-    } else if (file.getName().toLowerCase().endsWith(".gz")) {
-      try (FileInputStream fis = new FileInputStream(file);
-          GZIPInputStream is = new GZIPInputStream(fis)) {
-        return read(is, file.getName());
-      }
-    } else {
-      try (FileInputStream fis = new FileInputStream(file)) {
-        return read(fis, file.getName());
-      }
+      };
+    } else if (name.endsWith(".gz")) {
+      return new GZIPInputStream(new FileInputStream(file));
     }
+    return new FileInputStream(file);
   }
 
   public Map<String, Store> read(InputStream is, String source) throws IOException {
@@ -82,10 +92,33 @@ public class Turtle {
   }
 
   private void parse(ParseParameters pf) {
+    Store store = storeSupplier.get();
+    NamespaceService ns = store.getNamespaceService();
+    graphs.put(DEFAULT, new AsyncTripleSink<>(store));
+    parse(
+        pf,
+        ns,
+        graph ->
+            graphs.computeIfAbsent(
+                graph,
+                g -> {
+                  Store t = storeSupplier.get();
+                  ns.knownPrefixes()
+                      .forEach(p -> t.getNamespaceService().put(p, ns.getFullForm(p)));
+                  return new AsyncTripleSink<>(t);
+                }));
+  }
+
+  /**
+   * Parse statements into the graphs; outside of a trig graph, statements go to the {@link
+   * #DEFAULT} graph.
+   *
+   * @param ns prefixes declared in the input are added to this
+   * @param graphs sink for every graph identifier
+   */
+  static void parse(
+      ParseParameters pf, NamespaceService ns, Function<String, ? extends TripleStore> graphs) {
     try {
-      Store store = storeSupplier.get();
-      NamespaceService ns = store.getNamespaceService();
-      graphs.put(DEFAULT, new AsyncTripleSink<>(store));
       String currentGraph = DEFAULT;
       while (!pf.done()) {
         pf.skipWhite();
@@ -117,14 +150,7 @@ public class Turtle {
             pf.skipWhite();
             if (pf.peek(0) == '{') {
               currentGraph = subject.getString();
-              graphs.computeIfAbsent(
-                  currentGraph,
-                  g -> {
-                    Store t = storeSupplier.get();
-                    ns.knownPrefixes()
-                        .forEach(p -> t.getNamespaceService().put(p, ns.getFullForm(p)));
-                    return new AsyncTripleSink<>(t);
-                  });
+              graphs.apply(currentGraph);
               pf.eat();
               continue;
             }
@@ -135,12 +161,12 @@ public class Turtle {
           if (reification != null) {
             String id = String.format(REIFICATION_BASE, REIFICATION_COUNTER.incrementAndGet());
             graphs
-                .get(currentGraph)
+                .apply(currentGraph)
                 .assertAndNameTriple(id, reification[0], reification[1], reification[2]);
             subject = new RdfItem(id);
-            assertTriple(graphs.get(currentGraph), subject, verb, object);
+            assertTriple(graphs.apply(currentGraph), subject, verb, object);
           } else {
-            assertTriple(graphs.get(currentGraph), subject, verb, object);
+            assertTriple(graphs.apply(currentGraph), subject, verb, object);
           }
 
           boolean stop = false;
@@ -152,12 +178,12 @@ public class Turtle {
                 break;
               case ',':
                 object = parseRdfThing(pf, ns);
-                assertTriple(graphs.get(currentGraph), subject, verb, object);
+                assertTriple(graphs.apply(currentGraph), subject, verb, object);
                 break;
               case ';':
                 verb = parseRdfThing(pf, ns).expandVerb();
                 object = parseRdfThing(pf, ns);
-                assertTriple(graphs.get(currentGraph), subject, verb, object);
+                assertTriple(graphs.apply(currentGraph), subject, verb, object);
                 break;
               default:
                 stop = true;
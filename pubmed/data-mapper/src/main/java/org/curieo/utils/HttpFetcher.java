@@ -0,0 +1,118 @@
+package org.curieo.utils;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * The HTTP client for all outgoing requests. It wraps a single {@link HttpClient}, so connections
+ * (HTTP/2 where the server supports it) are pooled and reused across requests, and its internal
+ * work runs on virtual threads. Requests block, which is cheap when the caller is a virtual thread
+ * as well, so hundreds of requests can be in flight without a thread pool to size.
+ *
+ * <p>Thread safe; use {@link #shared()} rather than creating instances.
+ */
+public class HttpFetcher {
+  public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+  public static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(120);
+
+  private static volatile HttpFetcher shared =
+      new HttpFetcher(DEFAULT_CONNECT_TIMEOUT, DEFAULT_REQUEST_TIMEOUT);
+
+  private final HttpClient client;
+  private final Duration requestTimeout;
+
+  /**
+   * @param connectTimeout to establish a connection
+   * @param requestTimeout until the response headers are in
+   */
+  public HttpFetcher(Duration connectTimeout, Duration requestTimeout) {
+    this.requestTimeout = Objects.requireNonNull(requestTimeout);
+    this.client =
+        HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(connectTimeout)
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+  }
+
+  public static HttpFetcher shared() {
+    return shared;
+  }
+
+  /** Replace the shared fetcher, e.g. to apply configured timeouts at startup. */
+  public static void configureShared(Duration connectTimeout, Duration requestTimeout) {
+    shared = new HttpFetcher(connectTimeout, requestTimeout);
+  }
+
+  /** A GET request builder with the configured timeout. */
+  public HttpRequest.Builder request(URI uri) {
+    return HttpRequest.newBuilder(uri).timeout(requestTimeout);
+  }
+
+  public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler)
+      throws IOException {
+    try {
+      return client.send(request, handler);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      InterruptedIOException interrupted = new InterruptedIOException(request.uri().toString());
+      interrupted.initCause(e);
+      throw interrupted;
+    }
+  }
+
+  /**
+   * Download into a file.
+   *
+   * @return true if the server responded with 200 OK; otherwise the file is left untouched.
+   */
+  public boolean download(URI uri, Path target) throws IOException {
+    HttpResponse<Path> response =
+        send(
+            request(uri).GET().build(),
+            info ->
+                info.statusCode() == 200
+                    ? HttpResponse.BodySubscribers.ofFile(target, CREATE, WRITE, TRUNCATE_EXISTING)
+                    : HttpResponse.BodySubscribers.replacing(null));
+    return response.statusCode() == 200;
+  }
+
+  /** POST form parameters, and stream back the response. */
+  public HttpResponse<InputStream> postForm(URI uri, Map<String, String> parameters)
+      throws IOException {
+    HttpRequest request =
+        request(uri)
+            .header("Content-Type", "application/x-www-form-urlencoded")
+            .POST(HttpRequest.BodyPublishers.ofString(formEncode(parameters)))
+            .build();
+    return send(request, HttpResponse.BodyHandlers.ofInputStream());
+  }
+
+  public static String formEncode(Map<String, String> parameters) {
+    return parameters.entrySet().stream()
+        .map(
+            e ->
+                URLEncoder.encode(e.getKey(), StandardCharsets.UTF_8)
+                    + "="
+                    + URLEncoder.encode(e.getValue(), StandardCharsets.UTF_8))
+        .collect(Collectors.joining("&"));
+  }
+}
@@ -0,0 +1,603 @@
+package org.curieo.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Compressed set of non-negative {@code int}s, after Roaring bitmaps (https://roaringbitmap.org):
+ * the values are split into chunks of 2<sup>16</sup> on their high 16 bits, and every chunk keeps
+ * its low 16 bits either in a sorted array (up to 4096 values, 2 bytes per value) or in a bitmap of
+ * 8 KB. The 40 million or so PubMed identifiers take about 5 MB.
+ *
+ * <p>Not thread safe.
+ */
+public class IntBitmap implements Iterable<Integer> {
+  private static final int MAGIC = 0x49424d31; // "IBM1"
+  private static final int ARRAY_MAXIMUM = 4096;
+  private static final int BITMAP_WORDS = 1 << 10;
+  private static final byte ARRAY = 0;
+  private static final byte BITMAP = 1;
+
+  // sorted high 16 bits, and the container of the low 16 bits for each
+  private char[] keys = new char[4];
+  private Container[] containers = new Container[4];
+  private int chunks;
+
+  public boolean contains(int value) {
+    if (value < 0) {
+      return false;
+    }
+    int chunk = find(high(value));
+    return chunk >= 0 && containers[chunk].contains(low(value));
+  }
+
+  /**
+   * @return whether the value was not in the set before
+   */
+  public boolean add(int value) {
+    if (value < 0) {
+      throw new IllegalArgumentException(String.format("Cannot store %d", value));
+    }
+    char high = high(value);
+    int chunk = find(high);
+    if (chunk < 0) {
+      chunk = -chunk - 1;
+      insertChunk(chunk, high, new ArrayContainer());
+    }
+    Container container = containers[chunk];
+    int before = container.cardinality();
+    containers[chunk] = container.add(low(value));
+    return containers[chunk].cardinality() > before;
+  }
+
+  /**
+   * @return whether the value was in the set
+   */
+  public boolean remove(int value) {
+    if (value < 0) {
+      return false;
+    }
+    int chunk = find(high(value));
+    if (chunk < 0) {
+      return false;
+    }
+    Container container = containers[chunk];
+    int before = container.cardinality();
+    Container after = container.remove(low(value));
+    if (after == null) {
+      removeChunk(chunk);
+    } else {
+      containers[chunk] = after;
+    }
+    return after == null || after.cardinality() < before;
+  }
+
+  public int size() {
+    int size = 0;
+    for (int i = 0; i < chunks; i++) {
+      size += containers[i].cardinality();
+    }
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return chunks == 0;
+  }
+
+  public void clear() {
+    Arrays.fill(containers, 0, chunks, null);
+    chunks = 0;
+  }
+
+  /** The values in ascending order. */
+  @Override
+  public PrimitiveIterator.OfInt iterator() {
+    return new PrimitiveIterator.OfInt() {
+      int chunk = 0;
+      int next = chunks == 0 ? -1 : containers[0].next(0);
+
+      @Override
+      public boolean hasNext() {
+        return next >= 0;
+      }
+
+      @Override
+      public int nextInt() {
+        if (next < 0) {
+          throw new NoSuchElementException();
+        }
+        int value = (keys[chunk] << 16) | next;
+        next = next == 0xffff ? -1 : containers[chunk].next(next + 1);
+        while (next < 0 && ++chunk < chunks) {
+          next = containers[chunk].next(0);
+        }
+        return value;
+      }
+    };
+  }
+
+  /** Values in both {@code a} and {@code b}. */
+  public static IntBitmap and(IntBitmap a, IntBitmap b) {
+    IntBitmap result = new IntBitmap();
+    int i = 0, j = 0;
+    while (i < a.chunks && j < b.chunks) {
+      if (a.keys[i] < b.keys[j]) {
+        i++;
+      } else if (a.keys[i] > b.keys[j]) {
+        j++;
+      } else {
+        result.appendChunk(a.keys[i], a.containers[i++].and(b.containers[j++]));
+      }
+    }
+    return result;
+  }
+
+  /** Values in {@code a} or {@code b}. */
+  public static IntBitmap or(IntBitmap a, IntBitmap b) {
+    IntBitmap result = new IntBitmap();
+    int i = 0, j = 0;
+    while (i < a.chunks || j < b.chunks) {
+      if (j == b.chunks || (i < a.chunks && a.keys[i] < b.keys[j])) {
+        result.appendChunk(a.keys[i], a.containers[i++].copy());
+      } else if (i == a.chunks || a.keys[i] > b.keys[j]) {
+        result.appendChunk(b.keys[j], b.containers[j++].copy());
+      } else {
+        result.appendChunk(a.keys[i], a.containers[i++].or(b.containers[j++]));
+      }
+    }
+    return result;
+  }
+
+  /** Values in {@code a} and not in {@code b}. */
+  public static IntBitmap andNot(IntBitmap a, IntBitmap b) {
+    IntBitmap result = new IntBitmap();
+    int j = 0;
+    for (int i = 0; i < a.chunks; i++) {
+      while (j < b.chunks && b.keys[j] < a.keys[i]) {
+        j++;
+      }
+      if (j < b.chunks && b.keys[j] == a.keys[i]) {
+        result.appendChunk(a.keys[i], a.containers[i].andNot(b.containers[j]));
+      } else {
+        result.appendChunk(a.keys[i], a.containers[i].copy());
+      }
+    }
+    return result;
+  }
+
+  /** Bytes taken by the containers, for statistics. */
+  public long sizeInBytes() {
+    long bytes = 2L * keys.length + 8L * containers.length;
+    for (int i = 0; i < chunks; i++) {
+      bytes += containers[i].sizeInBytes();
+    }
+    return bytes;
+  }
+
+  /** Write the set to a file, to be read with {@link #deserialize(Path)}. */
+  public void write(Path path) throws IOException {
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+      write(out);
+    }
+  }
+
+  void write(DataOutputStream out) throws IOException {
+    out.writeInt(MAGIC);
+    out.writeInt(chunks);
+    for (int i = 0; i < chunks; i++) {
+      out.writeChar(keys[i]);
+      containers[i].write(out);
+    }
+  }
+
+  /**
+   * Read a set written by {@link #write(Path)}. This is a plain deserialization: the whole file is
+   * read, and every container is copied into arrays on the heap.
+   */
+  public static IntBitmap deserialize(Path path) throws IOException {
+    return deserialize(ByteBuffer.wrap(Files.readAllBytes(path)));
+  }
+
+  static IntBitmap deserialize(ByteBuffer buffer) throws IOException {
+    if (buffer.getInt() != MAGIC) {
+      throw new IOException("Not a bitmap file");
+    }
+    IntBitmap bitmap = new IntBitmap();
+    int chunks = buffer.getInt();
+    for (int i = 0; i < chunks; i++) {
+      char key = buffer.getChar();
+      bitmap.appendChunk(key, Container.read(buffer));
+    }
+    return bitmap;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (!(o instanceof IntBitmap other) || other.chunks != chunks) {
+      return false;
+    }
+    for (int i = 0; i < chunks; i++) {
+      if (keys[i] != other.keys[i] || !containers[i].sameValues(other.containers[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    int hash = 0;
+    for (PrimitiveIterator.OfInt it = iterator(); it.hasNext(); ) {
+      hash = 31 * hash + it.nextInt();
+    }
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("IntBitmap[size=%d, chunks=%d]", size(), chunks);
+  }
+
+  private static char high(int value) {
+    return (char) (value >>> 16);
+  }
+
+  private static char low(int value) {
+    return (char) value;
+  }
+
+  private int find(char high) {
+    return Arrays.binarySearch(keys, 0, chunks, high);
+  }
+
+  private void insertChunk(int index, char key, Container container) {
+    if (chunks == keys.length) {
+      keys = Arrays.copyOf(keys, 2 * chunks);
+      containers = Arrays.copyOf(containers, 2 * chunks);
+    }
+    System.arraycopy(keys, index, keys, index + 1, chunks - index);
+    System.arraycopy(containers, index, containers, index + 1, chunks - index);
+    keys[index] = key;
+    containers[index] = container;
+    chunks++;
+  }
+
+  private void removeChunk(int index) {
+    System.arraycopy(keys, index + 1, keys, index, chunks - index - 1);
+    System.arraycopy(containers, index + 1, containers, index, chunks - index - 1);
+    containers[--chunks] = null;
+  }
+
+  /** Add a chunk after all others; empty (null) containers are skipped. */
+  private void appendChunk(char key, Container container) {
+    if (container != null) {
+      insertChunk(chunks, key, container);
+    }
+  }
+
+  /** The low 16 bits of the values in a chunk. */
+  private abstract static class Container {
+    abstract int cardinality();
+
+    abstract boolean contains(char value);
+
+    /** May return a container of another type. */
+    abstract Container add(char value);
+
+    /** May return a container of another type, or null if it is empty. */
+    abstract Container remove(char value);
+
+    /** The smallest value not less than {@code from}, or -1. */
+    abstract int next(int from);
+
+    abstract Container copy();
+
+    abstract long sizeInBytes();
+
+    abstract void write(DataOutputStream out) throws IOException;
+
+    static Container read(ByteBuffer buffer) {
+      byte type = buffer.get();
+      int cardinality = buffer.getInt();
+      if (type == BITMAP) {
+        long[] words = new long[BITMAP_WORDS];
+        buffer.asLongBuffer().get(words);
+        buffer.position(buffer.position() + 8 * BITMAP_WORDS);
+        return new BitmapContainer(words, cardinality);
+      }
+      char[] values = new char[cardinality];
+      buffer.asCharBuffer().get(values);
+      buffer.position(buffer.position() + 2 * cardinality);
+      return new ArrayContainer(values, cardinality);
+    }
+
+    /** Null if empty. */
+    Container and(Container other) {
+      if (this instanceof BitmapContainer a && other instanceof BitmapContainer b) {
+        long[] words = new long[BITMAP_WORDS];
+        for (int i = 0; i < BITMAP_WORDS; i++) {
+          words[i] = a.words[i] & b.words[i];
+        }
+        return BitmapContainer.of(words);
+      }
+      ArrayContainer array = (ArrayContainer) (this instanceof ArrayContainer ? this : other);
+      Container lookup = array == this ? other : this;
+      char[] values = new char[array.size];
+      int size = 0;
+      for (int i = 0; i < array.size; i++) {
+        if (lookup.contains(array.values[i])) {
+          values[size++] = array.values[i];
+        }
+      }
+      return size == 0 ? null : new ArrayContainer(values, size);
+    }
+
+    Container or(Container other) {
+      if (this instanceof ArrayContainer a
+          && other instanceof ArrayContainer b
+          && a.size + b.size <= ARRAY_MAXIMUM) {
+        char[] values = new char[a.size + b.size];
+        int i = 0, j = 0, size = 0;
+        while (i < a.size || j < b.size) {
+          if (j == b.size || (i < a.size && a.values[i] < b.values[j])) {
+            values[size++] = a.values[i++];
+          } else if (i == a.size || a.values[i] > b.values[j]) {
+            values[size++] = b.values[j++];
+          } else {
+            values[size++] = a.values[i++];
+            j++;
+          }
+        }
+        return new ArrayContainer(values, size);
+      }
+      long[] words = new long[BITMAP_WORDS];
+      setBits(words);
+      other.setBits(words);
+      return BitmapContainer.of(words);
+    }
+
+    /** Null if empty. */
+    Container andNot(Container other) {
+      if (this instanceof ArrayContainer a) {
+        char[] values = new char[a.size];
+        int size = 0;
+        for (int i = 0; i < a.size; i++) {
+          if (!other.contains(a.values[i])) {
+            values[size++] = a.values[i];
+          }
+        }
+        return size == 0 ? null : new ArrayContainer(values, size);
+      }
+      long[] words = ((BitmapContainer) this).words.clone();
+      if (other instanceof BitmapContainer b) {
+        for (int i = 0; i < BITMAP_WORDS; i++) {
+          words[i] &= ~b.words[i];
+        }
+      } else {
+        ArrayContainer b = (ArrayContainer) other;
+        for (int i = 0; i < b.size; i++) {
+          words[b.values[i] >>> 6] &= ~(1L << b.values[i]);
+        }
+      }
+      return BitmapContainer.of(words);
+    }
+
+    abstract void setBits(long[] words);
+
+    boolean sameValues(Container other) {
+      if (cardinality() != other.cardinality()) {
+        return false;
+      }
+      for (int v = next(0); v >= 0; v = v == 0xffff ? -1 : next(v + 1)) {
+        if (!other.contains((char) v)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  private static final class ArrayContainer extends Container {
+    char[] values;
+    int size;
+
+    ArrayContainer() {
+      this(new char[4], 0);
+    }
+
+    ArrayContainer(char[] values, int size) {
+      this.values = values;
+      this.size = size;
+    }
+
+    @Override
+    int cardinality() {
+      return size;
+    }
+
+    @Override
+    boolean contains(char value) {
+      return Arrays.binarySearch(values, 0, size, value) >= 0;
+    }
+
+    @Override
+    Container add(char value) {
+      int index = Arrays.binarySearch(values, 0, size, value);
+      if (index >= 0) {
+        return this;
+      }
+      if (size == ARRAY_MAXIMUM) {
+        long[] words = new long[BITMAP_WORDS];
+        setBits(words);
+        return new BitmapContainer(words, size).add(value);
+      }
+      index = -index - 1;
+      if (size == values.length) {
+        values = Arrays.copyOf(values, Math.min(ARRAY_MAXIMUM, 2 * size));
+      }
+      System.arraycopy(values, index, values, index + 1, size - index);
+      values[index] = value;
+      size++;
+      return this;
+    }
+
+    @Override
+    Container remove(char value) {
+      int index = Arrays.binarySearch(values, 0, size, value);
+      if (index >= 0) {
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+      }
+      return size == 0 ? null : this;
+    }
+
+    @Override
+    int next(int from) {
+      int index = Arrays.binarySearch(values, 0, size, (char) from);
+      if (index < 0) {
+        index = -index - 1;
+      }
+      return index < size ? values[index] : -1;
+    }
+
+    @Override
+    Container copy() {
+      return new ArrayContainer(Arrays.copyOf(values, size), size);
+    }
+
+    @Override
+    long sizeInBytes() {
+      return 2L * values.length;
+    }
+
+    @Override
+    void setBits(long[] words) {
+      for (int i = 0; i < size; i++) {
+        words[values[i] >>> 6] |= 1L << values[i];
+      }
+    }
+
+    @Override
+    void write(DataOutputStream out) throws IOException {
+      out.writeByte(ARRAY);
+      out.writeInt(size);
+      for (int i = 0; i < size; i++) {
+        out.writeChar(values[i]);
+      }
+    }
+  }
+
+  private static final class BitmapContainer extends Container {
+    final long[] words;
+    int cardinality;
+
+    BitmapContainer(long[] words, int cardinality) {
+      this.words = words;
+      this.cardinality = cardinality;
+    }
+
+    /** A bitmap, or an array if the values are few, or null if there are none. */
+    static Container of(long[] words) {
+      int cardinality = 0;
+      for (long word : words) {
+        cardinality += Long.bitCount(word);
+      }
+      if (cardinality == 0) {
+        return null;
+      }
+      BitmapContainer bitmap = new BitmapContainer(words, cardinality);
+      return cardinality <= ARRAY_MAXIMUM ? bitmap.toArray() : bitmap;
+    }
+
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    boolean contains(char value) {
+      return (words[value >>> 6] & (1L << value)) != 0;
+    }
+
+    @Override
+    Container add(char value) {
+      long word = words[value >>> 6];
+      long bit = 1L << value;
+      if ((word & bit) == 0) {
+        words[value >>> 6] = word | bit;
+        cardinality++;
+      }
+      return this;
+    }
+
+    @Override
+    Container remove(char value) {
+      long word = words[value >>> 6];
+      long bit = 1L << value;
+      if ((word & bit) != 0) {
+        words[value >>> 6] = word & ~bit;
+        cardinality--;
+      }
+      return cardinality <= ARRAY_MAXIMUM ? toArray() : this;
+    }
+
+    @Override
+    int next(int from) {
+      int index = from >>> 6;
+      if (index >= BITMAP_WORDS) {
+        return -1;
+      }
+      long word = words[index] & (-1L << from);
+      while (word == 0) {
+        if (++index == BITMAP_WORDS) {
+          return -1;
+        }
+        word = words[index];
+      }
+      return (index << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    @Override
+    Container copy() {
+      return new BitmapContainer(words.clone(), cardinality);
+    }
+
+    @Override
+    long sizeInBytes() {
+      return 8L * BITMAP_WORDS;
+    }
+
+    @Override
+    void setBits(long[] target) {
+      for (int i = 0; i < BITMAP_WORDS; i++) {
+        target[i] |= words[i];
+      }
+    }
+
+    ArrayContainer toArray() {
+      char[] values = new char[cardinality];
+      int size = 0;
+      for (int v = next(0); v >= 0; v = v == 0xffff ? -1 : next(v + 1)) {
+        values[size++] = (char) v;
+      }
+      return new ArrayContainer(values, size);
+    }
+
+    @Override
+    void write(DataOutputStream out) throws IOException {
+      out.writeByte(BITMAP);
+      out.writeInt(cardinality);
+      for (long word : words) {
+        out.writeLong(word);
+      }
+    }
+  }
+}
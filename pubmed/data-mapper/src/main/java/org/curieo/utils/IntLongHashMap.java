@@ -0,0 +1,80 @@
+package org.curieo.utils;
+
+/**
+ * Open addressing hash map from positive {@code int} keys to {@code long} values. A map of tens of
+ * millions of PubMed identifiers takes 12 bytes per slot, where a {@code HashMap<Long, Long>} needs
+ * around 80.
+ *
+ * <p>Key 0 (and negative keys) cannot be stored: 0 marks an empty slot. Not thread safe.
+ */
+public class IntLongHashMap extends OpenHashTable {
+  private int[] keys;
+  private long[] values;
+
+  public IntLongHashMap() {
+    this(MINIMUM_CAPACITY);
+  }
+
+  /**
+   * @param expectedSize number of entries that fit without resizing
+   */
+  public IntLongHashMap(int expectedSize) {
+    allocateTable(tableSize(expectedSize));
+  }
+
+  public boolean containsKey(int key) {
+    return keys[slot(key)] != 0;
+  }
+
+  /**
+   * @return the value stored for {@code key}, or {@code missing} if there is none
+   */
+  public long get(int key, long missing) {
+    int slot = slot(key);
+    return keys[slot] == 0 ? missing : values[slot];
+  }
+
+  public void put(int key, long value) {
+    if (key <= 0) {
+      throw new IllegalArgumentException(String.format("Cannot store key %d", key));
+    }
+    int slot = slot(key);
+    if (keys[slot] == 0) {
+      keys[slot] = key;
+      if (added()) {
+        slot = slot(key);
+      }
+    }
+    values[slot] = value;
+  }
+
+  @Override
+  void resize() {
+    int[] oldKeys = keys;
+    long[] oldValues = values;
+    allocateTable(oldKeys.length * 2);
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != 0) {
+        int slot = slot(oldKeys[i]);
+        keys[slot] = oldKeys[i];
+        values[slot] = oldValues[i];
+      }
+    }
+  }
+
+  @Override
+  void allocate(int capacity) {
+    keys = new int[capacity];
+    values = new long[capacity];
+  }
+
+  @Override
+  int capacity() {
+    return keys.length;
+  }
+
+  @Override
+  long keyAt(int slot) {
+    return keys[slot];
+  }
+}
@@ -0,0 +1,118 @@
+package org.curieo.utils;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map from {@code long} keys to {@code int} values, e.g. from identifiers to
+ * positions in a list. Meant to be filled, read and cleared over and over: {@link #clear()} keeps
+ * the table.
+ *
+ * <p>Any key can be stored; key 0 is kept aside, as 0 marks an empty slot. Not thread safe.
+ */
+public class LongIntHashMap extends OpenHashTable {
+  private long[] keys;
+  private int[] values;
+  private boolean hasZero;
+  private int zeroValue;
+
+  @FunctionalInterface
+  public interface EntryConsumer {
+    void accept(long key, int value);
+  }
+
+  public LongIntHashMap() {
+    this(MINIMUM_CAPACITY);
+  }
+
+  /**
+   * @param expectedSize number of entries that fit without resizing
+   */
+  public LongIntHashMap(int expectedSize) {
+    allocateTable(tableSize(expectedSize));
+  }
+
+  public boolean containsKey(long key) {
+    return key == 0 ? hasZero : keys[slot(key)] != 0;
+  }
+
+  /**
+   * @return the value stored for {@code key}, or {@code missing} if there is none
+   */
+  public int get(long key, int missing) {
+    if (key == 0) {
+      return hasZero ? zeroValue : missing;
+    }
+    int slot = slot(key);
+    return keys[slot] == 0 ? missing : values[slot];
+  }
+
+  public void put(long key, int value) {
+    if (key == 0) {
+      if (!hasZero) {
+        hasZero = true;
+        size++;
+      }
+      zeroValue = value;
+      return;
+    }
+    int slot = slot(key);
+    if (keys[slot] == 0) {
+      keys[slot] = key;
+      if (added()) {
+        slot = slot(key);
+      }
+    }
+    values[slot] = value;
+  }
+
+  /** Visit all entries, in no particular order. */
+  public void forEach(EntryConsumer consumer) {
+    if (hasZero) {
+      consumer.accept(0L, zeroValue);
+    }
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i] != 0) {
+        consumer.accept(keys[i], values[i]);
+      }
+    }
+  }
+
+  /** Remove all entries, keeping the capacity. */
+  public void clear() {
+    if (size > 0) {
+      Arrays.fill(keys, 0L);
+      size = 0;
+      hasZero = false;
+    }
+  }
+
+  @Override
+  void resize() {
+    long[] oldKeys = keys;
+    int[] oldValues = values;
+    allocateTable(oldKeys.length * 2);
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != 0) {
+        int slot = slot(oldKeys[i]);
+        keys[slot] = oldKeys[i];
+        values[slot] = oldValues[i];
+      }
+    }
+  }
+
+  @Override
+  void allocate(int capacity) {
+    keys = new long[capacity];
+    values = new int[capacity];
+  }
+
+  @Override
+  int capacity() {
+    return keys.length;
+  }
+
+  @Override
+  long keyAt(int slot) {
+    return keys[slot];
+  }
+}
@@ -0,0 +1,77 @@
+package org.curieo.utils;
+
+/**
+ * What the open addressing hash maps with primitive keys share: the sizing of the table, its load,
+ * and finding the slot of a key by linear probing. Subclasses keep the keys and values in arrays of
+ * their own types, where key 0 marks an empty slot.
+ */
+abstract class OpenHashTable {
+  static final int MINIMUM_CAPACITY = 16;
+  private static final float LOAD_FACTOR = 0.75f;
+
+  int size;
+  private int threshold;
+
+  public int size() {
+    return size;
+  }
+
+  /** Allocate the key and value arrays, empty, for a table of {@code capacity} slots. */
+  abstract void allocate(int capacity);
+
+  /** Number of slots in the table. */
+  abstract int capacity();
+
+  /** The key in the slot, 0 if it is empty. */
+  abstract long keyAt(int slot);
+
+  /** Allocate a table twice the size and put the entries of the current one in it. */
+  abstract void resize();
+
+  /** Allocate a table of {@code capacity} slots, which grows when it is three quarters full. */
+  final void allocateTable(int capacity) {
+    allocate(capacity);
+    threshold = (int) (capacity * LOAD_FACTOR);
+  }
+
+  /**
+   * Count an entry put in an empty slot.
+   *
+   * @return whether the table grew, after which every key may be in another slot
+   */
+  final boolean added() {
+    if (++size > threshold) {
+      resize();
+      return true;
+    }
+    return false;
+  }
+
+  /** Slot holding {@code key}, or the empty slot where it would go. */
+  final int slot(long key) {
+    int mask = capacity() - 1;
+    int slot = mix(key) & mask;
+    for (long k = keyAt(slot); k != 0 && k != key; k = keyAt(slot)) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  /** Capacity of a table that holds {@code expectedSize} entries without growing. */
+  static int tableSize(int expectedSize) {
+    long needed = (long) Math.ceil(Math.max(expectedSize, 1) / LOAD_FACTOR) + 1;
+    int capacity = Integer.highestOneBit((int) Math.min(needed, 1 << 30));
+    return Math.max(MINIMUM_CAPACITY, capacity < needed ? capacity << 1 : capacity);
+  }
+
+  /** Identifiers are mostly dense and sequential; spread them over the table. */
+  static int mix(long key) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s[size=%d, capacity=%d]", getClass().getSimpleName(), size, capacity());
+  }
+}
@@ -0,0 +1,37 @@
+package org.curieo.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class RecordCodecTest {
+
+  @Test
+  void testRoundTrip() {
+    StandardRecord record =
+        StandardRecord.builder()
+            .identifier("12345")
+            .origin("pubmed24n0001.xml.gz")
+            .titles(List.of(new Text("A title", "eng")))
+            .abstractText(List.of(new Text("An abstract, repeated. ".repeat(20), null)))
+            .authors(List.of("Doe, J", "Roe, R"))
+            .references(List.of(new ReferenceGroup("A citation", Map.of("pubmed", "54321"))))
+            .identifiers(List.of(new Metadata("doi", "10.1000/xyz")))
+            .publicationDate("2024-02-07")
+            .build();
+    for (RecordCodec codec : RecordCodec.values()) {
+      assertEquals(record, RecordCodec.decode(codec.encode(record)), codec.name());
+    }
+    assertEquals(record, RecordCodec.fromJson(record.toJson()));
+    assertTrue(
+        RecordCodec.SmileDeflate.encode(record).length < RecordCodec.Json.encode(record).length);
+  }
+
+  @Test
+  void testFromStr() {
+    assertEquals(RecordCodec.SmileDeflate, RecordCodec.fromStr("smile-deflate"));
+  }
+}
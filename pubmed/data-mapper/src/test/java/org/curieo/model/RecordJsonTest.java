@@ -0,0 +1,43 @@
+package org.curieo.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class RecordJsonTest {
+
+  @Test
+  void testSameAsJackson() throws Exception {
+    Map<String, String> identifiers = new LinkedHashMap<>();
+    identifiers.put("pubmed", "54321");
+    identifiers.put("doi", null);
+    StandardRecord record =
+        StandardRecord.builder()
+            .identifier("12345")
+            .origin("pubmed24n0001.xml.gz")
+            .titles(List.of(new Text("Quotes \" and \\ and\ttabs, ünïcode  ", "eng")))
+            .abstractText(Arrays.asList(new Text("An abstract", null), null))
+            .authors(Arrays.asList("Doe, J", null))
+            .references(Arrays.asList(new ReferenceGroup("A citation", identifiers), null))
+            .identifiers(List.of(new Metadata("doi", "10.1000/xyz")))
+            .publicationDate("2024-02-07")
+            .build();
+    StandardRecord empty = StandardRecord.builder().identifier("1").build();
+
+    ObjectMapper json = new ObjectMapper();
+    ObjectMapper smile = new ObjectMapper(new SmileFactory());
+    for (StandardRecord r : List.of(record, empty)) {
+      assertEquals(json.writeValueAsString(r), RecordJson.toJson(r));
+      byte[] expected = smile.writeValueAsBytes(r);
+      byte[] encoded = RecordCodec.Smile.encode(r);
+      assertArrayEquals(expected, Arrays.copyOfRange(encoded, 1, encoded.length));
+    }
+  }
+}
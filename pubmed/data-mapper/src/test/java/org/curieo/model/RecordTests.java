@@ -1,8 +1,10 @@
 package org.curieo.model;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 
 import java.util.Calendar;
+import java.util.List;
 import org.junit.jupiter.api.Test;
 
 class RecordTests {
@@ -14,5 +16,23 @@ class RecordTests {
     calendar.set(Calendar.YEAR, 2000);
     calendar.set(Calendar.DAY_OF_MONTH, 1);
     assertEquals("2000-01-01", Record.formatDate(calendar.getTime()));
+    calendar.set(999, Calendar.DECEMBER, 31);
+    assertEquals("0999-12-31", Record.formatDate(calendar.getTime()));
+  }
+
+  @Test
+  void testDigest() {
+    StandardRecord record =
+        StandardRecord.builder()
+            .identifier("12345")
+            .origin("pubmed24n0001.xml.gz")
+            .titles(List.of(new Text("A title", null)))
+            .build();
+    StandardRecord update = StandardRecord.copy(record);
+    update.setOrigin("pubmed24n1307.xml.gz");
+    // the origin does not count
+    assertEquals(record.digest(), update.digest());
+    update.setTitles(List.of(new Text("A corrected title", null)));
+    assertNotEquals(record.digest(), update.digest());
   }
 }
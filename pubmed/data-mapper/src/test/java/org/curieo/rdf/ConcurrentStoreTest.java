@@ -0,0 +1,137 @@
+package org.curieo.rdf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+
+class ConcurrentStoreTest {
+
+  @Test
+  void testConcurrentLoadAndQuery() throws Exception {
+    ConcurrentStore store = new ConcurrentStore(SkosNamespaceService::createStore, 8);
+    int writers = 4, perWriter = 20_000;
+    ExecutorService executor = Executors.newFixedThreadPool(writers + 1);
+    AtomicBoolean loading = new AtomicBoolean(true);
+    Future<Integer> reader =
+        executor.submit(
+            () -> {
+              int queries = 0;
+              while (loading.get()) {
+                for (RdfTriple t : store.getBySubjectAndVerb("c" + queries % 1000, "broader")) {
+                  assertTrue(t.getSubject().startsWith("c"));
+                }
+                store.countByVerb(Constants.RDF_TYPE);
+                queries++;
+              }
+              return queries;
+            });
+    List<Future<?>> loads = new ArrayList<>();
+    for (int w = 0; w < writers; w++) {
+      int writer = w;
+      loads.add(
+          executor.submit(
+              () -> {
+                List<RdfTriple> batch = new ArrayList<>();
+                for (int i = 0; i < perWriter; i++) {
+                  String subject = "c" + (writer * perWriter + i);
+                  store.assertTriple(subject, Constants.RDF_TYPE, "Concept");
+                  batch.add(new RdfAnonymousTriple(subject, "broader", "c" + i % 100));
+                  if (batch.size() == 1000) {
+                    store.acceptAll(batch);
+                    batch.clear();
+                  }
+                }
+                store.acceptAll(batch);
+              }));
+    }
+    for (Future<?> load : loads) {
+      load.get();
+    }
+    loading.set(false);
+    assertTrue(reader.get() > 0);
+    executor.shutdown();
+
+    assertEquals(2 * writers * perWriter, store.size());
+    assertEquals(writers * perWriter, store.countByVerb(Constants.RDF_TYPE));
+    assertEquals(writers * perWriter / 100, store.countByVerbAndObject("broader", "c7"));
+    assertEquals(1, store.countBySubjectAndVerb("c12345", "broader"));
+    assertTrue(store.contains("c12345", Constants.RDF_TYPE, "Concept"));
+    // anonymous triples are not duplicated
+    assertEquals(0, store.acceptAll(List.of(new RdfAnonymousTriple("c1", "broader", "c1"))));
+  }
+
+  @Test
+  void testNamingEveryTriple() {
+    ConcurrentStore store = new ConcurrentStore(Store::new, 1);
+    int n = 5 * ConcurrentStore.TAIL_SIZE + 7;
+    for (int i = 0; i < n; i++) {
+      store.assertTriple("s" + i, "v", "o" + i);
+    }
+    // every naming leaves out a triple, of a sealed store or of the tail
+    for (int i = 0; i < n; i++) {
+      store.assertAndNameTriple("u" + i, "s" + i, "v", "o" + i);
+    }
+    assertEquals(n, store.size());
+    assertEquals(n, store.countByVerb("v"));
+    for (int i = 0; i < n; i += 97) {
+      assertEquals(List.of(store.getByUri("u" + i)), list(store.getTriples("s" + i, "v", "o" + i)));
+    }
+  }
+
+  @Test
+  void testNamingAcrossSealedStores() {
+    ConcurrentStore store = new ConcurrentStore(Store::new, 1);
+    int n = 5 * ConcurrentStore.TAIL_SIZE + 7;
+    for (int i = 0; i < n; i++) {
+      store.assertTriple("s" + i, "v", "o" + i % 10);
+    }
+    store.assertTriple("s1", "label", new Literal("one", "en", null));
+    assertEquals(n + 1, store.size());
+
+    // naming replaces the anonymous triple, in a sealed store and in the tail
+    RdfTriple sealed = store.assertAndNameTriple("u1", "s1", "v", "o1");
+    RdfTriple recent = store.assertAndNameTriple("u2", "s" + (n - 1), "v", "o" + (n - 1) % 10);
+    assertSame(sealed, store.assertAndNameTriple("u1", "s1", "v", "o1"));
+    assertEquals(n + 1, store.size());
+    assertEquals(List.of(sealed), list(store.getTriples("s1", "v", "o1")));
+    assertSame(recent, store.getByUri("u2"));
+    assertEquals(n, store.countByVerb("v"));
+    assertEquals(n / 10 + (n % 10 > 1 ? 1 : 0), store.countByVerbAndObject("v", "o1"));
+    assertEquals(1, store.countBySubjectAndVerb("s1", "v"));
+
+    // the left-out triples stay out once their stores are sealed and merged
+    for (int i = 0; i < 3 * ConcurrentStore.TAIL_SIZE; i++) {
+      store.assertTriple("t" + i, "w", "o");
+    }
+    assertEquals(List.of(sealed), list(store.getTriples("s1", "v", "o1")));
+    assertEquals(n, store.countByVerb("v"));
+    assertEquals(n + 1 + 3 * ConcurrentStore.TAIL_SIZE, store.size());
+    assertSame(recent, store.getByUri("u2"));
+    assertNull(store.getByUri("u3"));
+    assertFalse(store.contains("s1", "v", "o2"));
+
+    // duplicates are found in sealed stores as well
+    assertEquals(0, store.acceptAll(List.of(new RdfAnonymousTriple("s2", "v", "o2"))));
+    assertEquals(
+        0,
+        store.acceptAll(
+            List.of(new RdfAnonymousLiteralTriple("s1", "label", new Literal("one", "en", null)))));
+    assertEquals(0, store.acceptAll(List.of(new RdfAnonymousTriple("s1", "v", "o1"))));
+  }
+
+  private static List<RdfTriple> list(Iterable<RdfTriple> triples) {
+    List<RdfTriple> list = new ArrayList<>();
+    triples.forEach(list::add);
+    return list;
+  }
+}
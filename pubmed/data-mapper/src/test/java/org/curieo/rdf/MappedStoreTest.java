@@ -0,0 +1,88 @@
+package org.curieo.rdf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MappedStoreTest {
+
+  @Test
+  void testSameAsStore(@TempDir Path dir) throws IOException {
+    Path ttl = dir.resolve("journals.ttl");
+    try (InputStream is =
+        new GZIPInputStream(new FileInputStream("../corpora/pc_journal_000001.ttl.gz"))) {
+      Files.copy(is, ttl);
+    }
+    Store store =
+        new Turtle(SkosNamespaceService::createStore).read(ttl.toFile()).get(Turtle.DEFAULT);
+    Path mapped = dir.resolve("journals.crs");
+    MappedStore.write(store, mapped);
+
+    try (MappedStore read = MappedStore.open(mapped)) {
+      assertEquals(store.size(), read.size());
+      assertEquals(asStrings(store), asStrings(read));
+      assertEquals(
+          store.getNamespaceService().knownPrefixes(), read.getNamespaceService().knownPrefixes());
+      assertEquals(new HashSet<>(store.getVerbs()), new HashSet<>(read.getVerbs()));
+      for (String verb : store.getVerbs()) {
+        assertEquals(store.countByVerb(verb), read.countByVerb(verb));
+      }
+      RdfTriple first = store.iterator().next();
+      String s = first.getSubject(), v = first.getVerb();
+      assertEquals(asStrings(store.getBySubject(s)), asStrings(read.getBySubject(s)));
+      assertEquals(
+          asStrings(store.getBySubjectAndVerb(s, v)), asStrings(read.getBySubjectAndVerb(s, v)));
+      assertEquals(store.countBySubjectAndVerb(s, v), read.countBySubjectAndVerb(s, v));
+    }
+  }
+
+  @Test
+  void testLiteralsAndUris(@TempDir Path dir) throws IOException {
+    Store store = new Store();
+    store.assertTriple("t1", "a", "label", new Literal("één", "nl", null));
+    store.assertTriple(null, "a", "label", new Literal("1", null, "xsd:int"));
+    store.assertTriple("t2", "a", "broader", "b");
+    store.assertTriple(null, "c", "broader", "b");
+    Path mapped = dir.resolve("small.crs");
+    MappedStore.write(store, mapped);
+
+    try (MappedStore read = MappedStore.open(mapped)) {
+      assertEquals(4, read.size());
+      assertEquals(asStrings(store), asStrings(read));
+      assertEquals("één", read.getByUri("t1").getLiteralObject().getValue());
+      assertEquals("nl", read.getByUri("t1").getLiteralObject().getLanguage());
+      assertEquals("b", read.getByUri("t2").getObject());
+      assertNull(read.getByUri("t3"));
+      assertEquals(2, read.countByVerbAndObject("broader", "b"));
+      assertTrue(read.contains("c", "broader", "b"));
+      assertFalse(read.contains("b", "broader", "c"));
+      assertFalse(read.getBySubject("unknown").iterator().hasNext());
+    }
+  }
+
+  private static Set<String> asStrings(Iterable<RdfTriple> triples) {
+    Set<String> strings = new HashSet<>();
+    for (RdfTriple t : triples) {
+      strings.add(
+          String.join(
+              " ",
+              t.getUri() == null ? "_" : t.getUri(),
+              t.getSubject(),
+              t.getVerb(),
+              t.isLiteral() ? t.getLiteralObject().toString() : t.getObject()));
+    }
+    return strings;
+  }
+}
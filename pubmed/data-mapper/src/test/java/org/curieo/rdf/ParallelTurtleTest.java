@@ -0,0 +1,124 @@
+package org.curieo.rdf;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ParallelTurtleTest {
+
+  @Test
+  void testSameAsSequential(@TempDir Path dir) throws IOException {
+    Path ttl = dir.resolve("journals.ttl");
+    try (InputStream is =
+        new GZIPInputStream(new FileInputStream("../corpora/pc_journal_000001.ttl.gz"))) {
+      Files.copy(is, ttl);
+    }
+    Store sequential =
+        new Turtle(SkosNamespaceService::createStore).read(ttl.toFile()).get(Turtle.DEFAULT);
+
+    ParallelTurtle parallel =
+        new ParallelTurtle(SkosNamespaceService::createStore, 4).withChunkSize(1 << 16);
+    assertTrue(parallel.plan(ttl).chunks().size() > 10);
+    Store read = parallel.read(ttl).get(Turtle.DEFAULT);
+    assertEquals(sequential.size(), read.size());
+    assertEquals(asStrings(sequential), asStrings(read));
+
+    ConcurrentStore concurrent = parallel.readConcurrent(ttl).get(Turtle.DEFAULT);
+    assertEquals(sequential.size(), concurrent.size());
+  }
+
+  @Test
+  void testCompressed() throws IOException {
+    Path gz = Path.of("../corpora/pc_journal_000001.ttl.gz");
+    Store sequential =
+        new Turtle(SkosNamespaceService::createStore).read(gz.toFile()).get(Turtle.DEFAULT);
+
+    ParallelTurtle parallel = new ParallelTurtle(SkosNamespaceService::createStore, 4);
+    assertNull(parallel.plan(gz));
+    ConcurrentStore concurrent = parallel.readConcurrent(gz).get(Turtle.DEFAULT);
+    assertTrue(sequential.size() > 0);
+    assertEquals(sequential.size(), concurrent.size());
+  }
+
+  @Test
+  void testCompressedTrig(@TempDir Path dir) throws IOException {
+    Path gz = dir.resolve("graphs.trig.gz");
+    try (Writer writer =
+        new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(gz)), UTF_8)) {
+      writer.write(
+          """
+          @prefix ex: <http://example.org/> .
+          ex:g1 {
+            ex:b ex:next ex:c .
+          }
+          """);
+    }
+    ParallelTurtle parallel = new ParallelTurtle(Store::new, 2);
+    assertNull(parallel.plan(gz));
+    ConcurrentStore graph = parallel.readConcurrent(gz).get("http://example.org/g1");
+    assertEquals(1, graph.size());
+    assertEquals("http://example.org/", graph.getNamespaceService().getFullForm("ex"));
+  }
+
+  @Test
+  void testTrigAndLiterals(@TempDir Path dir) throws IOException {
+    Path trig = dir.resolve("graphs.trig");
+    Files.writeString(
+        trig,
+        """
+        @prefix ex: <http://example.org/> .
+        # a comment . with a dot
+        ex:a ex:label "one . two" .
+        ex:g1 {
+          ex:b ex:label \"""three .
+        four\""" .
+          ex:b ex:next <http://example.org/x.y> .
+        }
+        ex:c ex:label "five \\" . six"@en ;
+          ex:next ex:a , ex:b .
+        """);
+    ParallelTurtle parallel = new ParallelTurtle(Store::new, 2).withChunkSize(1);
+    assertEquals(5, parallel.plan(trig).chunks().size());
+    Map<String, Store> graphs = parallel.read(trig);
+    Store main = graphs.get(Turtle.DEFAULT);
+    assertEquals(4, main.size());
+    assertEquals(2, graphs.get("http://example.org/g1").size());
+    assertEquals(
+        "three .\nfour",
+        graphs
+            .get("http://example.org/g1")
+            .getBySubjectAndVerb("http://example.org/b", "http://example.org/label")
+            .findFirst()
+            .orElseThrow()
+            .getLiteralObject()
+            .getValue());
+  }
+
+  private static Set<String> asStrings(Store store) {
+    return store.stream()
+        .map(
+            t ->
+                t.getSubject()
+                    + " "
+                    + t.getVerb()
+                    + " "
+                    + (t.isSimple() ? t.getObject() : t.getLiteralObject()))
+        .collect(Collectors.toSet());
+  }
+}
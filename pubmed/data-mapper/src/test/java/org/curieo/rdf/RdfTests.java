@@ -1,8 +1,14 @@
 package org.curieo.rdf;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 import java.io.File;
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Stream;
@@ -49,4 +55,64 @@ class RdfTests {
         new Turtle(SkosNamespaceService::createStore).read(new File(path)).get(Turtle.DEFAULT);
     printStats(rdf);
   }
+
+  @Test
+  void testStoreIndexes() {
+    Store rdf = new Store();
+    for (int i = 0; i < 100; i++) {
+      rdf.assertTriple(null, "s" + (i % 10), "broader", "o" + i);
+      rdf.assertTriple(null, "s" + (i % 10), "label", new Literal("l" + i, "en", null));
+    }
+    assertEquals(10, rdf.countBySubjectAndVerb("s3", "broader"));
+    assertEquals(100, rdf.countByVerb("label"));
+    assertTrue(rdf.contains("s3", "broader", "o3"));
+    assertFalse(rdf.contains("s3", "broader", "o4"));
+    assertEquals(1, rdf.countByVerbAndObject("broader", "o2"));
+
+    assertTrue(rdf.remove(rdf.findFirst("s3", "broader", "o3").orElseThrow()));
+    assertFalse(rdf.contains("s3", "broader", "o3"));
+    // the abandoned slot is reused, out of order in the posting lists
+    rdf.assertTriple(null, "s3", "broader", "o3");
+    assertEquals(
+        List.of("o3"),
+        rdf.getTriples("s3", "broader", "o3").stream().map(RdfTriple::getObject).toList());
+    assertEquals(10, rdf.countBySubjectAndVerb("s3", "broader"));
+
+    assertEquals(20, rdf.replaceUri("s3", "t3"));
+    assertEquals(0, rdf.countBySubjectAndVerb("s3", "broader"));
+    assertEquals(10, rdf.countBySubjectAndVerb("t3", "label"));
+    assertTrue(rdf.statistics()[4].contains("triple offsets"));
+
+    // terms are interned through the dictionary
+    String subject = rdf.getBySubject("s1").findFirst().orElseThrow().getSubject();
+    assertSame(subject, rdf.createTriple(new String("s1"), "broader", "o1").getSubject());
+    assertEquals(List.of("broader", "label"), rdf.getVerbs().stream().sorted().toList());
+  }
+
+  @Test
+  void testIntersection() {
+    // a high fan-out verb and object against selective subjects and objects
+    Store rdf = new Store();
+    for (int i = 0; i < 5000; i++) {
+      rdf.assertTriple(null, "c" + i, Constants.RDF_TYPE, "Concept");
+      rdf.assertTriple(null, "c" + i, "broader", "c" + (i / 7));
+      if (i % 3 == 0) {
+        rdf.assertTriple(null, "c" + (i / 3), "broader", "Concept");
+      }
+    }
+    for (String object : List.of("c0", "c1", "c100", "c714", "Concept", "none")) {
+      long expected =
+          rdf.stream()
+              .filter(t -> t.getVerb().equals("broader"))
+              .filter(t -> object.equals(t.getObject()))
+              .count();
+      assertEquals(expected, rdf.countByVerbAndObject("broader", object));
+    }
+    for (int i = 0; i < 5000; i += 37) {
+      assertTrue(rdf.contains("c" + i, Constants.RDF_TYPE, "Concept"));
+      assertTrue(rdf.contains("c" + i, "broader", "c" + (i / 7)));
+      assertFalse(rdf.contains("c" + i, "broader", "c" + (i / 7 + 1)));
+      assertEquals(i < 1667 ? 2 : 1, rdf.countBySubjectAndVerb("c" + i, "broader"));
+    }
+  }
 }
@@ -0,0 +1,77 @@
+package org.curieo.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class HttpFetcherTest {
+  private HttpServer server;
+  private final HttpFetcher fetcher = new HttpFetcher(Duration.ofSeconds(5), Duration.ofSeconds(5));
+
+  @BeforeEach
+  void start() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext(
+        "/echo",
+        exchange -> {
+          byte[] body = exchange.getRequestBody().readAllBytes();
+          exchange.sendResponseHeaders(200, body.length);
+          exchange.getResponseBody().write(body);
+          exchange.close();
+        });
+    server.createContext(
+        "/missing",
+        exchange -> {
+          byte[] body = "not here".getBytes(StandardCharsets.UTF_8);
+          exchange.sendResponseHeaders(404, body.length);
+          exchange.getResponseBody().write(body);
+          exchange.close();
+        });
+    server.start();
+  }
+
+  @AfterEach
+  void stop() {
+    server.stop(0);
+  }
+
+  private URI uri(String path) {
+    return URI.create("http://localhost:" + server.getAddress().getPort() + path);
+  }
+
+  @Test
+  void testPostForm() throws IOException {
+    HttpResponse<InputStream> response = fetcher.postForm(uri("/echo"), Map.of("id", "PMC 13&"));
+    assertThat(response.statusCode()).isEqualTo(200);
+    try (InputStream body = response.body()) {
+      assertThat(new String(body.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("id=PMC+13%26");
+    }
+  }
+
+  @Test
+  void testDownload() throws IOException {
+    File file = File.createTempFile("download", "tmp");
+    try {
+      Files.writeString(file.toPath(), "before");
+      assertThat(fetcher.download(uri("/missing"), file.toPath())).isFalse();
+      assertThat(Files.readString(file.toPath())).isEqualTo("before");
+      assertThat(fetcher.download(uri("/echo"), file.toPath())).isTrue();
+      assertThat(file.length()).isZero();
+    } finally {
+      file.delete();
+    }
+  }
+}
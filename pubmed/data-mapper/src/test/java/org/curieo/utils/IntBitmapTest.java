@@ -0,0 +1,80 @@
+package org.curieo.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class IntBitmapTest {
+
+  @Test
+  void testAgainstTreeSet() {
+    // dense chunks become bitmaps, sparse ones stay arrays; removing thins bitmaps out again
+    Random random = new Random(42);
+    IntBitmap bitmap = new IntBitmap();
+    TreeSet<Integer> expected = new TreeSet<>();
+    for (int i = 0; i < 200_000; i++) {
+      int value = i % 2 == 0 ? random.nextInt(100_000) : random.nextInt(Integer.MAX_VALUE);
+      assertEquals(expected.add(value), bitmap.add(value));
+    }
+    for (int i = 0; i < 60_000; i++) {
+      int value = random.nextInt(100_000);
+      assertEquals(expected.remove(value), bitmap.remove(value));
+    }
+    assertEquals(expected.size(), bitmap.size());
+    PrimitiveIterator.OfInt it = bitmap.iterator();
+    for (int value : expected) {
+      assertEquals(value, it.nextInt());
+    }
+    assertFalse(it.hasNext());
+    assertTrue(bitmap.contains(expected.last()));
+    assertFalse(bitmap.contains(-1));
+  }
+
+  @Test
+  void testSetAlgebra() {
+    IntBitmap a = new IntBitmap();
+    IntBitmap b = new IntBitmap();
+    TreeSet<Integer> and = new TreeSet<>(), or = new TreeSet<>(), andNot = new TreeSet<>();
+    for (int i = 0; i < 300_000; i++) {
+      boolean inA = i % 2 == 0 || i > 250_000, inB = i % 3 == 0 && i < 200_000;
+      if (inA) a.add(i);
+      if (inB) b.add(i);
+      if (inA && inB) and.add(i);
+      if (inA || inB) or.add(i);
+      if (inA && !inB) andNot.add(i);
+    }
+    assertEquals(and, toSet(IntBitmap.and(a, b)));
+    assertEquals(or, toSet(IntBitmap.or(a, b)));
+    assertEquals(andNot, toSet(IntBitmap.andNot(a, b)));
+    assertTrue(IntBitmap.andNot(b, b).isEmpty());
+  }
+
+  @Test
+  void testPersistence(@TempDir Path dir) throws IOException {
+    IntBitmap bitmap = new IntBitmap();
+    for (int i = 0; i < 100_000; i += 3) {
+      bitmap.add(i);
+    }
+    bitmap.add(Integer.MAX_VALUE);
+    Path path = dir.resolve("ids.bitmap");
+    bitmap.write(path);
+    IntBitmap read = IntBitmap.deserialize(path);
+    assertEquals(bitmap, read);
+    assertTrue(read.contains(Integer.MAX_VALUE));
+    assertEquals(bitmap.size(), read.size());
+  }
+
+  private static TreeSet<Integer> toSet(IntBitmap bitmap) {
+    TreeSet<Integer> set = new TreeSet<>();
+    bitmap.iterator().forEachRemaining((int v) -> set.add(v));
+    return set;
+  }
+}
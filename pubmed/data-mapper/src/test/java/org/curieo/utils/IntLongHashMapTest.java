@@ -0,0 +1,32 @@
+package org.curieo.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class IntLongHashMapTest {
+
+  @Test
+  void testPutAndGet() {
+    IntLongHashMap map = new IntLongHashMap(4);
+    for (int i = 1; i <= 100_000; i++) {
+      map.put(i, -i * 31L);
+    }
+    map.put(7, 7L);
+    assertEquals(100_000, map.size());
+    assertEquals(7L, map.get(7, 0L));
+    assertEquals(-31L * 99_999, map.get(99_999, 0L));
+    assertTrue(map.containsKey(100_000));
+    assertFalse(map.containsKey(100_001));
+    assertEquals(-1L, map.get(100_001, -1L));
+  }
+
+  @Test
+  void testInvalidKey() {
+    IntLongHashMap map = new IntLongHashMap();
+    assertThrows(IllegalArgumentException.class, () -> map.put(0, 1L));
+  }
+}
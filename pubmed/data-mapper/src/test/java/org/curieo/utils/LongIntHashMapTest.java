@@ -0,0 +1,48 @@
+package org.curieo.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class LongIntHashMapTest {
+
+  @Test
+  void testPutAndGet() {
+    LongIntHashMap map = new LongIntHashMap(4);
+    for (long i = -50_000; i < 50_000; i++) {
+      map.put(i << 20, (int) i);
+    }
+    map.put(7L << 20, 70);
+    assertEquals(100_000, map.size());
+    assertEquals(70, map.get(7L << 20, -1));
+    assertEquals(0, map.get(0L, -1));
+    assertEquals(-50_000, map.get(-50_000L << 20, -1));
+    assertTrue(map.containsKey(49_999L << 20));
+    assertFalse(map.containsKey(50_000L << 20));
+    assertEquals(-1, map.get(1L, -1));
+
+    long[] sum = new long[2];
+    map.forEach(
+        (key, value) -> {
+          sum[0]++;
+          sum[1] += value;
+        });
+    assertEquals(100_000, sum[0]);
+    assertEquals(-50_000 + 70 - 7, sum[1]);
+  }
+
+  @Test
+  void testClear() {
+    LongIntHashMap map = new LongIntHashMap();
+    map.put(0L, 1);
+    map.put(Long.MAX_VALUE, 2);
+    map.clear();
+    assertEquals(0, map.size());
+    assertFalse(map.containsKey(0L));
+    assertFalse(map.containsKey(Long.MAX_VALUE));
+    map.put(Long.MAX_VALUE, 3);
+    assertEquals(3, map.get(Long.MAX_VALUE, -1));
+  }
+}
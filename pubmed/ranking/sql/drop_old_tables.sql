@@ -1,5 +1,7 @@
 DROP TABLE IF EXISTS citationcounts;
 
+DROP TABLE IF EXISTS citationsources;
+
 DROP TABLE IF EXISTS citationcountswithoutyear;
 
 DROP TABLE IF EXISTS pubmed_percentiles;
\ No newline at end of file
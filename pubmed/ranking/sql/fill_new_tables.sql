@@ -1,24 +1,28 @@
-CREATE TABLE IF NOT EXISTS citationcountswithoutyear (
-    id SERIAL PRIMARY KEY,
-    reference VARCHAR(255),
-    reference_type VARCHAR(255),
-    citationcount INTEGER
+CREATE TABLE IF NOT EXISTS citationsources (
+    articleid BIGINT PRIMARY KEY,
+    cited BIGINT[] NOT NULL
 );
 
-INSERT INTO citationcountswithoutyear (reference, reference_type, citationcount) 
-SELECT reference, reference_type, COUNT(reference) AS citationcount FROM referencetable GROUP BY reference, reference_type;
+INSERT INTO citationsources (articleid, cited)
+SELECT articleid, array_agg(DISTINCT pmid ORDER BY pmid) AS cited
+FROM (
+    SELECT articleid,
+    CASE WHEN trim(reference) ~ '^[0-9]{1,18}$' THEN trim(reference)::bigint END AS pmid
+    FROM referencetable
+    WHERE reference_type = 0
+) r
+WHERE pmid > 0
+GROUP BY articleid;
 
 CREATE TABLE IF NOT EXISTS citationcounts (
-    id SERIAL PRIMARY KEY,
-    identifier BIGINT,
-    citationcount INTEGER,
+    identifier BIGINT PRIMARY KEY,
+    citationcount INTEGER NOT NULL,
     year INTEGER
 );
 
 INSERT INTO citationcounts (identifier, citationcount, year)
-select r.identifier as identifier,
-coalesce(rt.citationcount, 0) citationcount, year
-from records r left join citationcountswithoutyear rt
-on cast(r.identifier as varchar(30)) = rt.reference
-group by r.identifier,
-coalesce(rt.citationcount, 0), year;
\ No newline at end of file
+SELECT coalesce(r.identifier, c.identifier) AS identifier,
+coalesce(c.citationcount, 0) AS citationcount, r.year
+FROM (SELECT cast(identifier AS bigint) AS identifier, max(year) AS year FROM records GROUP BY 1) r
+FULL JOIN (SELECT unnest(cited) AS identifier, count(*) AS citationcount FROM citationsources GROUP BY 1) c
+ON c.identifier = r.identifier;
@@ -34,7 +34,7 @@ pub async fn read_citation_counts(
     table: &str,
 ) -> Result<HashMap<i32, Vec<CitationCount>>> {
     let query = format!(
-        "SELECT CAST(identifier AS VARCHAR(255)) as identifier, citationcount, year FROM {table}"
+        "SELECT CAST(identifier AS VARCHAR(255)) as identifier, citationcount, year FROM {table} WHERE year IS NOT NULL"
     );
     println!("Issuing query {query}");
 